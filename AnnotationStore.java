@@ -0,0 +1,161 @@
+package com.udfviewer.app;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Vurgu ve notları belge başına bir JSON dosyasında saklar
+ * (filesDir/annotations). Dosya adı tam metnin uzunluğu ve özetidir
+ * (String.hashCode); aynı belge farklı Uri'den açılsa da notları bulunur,
+ * metni değişmiş belgeye eski konumlar uygulanmaz.
+ *
+ * Düzenlemeler belgenin dizinini hemen değiştirir (UI iş parçacığı);
+ * dosya tek iş parçacıklı yürütücüde geçici dosyaya yazılıp yerine
+ * taşınır, böylece yarıda kalan yazım eski kaydı bozmaz.
+ */
+public class AnnotationStore {
+
+    private static final String TAG = "AnnotationStore";
+    private static final String DIR = "annotations";
+
+    private static AnnotationStore instance;
+
+    public static synchronized AnnotationStore getInstance(Context context) {
+        if (instance == null) instance = new AnnotationStore(context.getApplicationContext());
+        return instance;
+    }
+
+    private final File dir;
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+
+    private AnnotationStore(Context context) {
+        this.dir = new File(context.getFilesDir(), DIR);
+    }
+
+    /** Belgenin kayıtlı notları; arka plan iş parçacığında, ayrıştırmadan sonra çağrılır. */
+    public UdfAnnotationIndex load(UdfDocument document) {
+        UdfTextStore text = document.getText();
+        if (text.isEmpty()) return UdfAnnotationIndex.EMPTY;
+        File file = fileFor(text);
+        if (!file.exists()) return UdfAnnotationIndex.EMPTY;
+        long t = PerfMetrics.start();
+        try {
+            JSONObject obj = new JSONObject(readFile(file));
+            JSONArray array = obj.getJSONArray("annotations");
+            List<UdfAnnotation> list = new ArrayList<>(array.length());
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject a = array.getJSONObject(i);
+                int start = a.getInt("start");
+                int end = a.getInt("end");
+                // Bozuk ya da metin dışı kayıt atlanır, diğerleri yüklenir
+                if (start < 0 || end <= start || end > text.length()) continue;
+                list.add(new UdfAnnotation(a.getLong("id"), start, end,
+                        a.optInt("color", UdfAnnotation.DEFAULT_COLOR),
+                        a.has("note") ? a.getString("note") : null,
+                        a.optLong("created", 0)));
+            }
+            PerfMetrics.stop("annotations.load", t);
+            return UdfAnnotationIndex.of(list);
+        } catch (Exception e) {
+            Log.w(TAG, "Notlar okunamadı: " + file.getName(), e);
+            return UdfAnnotationIndex.EMPTY;
+        }
+    }
+
+    /** Tam metindeki [start, end) aralığına vurgu (note null değilse not) ekler. */
+    public UdfAnnotation add(UdfDocument document, int start, int end, String note) {
+        UdfAnnotation annotation;
+        synchronized (this) {
+            UdfAnnotationIndex current = document.getAnnotations();
+            annotation = new UdfAnnotation(current.nextId(), start, end,
+                    note != null ? UdfAnnotation.NOTE_COLOR : UdfAnnotation.DEFAULT_COLOR,
+                    note, System.currentTimeMillis());
+            document.setAnnotations(current.with(annotation));
+        }
+        save(document);
+        return annotation;
+    }
+
+    public void remove(UdfDocument document, Collection<UdfAnnotation> annotations) {
+        synchronized (this) {
+            document.setAnnotations(document.getAnnotations().without(annotations));
+        }
+        save(document);
+    }
+
+    private void save(UdfDocument document) {
+        UdfTextStore text = document.getText();
+        if (text.isEmpty()) return;
+        io.execute(() -> {
+            // Sırayla yazıldığından son anlık görüntü kazanır
+            UdfAnnotationIndex snapshot = document.getAnnotations();
+            File file = fileFor(text);
+            try {
+                if (snapshot.isEmpty()) {
+                    file.delete();
+                    return;
+                }
+                write(file, text, snapshot);
+            } catch (Exception e) {
+                Log.w(TAG, "Notlar kaydedilemedi", e);
+            }
+        });
+    }
+
+    private void write(File file, UdfTextStore text, UdfAnnotationIndex index) throws Exception {
+        JSONObject obj = new JSONObject();
+        obj.put("version", 1);
+        obj.put("textLength", text.length());
+        obj.put("textHash", text.contentHash());
+        JSONArray array = new JSONArray();
+        for (UdfAnnotation a : index.all()) {
+            JSONObject o = new JSONObject();
+            o.put("id", a.getId());
+            o.put("start", a.getStart());
+            o.put("end", a.getEnd());
+            o.put("color", a.getColor());
+            if (a.hasNote()) o.put("note", a.getNote());
+            o.put("created", a.getCreated());
+            array.put(o);
+        }
+        obj.put("annotations", array);
+
+        if (!dir.exists() && !dir.mkdirs()) throw new IOException("Dizin oluşturulamadı: " + dir);
+        File tmp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            out.write(obj.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Notlar kaydedilemedi: " + file.getName());
+        }
+    }
+
+    private File fileFor(UdfTextStore text) {
+        return new File(dir, text.length() + "_" + Integer.toHexString(text.contentHash()) + ".json");
+    }
+
+    private static String readFile(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            byte[] data = new byte[(int) file.length()];
+            int off = 0, n;
+            while (off < data.length && (n = in.read(data, off, data.length - off)) > 0) off += n;
+            return new String(data, 0, off, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,449 @@
+package com.udfviewer.app;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.Intent;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+
+import androidx.core.content.FileProvider;
+
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bir klasördeki (SAF ağacı veya dosya sistemi dizini) tüm .udf dosyalarının
+ * imzalarını paralel doğrular ve sonuçları bitiş sırasıyla rapora yazar.
+ *
+ * - İşçi sayısı çekirdek sayısına göre sınırlıdır; okuma G/Ç ağırlıklı olduğu
+ *   için çekirdek başına iki işçi, en fazla MAX_WORKERS.
+ * - Tüm işçiler aynı SignatureVerifier'ı kullanır; güven deposu, ayrıştırılmış
+ *   ara sertifikalar ve CRL indeksi dosyalar arasında paylaşılır.
+ * - Rapor aynı zamanda günlüktür: her satır bir dosyanın bittiğini kaydeder.
+ *   Yarıda kalan denetim yeniden başlatıldığında rapordaki dosyalar atlanır;
+ *   ERROR satırı olan dosyalar yeniden denenir.
+ */
+public class BatchSignatureAuditor {
+
+    private static final String REPORT_DIR = "audits";
+    private static final int MAX_WORKERS = 8;
+    private static final int FLUSH_EVERY = 16;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    public enum Format {
+        CSV("csv", "text/csv"),
+        JSON("jsonl", "application/x-ndjson");
+
+        public final String extension;
+        public final String mimeType;
+
+        Format(String extension, String mimeType) {
+            this.extension = extension;
+            this.mimeType = mimeType;
+        }
+    }
+
+    public static class Summary {
+        public final File reportFile;
+        public final int total;
+        public final int skipped;     // önceki çalışmada tamamlanmış
+        public final int processed;   // bu çalışmada rapora yazılan
+        public final int failed;      // satırı rapora yazılamayan; sonraki çalışmada yeniden denenir
+        /** Rapordaki tüm satırların durum sayıları; önceki çalışmadan atlananlar dahil. */
+        public final Map<SignatureVerifier.SignatureStatus, Integer> counts;
+        public final boolean cancelled;
+        public final long elapsedMs;
+
+        Summary(File reportFile, int total, int skipped, int processed, int failed,
+                Map<SignatureVerifier.SignatureStatus, Integer> counts, boolean cancelled, long elapsedMs) {
+            this.reportFile = reportFile;
+            this.total = total;
+            this.skipped = skipped;
+            this.processed = processed;
+            this.failed = failed;
+            this.counts = counts;
+            this.cancelled = cancelled;
+            this.elapsedMs = elapsedMs;
+        }
+
+        public int count(SignatureVerifier.SignatureStatus status) {
+            Integer n = counts.get(status);
+            return n != null ? n : 0;
+        }
+    }
+
+    public interface AuditCallback {
+        /** İşçi iş parçacığından çağrılır. done, önceki çalışmadan atlananları da içerir. */
+        void onProgress(int done, int total);
+        void onFinished(Summary summary);
+        void onError(String message);
+    }
+
+    /** Denetlenecek tek bir dosya. */
+    private static final class Item {
+        final Uri uri;
+        final String name;
+
+        Item(Uri uri, String name) {
+            this.uri = uri;
+            this.name = name;
+        }
+    }
+
+    private final Context context;
+    private final SignatureVerifier verifier;
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private volatile boolean running;
+
+    public BatchSignatureAuditor(Context context) {
+        this.context = context.getApplicationContext();
+        this.verifier = new SignatureVerifier(this.context);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    /** Bu klasör için daha önce başlatılmış bir denetim raporu varsa onu döndürür. */
+    public File findExistingReport(Uri folder, Format format) {
+        File f = reportFileFor(folder, format);
+        return f.exists() && f.length() > 0 ? f : null;
+    }
+
+    /**
+     * @param resume true ise mevcut rapordaki dosyalar atlanır ve rapora eklenir;
+     *               false ise rapor baştan yazılır.
+     */
+    public void audit(Uri folder, Format format, boolean resume, AuditCallback callback) {
+        if (running) {
+            callback.onError("Bir denetim zaten çalışıyor");
+            return;
+        }
+        running = true;
+        cancelled.set(false);
+        new Thread(() -> {
+            try {
+                callback.onFinished(doAudit(folder, format, resume, callback));
+            } catch (Exception e) {
+                callback.onError("Denetim başarısız: " + e.getMessage());
+            } finally {
+                running = false;
+            }
+        }).start();
+    }
+
+    private Summary doAudit(Uri folder, Format format, boolean resume, AuditCallback callback) throws Exception {
+        long start = System.currentTimeMillis();
+        File report = reportFileFor(folder, format);
+        report.getParentFile().mkdirs();
+
+        Map<String, SignatureVerifier.SignatureStatus> completed = new HashMap<>();
+        if (resume && report.exists()) {
+            trimPartialLine(report);
+            completed = readCompleted(report, format);
+        }
+        boolean append = resume && !completed.isEmpty();
+
+        List<Item> items = listUdfFiles(folder);
+        List<Item> pending = new ArrayList<>(items.size());
+        Map<SignatureVerifier.SignatureStatus, Integer> counts = new EnumMap<>(SignatureVerifier.SignatureStatus.class);
+        for (Item item : items) {
+            SignatureVerifier.SignatureStatus previous = completed.get(item.uri.toString());
+            if (previous == null || previous == SignatureVerifier.SignatureStatus.ERROR) {
+                pending.add(item);
+            } else {
+                Integer n = counts.get(previous);
+                counts.put(previous, n != null ? n + 1 : 1);
+            }
+        }
+        int total = items.size();
+        int skipped = total - pending.size();
+
+        AtomicInteger done = new AtomicInteger(skipped);
+        AtomicInteger processed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        callback.onProgress(skipped, total);
+
+        int workers = Math.max(2, Math.min(MAX_WORKERS, Runtime.getRuntime().availableProcessors() * 2));
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        // Aynı anda kuyrukta bekleyen iş sayısı sınırlı; binlerce dosyada bile bellek sabit
+        Semaphore inFlight = new Semaphore(workers * 2);
+
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(report, append), StandardCharsets.UTF_8))) {
+            if (!append && format == Format.CSV) {
+                out.write("uri,dosya,durum,imzalayan,tarih,imza_tipi,guven_zinciri,hata\n");
+            }
+            final int[] unflushed = {0};
+
+            for (Item item : pending) {
+                if (cancelled.get()) break;
+                inFlight.acquire();
+                pool.execute(() -> {
+                    if (cancelled.get()) {
+                        inFlight.release();
+                        return;
+                    }
+                    try {
+                        SignatureVerifier.SignatureResult result;
+                        try {
+                            result = verifier.verify(item.uri);
+                        } catch (Exception e) {
+                            // Dosya atlanmaz; rapora ERROR satırı olarak girer
+                            result = new SignatureVerifier.SignatureResult(SignatureVerifier.SignatureStatus.ERROR,
+                                    null, null, null, null, "Doğrulama hatası: " + e.getMessage(), null);
+                        }
+                        String line = format == Format.CSV ? toCsv(item, result) : toJson(item, result);
+                        synchronized (out) {
+                            out.write(line);
+                            if (++unflushed[0] >= FLUSH_EVERY) {
+                                out.flush();
+                                unflushed[0] = 0;
+                            }
+                            Integer n = counts.get(result.status);
+                            counts.put(result.status, n != null ? n + 1 : 1);
+                        }
+                        processed.incrementAndGet();
+                    } catch (Exception e) {
+                        // Satırı yazılamayan dosya sayılır ve bir sonraki çalışmada yeniden denenir
+                        failed.incrementAndGet();
+                    } finally {
+                        inFlight.release();
+                        callback.onProgress(done.incrementAndGet(), total);
+                    }
+                });
+            }
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // Havuz sonlandı; sayaçlar artık yalnızca bu iş parçacığında okunuyor
+        return new Summary(report, total, skipped, processed.get(), failed.get(), counts, cancelled.get(),
+                System.currentTimeMillis() - start);
+    }
+
+    // ── Dosya listeleme ──────────────────────────────────────────────────────
+
+    private List<Item> listUdfFiles(Uri folder) throws Exception {
+        List<Item> items = new ArrayList<>();
+        if ("file".equals(folder.getScheme())) {
+            listFiles(new File(folder.getPath()), items);
+        } else {
+            listTree(folder, items);
+        }
+        return items;
+    }
+
+    private static void listFiles(File dir, List<Item> items) {
+        ArrayDeque<File> stack = new ArrayDeque<>();
+        stack.push(dir);
+        while (!stack.isEmpty()) {
+            File[] children = stack.pop().listFiles();
+            if (children == null) continue;
+            for (File f : children) {
+                if (f.isDirectory()) stack.push(f);
+                else if (isUdf(f.getName())) items.add(new Item(Uri.fromFile(f), f.getName()));
+            }
+        }
+    }
+
+    /** SAF ağacını alt klasörleriyle birlikte dolaşır; yalnızca meta veri sorgulanır. */
+    private void listTree(Uri treeUri, List<Item> items) throws Exception {
+        ContentResolver resolver = context.getContentResolver();
+        String[] projection = {
+                DocumentsContract.Document.COLUMN_DOCUMENT_ID,
+                DocumentsContract.Document.COLUMN_DISPLAY_NAME,
+                DocumentsContract.Document.COLUMN_MIME_TYPE
+        };
+        ArrayDeque<String> stack = new ArrayDeque<>();
+        stack.push(DocumentsContract.getTreeDocumentId(treeUri));
+        while (!stack.isEmpty()) {
+            Uri children = DocumentsContract.buildChildDocumentsUriUsingTree(treeUri, stack.pop());
+            try (Cursor c = resolver.query(children, projection, null, null, null)) {
+                if (c == null) continue;
+                while (c.moveToNext()) {
+                    String id = c.getString(0);
+                    String name = c.getString(1);
+                    String mime = c.getString(2);
+                    if (DocumentsContract.Document.MIME_TYPE_DIR.equals(mime)) {
+                        stack.push(id);
+                    } else if (name != null && isUdf(name)) {
+                        items.add(new Item(DocumentsContract.buildDocumentUriUsingTree(treeUri, id), name));
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isUdf(String name) {
+        return name.toLowerCase(Locale.US).endsWith(".udf");
+    }
+
+    // ── Rapor ────────────────────────────────────────────────────────────────
+
+    private File reportFileFor(Uri folder, Format format) {
+        String key;
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256")
+                    .digest(folder.toString().getBytes(StandardCharsets.UTF_8));
+            char[] hex = new char[12];
+            for (int i = 0; i < 6; i++) {
+                hex[2 * i] = HEX[(d[i] >> 4) & 0xF];
+                hex[2 * i + 1] = HEX[d[i] & 0xF];
+            }
+            key = new String(hex);
+        } catch (Exception e) {
+            key = Integer.toHexString(folder.toString().hashCode());
+        }
+        return new File(new File(context.getFilesDir(), REPORT_DIR), "imza_denetimi_" + key + "." + format.extension);
+    }
+
+    /** Süreç yazarken öldüyse son satır yarım kalır; onu keserek rapora güvenle eklenebilir hale getirir. */
+    private static void trimPartialLine(File report) throws Exception {
+        try (RandomAccessFile raf = new RandomAccessFile(report, "rw")) {
+            long pos = raf.length();
+            while (pos > 0) {
+                raf.seek(pos - 1);
+                if (raf.read() == '\n') break;
+                pos--;
+            }
+            if (pos != raf.length()) raf.setLength(pos);
+        }
+    }
+
+    /** Rapordaki tamamlanmış dosyaların URI'leri ve yazılan durumları. */
+    private static Map<String, SignatureVerifier.SignatureStatus> readCompleted(File report, Format format) {
+        Map<String, SignatureVerifier.SignatureStatus> done = new HashMap<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(report), StandardCharsets.UTF_8))) {
+            String line;
+            boolean header = format == Format.CSV;
+            while ((line = in.readLine()) != null) {
+                if (header) { header = false; continue; }
+                try {
+                    String uri;
+                    String status;
+                    if (format == Format.CSV) {
+                        List<String> fields = csvFields(line);
+                        uri = fields.size() > 2 ? fields.get(0) : null;
+                        status = uri != null ? fields.get(2) : null;
+                    } else {
+                        JSONObject obj = new JSONObject(line);
+                        uri = obj.getString("uri");
+                        status = obj.getString("durum");
+                    }
+                    if (uri != null) done.put(uri, SignatureVerifier.SignatureStatus.valueOf(status));
+                } catch (Exception ignored) {}
+            }
+        } catch (Exception ignored) {}
+        return done;
+    }
+
+    /**
+     * Satırdaki alanlar. toCsv her alanı tırnaklar, boş alanı hiç yazmaz;
+     * kapanmamış tırnak (yarım satır) boş liste döndürür.
+     */
+    private static List<String> csvFields(String line) {
+        List<String> fields = new ArrayList<>(8);
+        StringBuilder sb = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') sb.append(c);
+                else if (i + 1 < line.length() && line.charAt(i + 1) == '"') { sb.append('"'); i++; }
+                else quoted = false;
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(sb.toString());
+                sb.setLength(0);
+            } else {
+                sb.append(c);
+            }
+        }
+        if (quoted) return new ArrayList<>();
+        fields.add(sb.toString());
+        return fields;
+    }
+
+    private static String toCsv(Item item, SignatureVerifier.SignatureResult r) {
+        StringBuilder sb = new StringBuilder(256);
+        csv(sb, item.uri.toString()).append(',');
+        csv(sb, item.name).append(',');
+        csv(sb, r.status.name()).append(',');
+        csv(sb, r.signerName).append(',');
+        csv(sb, r.signedAt).append(',');
+        csv(sb, r.rawSignatureType).append(',');
+        csv(sb, r.chainStatus.name()).append(',');
+        csv(sb, r.errorMessage).append('\n');
+        return sb.toString();
+    }
+
+    private static StringBuilder csv(StringBuilder sb, String value) {
+        if (value == null) return sb;
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') sb.append("\"\"");
+            else if (c == '\n' || c == '\r') sb.append(' ');
+            else sb.append(c);
+        }
+        return sb.append('"');
+    }
+
+    private static String toJson(Item item, SignatureVerifier.SignatureResult r) throws Exception {
+        JSONObject obj = new JSONObject();
+        obj.put("uri", item.uri.toString());
+        obj.put("dosya", item.name);
+        obj.put("durum", r.status.name());
+        if (r.signerName != null) obj.put("imzalayan", r.signerName);
+        if (r.signerTitle != null) obj.put("unvan", r.signerTitle);
+        if (r.signedAt != null) obj.put("tarih", r.signedAt);
+        if (r.rawSignatureType != null) obj.put("imza_tipi", r.rawSignatureType);
+        obj.put("guven_zinciri", r.chainStatus.name());
+        if (r.chainMessage != null) obj.put("zincir_mesaji", r.chainMessage);
+        if (r.errorMessage != null) obj.put("hata", r.errorMessage);
+        return obj.toString() + "\n";
+    }
+
+    public static Intent createShareIntent(Context context, File report, Format format) {
+        Uri uri = FileProvider.getUriForFile(context, context.getPackageName() + ".provider", report);
+        Intent intent = new Intent(Intent.ACTION_SEND);
+        intent.setType(format.mimeType);
+        intent.putExtra(Intent.EXTRA_STREAM, uri);
+        intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        return intent;
+    }
+}
@@ -0,0 +1,232 @@
+package com.udfviewer.app;
+
+import android.content.Context;
+
+import java.io.ByteArrayInputStream;
+import java.security.MessageDigest;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.security.auth.x500.X500Principal;
+
+/**
+ * İmzacı sertifikasından uygulamayla gelen köke kadar zinciri kurar ve
+ * doğrular (imza, geçerlilik süresi, CA kısıtı, yerel CRL).
+ *
+ * Köke kadar doğrulanmış her ara sertifika parmak iziyle önbelleğe alınır.
+ * Aynı CA altında imzalanmış yüzlerce belgede zincir bir kez kurulur;
+ * sonrakilerde yalnızca imzacı sertifikasının CA imzası kontrol edilir.
+ * CRL deposu yenilenince önbellek boşaltılır.
+ */
+public class CertificateChainValidator {
+
+    private static final int MAX_CHAIN_LENGTH = 8;
+
+    public enum ChainStatus {
+        TRUSTED,      // Güvenilen köke kadar zincir doğrulandı
+        UNTRUSTED,    // Zincir kurulamadı veya kök güvenilir değil
+        REVOKED,      // Zincirdeki bir sertifika iptal edilmiş
+        EXPIRED,      // Zincirdeki bir sertifika ilgili anda geçerli değil
+        NOT_CHECKED   // Sertifika yok
+    }
+
+    public static final class Result {
+        public final ChainStatus status;
+        public final String message;
+
+        Result(ChainStatus status, String message) {
+            this.status = status;
+            this.message = message;
+        }
+    }
+
+    /** Doğrulanmış bir ara/kök sertifikanın zincir geçerlilik penceresi. */
+    private static final class ValidatedIssuer {
+        final long notBefore;   // zincirdeki en geç başlangıç
+        final long notAfter;    // zincirdeki en erken bitiş
+
+        ValidatedIssuer(long notBefore, long notAfter) {
+            this.notBefore = notBefore;
+            this.notAfter = notAfter;
+        }
+    }
+
+    private static CertificateChainValidator instance;
+
+    public static synchronized CertificateChainValidator getInstance(Context context) {
+        if (instance == null) {
+            instance = new CertificateChainValidator(
+                    CertificateTrustStore.getInstance(context),
+                    RevocationStore.getInstance(context));
+        }
+        return instance;
+    }
+
+    private final CertificateTrustStore trustStore;
+    private final RevocationStore revocationStore;
+    private final ConcurrentHashMap<String, ValidatedIssuer> validatedIssuers = new ConcurrentHashMap<>();
+    private volatile int cacheGeneration = -1;
+
+    private CertificateChainValidator(CertificateTrustStore trustStore, RevocationStore revocationStore) {
+        this.trustStore = trustStore;
+        this.revocationStore = revocationStore;
+    }
+
+    /**
+     * @param cert       imzacı sertifikası
+     * @param extraCerts imza içinde gelen ek sertifikalar (DER), null olabilir
+     * @param at         doğrulama anı (imza zamanı); null ise şimdi
+     */
+    public Result validate(X509Certificate cert, List<byte[]> extraCerts, Date at) {
+        if (cert == null) return new Result(ChainStatus.NOT_CHECKED, null);
+
+        int gen = revocationStore.getGeneration();
+        if (gen != cacheGeneration) {
+            validatedIssuers.clear();
+            cacheGeneration = gen;
+        }
+
+        long time = at != null ? at.getTime() : System.currentTimeMillis();
+        List<X509Certificate> embedded = null;
+        List<String> path = new ArrayList<>();
+        // (sertifika, düzenleyici) çiftleri; CRL'ler ancak zincir köke bağlanınca sorulur
+        List<X509Certificate[]> links = new ArrayList<>();
+        long windowStart = Long.MIN_VALUE;
+        long windowEnd = Long.MAX_VALUE;
+
+        X509Certificate current = cert;
+        for (int depth = 0; depth < MAX_CHAIN_LENGTH; depth++) {
+            if (time < current.getNotBefore().getTime() || time > current.getNotAfter().getTime()) {
+                return new Result(ChainStatus.EXPIRED, describe(current) + " " + formatDate(time)
+                        + " tarihinde geçerli değil");
+            }
+            windowStart = Math.max(windowStart, current.getNotBefore().getTime());
+            windowEnd = Math.min(windowEnd, current.getNotAfter().getTime());
+
+            if (trustStore.isAnchor(current)) {
+                return anchored(links, path, windowStart, windowEnd, time);
+            }
+
+            if (CertificateTrustStore.isSelfSigned(current)) {
+                return new Result(ChainStatus.UNTRUSTED, describe(current)
+                        + " kendinden imzalı ve güvenilen kökler arasında değil");
+            }
+
+            // Düzenleyiciyi bul: önce güven deposu, sonra imzayla gelen sertifikalar
+            X509Certificate issuer = findIssuer(current, trustStore.findBySubject(current.getIssuerX500Principal()));
+            if (issuer == null) {
+                if (embedded == null) embedded = parseAll(extraCerts);
+                issuer = findIssuer(current, embedded);
+            }
+            if (issuer == null) {
+                return new Result(ChainStatus.UNTRUSTED, "Düzenleyici sertifika bulunamadı: "
+                        + current.getIssuerX500Principal().getName(X500Principal.RFC2253));
+            }
+            links.add(new X509Certificate[]{current, issuer});
+
+            String fp = fingerprint(issuer);
+            ValidatedIssuer cached = fp != null ? validatedIssuers.get(fp) : null;
+            if (cached != null && time >= cached.notBefore && time <= cached.notAfter) {
+                return anchored(links, path, Math.max(windowStart, cached.notBefore),
+                        Math.min(windowEnd, cached.notAfter), time);
+            }
+
+            if (issuer.getBasicConstraints() < 0 && !CertificateTrustStore.isSelfSigned(issuer)) {
+                return new Result(ChainStatus.UNTRUSTED, describe(issuer) + " bir CA sertifikası değil");
+            }
+            boolean[] keyUsage = issuer.getKeyUsage();
+            if (keyUsage != null && keyUsage.length > 5 && !keyUsage[5]) {
+                return new Result(ChainStatus.UNTRUSTED, describe(issuer) + " sertifika imzalama yetkisine sahip değil");
+            }
+
+            if (fp != null) path.add(fp);
+            current = issuer;
+        }
+        return new Result(ChainStatus.UNTRUSTED, "Sertifika zinciri çok uzun");
+    }
+
+    /**
+     * Zincir güvenilen köke bağlandı. Her düzenleyici artık güvenilir
+     * olduğundan bekleyen CRL'leri onun anahtarıyla doğrulanabilir; iptal
+     * durumu imzacıdan köke doğru sorulur.
+     */
+    private Result anchored(List<X509Certificate[]> links, List<String> path,
+                            long notBefore, long notAfter, long time) {
+        boolean revocationUnknown = false;
+        for (X509Certificate[] link : links) {
+            RevocationStore.Status rev = revocationStore.check(link[0], link[1]);
+            if (rev.state == RevocationStore.State.REVOKED && rev.revokedAt <= time) {
+                return new Result(ChainStatus.REVOKED, describe(link[0]) + " "
+                        + formatDate(rev.revokedAt) + " tarihinde iptal edilmiş");
+            }
+            if (rev.state == RevocationStore.State.UNKNOWN || rev.stale) revocationUnknown = true;
+        }
+        remember(path, notBefore, notAfter);
+        return trusted(revocationUnknown);
+    }
+
+    private Result trusted(boolean revocationUnknown) {
+        return new Result(ChainStatus.TRUSTED, revocationUnknown
+                ? "Zincir doğrulandı; güncel iptal listesi bulunmuyor" : "Zincir doğrulandı");
+    }
+
+    /** Yoldaki her düzenleyici köke kadar doğrulandı; pencereyle birlikte sakla. */
+    private void remember(List<String> path, long notBefore, long notAfter) {
+        for (String fp : path) validatedIssuers.put(fp, new ValidatedIssuer(notBefore, notAfter));
+    }
+
+    private static X509Certificate findIssuer(X509Certificate cert, List<X509Certificate> candidates) {
+        for (X509Certificate c : candidates) {
+            if (!c.getSubjectX500Principal().equals(cert.getIssuerX500Principal())) continue;
+            try {
+                cert.verify(c.getPublicKey());
+                return c;
+            } catch (Exception ignored) {}
+        }
+        return null;
+    }
+
+    private static List<X509Certificate> parseAll(List<byte[]> ders) {
+        if (ders == null || ders.isEmpty()) return Collections.emptyList();
+        List<X509Certificate> list = new ArrayList<>(ders.size());
+        try {
+            CertificateFactory cf = CertificateFactory.getInstance("X.509");
+            for (byte[] der : ders) {
+                try {
+                    list.add((X509Certificate) cf.generateCertificate(new ByteArrayInputStream(der)));
+                } catch (Exception ignored) {}
+            }
+        } catch (Exception ignored) {}
+        return list;
+    }
+
+    private static String fingerprint(X509Certificate cert) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(cert.getEncoded());
+            StringBuilder sb = new StringBuilder(d.length * 2);
+            for (byte b : d) sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            return sb.toString();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static String describe(X509Certificate cert) {
+        String dn = cert.getSubjectX500Principal().getName(X500Principal.RFC2253);
+        for (String part : dn.split(",")) {
+            if (part.trim().toUpperCase(Locale.US).startsWith("CN=")) return "\"" + part.trim().substring(3) + "\"";
+        }
+        return "\"" + dn + "\"";
+    }
+
+    private static String formatDate(long time) {
+        return new SimpleDateFormat("dd.MM.yyyy", Locale.getDefault()).format(new Date(time));
+    }
+}
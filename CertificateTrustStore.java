@@ -0,0 +1,136 @@
+package com.udfviewer.app;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.security.auth.x500.X500Principal;
+
+/**
+ * Uygulamayla gelen kök ve ara sertifikaları (Kamu SM / e-imza ESHS zinciri)
+ * konu adına göre indeksler. Ağ erişimi gerekmez.
+ *
+ * Kaynaklar:
+ *   assets/trust/   — APK ile dağıtılan .crt/.cer/.pem dosyaları
+ *   files/trust/    — sonradan içe aktarılan sertifikalar
+ *
+ * Kendinden imzalı sertifikalar güven çapası (trust anchor) kabul edilir.
+ */
+public class CertificateTrustStore {
+
+    private static final String TAG = "CertificateTrustStore";
+    private static final String TRUST_DIR = "trust";
+
+    private static CertificateTrustStore instance;
+
+    public static synchronized CertificateTrustStore getInstance(Context context) {
+        if (instance == null) instance = new CertificateTrustStore(context.getApplicationContext());
+        return instance;
+    }
+
+    private final Context context;
+    private final Map<X500Principal, List<X509Certificate>> bySubject = new HashMap<>();
+    private final Set<X509Certificate> anchors = new HashSet<>();
+    private boolean loaded;
+
+    private CertificateTrustStore(Context context) {
+        this.context = context;
+    }
+
+    /** Verilen konu adına sahip tüm bilinen sertifikalar (kök + ara). */
+    public synchronized List<X509Certificate> findBySubject(X500Principal subject) {
+        ensureLoaded();
+        List<X509Certificate> list = bySubject.get(subject);
+        return list != null ? list : Collections.emptyList();
+    }
+
+    public synchronized boolean isAnchor(X509Certificate cert) {
+        ensureLoaded();
+        return anchors.contains(cert);
+    }
+
+    public synchronized int size() {
+        ensureLoaded();
+        int n = 0;
+        for (List<X509Certificate> l : bySubject.values()) n += l.size();
+        return n;
+    }
+
+    /** files/trust altına yeni sertifika eklendikten sonra çağrılır. */
+    public synchronized void reload() {
+        bySubject.clear();
+        anchors.clear();
+        loaded = false;
+        ensureLoaded();
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        loaded = true;
+        try {
+            CertificateFactory cf = CertificateFactory.getInstance("X.509");
+
+            String[] bundled = context.getAssets().list(TRUST_DIR);
+            if (bundled != null) {
+                for (String name : bundled) {
+                    try (InputStream in = context.getAssets().open(TRUST_DIR + "/" + name)) {
+                        addAll(cf, in);
+                    } catch (Exception e) {
+                        Log.w(TAG, "Sertifika okunamadı: " + name, e);
+                    }
+                }
+            }
+
+            File[] imported = new File(context.getFilesDir(), TRUST_DIR).listFiles();
+            if (imported != null) {
+                for (File f : imported) {
+                    try (InputStream in = new FileInputStream(f)) {
+                        addAll(cf, in);
+                    } catch (Exception e) {
+                        Log.w(TAG, "Sertifika okunamadı: " + f.getName(), e);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Güven deposu yüklenemedi", e);
+        }
+    }
+
+    private void addAll(CertificateFactory cf, InputStream in) throws Exception {
+        // PEM ve DER, tek dosyada birden çok sertifika desteklenir
+        for (Certificate c : cf.generateCertificates(in)) {
+            X509Certificate cert = (X509Certificate) c;
+            List<X509Certificate> list = bySubject.get(cert.getSubjectX500Principal());
+            if (list == null) {
+                list = new ArrayList<>(1);
+                bySubject.put(cert.getSubjectX500Principal(), list);
+            }
+            if (list.contains(cert)) continue;
+            list.add(cert);
+            if (isSelfSigned(cert)) anchors.add(cert);
+        }
+    }
+
+    static boolean isSelfSigned(X509Certificate cert) {
+        if (!cert.getSubjectX500Principal().equals(cert.getIssuerX500Principal())) return false;
+        try {
+            cert.verify(cert.getPublicKey());
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
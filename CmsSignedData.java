@@ -0,0 +1,445 @@
+package com.udfviewer.app;
+
+import java.io.ByteArrayInputStream;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * sign.sgn içindeki CMS/PKCS#7 SignedData yapısını DER olarak ayrıştırır.
+ *
+ * Ayrıştırıcı baştan sona tek yönde ilerler; her TLV bir kez okunur, yani
+ * süre imza boyutuyla doğrusaldır. Sertifika kümesi, SignerInfo, imzalı
+ * öznitelikler (messageDigest, signingTime) ve imza değeri doğrudan konumlarından
+ * alınır. Yalnızca imzacıya ait sertifika CertificateFactory ile çözülür.
+ *
+ *   ContentInfo   ::= SEQUENCE { contentType OID, [0] EXPLICIT SignedData }
+ *   SignedData    ::= SEQUENCE { version, digestAlgorithms SET, encapContentInfo,
+ *                                [0] certificates OPT, [1] crls OPT, signerInfos SET }
+ *   SignerInfo    ::= SEQUENCE { version, sid, digestAlgorithm, [0] signedAttrs OPT,
+ *                                signatureAlgorithm, signature OCTET STRING, [1] OPT }
+ */
+public class CmsSignedData {
+
+    private static final String OID_SIGNED_DATA     = "1.2.840.113549.1.7.2";
+    private static final String OID_MESSAGE_DIGEST  = "1.2.840.113549.1.9.4";
+    private static final String OID_SIGNING_TIME    = "1.2.840.113549.1.9.5";
+    private static final String OID_SUBJECT_KEY_ID  = "2.5.29.14";
+
+    private static final int TAG_INTEGER      = 0x02;
+    private static final int TAG_OCTET_STRING = 0x04;
+    private static final int TAG_OID          = 0x06;
+    private static final int TAG_UTC_TIME     = 0x17;
+    private static final int TAG_GEN_TIME     = 0x18;
+    private static final int TAG_SEQUENCE     = 0x30;
+    private static final int TAG_SET          = 0x31;
+    private static final int TAG_CTX0_CONS    = 0xA0;
+    private static final int TAG_CTX1_CONS    = 0xA1;
+    private static final int TAG_CTX0_PRIM    = 0x80;
+
+    private final List<byte[]> certificates = new ArrayList<>();
+    private byte[] encapsulatedContent;
+
+    private byte[] sidIssuer;          // IssuerAndSerialNumber.issuer (ham DER)
+    private byte[] sidSerial;          // IssuerAndSerialNumber.serialNumber (değer baytları)
+    private byte[] sidKeyIdentifier;   // [0] SubjectKeyIdentifier
+    private String digestAlgorithmOid;
+    private String signatureAlgorithmOid;
+    private byte[] signedAttributes;   // SET etiketiyle yeniden kodlanmış, imzalanan baytlar
+    private byte[] messageDigest;
+    private Date signingTime;
+    private byte[] signatureValue;
+
+    private X509Certificate signerCertificate;
+
+    private CmsSignedData() {}
+
+    public static CmsSignedData parse(byte[] der) throws Exception {
+        CmsSignedData cms = new CmsSignedData();
+        DerReader top = new DerReader(der, 0, der.length);
+
+        DerReader contentInfo = top.expect(TAG_SEQUENCE).children();
+        String contentType = contentInfo.expect(TAG_OID).oid();
+        if (!OID_SIGNED_DATA.equals(contentType)) {
+            throw new Exception("SignedData değil: " + contentType);
+        }
+        DerReader signedData = contentInfo.expect(TAG_CTX0_CONS).children()
+                .expect(TAG_SEQUENCE).children();
+
+        signedData.expect(TAG_INTEGER);        // version
+        signedData.expect(TAG_SET);            // digestAlgorithms
+
+        DerReader encap = signedData.expect(TAG_SEQUENCE).children();
+        encap.expect(TAG_OID);
+        if (encap.hasNext() && encap.peekTag() == TAG_CTX0_CONS) {
+            Tlv eContent = encap.next().children().next();
+            cms.encapsulatedContent = octets(eContent);
+        }
+
+        if (signedData.peekTag() == TAG_CTX0_CONS) {
+            DerReader certs = signedData.next().children();
+            while (certs.hasNext()) {
+                Tlv cert = certs.next();
+                // Yalnızca X.509 Certificate (SEQUENCE); öznitelik sertifikaları atlanır
+                if (cert.tag == TAG_SEQUENCE) cms.certificates.add(cert.encoded());
+            }
+        }
+        if (signedData.peekTag() == TAG_CTX1_CONS) signedData.next();   // crls
+
+        DerReader signerInfos = signedData.expect(TAG_SET).children();
+        if (!signerInfos.hasNext()) throw new Exception("SignerInfo bulunamadı");
+        cms.parseSignerInfo(signerInfos.next().children());
+
+        cms.signerCertificate = cms.resolveSignerCertificate();
+        return cms;
+    }
+
+    private void parseSignerInfo(DerReader si) throws Exception {
+        si.expect(TAG_INTEGER);   // version
+
+        Tlv sid = si.next();
+        if (sid.tag == TAG_SEQUENCE) {
+            DerReader ias = sid.children();
+            sidIssuer = ias.expect(TAG_SEQUENCE).encoded();
+            sidSerial = ias.expect(TAG_INTEGER).value();
+        } else if (sid.tag == TAG_CTX0_PRIM) {
+            sidKeyIdentifier = sid.value();
+        } else {
+            throw new Exception("Tanınmayan SignerIdentifier");
+        }
+
+        digestAlgorithmOid = si.expect(TAG_SEQUENCE).children().expect(TAG_OID).oid();
+
+        if (si.peekTag() == TAG_CTX0_CONS) {
+            Tlv attrs = si.next();
+            // İmza, [0] IMPLICIT yerine SET OF etiketiyle kodlanmış hali üzerinden atılır
+            signedAttributes = attrs.encoded();
+            signedAttributes[0] = (byte) TAG_SET;
+            DerReader list = attrs.children();
+            while (list.hasNext()) {
+                DerReader attr = list.next().children();
+                String type = attr.expect(TAG_OID).oid();
+                DerReader values = attr.expect(TAG_SET).children();
+                if (!values.hasNext()) continue;
+                Tlv v = values.next();
+                if (OID_MESSAGE_DIGEST.equals(type) && v.tag == TAG_OCTET_STRING) {
+                    messageDigest = v.value();
+                } else if (OID_SIGNING_TIME.equals(type)) {
+                    signingTime = parseTime(v);
+                }
+            }
+        }
+
+        signatureAlgorithmOid = si.expect(TAG_SEQUENCE).children().expect(TAG_OID).oid();
+        signatureValue = si.expect(TAG_OCTET_STRING).value();
+    }
+
+    /**
+     * Sertifika kümesinde SignerIdentifier ile eşleşeni bulur. IssuerAndSerialNumber
+     * durumunda karşılaştırma TBSCertificate'in ham baytları üzerinden yapılır;
+     * CertificateFactory yalnızca eşleşen tek sertifika için çağrılır.
+     */
+    private X509Certificate resolveSignerCertificate() throws Exception {
+        CertificateFactory cf = CertificateFactory.getInstance("X.509");
+        for (byte[] certDer : certificates) {
+            if (sidIssuer != null) {
+                DerReader tbs = new DerReader(certDer, 0, certDer.length)
+                        .expect(TAG_SEQUENCE).children().expect(TAG_SEQUENCE).children();
+                if (tbs.peekTag() == TAG_CTX0_CONS) tbs.next();   // version
+                byte[] serial = tbs.expect(TAG_INTEGER).value();
+                tbs.expect(TAG_SEQUENCE);                         // signature
+                byte[] issuer = tbs.expect(TAG_SEQUENCE).encoded();
+                if (Arrays.equals(serial, sidSerial) && Arrays.equals(issuer, sidIssuer)) {
+                    return (X509Certificate) cf.generateCertificate(new ByteArrayInputStream(certDer));
+                }
+            } else {
+                X509Certificate cert = (X509Certificate) cf.generateCertificate(new ByteArrayInputStream(certDer));
+                byte[] ext = cert.getExtensionValue(OID_SUBJECT_KEY_ID);
+                if (ext != null) {
+                    // OCTET STRING { OCTET STRING keyIdentifier }
+                    DerReader r = new DerReader(ext, 0, ext.length);
+                    byte[] inner = r.expect(TAG_OCTET_STRING).value();
+                    byte[] ski = new DerReader(inner, 0, inner.length).expect(TAG_OCTET_STRING).value();
+                    if (Arrays.equals(ski, sidKeyIdentifier)) return cert;
+                }
+            }
+        }
+        return null;
+    }
+
+    // ── Doğrulama ─────────────────────────────────────────────────────────────
+
+    public boolean hasSignedAttributes() { return signedAttributes != null; }
+
+    /** İmzalı öznitelikler üzerindeki imzayı imzacının açık anahtarıyla doğrular. */
+    public boolean verifySignature() throws Exception {
+        if (signerCertificate == null || signedAttributes == null) return false;
+        Signature sig = Signature.getInstance(getSignatureAlgorithm());
+        sig.initVerify(signerCertificate.getPublicKey());
+        sig.update(signedAttributes);
+        return sig.verify(signatureValue);
+    }
+
+    /**
+     * İmzalı öznitelik yoksa imza doğrudan içerik özeti üzerindedir. İçerik
+     * tekrar okunmasın diye RSA için DigestInfo kurulup NONEwithRSA ile doğrulanır.
+     */
+    public boolean verifyDetachedDigest(byte[] contentDigest) throws Exception {
+        if (signerCertificate == null || contentDigest == null) return false;
+        PublicKey key = signerCertificate.getPublicKey();
+        if (!"RSA".equalsIgnoreCase(key.getAlgorithm())) return false;
+        byte[] digestInfo = encodeDigestInfo(digestAlgorithmOid, contentDigest);
+        Signature sig = Signature.getInstance("NONEwithRSA");
+        sig.initVerify(key);
+        sig.update(digestInfo);
+        return sig.verify(signatureValue);
+    }
+
+    public boolean messageDigestMatches(byte[] contentDigest) {
+        return messageDigest != null && MessageDigest.isEqual(messageDigest, contentDigest);
+    }
+
+    // ── Erişimciler ───────────────────────────────────────────────────────────
+
+    public X509Certificate getSignerCertificate() { return signerCertificate; }
+    public List<byte[]> getCertificates() { return Collections.unmodifiableList(certificates); }
+    public byte[] getEncapsulatedContent() { return encapsulatedContent; }
+    public byte[] getMessageDigest() { return messageDigest; }
+    public Date getSigningTime() { return signingTime; }
+
+    /** JCA özet algoritması adı ("SHA-256" gibi); tanınmıyorsa OID. */
+    public String getDigestAlgorithm() {
+        String name = digestName(digestAlgorithmOid);
+        return name != null ? name : digestAlgorithmOid;
+    }
+
+    /** JCA imza algoritması adı ("SHA256withRSA" gibi). */
+    public String getSignatureAlgorithm() throws Exception {
+        switch (signatureAlgorithmOid) {
+            case "1.2.840.113549.1.1.5":  return "SHA1withRSA";
+            case "1.2.840.113549.1.1.11": return "SHA256withRSA";
+            case "1.2.840.113549.1.1.12": return "SHA384withRSA";
+            case "1.2.840.113549.1.1.13": return "SHA512withRSA";
+            case "1.2.840.10045.4.1":     return "SHA1withECDSA";
+            case "1.2.840.10045.4.3.2":   return "SHA256withECDSA";
+            case "1.2.840.10045.4.3.3":   return "SHA384withECDSA";
+            case "1.2.840.10045.4.3.4":   return "SHA512withECDSA";
+        }
+        String digest = digestName(digestAlgorithmOid);
+        if (digest == null) throw new Exception("Desteklenmeyen özet algoritması: " + digestAlgorithmOid);
+        String prefix = digest.replace("-", "");
+        if ("1.2.840.113549.1.1.1".equals(signatureAlgorithmOid)) return prefix + "withRSA";
+        if ("1.2.840.10045.2.1".equals(signatureAlgorithmOid))    return prefix + "withECDSA";
+        throw new Exception("Desteklenmeyen imza algoritması: " + signatureAlgorithmOid);
+    }
+
+    private static String digestName(String oid) {
+        if (oid == null) return null;
+        switch (oid) {
+            case "1.3.14.3.2.26":          return "SHA-1";
+            case "2.16.840.1.101.3.4.2.1": return "SHA-256";
+            case "2.16.840.1.101.3.4.2.2": return "SHA-384";
+            case "2.16.840.1.101.3.4.2.3": return "SHA-512";
+            case "1.2.840.113549.2.5":     return "MD5";
+            default:                       return null;
+        }
+    }
+
+    // ── Yardımcılar ───────────────────────────────────────────────────────────
+
+    private static Date parseTime(Tlv t) throws ParseException {
+        String s = new String(t.value(), java.nio.charset.StandardCharsets.US_ASCII);
+        SimpleDateFormat fmt;
+        if (t.tag == TAG_UTC_TIME) {
+            fmt = new SimpleDateFormat(s.length() > 11 && Character.isDigit(s.charAt(10))
+                    ? "yyMMddHHmmss" : "yyMMddHHmm", Locale.US);
+        } else if (t.tag == TAG_GEN_TIME) {
+            fmt = new SimpleDateFormat("yyyyMMddHHmmss", Locale.US);
+            int dot = s.indexOf('.');
+            if (dot > 0) s = s.substring(0, dot) + (s.endsWith("Z") ? "Z" : "");
+        } else {
+            return null;
+        }
+        fmt.setTimeZone(TimeZone.getTimeZone("UTC"));
+        // UTCTime: YY 50-99 → 19YY, 00-49 → 20YY (RFC 5280)
+        fmt.set2DigitYearStart(new Date(-631152000000L)); // 1950-01-01
+        if (s.endsWith("Z")) s = s.substring(0, s.length() - 1);
+        return fmt.parse(s);
+    }
+
+    /** OCTET STRING değeri; BER parçalı (constructed) kodlamada parçalar birleştirilir. */
+    private static byte[] octets(Tlv t) throws Exception {
+        if (t.tag == TAG_OCTET_STRING) return t.value();
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        DerReader parts = t.children();
+        while (parts.hasNext()) {
+            Tlv part = parts.next();
+            out.write(part.buf, part.valueStart, part.valueEnd - part.valueStart);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] encodeDigestInfo(String digestOid, byte[] digest) {
+        byte[] oid = encodeOid(digestOid);
+        byte[] algId = tlv(TAG_SEQUENCE, concat(tlv(TAG_OID, oid), new byte[]{0x05, 0x00}));
+        return tlv(TAG_SEQUENCE, concat(algId, tlv(TAG_OCTET_STRING, digest)));
+    }
+
+    private static byte[] encodeOid(String oid) {
+        String[] parts = oid.split("\\.");
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        out.write(Integer.parseInt(parts[0]) * 40 + Integer.parseInt(parts[1]));
+        for (int i = 2; i < parts.length; i++) {
+            long v = Long.parseLong(parts[i]);
+            int shift = 63 - Long.numberOfLeadingZeros(v | 1);
+            shift -= shift % 7;
+            for (; shift > 0; shift -= 7) out.write((int) ((v >>> shift) & 0x7F) | 0x80);
+            out.write((int) (v & 0x7F));
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] tlv(int tag, byte[] value) {
+        int len = value.length;
+        byte[] header;
+        if (len < 0x80) header = new byte[]{(byte) tag, (byte) len};
+        else if (len < 0x100) header = new byte[]{(byte) tag, (byte) 0x81, (byte) len};
+        else header = new byte[]{(byte) tag, (byte) 0x82, (byte) (len >> 8), (byte) len};
+        return concat(header, value);
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] r = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, r, a.length, b.length);
+        return r;
+    }
+
+    // ── DER okuyucu ───────────────────────────────────────────────────────────
+
+    /** Tek bir TLV: etiket ve verinin dizi içindeki konumu. Kopyalama yapılmaz. */
+    static final class Tlv {
+        final byte[] buf;
+        final int tag;
+        final int start;       // etiket baytı
+        final int valueStart;
+        final int valueEnd;
+        final int end;         // sonraki TLV'nin başı
+
+        Tlv(byte[] buf, int tag, int start, int valueStart, int valueEnd, int end) {
+            this.buf = buf;
+            this.tag = tag;
+            this.start = start;
+            this.valueStart = valueStart;
+            this.valueEnd = valueEnd;
+            this.end = end;
+        }
+
+        DerReader children() { return new DerReader(buf, valueStart, valueEnd); }
+        byte[] value() { return Arrays.copyOfRange(buf, valueStart, valueEnd); }
+        byte[] encoded() { return Arrays.copyOfRange(buf, start, end); }
+
+        String oid() throws Exception {
+            if (tag != TAG_OID || valueEnd <= valueStart) throw new Exception("OID bekleniyordu");
+            StringBuilder sb = new StringBuilder();
+            int first = buf[valueStart] & 0xFF;
+            int a = Math.min(first / 40, 2);
+            sb.append(a).append('.').append(first - a * 40);
+            long arc = 0;
+            for (int i = valueStart + 1; i < valueEnd; i++) {
+                int b = buf[i] & 0xFF;
+                if (arc > (Long.MAX_VALUE >> 7)) throw new Exception("OID bileşeni çok büyük");
+                arc = (arc << 7) | (b & 0x7F);
+                if ((b & 0x80) == 0) {
+                    sb.append('.').append(arc);
+                    arc = 0;
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * [start, limit) aralığındaki ardışık TLV'leri ileri yönde okur.
+     * BER belirsiz uzunluk (0x80) da kabul edilir; sonu iç içe TLV'ler
+     * atlanarak bulunur.
+     */
+    static final class DerReader {
+        private final byte[] buf;
+        private int pos;
+        private final int limit;
+
+        DerReader(byte[] buf, int start, int limit) {
+            this.buf = buf;
+            this.pos = start;
+            this.limit = limit;
+        }
+
+        boolean hasNext() {
+            // Belirsiz uzunluklu yapının sonu (EOC: 00 00)
+            return pos < limit && !(buf[pos] == 0 && pos + 1 < limit && buf[pos + 1] == 0);
+        }
+
+        int peekTag() {
+            return hasNext() ? buf[pos] & 0xFF : -1;
+        }
+
+        Tlv next() throws Exception {
+            if (!hasNext()) throw new Exception("ASN.1 yapısı beklenenden kısa");
+            Tlv t = readTlv(buf, pos, limit);
+            pos = t.end;
+            return t;
+        }
+
+        Tlv expect(int tag) throws Exception {
+            Tlv t = next();
+            if (t.tag != tag) {
+                throw new Exception(String.format(Locale.US,
+                        "ASN.1 etiketi 0x%02X bekleniyordu, 0x%02X bulundu", tag, t.tag));
+            }
+            return t;
+        }
+
+        private static Tlv readTlv(byte[] buf, int start, int limit) throws Exception {
+            int p = start;
+            int tag = buf[p++] & 0xFF;
+            if ((tag & 0x1F) == 0x1F) {
+                // Yüksek etiket numarası: CMS'de kullanılmaz, yalnızca atlanır
+                while (p < limit && (buf[p] & 0x80) != 0) p++;
+                p++;
+            }
+            if (p >= limit) throw new Exception("ASN.1 uzunluğu eksik");
+            int first = buf[p++] & 0xFF;
+            if (first == 0x80) {
+                if ((tag & 0x20) == 0) throw new Exception("Geçersiz belirsiz uzunluk");
+                int valueStart = p;
+                DerReader inner = new DerReader(buf, p, limit);
+                while (inner.hasNext()) inner.next();
+                if (inner.pos + 2 > limit) throw new Exception("EOC bulunamadı");
+                return new Tlv(buf, tag, start, valueStart, inner.pos, inner.pos + 2);
+            }
+            long len;
+            if (first < 0x80) {
+                len = first;
+            } else {
+                int n = first & 0x7F;
+                if (n > 4 || p + n > limit) throw new Exception("Geçersiz ASN.1 uzunluğu");
+                len = 0;
+                for (int i = 0; i < n; i++) len = (len << 8) | (buf[p++] & 0xFF);
+            }
+            if (len > limit - p) throw new Exception("ASN.1 uzunluğu sınırı aşıyor");
+            int end = p + (int) len;
+            return new Tlv(buf, tag, start, p, end, end);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.udfviewer.app;
+
+import android.app.Application;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+
+import java.util.Arrays;
+
+/**
+ * Açık belgenin Activity'den bağımsız durumu. Döndürme ve gece modu geçişi
+ * MainActivity'yi yeniden oluşturur; belge, imza sonucu, kaydırma/zoom
+ * konumu ve paragrafların biçimlendirilmiş metinleri burada kaldığı için
+ * yeniden ayrıştırma yapılmaz, yalnızca görünümler yeniden kurulur.
+ *
+ * Yükleme ve doğrulama iş parçacıkları sonuçlarını buraya yazar ve o an
+ * bağlı olan Host'a (güncel Activity) bildirir; eski Activity'ye sızmaz.
+ */
+public class DocumentViewModel extends AndroidViewModel {
+
+    public interface Host {
+        void onDocumentLoaded(DocumentViewModel model);
+        void onDocumentLoadFailed(String message);
+        void onSignatureVerified(SignatureVerifier.SignatureResult result);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private Host host;
+    private int loadGeneration;
+    private boolean loading;
+    private SignatureVerifier signatureVerifier;
+
+    private UdfDocument document;
+    private Uri uri;
+    private String fileName;
+    private SignatureVerifier.SignatureResult signatureResult;
+
+    // Görünüm durumu; Activity yok edilirken kaydedilir
+    private float zoom = 1.0f;
+    private int anchorParagraph;
+    private float anchorFraction;
+    private CharSequence[] textCache;
+    // Arama sonucundan açılışta kaydırılacak metin konumu; yoksa -1
+    private int pendingOffset = -1;
+
+    public DocumentViewModel(@NonNull Application application) {
+        super(application);
+    }
+
+    public void attach(Host host) { this.host = host; }
+
+    public void detach(Host host) {
+        if (this.host == host) this.host = null;
+    }
+
+    public UdfDocument getDocument() { return document; }
+    public Uri getUri() { return uri; }
+    public String getFileName() { return fileName; }
+    public SignatureVerifier.SignatureResult getSignatureResult() { return signatureResult; }
+    public boolean isLoading() { return loading; }
+
+    public float getZoom() { return zoom; }
+    public int getAnchorParagraph() { return anchorParagraph; }
+    public float getAnchorFraction() { return anchorFraction; }
+    public CharSequence[] getTextCache() { return textCache; }
+
+    public void saveViewState(float zoom, int anchorParagraph, float anchorFraction) {
+        this.zoom = zoom;
+        this.anchorParagraph = anchorParagraph;
+        this.anchorFraction = anchorFraction;
+    }
+
+    /** Bekleyen kaydırma konumunu bir kez verir; yoksa -1. */
+    public int takePendingOffset() {
+        int offset = pendingOffset;
+        pendingOffset = -1;
+        return offset;
+    }
+
+    /** Biçimlendirilmiş paragraf metinlerini bırakır (bellek baskısı). */
+    public void dropTextCache() {
+        if (textCache != null) Arrays.fill(textCache, null);
+    }
+
+    public synchronized SignatureVerifier getSignatureVerifier() {
+        if (signatureVerifier == null) signatureVerifier = new SignatureVerifier(getApplication());
+        return signatureVerifier;
+    }
+
+    /** Doğrulama sonucu, belge hâlâ açıksa kaydedilir. */
+    public void setSignatureResult(Uri forUri, SignatureVerifier.SignatureResult result) {
+        if (forUri.equals(uri)) signatureResult = result;
+    }
+
+    /**
+     * Arşiv okuma ve ayrıştırma arka planda yapılır. Bu arada başka bir dosya
+     * açılırsa eski sonuç atılır.
+     */
+    public void load(Uri uri) {
+        load(uri, -1);
+    }
+
+    /** Belgeyi açar ve yüklenince metnin offset konumuna kaydırılmasını ister. */
+    public void load(Uri uri, int offset) {
+        final int generation = ++loadGeneration;
+        pendingOffset = offset;
+        loading = true;
+        Context app = getApplication();
+        new Thread(() -> {
+            // Soğuk açılışta ilk kareyi beklemeden; ayrıştırma ve ilk çizim de ölçülsün
+            PerfMetrics.init(app);
+            try {
+                app.getContentResolver().takePersistableUriPermission(uri,
+                        Intent.FLAG_GRANT_READ_URI_PERMISSION);
+            } catch (Exception ignored) {}
+
+            UdfDocument parsed = null;
+            Exception error = null;
+            StartupTrace.begin("parse");
+            try {
+                parsed = new UdfParser(app).parse(uri);
+            } catch (Exception e) {
+                error = e;
+            } finally {
+                StartupTrace.end("parse");
+            }
+            String name = UdfUtils.getFileName(app, uri);
+            if (parsed != null) {
+                FullTextIndex.getInstance(app).add(uri, name, parsed.getText());
+                parsed.setAnnotations(AnnotationStore.getInstance(app).load(parsed));
+            }
+
+            final UdfDocument result = parsed;
+            final Exception failure = error;
+            handler.post(() -> {
+                if (generation != loadGeneration) {
+                    // Yerine başka dosya açıldı; ayrıştırmanın disk dosyası ve arşivi bırakılır
+                    if (result != null) release(result);
+                    return;
+                }
+                loading = false;
+                if (failure != null) {
+                    if (host != null) host.onDocumentLoadFailed("Dosya açılamadı: " + failure.getMessage());
+                    return;
+                }
+                setDocument(uri, result, name != null ? name : "belge.udf");
+                RecentFilesManager.getInstance(app).addFile(uri, fileName, result.getParagraphCount());
+                if (host != null) host.onDocumentLoaded(this);
+                verify(uri);
+            });
+        }).start();
+    }
+
+    /** İmzayı arka planda doğrular; sonuç kaydedilip Host'a bildirilir. */
+    public void verify(Uri uri) {
+        Context app = getApplication();
+        new Thread(() -> {
+            SignatureVerifier.SignatureResult result = getSignatureVerifier().verify(uri);
+            RecentFilesManager.getInstance(app).updateSignature(uri, result.status.name(), result.contentDigest);
+            handler.post(() -> {
+                setSignatureResult(uri, result);
+                if (host != null && uri.equals(this.uri)) host.onSignatureVerified(result);
+            });
+        }).start();
+    }
+
+    private void setDocument(Uri uri, UdfDocument document, String fileName) {
+        releaseDocument();
+        this.document = document;
+        this.uri = uri;
+        this.fileName = fileName;
+        this.signatureResult = null;
+        this.zoom = 1.0f;
+        this.anchorParagraph = 0;
+        this.anchorFraction = 0f;
+        this.textCache = new CharSequence[document.getParagraphCount()];
+    }
+
+    private void releaseDocument() {
+        if (document != null) release(document);
+    }
+
+    private void release(UdfDocument doc) {
+        doc.discardSpill();
+        String source = doc.getSource();
+        // Aynı dosya yeniden açıldıysa arşiv gösterilen belgeyle paylaşılıyor
+        if (doc != document && document != null && source != null && source.equals(document.getSource())) return;
+        UdfImageLoader.getInstance(getApplication()).close(source);
+    }
+
+    @Override
+    protected void onCleared() {
+        // Süren yüklemenin sonucu da atılsın
+        loadGeneration++;
+        releaseDocument();
+        document = null;
+        textCache = null;
+    }
+}
@@ -0,0 +1,596 @@
+package com.udfviewer.app;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Açılan tüm belgelerin kalıcı tam metin dizini ("hangi dosyadaydı?").
+ *
+ * Günlük yapılı (log-structured): her dizinlenen belge küçük, değişmez bir
+ * IndexSegment olarak yazılır; benzer boyutlu MERGE_FACTOR bölüm birikince
+ * arka planda tek bölümde birleştirilir (boyut katmanlı). Yeniden
+ * dizinlenen ya da silinen belgeler yerinde değiştirilmez, mezar taşıyla
+ * (tombstone) işaretlenir ve birleştirmede atılır. files/search_index/
+ * manifest.json hangi bölümlerin geçerli olduğunu tutar; önce bölüm, sonra
+ * manifest yeniden adlandırılarak yazıldığından yarıda kalan yazma dizini
+ * bozmaz.
+ *
+ * Belirteçleme Türkçe kurallarıyla yapılır: "I" küçük harfte "ı", "İ" ise
+ * "i" olur (kök yerel ayarda "İ" iki karaktere dönüşüp eşleşmeyi bozar);
+ * ardından aksanlar katlanır (ç→c, ğ→g, ı→i, ö→o, ş→s, ü→u, â→a...), böylece
+ * "SÖZLEŞME", "sözleşme" ve "sozlesme" aynı terimdir.
+ *
+ * Arama BM25 ile sıralanır; tüm sorgu terimlerini içeren belgeler ve ilk
+ * eşleşmelerin metin içi konumları döner. Yazmalar tek io iş parçacığında,
+ * aramalar çağıranın iş parçacığında değişmez bir anlık görüntü üzerinde
+ * yürür.
+ */
+public class FullTextIndex {
+
+    private static final String TAG = "FullTextIndex";
+    private static final String DIR = "search_index";
+    private static final String MANIFEST = "manifest.json";
+
+    private static final int MERGE_FACTOR = 4;
+    private static final long TIER_BASE_BYTES = 16 * 1024;
+    private static final long MAX_INDEX_BYTES = 32L * 1024 * 1024;
+    private static final int MAX_POSITIONS = 16;
+    private static final int MIN_TOKEN = 2;
+    private static final int MAX_TOKEN = 40;
+    private static final long GC_INTERVAL_MS = 24 * 60 * 60 * 1000L;
+
+    // BM25
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    public static final class Hit {
+        public final String uri;
+        public final String fileName;
+        public final float score;
+        public final int matches;      // sorgu terimlerinin toplam geçiş sayısı
+        public final int[] offsets;    // ilk eşleşmelerin metin içi konumları (artan)
+
+        Hit(String uri, String fileName, float score, int matches, int[] offsets) {
+            this.uri = uri;
+            this.fileName = fileName;
+            this.score = score;
+            this.matches = matches;
+            this.offsets = offsets;
+        }
+
+        public Uri getUri() { return Uri.parse(uri); }
+
+        /** Belge açılınca kaydırılacak konum; bilinmiyorsa -1. */
+        public int firstOffset() { return offsets.length > 0 ? offsets[0] : -1; }
+    }
+
+    /** Değişmez dizin durumu; her yazma yenisini yayımlar. */
+    private static final class Snapshot {
+        final List<IndexSegment> segments;
+        final Set<Integer> tombstones;
+        final Map<Integer, IndexSegment.Doc> liveDocs;
+        final Map<String, Integer> byUri;
+        final long totalTokens;
+
+        Snapshot(List<IndexSegment> segments, Set<Integer> tombstones) {
+            this.segments = Collections.unmodifiableList(new ArrayList<>(segments));
+            this.tombstones = Collections.unmodifiableSet(new HashSet<>(tombstones));
+            Map<Integer, IndexSegment.Doc> docs = new HashMap<>();
+            Map<String, Integer> uris = new HashMap<>();
+            long tokens = 0;
+            for (IndexSegment s : segments) {
+                for (IndexSegment.Doc d : s.docs) {
+                    if (tombstones.contains(d.id)) continue;
+                    docs.put(d.id, d);
+                    uris.put(d.uri, d.id);
+                    tokens += d.tokens;
+                }
+            }
+            this.liveDocs = Collections.unmodifiableMap(docs);
+            this.byUri = Collections.unmodifiableMap(uris);
+            this.totalTokens = tokens;
+        }
+
+        long sizeBytes() {
+            long size = 0;
+            for (IndexSegment s : segments) size += s.sizeBytes();
+            return size;
+        }
+    }
+
+    private static FullTextIndex instance;
+
+    public static synchronized FullTextIndex getInstance(Context context) {
+        if (instance == null) instance = new FullTextIndex(context.getApplicationContext());
+        return instance;
+    }
+
+    private final Context context;
+    private final File dir;
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyList(), Collections.emptySet());
+
+    // Yalnızca io iş parçacığında
+    private int nextDocId = 1;
+    private int nextSegment = 1;
+    private long lastGc;
+
+    private FullTextIndex(Context context) {
+        this.context = context;
+        this.dir = new File(context.getFilesDir(), DIR);
+        io.execute(this::load);
+    }
+
+    // ── Yazma ────────────────────────────────────────────────────────────────
+
+    /**
+     * Belgeyi arka planda dizinler. Aynı URI aynı metinle zaten dizindeyse
+     * bir şey yapılmaz; metin değiştiyse eski kayıt mezar taşıyla kapatılır.
+     * text içeriği değişmez (String ya da UdfTextStore); belge sonradan
+     * diske taşınsa da parçalar okunabilir kalır.
+     */
+    public void add(Uri uri, String fileName, CharSequence text) {
+        if (text == null || text.length() == 0) return;
+        String key = uri.toString();
+        io.execute(() -> {
+            try {
+                indexDocument(key, fileName, text);
+            } catch (Exception e) {
+                Log.w(TAG, "Belge dizinlenemedi: " + fileName, e);
+            }
+        });
+    }
+
+    /** Belgeyi dizinden çıkarır (ör. dosya silindi). */
+    public void remove(String uriString) {
+        io.execute(() -> {
+            Integer id = snapshot.byUri.get(uriString);
+            if (id == null) return;
+            Set<Integer> tombstones = new HashSet<>(snapshot.tombstones);
+            tombstones.add(id);
+            publish(snapshot.segments, tombstones);
+        });
+    }
+
+    private void indexDocument(String uri, String fileName, CharSequence text) throws IOException {
+        long t = PerfMetrics.start();
+        Snapshot current = snapshot;
+        Integer existing = current.byUri.get(uri);
+        if (existing != null) {
+            IndexSegment.Doc d = current.liveDocs.get(existing);
+            if (d != null && d.textLength == text.length() && d.textHash == textHash(text)) return;
+        }
+
+        // Terim → (tf, ilk konumlar)
+        Map<String, int[]> terms = new HashMap<>();
+        int tokens = tokenize(text, (term, offset) -> {
+            int[] stats = terms.get(term);
+            if (stats == null) {
+                stats = new int[2 + MAX_POSITIONS];
+                terms.put(term, stats);
+            }
+            if (stats[1] < MAX_POSITIONS) stats[2 + stats[1]++] = offset;
+            stats[0]++;
+        });
+
+        int id = nextDocId++;
+        IndexSegment.Doc doc = new IndexSegment.Doc(id, uri, fileName != null ? fileName : "belge.udf",
+                tokens, text.length(), textHash(text), System.currentTimeMillis());
+        File file = newSegmentFile();
+        try (IndexSegment.Writer w = new IndexSegment.Writer(file, Collections.singletonList(doc))) {
+            for (Map.Entry<String, int[]> e : new TreeMap<>(terms).entrySet()) {
+                int[] stats = e.getValue();
+                int[] positions = new int[stats[1]];
+                System.arraycopy(stats, 2, positions, 0, positions.length);
+                w.addTerm(e.getKey(), Collections.singletonList(new IndexSegment.Posting(id, stats[0], positions)));
+            }
+            w.finish();
+        }
+
+        List<IndexSegment> segments = new ArrayList<>(current.segments);
+        segments.add(IndexSegment.open(file));
+        Set<Integer> tombstones = new HashSet<>(current.tombstones);
+        if (existing != null) tombstones.add(existing);
+        publish(segments, tombstones);
+        PerfMetrics.stop("index.add", t);
+
+        maybeMerge();
+        enforceSizeCap();
+    }
+
+    /** Yeni durumu diske (manifest) yazar ve aramalara açar. */
+    private void publish(List<IndexSegment> segments, Set<Integer> tombstones) {
+        // Hiçbir bölümde kalmayan belgelerin mezar taşı gereksiz
+        Set<Integer> present = new HashSet<>();
+        for (IndexSegment s : segments) for (IndexSegment.Doc d : s.docs) present.add(d.id);
+        tombstones.retainAll(present);
+        try {
+            writeManifest(segments, tombstones);
+        } catch (Exception e) {
+            Log.w(TAG, "Dizin bildirimi yazılamadı", e);
+        }
+        snapshot = new Snapshot(segments, tombstones);
+        PerfMetrics.bytes("index.size", snapshot.sizeBytes());
+    }
+
+    // ── Birleştirme ──────────────────────────────────────────────────────────
+
+    /**
+     * Boyut katmanlı birleştirme: bölümler boyutlarına göre MERGE_FACTOR
+     * tabanlı logaritmik katmanlara ayrılır, bir katmanda MERGE_FACTOR bölüm
+     * birikince birleştirilir. Her bayt katman sayısı kadar (log) yeniden
+     * yazılır; büyük bölümler her yeni belgede yeniden yazılmaz.
+     */
+    private void maybeMerge() throws IOException {
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            Map<Integer, List<IndexSegment>> tiers = new TreeMap<>();
+            for (IndexSegment s : snapshot.segments) {
+                int tier = 0;
+                for (long size = s.sizeBytes() / TIER_BASE_BYTES; size >= MERGE_FACTOR; size /= MERGE_FACTOR) tier++;
+                List<IndexSegment> list = tiers.get(tier);
+                if (list == null) tiers.put(tier, list = new ArrayList<>());
+                list.add(s);
+            }
+            for (List<IndexSegment> tier : tiers.values()) {
+                if (tier.size() >= MERGE_FACTOR) {
+                    merge(tier);
+                    merged = true;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Verilen bölümleri tek bölümde birleştirir; mezar taşlı belgeler atılır.
+     * Sözlükler sıralı olduğundan terimler k yollu birleştirilir; bellekte
+     * aynı anda yalnızca tek terimin postings'i ve çıktı sözlüğü bulunur.
+     */
+    private void merge(List<IndexSegment> inputs) throws IOException {
+        long t = PerfMetrics.start();
+        Snapshot current = snapshot;
+        Set<Integer> dead = current.tombstones;
+
+        List<IndexSegment.Doc> docs = new ArrayList<>();
+        for (IndexSegment s : inputs) {
+            for (IndexSegment.Doc d : s.docs) if (!dead.contains(d.id)) docs.add(d);
+        }
+        Collections.sort(docs, (a, b) -> Integer.compare(a.id, b.id));
+
+        File file = newSegmentFile();
+        boolean empty = docs.isEmpty();
+        if (!empty) {
+            try (IndexSegment.Writer w = new IndexSegment.Writer(file, docs)) {
+                PriorityQueue<IndexSegment.TermIterator> heap =
+                        new PriorityQueue<>(inputs.size(), (a, b) -> a.term.compareTo(b.term));
+                for (IndexSegment s : inputs) {
+                    IndexSegment.TermIterator it = s.terms();
+                    if (it.next()) heap.add(it);
+                }
+                List<IndexSegment.Posting> merged = new ArrayList<>();
+                while (!heap.isEmpty()) {
+                    String term = heap.peek().term;
+                    merged.clear();
+                    while (!heap.isEmpty() && heap.peek().term.equals(term)) {
+                        IndexSegment.TermIterator it = heap.poll();
+                        for (IndexSegment.Posting p : it.postings()) {
+                            if (!dead.contains(p.doc)) merged.add(p);
+                        }
+                        if (it.next()) heap.add(it);
+                    }
+                    Collections.sort(merged, (a, b) -> Integer.compare(a.doc, b.doc));
+                    w.addTerm(term, merged);
+                }
+                w.finish();
+            }
+        }
+
+        List<IndexSegment> segments = new ArrayList<>(current.segments);
+        segments.removeAll(inputs);
+        if (!empty) segments.add(IndexSegment.open(file));
+        publish(segments, new HashSet<>(current.tombstones));
+        for (IndexSegment s : inputs) s.file.delete();
+        PerfMetrics.stop("index.merge", t);
+    }
+
+    /**
+     * Dizin MAX_INDEX_BYTES'ı aşarsa en eski dizinlenen belgeler, tahmini
+     * payları (terim sayısı oranında) düşülerek %80'e inilene dek mezar
+     * taşıyla kapatılır ve tüm bölümler yeniden yazılır.
+     */
+    private void enforceSizeCap() throws IOException {
+        Snapshot current = snapshot;
+        long size = current.sizeBytes();
+        if (size <= MAX_INDEX_BYTES || current.liveDocs.isEmpty()) return;
+
+        List<IndexSegment.Doc> docs = new ArrayList<>(current.liveDocs.values());
+        Collections.sort(docs, (a, b) -> Long.compare(a.indexedAt, b.indexedAt));
+        double bytesPerToken = size / (double) Math.max(1, current.totalTokens);
+        long target = MAX_INDEX_BYTES * 8 / 10;
+        Set<Integer> tombstones = new HashSet<>(current.tombstones);
+        // En son dizinlenen belge her durumda kalır
+        for (int i = 0; i < docs.size() - 1 && size > target; i++) {
+            IndexSegment.Doc d = docs.get(i);
+            tombstones.add(d.id);
+            size -= (long) (d.tokens * bytesPerToken);
+        }
+        publish(current.segments, tombstones);
+        merge(new ArrayList<>(snapshot.segments));
+        Log.i(TAG, "Dizin sınırı aşıldı; eski belgeler çıkarıldı, boyut " + snapshot.sizeBytes());
+    }
+
+    /**
+     * Artık açılamayan belgeleri (silinmiş, taşınmış, izni kalkmış) dizinden
+     * çıkarır. Günde en çok bir kez, yüklemeden sonra çalışır.
+     */
+    private void collectGarbage() {
+        Snapshot current = snapshot;
+        Set<Integer> tombstones = new HashSet<>(current.tombstones);
+        int removed = 0;
+        for (IndexSegment.Doc d : current.liveDocs.values()) {
+            if (!exists(Uri.parse(d.uri))) {
+                tombstones.add(d.id);
+                removed++;
+            }
+        }
+        lastGc = System.currentTimeMillis();
+        publish(current.segments, tombstones);
+        if (removed > 0) {
+            Log.i(TAG, removed + " belge artık yok, dizinden çıkarıldı");
+            PerfMetrics.count("index.gc", removed);
+            // Çok sayıda ölü belge varsa yer hemen geri kazanılsın
+            if (removed * 4 >= current.liveDocs.size()) {
+                try {
+                    merge(new ArrayList<>(snapshot.segments));
+                } catch (IOException e) {
+                    Log.w(TAG, "Dizin birleştirilemedi", e);
+                }
+            }
+        }
+    }
+
+    private boolean exists(Uri uri) {
+        if ("file".equals(uri.getScheme())) return new File(uri.getPath()).exists();
+        try (ParcelFileDescriptor pfd = context.getContentResolver().openFileDescriptor(uri, "r")) {
+            return pfd != null;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // ── Arama ────────────────────────────────────────────────────────────────
+
+    /**
+     * Tüm sorgu terimlerini içeren belgeleri BM25 puanına göre sıralı döner.
+     * Çağıran iş parçacığında çalışır (ana iş parçacığından çağırmayın).
+     */
+    public List<Hit> search(String query, int limit) {
+        awaitLoaded();
+        long t = PerfMetrics.start();
+        List<String> terms = new ArrayList<>();
+        tokenize(query, (term, offset) -> {
+            if (!terms.contains(term)) terms.add(term);
+        });
+        Snapshot s = snapshot;
+        if (terms.isEmpty() || s.liveDocs.isEmpty()) return Collections.emptyList();
+
+        int n = s.liveDocs.size();
+        double avgLength = s.totalTokens / (double) n;
+        Map<Integer, float[]> scores = new HashMap<>();     // docId → {puan, eşleşen terim, geçiş}
+        Map<Integer, int[]> offsets = new HashMap<>();
+        int rarestDf = Integer.MAX_VALUE;
+
+        for (int ti = 0; ti < terms.size(); ti++) {
+            List<IndexSegment.Posting> postings = new ArrayList<>();
+            for (IndexSegment segment : s.segments) {
+                List<IndexSegment.Posting> list = segment.postings(terms.get(ti));
+                if (list == null) continue;
+                for (IndexSegment.Posting p : list) {
+                    if (s.liveDocs.containsKey(p.doc)) postings.add(p);
+                }
+            }
+            if (postings.isEmpty()) return Collections.emptyList();   // VE sorgusu
+
+            int df = postings.size();
+            double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+            boolean rarest = df < rarestDf;
+            if (rarest) rarestDf = df;
+            for (IndexSegment.Posting p : postings) {
+                float[] acc = scores.get(p.doc);
+                if (acc == null) {
+                    if (ti > 0) continue;   // önceki terimlerden birini içermiyor
+                    acc = new float[3];
+                    scores.put(p.doc, acc);
+                }
+                if (acc[1] != ti) continue;
+                double norm = 1 - B + B * s.liveDocs.get(p.doc).tokens / avgLength;
+                acc[0] += idf * p.tf * (K1 + 1) / (p.tf + K1 * norm);
+                acc[1] = ti + 1;
+                acc[2] += p.tf;
+                // İsabet konumu en nadir terimden alınır
+                if (rarest || !offsets.containsKey(p.doc)) offsets.put(p.doc, p.positions);
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>();
+        for (Map.Entry<Integer, float[]> e : scores.entrySet()) {
+            float[] acc = e.getValue();
+            if (acc[1] != terms.size()) continue;
+            IndexSegment.Doc d = s.liveDocs.get(e.getKey());
+            hits.add(new Hit(d.uri, d.name, acc[0], (int) acc[2], offsets.get(e.getKey())));
+        }
+        Collections.sort(hits, (a, b) -> Float.compare(b.score, a.score));
+        if (hits.size() > limit) hits = new ArrayList<>(hits.subList(0, limit));
+        PerfMetrics.stop("index.search", t);
+        return hits;
+    }
+
+    public int getDocumentCount() {
+        awaitLoaded();
+        return snapshot.liveDocs.size();
+    }
+
+    // ── Belirteçleme ─────────────────────────────────────────────────────────
+
+    interface TokenSink {
+        void token(String term, int offset);
+    }
+
+    /** String.hashCode ile aynı; eski dizin kayıtlarıyla karşılaştırılabilir. */
+    private static int textHash(CharSequence text) {
+        if (text instanceof UdfTextStore) return ((UdfTextStore) text).contentHash();
+        return text.toString().hashCode();
+    }
+
+    /** Metni katlanmış terimlere böler; belirteç sayısını döner. */
+    static int tokenize(CharSequence text, TokenSink sink) {
+        StringBuilder sb = new StringBuilder(MAX_TOKEN);
+        int count = 0;
+        int start = -1;
+        int length = text.length();
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (start < 0) start = i;
+                if (sb.length() < MAX_TOKEN) sb.append(fold(c));
+            } else if (start >= 0 && Character.getType(c) == Character.NON_SPACING_MARK) {
+                // "İ".toLowerCase() artığı birleşik nokta vb.; terime katılmaz
+            } else if (start >= 0) {
+                if (sb.length() >= MIN_TOKEN) {
+                    sink.token(sb.toString(), start);
+                    count++;
+                }
+                sb.setLength(0);
+                start = -1;
+            }
+        }
+        return count;
+    }
+
+    /** Türkçe küçük harf + aksan katlama. */
+    static char fold(char c) {
+        switch (c) {
+            case 'I': case 'ı': case 'İ': case 'i': case 'Î': case 'î': return 'i';
+            case 'Ç': case 'ç': return 'c';
+            case 'Ğ': case 'ğ': return 'g';
+            case 'Ö': case 'ö': return 'o';
+            case 'Ş': case 'ş': return 's';
+            case 'Ü': case 'ü': case 'Û': case 'û': return 'u';
+            case 'Â': case 'â': return 'a';
+            default: return Character.toLowerCase(c);
+        }
+    }
+
+    // ── Kalıcılık ────────────────────────────────────────────────────────────
+
+    private File newSegmentFile() {
+        return new File(dir, "seg_" + (nextSegment++) + ".idx");
+    }
+
+    private void load() {
+        try {
+            if (!dir.exists() && !dir.mkdirs()) throw new IOException("Dizin klasörü oluşturulamadı");
+            List<IndexSegment> segments = new ArrayList<>();
+            Set<Integer> tombstones = new HashSet<>();
+            Set<String> known = new HashSet<>();
+            known.add(MANIFEST);
+            File manifest = new File(dir, MANIFEST);
+            if (manifest.exists()) {
+                JSONObject obj = new JSONObject(readFile(manifest));
+                nextDocId = obj.optInt("nextDocId", 1);
+                nextSegment = obj.optInt("nextSegment", 1);
+                lastGc = obj.optLong("lastGc", 0);
+                JSONArray segs = obj.optJSONArray("segments");
+                for (int i = 0; segs != null && i < segs.length(); i++) {
+                    String name = segs.getString(i);
+                    try {
+                        segments.add(IndexSegment.open(new File(dir, name)));
+                        known.add(name);
+                    } catch (IOException e) {
+                        // Bozuk bölüm atlanır; içindeki belgeler yeniden açılınca dizinlenir
+                        Log.w(TAG, "Dizin bölümü okunamadı: " + name, e);
+                    }
+                }
+                JSONArray dead = obj.optJSONArray("tombstones");
+                for (int i = 0; dead != null && i < dead.length(); i++) tombstones.add(dead.getInt(i));
+            }
+            // Bildirimde olmayan dosyalar yarıda kalmış yazma ya da birleştirmeden kalmıştır
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File f : files) if (!known.contains(f.getName())) f.delete();
+            }
+            snapshot = new Snapshot(segments, tombstones);
+        } catch (Exception e) {
+            Log.w(TAG, "Dizin okunamadı", e);
+        } finally {
+            loaded.countDown();
+        }
+        if (System.currentTimeMillis() - lastGc > GC_INTERVAL_MS && !snapshot.liveDocs.isEmpty()) {
+            collectGarbage();
+        }
+    }
+
+    private void writeManifest(List<IndexSegment> segments, Set<Integer> tombstones) throws Exception {
+        JSONObject obj = new JSONObject();
+        obj.put("version", 1);
+        obj.put("nextDocId", nextDocId);
+        obj.put("nextSegment", nextSegment);
+        obj.put("lastGc", lastGc);
+        JSONArray segs = new JSONArray();
+        for (IndexSegment s : segments) segs.put(s.file.getName());
+        obj.put("segments", segs);
+        JSONArray dead = new JSONArray();
+        for (int id : tombstones) dead.put(id);
+        obj.put("tombstones", dead);
+
+        File tmp = new File(dir, MANIFEST + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            out.write(obj.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        if (!tmp.renameTo(new File(dir, MANIFEST))) throw new IOException("Bildirim kaydedilemedi");
+    }
+
+    private static String readFile(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            byte[] data = new byte[(int) file.length()];
+            int off = 0, n;
+            while (off < data.length && (n = in.read(data, off, data.length - off)) > 0) off += n;
+            return new String(data, 0, off, StandardCharsets.UTF_8);
+        }
+    }
+
+    private void awaitLoaded() {
+        try {
+            loaded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package com.udfviewer.app;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * FullTextIndex'in değişmez disk bölümü. Dosya düzeni:
+ *
+ *   başlık      MAGIC, VERSION, belge sayısı, belge tablosu
+ *   postings    terim başına: (docId farkı, tf, konum sayısı, konum farkları)*
+ *   sözlük      sıralı terimler: (terim, postings konumu, belge sıklığı)
+ *   blok dizini her BLOCK'uncu sözlük girdisinin konumu
+ *   son ek      sözlük başı, blok dizini başı, terim sayısı, MAGIC
+ *
+ * Tüm tamsayılar (son ek hariç) değişken uzunluklu (varint) yazılır.
+ * Dosya belleğe eşlenir (mmap); bellekte yalnızca belge tablosu ve her
+ * BLOCK terimden biri tutulur, arama ikili arama + en çok BLOCK girdilik
+ * sıralı tarama yapar. Bölümler yazıldıktan sonra değişmez; silinen
+ * belgeler FullTextIndex'in mezar taşı kümesinde tutulur ve birleştirmede
+ * atılır.
+ */
+final class IndexSegment {
+
+    private static final int MAGIC = 0x55444649;   // "UDFI"
+    private static final int VERSION = 1;
+    private static final int BLOCK = 32;
+    private static final int FOOTER = 8 + 8 + 4 + 4;
+
+    static final class Doc {
+        final int id;
+        final String uri;
+        final String name;
+        final int tokens;
+        final int textLength;
+        final int textHash;
+        final long indexedAt;
+
+        Doc(int id, String uri, String name, int tokens, int textLength, int textHash, long indexedAt) {
+            this.id = id;
+            this.uri = uri;
+            this.name = name;
+            this.tokens = tokens;
+            this.textLength = textLength;
+            this.textHash = textHash;
+            this.indexedAt = indexedAt;
+        }
+    }
+
+    static final class Posting {
+        final int doc;
+        final int tf;
+        final int[] positions;   // metin içi karakter konumları, en çok MAX_POSITIONS
+
+        Posting(int doc, int tf, int[] positions) {
+            this.doc = doc;
+            this.tf = tf;
+            this.positions = positions;
+        }
+    }
+
+    final File file;
+    final List<Doc> docs;
+    private final ByteBuffer buffer;
+    private final int termCount;
+    private final String[] blockTerms;
+    private final int[] blockOffsets;
+
+    private IndexSegment(File file, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        int limit = buffer.limit();
+        if (limit < 12 + FOOTER || buffer.getInt(0) != MAGIC || buffer.getInt(limit - 4) != MAGIC) {
+            throw new IOException("Bozuk dizin bölümü: " + file.getName());
+        }
+        if (buffer.getInt(4) != VERSION) throw new IOException("Desteklenmeyen dizin sürümü: " + file.getName());
+
+        int docCount = buffer.getInt(8);
+        Cursor c = new Cursor(buffer, 12);
+        List<Doc> list = new ArrayList<>(docCount);
+        for (int i = 0; i < docCount; i++) {
+            list.add(new Doc(c.varint(), c.string(), c.string(), c.varint(), c.varint(), c.int32(), c.int64()));
+        }
+        this.docs = Collections.unmodifiableList(list);
+
+        long blocksStart = buffer.getLong(limit - FOOTER + 8);
+        this.termCount = buffer.getInt(limit - FOOTER + 16);
+        int blocks = (termCount + BLOCK - 1) / BLOCK;
+        this.blockTerms = new String[blocks];
+        this.blockOffsets = new int[blocks];
+        c.p = (int) blocksStart;
+        for (int i = 0; i < blocks; i++) {
+            blockOffsets[i] = c.varint();
+        }
+        for (int i = 0; i < blocks; i++) {
+            blockTerms[i] = new Cursor(buffer, blockOffsets[i]).string();
+        }
+    }
+
+    static IndexSegment open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            // Eşleme kanal kapandıktan (ve dosya silindikten) sonra da geçerli kalır
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new IndexSegment(file, buffer);
+        }
+    }
+
+    long sizeBytes() {
+        return buffer.limit();
+    }
+
+    int getTermCount() {
+        return termCount;
+    }
+
+    /** Terimin postings listesi; terim bu bölümde yoksa null. */
+    List<Posting> postings(String term) {
+        int lo = 0, hi = blockTerms.length - 1, block = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (blockTerms[mid].compareTo(term) <= 0) {
+                block = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (block < 0) return null;
+        Cursor c = new Cursor(buffer, blockOffsets[block]);
+        int end = Math.min(termCount, (block + 1) * BLOCK);
+        for (int i = block * BLOCK; i < end; i++) {
+            String t = c.string();
+            int offset = c.varint();
+            int df = c.varint();
+            int cmp = t.compareTo(term);
+            if (cmp == 0) return readPostings(offset, df);
+            if (cmp > 0) return null;
+        }
+        return null;
+    }
+
+    private List<Posting> readPostings(int offset, int df) {
+        Cursor c = new Cursor(buffer, offset);
+        List<Posting> list = new ArrayList<>(df);
+        int doc = 0;
+        for (int i = 0; i < df; i++) {
+            doc += c.varint();
+            int tf = c.varint();
+            int[] positions = new int[c.varint()];
+            int pos = 0;
+            for (int j = 0; j < positions.length; j++) {
+                pos += c.varint();
+                positions[j] = pos;
+            }
+            list.add(new Posting(doc, tf, positions));
+        }
+        return list;
+    }
+
+    /** Sözlüğü sırayla gezer (birleştirme için). */
+    TermIterator terms() {
+        return new TermIterator();
+    }
+
+    final class TermIterator {
+        private final Cursor c;
+        private int index;
+        String term;
+        private int offset;
+        private int df;
+
+        TermIterator() {
+            long dictStart = buffer.getLong(buffer.limit() - FOOTER);
+            c = new Cursor(buffer, (int) dictStart);
+        }
+
+        boolean next() {
+            if (index >= termCount) {
+                term = null;
+                return false;
+            }
+            index++;
+            term = c.string();
+            offset = c.varint();
+            df = c.varint();
+            return true;
+        }
+
+        List<Posting> postings() {
+            return readPostings(offset, df);
+        }
+    }
+
+    // ── Yazma ────────────────────────────────────────────────────────────────
+
+    /**
+     * Bölüm yazıcı. Terimler artan sırada ve her terimin postings'i artan
+     * docId sırasında verilmelidir. Postings doğrudan dosyaya akar; bellekte
+     * yalnızca sözlük birikir. Dosya önce .tmp olarak yazılır, finish()
+     * yeniden adlandırır.
+     */
+    static final class Writer implements AutoCloseable {
+        private final File target;
+        private final File tmp;
+        private final CountingOutput out;
+        private final ByteArrayOutputStream dictionary = new ByteArrayOutputStream();
+        private final List<Integer> blockOffsets = new ArrayList<>();
+        private int terms;
+        private String lastTerm;
+        private boolean finished;
+
+        Writer(File target, List<Doc> docs) throws IOException {
+            this.target = target;
+            this.tmp = new File(target.getPath() + ".tmp");
+            this.out = new CountingOutput(new BufferedOutputStream(new FileOutputStream(tmp), 64 * 1024));
+            out.int32(MAGIC);
+            out.int32(VERSION);
+            out.int32(docs.size());
+            for (Doc d : docs) {
+                out.varint(d.id);
+                out.string(d.uri);
+                out.string(d.name);
+                out.varint(d.tokens);
+                out.varint(d.textLength);
+                out.int32(d.textHash);
+                out.int64(d.indexedAt);
+            }
+        }
+
+        void addTerm(String term, List<Posting> postings) throws IOException {
+            if (postings.isEmpty()) return;
+            if (lastTerm != null && lastTerm.compareTo(term) >= 0) {
+                throw new IllegalStateException("Terimler sıralı değil: " + term);
+            }
+            lastTerm = term;
+            long offset = out.count;
+            int prev = 0;
+            for (Posting p : postings) {
+                out.varint(p.doc - prev);
+                prev = p.doc;
+                out.varint(p.tf);
+                out.varint(p.positions.length);
+                int pos = 0;
+                for (int position : p.positions) {
+                    out.varint(position - pos);
+                    pos = position;
+                }
+            }
+            // Sözlük girdisinin konumu henüz bilinmiyor; sözlük içi göreli tutulur
+            if (terms % BLOCK == 0) blockOffsets.add(dictionary.size());
+            writeString(dictionary, term);
+            writeVarint(dictionary, (int) offset);
+            writeVarint(dictionary, postings.size());
+            terms++;
+        }
+
+        void finish() throws IOException {
+            long dictStart = out.count;
+            dictionary.writeTo(out);
+            long blocksStart = out.count;
+            for (int rel : blockOffsets) out.varint((int) (dictStart + rel));
+            out.int64(dictStart);
+            out.int64(blocksStart);
+            out.int32(terms);
+            out.int32(MAGIC);
+            out.close();
+            finished = true;
+            if (!tmp.renameTo(target)) throw new IOException("Dizin bölümü kaydedilemedi: " + target.getName());
+        }
+
+        @Override
+        public void close() {
+            if (finished) return;
+            try { out.close(); } catch (IOException ignored) {}
+            tmp.delete();
+        }
+    }
+
+    // ── Kodlama ──────────────────────────────────────────────────────────────
+
+    private static final class Cursor {
+        private final ByteBuffer b;
+        int p;
+
+        Cursor(ByteBuffer b, int p) {
+            this.b = b;
+            this.p = p;
+        }
+
+        int varint() {
+            int v = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte x = b.get(p++);
+                v |= (x & 0x7F) << shift;
+                if (x >= 0) return v;
+            }
+        }
+
+        int int32() {
+            int v = b.getInt(p);
+            p += 4;
+            return v;
+        }
+
+        long int64() {
+            long v = b.getLong(p);
+            p += 8;
+            return v;
+        }
+
+        String string() {
+            int len = varint();
+            byte[] bytes = new byte[len];
+            for (int i = 0; i < len; i++) bytes[i] = b.get(p + i);
+            p += len;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class CountingOutput extends OutputStream {
+        private final OutputStream out;
+        long count;
+
+        CountingOutput(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        void varint(int v) throws IOException {
+            writeVarint(this, v);
+        }
+
+        void int32(int v) throws IOException {
+            write(v >>> 24);
+            write(v >>> 16);
+            write(v >>> 8);
+            write(v);
+        }
+
+        void int64(long v) throws IOException {
+            int32((int) (v >>> 32));
+            int32((int) v);
+        }
+
+        void string(String s) throws IOException {
+            writeString(this, s);
+        }
+    }
+
+    private static void writeVarint(OutputStream out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.write((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.write(v);
+    }
+
+    private static void writeString(OutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+}
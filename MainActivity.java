@@ -4,17 +4,30 @@ import android.app.Activity;
 import android.app.AlertDialog;
 import android.content.ClipData;
 import android.content.ClipboardManager;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.Intent;
+import android.graphics.Typeface;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.print.PrintManager;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.BackgroundColorSpan;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.StrikethroughSpan;
+import android.util.Log;
+import android.util.TypedValue;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ArrayAdapter;
+import android.widget.EditText;
+import android.widget.HorizontalScrollView;
+import android.widget.ScrollView;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -22,16 +35,25 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.app.AppCompatDelegate;
 import androidx.appcompat.widget.Toolbar;
+import androidx.core.content.FileProvider;
+import androidx.lifecycle.ViewModelProvider;
 
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.snackbar.Snackbar;
 
 import java.io.File;
+import java.net.URLConnection;
+import java.util.ArrayList;
 import java.util.List;
 
-public class MainActivity extends AppCompatActivity {
+public class MainActivity extends AppCompatActivity implements DocumentViewModel.Host {
+
+    private static final String TAG = "MainActivity";
+    private static final String SPILL_DIR = UdfParser.SPILL_DIR;
 
     private static final int REQUEST_OPEN_FILE = 1001;
+    private static final int REQUEST_AUDIT_FOLDER = 1002;
+    private static final int REQUEST_COMPARE_FILE = 1003;
 
     private UdfDocumentView udfDocumentView;
     private View emptyStateLayout;
@@ -40,12 +62,12 @@ public class MainActivity extends AppCompatActivity {
     private View rootView;
 
     private RecentFilesManager recentFilesManager;
-    private SignatureVerifier signatureVerifier;
     private UdfPdfExporter pdfExporter;
+    private UdfTextExporter textExporter;
+    private BatchSignatureAuditor signatureAuditor;
 
-    private UdfDocument currentDocument;
-    private Uri currentUri;
-    private String currentFileName;
+    // Belge ve görünüm durumu yeniden oluşturmalarda korunur
+    private DocumentViewModel model;
 
     private View zoomIndicatorLayout;
     private TextView zoomIndicatorText;
@@ -54,12 +76,33 @@ public class MainActivity extends AppCompatActivity {
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        StartupTrace.activityCreated();
+        StartupTrace.begin("onCreate");
         super.onCreate(savedInstanceState);
+        model = new ViewModelProvider(this).get(DocumentViewModel.class);
+        model.attach(this);
+
+        // Yeniden oluşturmada (döndürme, tema) belge zaten bellekte; yeniden
+        // ayrıştırma yok. İlk açılışta ACTION_VIEW ile geldiyse arşiv okuması
+        // layout şişirilirken başlasın.
+        boolean restoring = model.getDocument() != null;
+        Intent intent = getIntent();
+        boolean documentPending = model.isLoading()
+                || (!restoring && savedInstanceState == null && isViewIntent(intent));
+        if (documentPending && !model.isLoading()) model.load(intent.getData());
+
+        StartupTrace.begin("inflate");
         setContentView(R.layout.activity_main);
+        StartupTrace.end("inflate");
 
         rootView = findViewById(android.R.id.content);
         toolbar = findViewById(R.id.toolbar);
         setSupportActionBar(toolbar);
+        // Gizli hata ayıklama ekranı: araç çubuğuna uzun bas
+        toolbar.setOnLongClickListener(v -> {
+            showPerfMetricsDialog();
+            return true;
+        });
 
         udfDocumentView = findViewById(R.id.udfDocumentView);
         emptyStateLayout = findViewById(R.id.emptyStateLayout);
@@ -67,16 +110,71 @@ public class MainActivity extends AppCompatActivity {
         zoomIndicatorLayout = findViewById(R.id.zoomIndicatorLayout);
         zoomIndicatorText = findViewById(R.id.zoomIndicatorText);
 
-        recentFilesManager = new RecentFilesManager(this);
-        signatureVerifier = new SignatureVerifier(this);
-        pdfExporter = new UdfPdfExporter(this);
-
         fabOpen.setOnClickListener(v -> openFilePicker());
 
         udfDocumentView.setOnZoomChangedListener(zoom ->
                 showZoomIndicator((int)(zoom * 100)));
+        udfDocumentView.setOnAttachmentClickListener(this::openAttachment);
+        udfDocumentView.setOnAnnotationListener(new UdfDocumentView.OnAnnotationListener() {
+            @Override
+            public void onHighlight(UdfDocument document, int start, int end) {
+                addAnnotation(document, start, end, null);
+            }
+
+            @Override
+            public void onAddNote(UdfDocument document, int start, int end) {
+                showAddNoteDialog(document, start, end);
+            }
+
+            @Override
+            public void onRemoveAnnotations(UdfDocument document, List<UdfAnnotation> annotations) {
+                removeAnnotations(document, annotations);
+            }
 
-        handleIncomingIntent(getIntent());
+            @Override
+            public void onShowNotes(UdfDocument document, List<UdfAnnotation> notes) {
+                showNotes(document, notes);
+            }
+        });
+        if (restoring) bindDocument(true);
+
+        // İlk kare için gerekmeyen her şey tembel oluşturulur; son dosyalar
+        // listesi ilk kareden sonra arka planda yüklenmeye başlar
+        StartupTrace.watchFirstFrame(this, rootView, documentPending);
+        rootView.post(() -> {
+            recentFiles();
+            Context app = getApplicationContext();
+            new Thread(() -> {
+                PerfMetrics.init(app);
+                // Bırakılmış belgeyle öldürülen süreçten kalan dosyalar
+                UdfDocument.deleteSpills(new File(app.getFilesDir(), SPILL_DIR));
+            }).start();
+        });
+        StartupTrace.end("onCreate");
+    }
+
+    private synchronized RecentFilesManager recentFiles() {
+        if (recentFilesManager == null) recentFilesManager = RecentFilesManager.getInstance(this);
+        return recentFilesManager;
+    }
+
+    private SignatureVerifier signatureVerifier() {
+        return model.getSignatureVerifier();
+    }
+
+    private UdfPdfExporter pdfExporter() {
+        if (pdfExporter == null) pdfExporter = new UdfPdfExporter(this);
+        return pdfExporter;
+    }
+
+    private UdfTextExporter textExporter() {
+        if (textExporter == null) textExporter = new UdfTextExporter(this);
+        return textExporter;
+    }
+
+    private BatchSignatureAuditor signatureAuditor() {
+        if (signatureAuditor == null) signatureAuditor = new BatchSignatureAuditor(this);
+        return signatureAuditor;
     }
 
     @Override
@@ -85,11 +183,88 @@ public class MainActivity extends AppCompatActivity {
         handleIncomingIntent(intent);
     }
 
-    private void handleIncomingIntent(Intent intent) {
-        if (intent == null) return;
-        if (Intent.ACTION_VIEW.equals(intent.getAction()) && intent.getData() != null) {
-            loadUdfFile(intent.getData());
+    @Override
+    protected void onDestroy() {
+        // Döndürmede yeni Activity aynı paragraftan ve zoom'dan devam eder
+        if (model.getDocument() != null) {
+            model.saveViewState(udfDocumentView.getCurrentZoom(),
+                    udfDocumentView.getAnchorParagraph(), udfDocumentView.getAnchorFraction());
         }
+        model.detach(this);
+        super.onDestroy();
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        restoreAfterTrim();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (recentFilesManager != null) recentFilesManager.flush();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        trimMemory(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        trimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    }
+
+    /**
+     * Bellek baskısına kademeli yanıt:
+     *  - ön planda (RUNNING_*): ekran dışındaki paragraf görünümleri bırakılır
+     *  - arka planda (UI_HIDDEN, BACKGROUND): tüm paragraf görünümleri bırakılır
+     *  - süreç öldürülme sırasına girince (MODERATE, COMPLETE, onLowMemory):
+     *    belge metni de diske yazılıp bırakılır; bellekte yalnızca span
+     *    konum/biçim bilgileri ve küçük bir parça önbelleği kalır
+     * Görünümler yer tutucularla değiştirildiği için kaydırma konumu korunur;
+     * dönüşte yalnızca görünür bölge yeniden oluşturulur.
+     */
+    private void trimMemory(int level) {
+        UdfDocument document = model.getDocument();
+        if (document == null || udfDocumentView == null) return;
+
+        UdfImageLoader.getInstance(this).trimMemory(level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            model.dropTextCache();
+            long views = udfDocumentView.dehydrate(false);
+            File dir = new File(getFilesDir(), SPILL_DIR);
+            new Thread(() -> reportTrim(level, "document", views + document.spill(dir))).start();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            model.dropTextCache();
+            reportTrim(level, "views", udfDocumentView.dehydrate(false));
+        } else {
+            reportTrim(level, "offscreen", udfDocumentView.dehydrate(true));
+        }
+    }
+
+    private static void reportTrim(int level, String tier, long bytes) {
+        Log.i(TAG, "onTrimMemory(" + level + ") " + tier + ": ~" + (bytes / 1024) + " KB bırakıldı");
+        PerfMetrics.count("trim." + tier);
+        PerfMetrics.bytes("trim." + tier, bytes);
+    }
+
+    private void restoreAfterTrim() {
+        UdfDocument document = model.getDocument();
+        if (document == null || !udfDocumentView.hasDehydratedViews()) return;
+        // Paragraflar metni kopyalamaz; görünür bölgenin metni gerektikçe okunur
+        udfDocumentView.rehydrateVisible();
+    }
+
+    private void handleIncomingIntent(Intent intent) {
+        if (isViewIntent(intent)) model.load(intent.getData());
+    }
+
+    private static boolean isViewIntent(Intent intent) {
+        return intent != null && Intent.ACTION_VIEW.equals(intent.getAction()) && intent.getData() != null;
     }
 
     private void openFilePicker() {
@@ -103,49 +278,63 @@ public class MainActivity extends AppCompatActivity {
     protected void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
         if (requestCode == REQUEST_OPEN_FILE && resultCode == Activity.RESULT_OK && data != null) {
-            loadUdfFile(data.getData());
+            model.load(data.getData());
+        } else if (requestCode == REQUEST_COMPARE_FILE && resultCode == Activity.RESULT_OK
+                && data != null && data.getData() != null) {
+            compareWith(data.getData());
+        } else if (requestCode == REQUEST_AUDIT_FOLDER && resultCode == Activity.RESULT_OK
+                && data != null && data.getData() != null) {
+            startSignatureAudit(data.getData());
         }
     }
 
-    private void loadUdfFile(Uri uri) {
-        try {
-            getContentResolver().takePersistableUriPermission(uri,
-                    Intent.FLAG_GRANT_READ_URI_PERMISSION);
-        } catch (Exception ignored) {}
+    @Override
+    public void onDocumentLoaded(DocumentViewModel model) {
+        bindDocument(false);
+        StartupTrace.watchDocumentVisible(this, udfDocumentView);
+        int offset = model.takePendingOffset();
+        if (offset >= 0) udfDocumentView.scrollToParagraph(model.getDocument().paragraphAtOffset(offset));
+        int outOfRange = model.getDocument().getOutOfRangeSpanCount();
+        if (outOfRange > 0) {
+            Toast.makeText(this, "Uyarı: " + outOfRange
+                    + " biçim bilgisi metnin dışını gösteriyordu, kırpıldı", Toast.LENGTH_LONG).show();
+        }
+    }
 
-        try {
-            UdfParser parser = new UdfParser(this);
-            UdfDocument document = parser.parse(uri);
-
-            currentDocument = document;
-            currentUri = uri;
-            currentFileName = UdfUtils.getFileName(this, uri);
-            if (currentFileName == null) currentFileName = "belge.udf";
-
-            emptyStateLayout.setVisibility(View.GONE);
-            udfDocumentView.setVisibility(View.VISIBLE);
-            findViewById(R.id.documentFrame).setVisibility(View.VISIBLE);
-            udfDocumentView.setDocument(document);
-
-            if (getSupportActionBar() != null) {
-                getSupportActionBar().setTitle(currentFileName);
-                getSupportActionBar().setSubtitle(document.getParagraphCount() + " paragraf");
-            }
+    @Override
+    public void onDocumentLoadFailed(String message) {
+        Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+    }
 
-            recentFilesManager.addFile(uri, currentFileName);
-            invalidateOptionsMenu();
-            verifySignatureAsync(uri);
+    @Override
+    public void onSignatureVerified(SignatureVerifier.SignatureResult result) {
+        showSignatureStatus(result);
+    }
 
-        } catch (Exception e) {
-            Toast.makeText(this, "Dosya açılamadı: " + e.getMessage(), Toast.LENGTH_LONG).show();
+    /**
+     * Belgeyi görünüme bağlar. restored ise belge yeniden oluşturulan
+     * Activity'ye aktarılıyordur: önce kayıtlı paragrafın çevresi kurulur,
+     * geri kalanı sonraki karelerde tamamlanır.
+     */
+    private void bindDocument(boolean restored) {
+        StartupTrace.begin("bindDocument");
+        UdfDocument document = model.getDocument();
+        emptyStateLayout.setVisibility(View.GONE);
+        udfDocumentView.setVisibility(View.VISIBLE);
+        findViewById(R.id.documentFrame).setVisibility(View.VISIBLE);
+        if (restored) {
+            udfDocumentView.restoreDocument(document, model.getTextCache(), model.getZoom(),
+                    model.getAnchorParagraph(), model.getAnchorFraction());
+        } else {
+            udfDocumentView.setDocument(document, model.getTextCache());
         }
-    }
 
-    private void verifySignatureAsync(Uri uri) {
-        new Thread(() -> {
-            SignatureVerifier.SignatureResult result = signatureVerifier.verify(uri);
-            runOnUiThread(() -> showSignatureStatus(result));
-        }).start();
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setTitle(model.getFileName());
+            getSupportActionBar().setSubtitle(document.getParagraphCount() + " paragraf");
+        }
+        StartupTrace.end("bindDocument");
+        invalidateOptionsMenu();
     }
 
     private void showSignatureStatus(SignatureVerifier.SignatureResult result) {
@@ -169,6 +358,13 @@ public class MainActivity extends AppCompatActivity {
         if (result.signerTitle != null) sb.append("Unvan: ").append(result.signerTitle).append("\n");
         if (result.signedAt != null) sb.append("Tarih: ").append(result.signedAt).append("\n");
         if (result.certificateInfo != null) sb.append("\nSertifika:\n").append(result.certificateInfo);
+        String chain = result.getChainLabel();
+        if (chain != null) {
+            sb.append("\nGüven Zinciri: ").append(chain).append("\n");
+            if (result.chainMessage != null) sb.append(result.chainMessage).append("\n");
+        }
+        String validity = result.getCertificateValidityLabel(System.currentTimeMillis());
+        if (validity != null) sb.append("\nŞu an: ").append(validity).append("\n");
         if (result.errorMessage != null) sb.append("\nHata: ").append(result.errorMessage);
         new AlertDialog.Builder(this)
                 .setTitle("Dijital İmza Bilgisi")
@@ -185,13 +381,18 @@ public class MainActivity extends AppCompatActivity {
 
     @Override
     public boolean onPrepareOptionsMenu(Menu menu) {
-        boolean hasDoc = currentDocument != null;
+        boolean hasDoc = model.getDocument() != null;
         menu.findItem(R.id.action_zoom_in).setVisible(hasDoc);
         menu.findItem(R.id.action_zoom_out).setVisible(hasDoc);
         menu.findItem(R.id.action_zoom_reset).setVisible(hasDoc);
         menu.findItem(R.id.action_copy_all).setVisible(hasDoc);
         menu.findItem(R.id.action_export_pdf).setVisible(hasDoc);
+        menu.findItem(R.id.action_export_pdf_compact).setVisible(hasDoc);
+        menu.findItem(R.id.action_print).setVisible(hasDoc);
+        menu.findItem(R.id.action_export_txt).setVisible(hasDoc);
+        menu.findItem(R.id.action_export_html).setVisible(hasDoc);
         menu.findItem(R.id.action_signature).setVisible(hasDoc);
+        menu.findItem(R.id.action_compare).setVisible(hasDoc);
         return super.onPrepareOptionsMenu(menu);
     }
 
@@ -201,6 +402,9 @@ public class MainActivity extends AppCompatActivity {
         if (id == R.id.action_open) { openFilePicker(); }
         else if (id == R.id.action_recent) { showRecentFiles(); }
         else if (id == R.id.action_copy_all) { copyAllText(); }
+        else if (id == R.id.action_audit_folder) { openAuditFolderPicker(); }
+        else if (id == R.id.action_compare) { openCompareFilePicker(); }
+        else if (id == R.id.action_search_all) { showSearchAllDialog(); }
         else if (id == R.id.action_zoom_in) {
             udfDocumentView.zoomIn();
             showZoomIndicator((int)(udfDocumentView.getCurrentZoom() * 100));
@@ -211,12 +415,26 @@ public class MainActivity extends AppCompatActivity {
             udfDocumentView.resetZoom();
             showZoomIndicator(100);
         } else if (id == R.id.action_export_pdf) {
-            exportPdf();
+            exportPdf(false);
+        } else if (id == R.id.action_export_pdf_compact) {
+            exportPdf(true);
+        } else if (id == R.id.action_print) {
+            printDocument();
+        } else if (id == R.id.action_export_txt) {
+            exportText(UdfTextExporter.Format.TEXT);
+        } else if (id == R.id.action_export_html) {
+            exportText(UdfTextExporter.Format.HTML);
         } else if (id == R.id.action_signature) {
-            if (currentUri != null) {
+            if (model.getSignatureResult() != null) {
+                showSignatureDialog(model.getSignatureResult());
+            } else if (model.getUri() != null) {
+                Uri uri = model.getUri();
                 new Thread(() -> {
-                    SignatureVerifier.SignatureResult r = signatureVerifier.verify(currentUri);
-                    runOnUiThread(() -> showSignatureDialog(r));
+                    SignatureVerifier.SignatureResult r = signatureVerifier().verify(uri);
+                    runOnUiThread(() -> {
+                        model.setSignatureResult(uri, r);
+                        showSignatureDialog(r);
+                    });
                 }).start();
             }
         } else if (id == R.id.action_night_mode) {
@@ -226,7 +444,7 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void showRecentFiles() {
-        List<RecentFilesManager.RecentFile> recents = recentFilesManager.getRecentFiles();
+        List<RecentFilesManager.RecentFile> recents = recentFiles().getRecentFiles();
         if (recents.isEmpty()) {
             Toast.makeText(this, "Henüz dosya açılmadı", Toast.LENGTH_SHORT).show();
             return;
@@ -240,26 +458,92 @@ public class MainActivity extends AppCompatActivity {
                         TextView t1 = view.findViewById(android.R.id.text1);
                         TextView t2 = view.findViewById(android.R.id.text2);
                         t1.setText(recents.get(position).fileName);
-                        t2.setText(recents.get(position).getFormattedDate());
+                        t2.setText(recents.get(position).getSummary());
                         return view;
                     }
                 };
         new AlertDialog.Builder(this)
                 .setTitle("Son Açılan Dosyalar")
-                .setAdapter(adapter, (dialog, which) -> loadUdfFile(recents.get(which).getUri()))
+                .setAdapter(adapter, (dialog, which) -> model.load(recents.get(which).getUri()))
                 .setNeutralButton("Temizle", (d, w) -> {
-                    recentFilesManager.clearAll();
+                    recentFiles().clearAll();
                     Toast.makeText(this, "Geçmiş temizlendi", Toast.LENGTH_SHORT).show();
                 })
                 .setNegativeButton("İptal", null)
                 .show();
     }
 
-    private void exportPdf() {
-        if (currentDocument == null) return;
+    /** Dizinlenmiş (daha önce açılmış) tüm belgelerde arama. */
+    private void showSearchAllDialog() {
+        EditText input = new EditText(this);
+        input.setSingleLine(true);
+        input.setHint("Aranacak sözcükler");
+        int pad = (int) (16 * getResources().getDisplayMetrics().density);
+        input.setPadding(pad, pad, pad, pad);
+        new AlertDialog.Builder(this)
+                .setTitle("Tüm Belgelerde Ara")
+                .setView(input)
+                .setPositiveButton("Ara", (d, w) -> searchAll(input.getText().toString()))
+                .setNegativeButton("İptal", null)
+                .show();
+    }
+
+    private void searchAll(String query) {
+        if (query.trim().isEmpty()) return;
+        Context app = getApplicationContext();
+        new Thread(() -> {
+            long t = System.currentTimeMillis();
+            FullTextIndex index = FullTextIndex.getInstance(app);
+            List<FullTextIndex.Hit> hits = index.search(query, 100);
+            long elapsed = System.currentTimeMillis() - t;
+            int total = index.getDocumentCount();
+            runOnUiThread(() -> showSearchResults(query, hits, total, elapsed));
+        }).start();
+    }
+
+    private void showSearchResults(String query, List<FullTextIndex.Hit> hits, int total, long elapsed) {
+        if (hits.isEmpty()) {
+            Toast.makeText(this, total + " belgede \"" + query + "\" bulunamadı", Toast.LENGTH_LONG).show();
+            return;
+        }
+        ArrayAdapter<FullTextIndex.Hit> adapter =
+                new ArrayAdapter<FullTextIndex.Hit>(this,
+                        android.R.layout.simple_list_item_2, android.R.id.text1, hits) {
+                    @NonNull @Override
+                    public View getView(int position, View convertView, @NonNull ViewGroup parent) {
+                        View view = super.getView(position, convertView, parent);
+                        TextView t1 = view.findViewById(android.R.id.text1);
+                        TextView t2 = view.findViewById(android.R.id.text2);
+                        FullTextIndex.Hit hit = hits.get(position);
+                        t1.setText(hit.fileName);
+                        t2.setText(hit.matches + " eşleşme");
+                        return view;
+                    }
+                };
+        new AlertDialog.Builder(this)
+                .setTitle(hits.size() + " / " + total + " belge (" + elapsed + " ms)")
+                .setAdapter(adapter, (dialog, which) -> openSearchHit(hits.get(which)))
+                .setNegativeButton("Kapat", null)
+                .show();
+    }
+
+    /** Sonucu açar ve ilk eşleşmenin paragrafına kaydırır; belge zaten açıksa yalnızca kaydırır. */
+    private void openSearchHit(FullTextIndex.Hit hit) {
+        UdfDocument current = model.getDocument();
+        if (current != null && model.getUri() != null && hit.uri.equals(model.getUri().toString())) {
+            if (hit.firstOffset() >= 0) {
+                udfDocumentView.scrollToParagraph(current.paragraphAtOffset(hit.firstOffset()));
+            }
+            return;
+        }
+        model.load(hit.getUri(), hit.firstOffset());
+    }
+
+    private void exportPdf(boolean compact) {
+        if (model.getDocument() == null) return;
         Snackbar loading = Snackbar.make(rootView, "PDF oluşturuluyor...", Snackbar.LENGTH_INDEFINITE);
         loading.show();
-        pdfExporter.export(currentDocument, currentFileName, new UdfPdfExporter.ExportCallback() {
+        pdfExporter().export(model.getDocument(), model.getFileName(), compact, new UdfPdfExporter.ExportCallback() {
             @Override
             public void onSuccess(File pdfFile) {
                 runOnUiThread(() -> {
@@ -281,6 +565,357 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
+    /** Sistem yazdırma ekranını açar; yalnızca seçilen sayfalar çizilir. */
+    private void printDocument() {
+        if (model.getDocument() == null) return;
+        PrintManager printManager = (PrintManager) getSystemService(Context.PRINT_SERVICE);
+        String jobName = model.getFileName();
+        printManager.print(jobName, pdfExporter().createPrintAdapter(model.getDocument(), jobName), null);
+    }
+
+    private void exportText(UdfTextExporter.Format format) {
+        if (model.getDocument() == null) return;
+        Snackbar loading = Snackbar.make(rootView, "Dosya oluşturuluyor...", Snackbar.LENGTH_INDEFINITE);
+        loading.show();
+        textExporter().export(model.getDocument(), model.getFileName(), format, new UdfTextExporter.ExportCallback() {
+            @Override
+            public void onSuccess(File file) {
+                runOnUiThread(() -> {
+                    loading.dismiss();
+                    Snackbar.make(rootView, file.getName() + " hazır!", Snackbar.LENGTH_LONG)
+                            .setAction("Paylaş", v -> startActivity(Intent.createChooser(
+                                    UdfUtils.createShareIntent(MainActivity.this, file, format.mimeType),
+                                    "Dosyayı Paylaş")))
+                            .show();
+                });
+            }
+            @Override
+            public void onError(String message) {
+                runOnUiThread(() -> {
+                    loading.dismiss();
+                    Toast.makeText(MainActivity.this, message, Toast.LENGTH_LONG).show();
+                });
+            }
+        });
+    }
+
+    private void openCompareFilePicker() {
+        Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
+        intent.setType("*/*");
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        startActivityForResult(Intent.createChooser(intent, "Karşılaştırılacak Sürümü Seç"), REQUEST_COMPARE_FILE);
+    }
+
+    /**
+     * Açık belgeyi (eski sürüm) seçilen dosyayla (yeni sürüm) karşılaştırır.
+     * Ayrıştırma, fark ve satırların biçimlendirilmesi arka planda yapılır.
+     */
+    private void compareWith(Uri uri) {
+        UdfDocument current = model.getDocument();
+        if (current == null) return;
+        Snackbar progress = Snackbar.make(rootView, "Sürümler karşılaştırılıyor...", Snackbar.LENGTH_INDEFINITE);
+        progress.show();
+        Context app = getApplicationContext();
+        // Satırlar da eski belgenin metninden kurulur; bitene kadar bırakılmasın
+        current.retain();
+        new Thread(() -> {
+            try {
+                UdfDocument revised = new UdfParser(app).parse(uri);
+                UdfDocumentDiff.Result result = UdfDocumentDiff.compare(current, revised);
+                List<CharSequence> rows = formatDiffRows(result, current, revised);
+                // Satırlar kuruldu; yeni sürümün metni artık okunmaz
+                revised.discardSpill();
+                String name = UdfUtils.getFileName(app, uri);
+                runOnUiThread(() -> {
+                    progress.dismiss();
+                    showDiffDialog(name != null ? name : "belge.udf", result, rows);
+                });
+            } catch (Exception e) {
+                runOnUiThread(() -> {
+                    progress.dismiss();
+                    Toast.makeText(this, "Karşılaştırılamadı: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                });
+            } finally {
+                current.release();
+            }
+        }).start();
+    }
+
+    /**
+     * Fark satırlarını satır içi gösterim için biçimlendirir: silinen metin
+     * kırmızı ve üstü çizili, eklenen yeşil. Uzun değişmemiş bölümler tek
+     * satıra indirilir; her değişikliğin çevresinde birer paragraf kalır.
+     */
+    private static List<CharSequence> formatDiffRows(UdfDocumentDiff.Result result,
+                                                     UdfDocument oldDoc, UdfDocument newDoc) {
+        List<CharSequence> out = new ArrayList<>();
+        List<UdfDocumentDiff.Row> rows = result.rows;
+        List<UdfParagraph> oldParas = oldDoc.getParagraphs();
+        List<UdfParagraph> newParas = newDoc.getParagraphs();
+        int i = 0;
+        while (i < rows.size()) {
+            int end = i;
+            while (end < rows.size() && rows.get(end).type == UdfDocumentDiff.RowType.SAME) end++;
+            if (end > i) {
+                int head = i > 0 ? 1 : 0;
+                int tail = end < rows.size() ? 1 : 0;
+                int hidden = end - i - head - tail;
+                for (int k = i; k < end; k++) {
+                    if (hidden > 1 && k == i + head) {
+                        SpannableStringBuilder gap = new SpannableStringBuilder("⋯ " + hidden + " paragraf aynı");
+                        gap.setSpan(new ForegroundColorSpan(0xFF9E9E9E), 0, gap.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                        out.add(gap);
+                        k += hidden - 1;
+                        continue;
+                    }
+                    out.add(newParas.get(rows.get(k).newIndex).getResolvedText());
+                }
+                i = end;
+                continue;
+            }
+
+            UdfDocumentDiff.Row row = rows.get(i++);
+            SpannableStringBuilder ssb = new SpannableStringBuilder();
+            if (row.type == UdfDocumentDiff.RowType.REMOVED) {
+                appendDiff(ssb, oldParas.get(row.oldIndex).getResolvedText(), UdfDocumentDiff.Op.DELETE);
+            } else if (row.type == UdfDocumentDiff.RowType.ADDED) {
+                appendDiff(ssb, newParas.get(row.newIndex).getResolvedText(), UdfDocumentDiff.Op.INSERT);
+            } else {
+                for (UdfDocumentDiff.Segment seg : row.getSegments()) appendDiff(ssb, seg.text, seg.op);
+                if (row.getSegments().size() == 1) ssb.append("  (biçim değişti)");
+            }
+            out.add(ssb);
+        }
+        return out;
+    }
+
+    private static void appendDiff(SpannableStringBuilder ssb, String text, UdfDocumentDiff.Op op) {
+        int start = ssb.length();
+        ssb.append(text.isEmpty() ? "¶" : text);
+        int end = ssb.length();
+        if (op == UdfDocumentDiff.Op.DELETE) {
+            ssb.setSpan(new BackgroundColorSpan(0x40E53935), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            ssb.setSpan(new StrikethroughSpan(), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        } else if (op == UdfDocumentDiff.Op.INSERT) {
+            ssb.setSpan(new BackgroundColorSpan(0x4043A047), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+    }
+
+    private void showDiffDialog(String revisedName, UdfDocumentDiff.Result result, List<CharSequence> rows) {
+        if (result.isIdentical()) {
+            Toast.makeText(this, "Belgeler aynı", Toast.LENGTH_LONG).show();
+            return;
+        }
+        ArrayAdapter<CharSequence> adapter = new ArrayAdapter<>(this,
+                android.R.layout.simple_list_item_1, android.R.id.text1, rows);
+        new AlertDialog.Builder(this)
+                .setTitle(revisedName + ": " + result.getSummary())
+                .setAdapter(adapter, null)
+                .setPositiveButton("Kapat", null)
+                .show();
+    }
+
+    private void openAuditFolderPicker() {
+        if (signatureAuditor().isRunning()) {
+            Toast.makeText(this, "İmza denetimi zaten çalışıyor", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        startActivityForResult(new Intent(Intent.ACTION_OPEN_DOCUMENT_TREE), REQUEST_AUDIT_FOLDER);
+    }
+
+    private void startSignatureAudit(Uri folder) {
+        try {
+            getContentResolver().takePersistableUriPermission(folder,
+                    Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        } catch (Exception ignored) {}
+
+        // CSV tabloda açılır; JSON Lines (satır başına bir nesne) betiklerle işlenir
+        String[] formats = {"CSV", "JSON Lines"};
+        new AlertDialog.Builder(this)
+                .setTitle("Rapor Biçimi")
+                .setItems(formats, (d, which) -> startSignatureAudit(folder, which == 0
+                        ? BatchSignatureAuditor.Format.CSV : BatchSignatureAuditor.Format.JSON))
+                .show();
+    }
+
+    private void startSignatureAudit(Uri folder, BatchSignatureAuditor.Format format) {
+        if (signatureAuditor().findExistingReport(folder, format) != null) {
+            new AlertDialog.Builder(this)
+                    .setTitle("İmza Denetimi")
+                    .setMessage("Bu klasör için yarım kalmış bir denetim bulundu. Kaldığı yerden devam edilsin mi?")
+                    .setPositiveButton("Devam Et", (d, w) -> runSignatureAudit(folder, format, true))
+                    .setNegativeButton("Baştan Başla", (d, w) -> runSignatureAudit(folder, format, false))
+                    .show();
+        } else {
+            runSignatureAudit(folder, format, false);
+        }
+    }
+
+    private void runSignatureAudit(Uri folder, BatchSignatureAuditor.Format format, boolean resume) {
+        Snackbar progress = Snackbar.make(rootView, "İmza denetimi başlıyor...", Snackbar.LENGTH_INDEFINITE);
+        progress.setAction("Durdur", v -> signatureAuditor().cancel());
+        progress.show();
+        signatureAuditor().audit(folder, format, resume, new BatchSignatureAuditor.AuditCallback() {
+            private long lastUpdate;
+
+            @Override
+            public void onProgress(int done, int total) {
+                // Binlerce dosyada ana iş parçacığını boğmamak için seyrek güncelle
+                long now = System.currentTimeMillis();
+                if (done < total && now - lastUpdate < 250) return;
+                lastUpdate = now;
+                runOnUiThread(() -> progress.setText("İmza denetimi: " + done + " / " + total));
+            }
+            @Override
+            public void onFinished(BatchSignatureAuditor.Summary summary) {
+                runOnUiThread(() -> {
+                    progress.dismiss();
+                    int unreadable = summary.count(SignatureVerifier.SignatureStatus.ERROR) + summary.failed;
+                    String msg = (summary.cancelled ? "Denetim durduruldu: " : "Denetim tamamlandı: ")
+                            + summary.count(SignatureVerifier.SignatureStatus.VALID) + " geçerli, "
+                            + summary.count(SignatureVerifier.SignatureStatus.UNTRUSTED) + " doğrulanamayan imzacı, "
+                            + summary.count(SignatureVerifier.SignatureStatus.INVALID) + " geçersiz, "
+                            + summary.count(SignatureVerifier.SignatureStatus.NO_SIGNATURE) + " imzasız"
+                            + (unreadable > 0 ? ", " + unreadable + " okunamadı" : "");
+                    Snackbar.make(rootView, msg, Snackbar.LENGTH_INDEFINITE)
+                            .setAction("Raporu Paylaş", v -> startActivity(Intent.createChooser(
+                                    BatchSignatureAuditor.createShareIntent(MainActivity.this,
+                                            summary.reportFile, format),
+                                    "Raporu Paylaş")))
+                            .show();
+                });
+            }
+            @Override
+            public void onError(String message) {
+                runOnUiThread(() -> {
+                    progress.dismiss();
+                    Toast.makeText(MainActivity.this, message, Toast.LENGTH_LONG).show();
+                });
+            }
+        });
+    }
+
+    private void showPerfMetricsDialog() {
+        TextView tv = new TextView(this);
+        tv.setTypeface(Typeface.MONOSPACE);
+        tv.setTextSize(TypedValue.COMPLEX_UNIT_SP, 11);
+        tv.setTextIsSelectable(true);
+        int pad = (int) (16 * getResources().getDisplayMetrics().density);
+        tv.setPadding(pad, pad, pad, pad);
+        tv.setText(PerfMetrics.snapshot());
+        HorizontalScrollView wide = new HorizontalScrollView(this);
+        wide.addView(tv);
+        ScrollView scroll = new ScrollView(this);
+        scroll.addView(wide);
+
+        boolean on = PerfMetrics.isEnabled();
+        new AlertDialog.Builder(this)
+                .setTitle("Performans Ölçümleri")
+                .setView(scroll)
+                .setPositiveButton("Dosyaya Kaydet", (d, w) -> dumpPerfMetrics())
+                .setNeutralButton(on ? "Ölçümü Kapat" : "Ölçümü Aç", (d, w) -> {
+                    PerfMetrics.setEnabled(!on);
+                    Toast.makeText(this, on ? "Ölçüm kapatıldı" : "Ölçüm açıldı", Toast.LENGTH_SHORT).show();
+                })
+                .setNegativeButton("Sıfırla", (d, w) -> PerfMetrics.reset())
+                .show();
+    }
+
+    private void dumpPerfMetrics() {
+        Context app = getApplicationContext();
+        new Thread(() -> {
+            try {
+                File file = PerfMetrics.dump(app, StartupTrace.readRuns(app));
+                runOnUiThread(() -> Snackbar.make(rootView, "Ölçümler kaydedildi", Snackbar.LENGTH_LONG)
+                        .setAction("Paylaş", v -> startActivity(Intent.createChooser(
+                                UdfUtils.createShareIntent(MainActivity.this, file, "text/plain"), "Ölçümleri Paylaş")))
+                        .show());
+            } catch (Exception e) {
+                runOnUiThread(() -> Toast.makeText(this,
+                        "Ölçümler kaydedilemedi: " + e.getMessage(), Toast.LENGTH_LONG).show());
+            }
+        }).start();
+    }
+
+    /** Eki arşivden önbelleğe çıkarır ve uygun bir uygulamayla açar. */
+    private void openAttachment(UdfDocument document, UdfMedia attachment) {
+        if (document.getSource() == null || attachment.getEntryName() == null) return;
+        Context app = getApplicationContext();
+        new Thread(() -> {
+            try {
+                File dir = new File(app.getCacheDir(), "attachments");
+                if (!dir.exists() && !dir.mkdirs()) throw new Exception("Klasör oluşturulamadı");
+                String safeName = attachment.getDisplayName().replaceAll("[^a-zA-Z0-9._-]", "_");
+                File target = new File(dir, safeName);
+                try (UdfArchive archive = UdfArchive.open(app, Uri.parse(document.getSource()))) {
+                    archive.extract(attachment.getEntryName(), target);
+                }
+                String mime = URLConnection.guessContentTypeFromName(safeName);
+                Intent intent = new Intent(Intent.ACTION_VIEW);
+                intent.setDataAndType(FileProvider.getUriForFile(app, app.getPackageName() + ".provider", target),
+                        mime != null ? mime : "application/octet-stream");
+                intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+                runOnUiThread(() -> startActivity(Intent.createChooser(intent, attachment.getDisplayName())));
+            } catch (Exception e) {
+                runOnUiThread(() -> Toast.makeText(this,
+                        "Ek açılamadı: " + e.getMessage(), Toast.LENGTH_LONG).show());
+            }
+        }).start();
+    }
+
+    // ── Vurgu ve notlar ──────────────────────────────────────────────────────
+
+    private void addAnnotation(UdfDocument document, int start, int end, String note) {
+        AnnotationStore.getInstance(this).add(document, start, end, note);
+        udfDocumentView.refreshAnnotations(start, end);
+    }
+
+    private void showAddNoteDialog(UdfDocument document, int start, int end) {
+        EditText input = new EditText(this);
+        input.setHint("Not");
+        int pad = (int) (16 * getResources().getDisplayMetrics().density);
+        input.setPadding(pad, pad, pad, pad);
+        new AlertDialog.Builder(this)
+                .setTitle("Not Ekle")
+                .setView(input)
+                .setPositiveButton("Kaydet", (d, w) -> {
+                    String note = input.getText().toString();
+                    if (note.trim().isEmpty()) {
+                        Toast.makeText(this, "Not boş", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    addAnnotation(document, start, end, note);
+                })
+                .setNegativeButton("İptal", null)
+                .show();
+    }
+
+    private void removeAnnotations(UdfDocument document, List<UdfAnnotation> annotations) {
+        if (annotations.isEmpty()) return;
+        int start = Integer.MAX_VALUE, end = 0;
+        for (UdfAnnotation a : annotations) {
+            start = Math.min(start, a.getStart());
+            end = Math.max(end, a.getEnd());
+        }
+        AnnotationStore.getInstance(this).remove(document, annotations);
+        udfDocumentView.refreshAnnotations(start, end);
+    }
+
+    private void showNotes(UdfDocument document, List<UdfAnnotation> notes) {
+        if (notes.isEmpty()) return;
+        StringBuilder message = new StringBuilder();
+        for (UdfAnnotation a : notes) {
+            if (message.length() > 0) message.append("\n\n");
+            message.append(a.getNote());
+        }
+        new AlertDialog.Builder(this)
+                .setTitle(notes.size() == 1 ? "Not" : notes.size() + " not")
+                .setMessage(message)
+                .setPositiveButton("Kapat", null)
+                .setNegativeButton("Sil", (d, w) -> removeAnnotations(document, notes))
+                .show();
+    }
+
     private void copyAllText() {
         String text = udfDocumentView.getAllText();
         if (text == null || text.isEmpty()) {
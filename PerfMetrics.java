@@ -0,0 +1,268 @@
+package com.udfviewer.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Uygulama içi performans ölçümleri: sayaçlar, gecikme histogramları
+ * (p50/p95/p99) ve bayt göstergeleri. Kapalıyken her çağrı tek bir volatile
+ * okumasından ibarettir; açılıp kapanması gizli hata ayıklama ekranından
+ * yapılır ve SharedPreferences'ta saklanır.
+ *
+ * Kullanım:
+ * <pre>
+ *   long t = PerfMetrics.start();
+ *   ...
+ *   PerfMetrics.stop("parse", t);
+ * </pre>
+ */
+public final class PerfMetrics {
+
+    private static final String PREFS_NAME = "perf_metrics";
+    private static final String KEY_ENABLED = "enabled";
+    private static final String DUMP_DIR = "metrics";
+    private static final int MAX_DOCUMENTS = 20;
+
+    private static volatile boolean enabled;
+    private static volatile Context appContext;
+
+    private static final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> timers = new ConcurrentHashMap<>();
+    private static final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private static final ArrayDeque<String> documents = new ArrayDeque<>();
+
+    private PerfMetrics() {}
+
+    /**
+     * Kayıtlı açık/kapalı durumunu okur; disk erişimi olduğundan arka planda
+     * çağrılmalıdır. Yalnızca ilk çağrı okur: belge yükleme iş parçacığı
+     * ayrıştırmadan önce çağırır ki soğuk açılıştaki ilk ölçümler kaybolmasın.
+     */
+    public static synchronized void init(Context context) {
+        if (appContext != null) return;
+        Context app = context.getApplicationContext();
+        SharedPreferences prefs = app.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        enabled = prefs.getBoolean(KEY_ENABLED, false);
+        appContext = app;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+        if (appContext != null) {
+            appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                    .edit().putBoolean(KEY_ENABLED, on).apply();
+        }
+    }
+
+    public static void reset() {
+        counters.clear();
+        timers.clear();
+        gauges.clear();
+        synchronized (documents) {
+            documents.clear();
+        }
+    }
+
+    // ── Kayıt ────────────────────────────────────────────────────────────────
+
+    /** Ölçüm kapalıysa 0 döner; stop() bu durumda hiçbir şey yapmaz. */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    public static void stop(String name, long startNanos) {
+        if (startNanos == 0L || !enabled) return;
+        long micros = (System.nanoTime() - startNanos) / 1000L;
+        Histogram h = timers.get(name);
+        if (h == null) {
+            Histogram created = new Histogram();
+            h = timers.putIfAbsent(name, created);
+            if (h == null) h = created;
+        }
+        h.record(micros);
+    }
+
+    public static void count(String name) {
+        count(name, 1);
+    }
+
+    public static void count(String name, long delta) {
+        if (!enabled) return;
+        AtomicLong c = counters.get(name);
+        if (c == null) {
+            AtomicLong created = new AtomicLong();
+            c = counters.putIfAbsent(name, created);
+            if (c == null) c = created;
+        }
+        c.addAndGet(delta);
+    }
+
+    /** Bayt göstergesi; son ve en büyük değer tutulur. */
+    public static void bytes(String name, long value) {
+        if (!enabled || value < 0) return;
+        Gauge g = gauges.get(name);
+        if (g == null) {
+            Gauge created = new Gauge();
+            g = gauges.putIfAbsent(name, created);
+            if (g == null) g = created;
+        }
+        g.set(value);
+    }
+
+    /** Açılan belgenin boyut nitelikleri; son MAX_DOCUMENTS belge saklanır. */
+    public static void document(long compressedBytes, long xmlBytes, int chars, int paragraphs, int spans) {
+        if (!enabled) return;
+        String line = String.format(Locale.US,
+                "zip=%s xml=%s karakter=%d paragraf=%d span=%d",
+                formatBytes(compressedBytes), formatBytes(xmlBytes), chars, paragraphs, spans);
+        synchronized (documents) {
+            documents.addLast(line);
+            while (documents.size() > MAX_DOCUMENTS) documents.removeFirst();
+        }
+        bytes("doc.xml", xmlBytes);
+        count("doc.opened");
+    }
+
+    // ── Rapor ────────────────────────────────────────────────────────────────
+
+    public static String snapshot() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Ölçüm: ").append(enabled ? "açık" : "kapalı").append('\n');
+
+        sb.append("\nSüreler (ms)            n     p50     p95     p99     max\n");
+        for (Map.Entry<String, Histogram> e : new TreeMap<>(timers).entrySet()) {
+            sb.append(e.getValue().format(e.getKey())).append('\n');
+        }
+
+        sb.append("\nSayaçlar\n");
+        for (Map.Entry<String, AtomicLong> e : new TreeMap<>(counters).entrySet()) {
+            sb.append(String.format(Locale.US, "%-20s %8d%n", e.getKey(), e.getValue().get()));
+        }
+
+        sb.append("\nBaytlar                 son       en büyük\n");
+        for (Map.Entry<String, Gauge> e : new TreeMap<>(gauges).entrySet()) {
+            Gauge g = e.getValue();
+            sb.append(String.format(Locale.US, "%-20s %10s %10s%n",
+                    e.getKey(), formatBytes(g.last), formatBytes(g.max)));
+        }
+
+        sb.append("\nSon belgeler\n");
+        synchronized (documents) {
+            for (String d : documents) sb.append(d).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Ölçümleri ve son açılış ölçümlerini (StartupTrace.readRuns) files/metrics
+     * altına yazar; hata raporuna eklemek için dosyayı döndürür. Açılış
+     * ölçümleri çağırandan gelir ki bu sınıf JVM araçlarında StartupTrace'siz
+     * derlenebilsin.
+     */
+    public static File dump(Context context, List<String> runs) throws Exception {
+        File dir = new File(context.getFilesDir(), DUMP_DIR);
+        if (!dir.exists() && !dir.mkdirs()) throw new Exception("Klasör oluşturulamadı");
+        String stamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
+        File out = new File(dir, "olcumler_" + stamp + ".txt");
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(out), StandardCharsets.UTF_8)) {
+            w.write("Cihaz: " + Build.MANUFACTURER + " " + Build.MODEL
+                    + " (API " + Build.VERSION.SDK_INT + ")\n\n");
+            w.write(snapshot());
+            w.write("\nAçılış ölçümleri\n");
+            for (int i = Math.max(0, runs.size() - 20); i < runs.size(); i++) {
+                w.write(runs.get(i));
+                w.write('\n');
+            }
+        }
+        return out;
+    }
+
+    private static String formatBytes(long b) {
+        if (b < 0) return "-";
+        if (b < 1024) return b + " B";
+        if (b < 1024 * 1024) return (b / 1024) + " KB";
+        return String.format(Locale.US, "%.1f MB", b / (1024.0 * 1024.0));
+    }
+
+    // ── Yardımcı türler ──────────────────────────────────────────────────────
+
+    /**
+     * Logaritmik kovalı histogram (mikrosaniye). Her ikinin kuvveti aralığı
+     * SUB kovaya bölünür; yüzdelikler en fazla ~%19 hatayla kova üst sınırından
+     * okunur. Bellek sabit, kayıt O(1).
+     */
+    private static final class Histogram {
+        private static final int SUB_BITS = 2;
+        private static final int SUB = 1 << SUB_BITS;
+        private final long[] buckets = new long[64 * SUB];
+        private long count;
+        private long max;
+
+        synchronized void record(long micros) {
+            if (micros < 0) micros = 0;
+            buckets[index(micros)]++;
+            count++;
+            if (micros > max) max = micros;
+        }
+
+        private static int index(long v) {
+            if (v < SUB) return (int) v;
+            int exp = 63 - Long.numberOfLeadingZeros(v);
+            int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB - 1);
+            return (exp - SUB_BITS + 1) * SUB + sub;
+        }
+
+        private static long upperBound(int index) {
+            if (index < SUB) return index;
+            int exp = index / SUB + SUB_BITS - 1;
+            int sub = index % SUB;
+            return ((long) (SUB + sub + 1) << (exp - SUB_BITS)) - 1;
+        }
+
+        private long percentile(double p) {
+            long rank = (long) Math.ceil(count * p);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) return Math.min(upperBound(i), max);
+            }
+            return max;
+        }
+
+        synchronized String format(String name) {
+            return String.format(Locale.US, "%-20s %6d %7.1f %7.1f %7.1f %7.1f",
+                    name, count, percentile(0.50) / 1000.0, percentile(0.95) / 1000.0,
+                    percentile(0.99) / 1000.0, max / 1000.0);
+        }
+    }
+
+    private static final class Gauge {
+        volatile long last;
+        volatile long max;
+
+        synchronized void set(long v) {
+            last = v;
+            if (v > max) max = v;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.udfviewer.app;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Açma (inflate) ve UTF-8 çözmeyi ayrı bir iş parçacığında yapan Reader.
+ * Üretici sabit sayıda karakter parçasını doldurur, tüketici (XML
+ * ayrıştırıcı) okudukça parçalar geri verilir. Boş parça yoksa üretici
+ * bekler; bellek CHUNKS x CHUNK_CHARS ile sınırlıdır.
+ *
+ * İki çekirdekte toplam süre iki aşamanın toplamı yerine büyüğüne yaklaşır.
+ * Çözme CharsetDecoder ile yapıldığından tampon sınırına düşen çok baytlı
+ * karakterler bölünmez.
+ */
+public class PipelinedReader extends Reader {
+
+    private static final int CHUNKS = 8;
+    private static final int CHUNK_CHARS = 32 * 1024;
+    private static final int READ_BYTES = 32 * 1024;
+
+    private static final class Chunk {
+        final char[] data = new char[CHUNK_CHARS];
+        int length;
+    }
+
+    // Akış sonu işareti; hata varsa error alanında
+    private static final Chunk END = new Chunk();
+
+    private final BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(CHUNKS);
+    private final BlockingQueue<Chunk> full = new ArrayBlockingQueue<>(CHUNKS + 1);
+    private final Thread producer;
+    private volatile Throwable error;
+    private volatile boolean closed;
+    private volatile long bytesRead;
+
+    private Chunk current;
+    private int position;
+    private boolean finished;
+
+    public PipelinedReader(InputStream in) {
+        for (int i = 0; i < CHUNKS; i++) free.add(new Chunk());
+        producer = new Thread(() -> produce(in), "udf-inflate");
+        producer.start();
+    }
+
+    /** Şimdiye dek açılmış bayt sayısı (ölçüm için). */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    private void produce(InputStream in) {
+        long t = PerfMetrics.start();
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocate(READ_BYTES);
+        try {
+            Chunk chunk = free.take();
+            CharBuffer chars = CharBuffer.wrap(chunk.data);
+            boolean eof = false;
+            while (!closed) {
+                if (!eof) {
+                    int n = in.read(bytes.array(), bytes.position(), bytes.remaining());
+                    if (n < 0) eof = true;
+                    else bytesRead += n;
+                    if (n > 0) bytes.position(bytes.position() + n);
+                }
+                bytes.flip();
+                CoderResult r = decoder.decode(bytes, chars, eof);
+                bytes.compact();
+                if (eof && !r.isOverflow()) {
+                    while (decoder.flush(chars).isOverflow()) {
+                        chunk = hand(chunk, chars);
+                        chars = CharBuffer.wrap(chunk.data);
+                    }
+                    break;
+                }
+                if (r.isOverflow() || !chars.hasRemaining()) {
+                    chunk = hand(chunk, chars);
+                    chars = CharBuffer.wrap(chunk.data);
+                }
+            }
+            if (chars.position() > 0) {
+                chunk.length = chars.position();
+                full.put(chunk);
+            }
+        } catch (InterruptedException e) {
+            // close() tüketici tarafından çağrıldı
+        } catch (Throwable e) {
+            error = e;
+        } finally {
+            try { in.close(); } catch (IOException ignored) {}
+            PerfMetrics.stop("inflate", t);
+            full.offer(END);
+        }
+    }
+
+    /** Dolu parçayı tüketiciye verir, boş bir parça alır (yoksa bekler). */
+    private Chunk hand(Chunk chunk, CharBuffer chars) throws InterruptedException {
+        chunk.length = chars.position();
+        full.put(chunk);
+        return free.take();
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (closed) throw new IOException("Akış kapalı");
+        if (len == 0) return 0;
+        while (current == null || position >= current.length) {
+            if (finished) return -1;
+            if (current != null) free.offer(current);
+            current = null;
+            Chunk next;
+            try {
+                next = full.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            if (next == END) {
+                finished = true;
+                if (error != null) {
+                    throw error instanceof IOException ? (IOException) error : new IOException(error);
+                }
+                return -1;
+            }
+            current = next;
+            position = 0;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current.data, position, cbuf, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        producer.interrupt();
+        try {
+            producer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -2,33 +2,81 @@ package com.udfviewer.app;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.database.Cursor;
 import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.provider.OpenableColumns;
+import android.util.Log;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Son açılan UDF dosyalarını SharedPreferences içinde saklar.
- * Her kayıt: uri, dosyaAdı, açılmaZamanı içerir.
+ * Son açılan UDF dosyalarını ve dosya başına meta verileri saklar.
+ *
+ * Bellekte URI'ye göre anahtarlanmış bir LinkedHashMap tutulur (ekleme sırası =
+ * açılma sırası); ekleme/güncelleme ve URI ile arama O(1)'dir. Diskte
+ * files/recent_files.log bir ekleme günlüğüdür: her değişiklik tek bir JSON
+ * satırı olarak arka planda, toplu halde eklenir. Günlük canlı kayıt
+ * sayısının birkaç katına çıkınca sıkıştırılır (anlık görüntü + yeniden adlandırma).
+ *
+ * Dosya ilk erişimden önce arka planda yüklenir; eski SharedPreferences
+ * listesi bir kez içe aktarılıp silinir.
  */
 public class RecentFilesManager {
 
+    private static final String TAG = "RecentFilesManager";
     private static final String PREFS_NAME = "udf_recent_files";
     private static final String KEY_RECENT = "recent_list";
-    private static final int MAX_RECENT = 10;
+    private static final String LOG_FILE = "recent_files.log";
+    private static final int MAX_ENTRIES = 5000;
+    private static final long FLUSH_DELAY_MS = 500;
+    private static final int COMPACT_MIN_LINES = 256;
 
     public static class RecentFile {
         public final String uriString;
         public final String fileName;
         public final long openedAt;
+        // Meta veriler; bilinmiyorsa -1 / null
+        public final long size;
+        public final long lastModified;
+        public final int paragraphCount;
+        public final String signatureStatus;   // SignatureVerifier.SignatureStatus adı
+        public final String contentDigest;     // content.xml SHA-256 (hex)
 
         public RecentFile(String uriString, String fileName, long openedAt) {
+            this(uriString, fileName, openedAt, -1L, -1L, -1, null, null);
+        }
+
+        public RecentFile(String uriString, String fileName, long openedAt, long size, long lastModified,
+                          int paragraphCount, String signatureStatus, String contentDigest) {
             this.uriString = uriString;
             this.fileName = fileName;
             this.openedAt = openedAt;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.paragraphCount = paragraphCount;
+            this.signatureStatus = signatureStatus;
+            this.contentDigest = contentDigest;
         }
 
         public Uri getUri() { return Uri.parse(uriString); }
@@ -42,67 +90,356 @@ public class RecentFilesManager {
             java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("dd.MM.yyyy", java.util.Locale.getDefault());
             return sdf.format(new java.util.Date(openedAt));
         }
+
+        /** Liste alt satırı: tarih, paragraf sayısı, boyut. */
+        public String getSummary() {
+            StringBuilder sb = new StringBuilder(getFormattedDate());
+            if (paragraphCount >= 0) sb.append(" · ").append(paragraphCount).append(" paragraf");
+            if (size >= 0) {
+                sb.append(" · ").append(size < 1024 ? size + " B"
+                        : size < 1024 * 1024 ? (size / 1024) + " KB"
+                        : String.format(java.util.Locale.getDefault(), "%.1f MB", size / (1024.0 * 1024.0)));
+            }
+            return sb.toString();
+        }
+
+        /** Verilen anda daha güncel meta veriyle birleştirilmiş kopya (-1/null olanlar eskiden alınır). */
+        RecentFile merge(String name, long opened, long newSize, long newModified, int newParagraphs,
+                         String newStatus, String newDigest) {
+            return new RecentFile(uriString,
+                    name != null ? name : fileName,
+                    opened > 0 ? opened : openedAt,
+                    newSize >= 0 ? newSize : size,
+                    newModified >= 0 ? newModified : lastModified,
+                    newParagraphs >= 0 ? newParagraphs : paragraphCount,
+                    newStatus != null ? newStatus : signatureStatus,
+                    newDigest != null ? newDigest : contentDigest);
+        }
+    }
+
+    private static RecentFilesManager instance;
+
+    public static synchronized RecentFilesManager getInstance(Context context) {
+        if (instance == null) instance = new RecentFilesManager(context.getApplicationContext());
+        return instance;
+    }
+
+    private final Context context;
+    private final File logFile;
+    private final ScheduledExecutorService io = Executors.newSingleThreadScheduledExecutor();
+    private final CountDownLatch loaded = new CountDownLatch(1);
+
+    // Ekleme sırası eskiden yeniye; en son açılan en sonda
+    private final LinkedHashMap<String, RecentFile> entries = new LinkedHashMap<>();
+    private final List<String> pending = new ArrayList<>();   // diske yazılmamış günlük satırları
+    private boolean flushScheduled;
+    private int logLines;
+
+    private RecentFilesManager(Context context) {
+        this.context = context;
+        this.logFile = new File(context.getFilesDir(), LOG_FILE);
+        io.execute(this::load);
+    }
+
+    // ── Okuma ────────────────────────────────────────────────────────────────
+
+    /** En son açılan başta olacak şekilde tüm kayıtlar. */
+    public List<RecentFile> getRecentFiles() {
+        awaitLoaded();
+        synchronized (this) {
+            List<RecentFile> list = new ArrayList<>(entries.values());
+            java.util.Collections.reverse(list);
+            return list;
+        }
     }
 
-    private final SharedPreferences prefs;
+    public RecentFile get(Uri uri) {
+        awaitLoaded();
+        synchronized (this) {
+            return entries.get(uri.toString());
+        }
+    }
 
-    public RecentFilesManager(Context context) {
-        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    public int size() {
+        awaitLoaded();
+        synchronized (this) {
+            return entries.size();
+        }
     }
 
+    // ── Yazma ────────────────────────────────────────────────────────────────
+
     public void addFile(Uri uri, String fileName) {
-        List<RecentFile> list = getRecentFiles();
+        addFile(uri, fileName, -1);
+    }
 
-        // Zaten varsa kaldır (üste taşımak için)
-        list.removeIf(f -> f.uriString.equals(uri.toString()));
+    // Değişiklikler io iş parçacığında uygulanır. io tek iş parçacıklı ve ilk
+    // işi load() olduğundan bunlar yükleme bitince sırayla çalışır; ana iş
+    // parçacığı (ör. açılışta belge gösterilirken) yüklemeyi beklemez.
 
-        // Başa ekle
-        list.add(0, new RecentFile(uri.toString(), fileName, System.currentTimeMillis()));
+    /**
+     * Dosyayı listenin başına taşır. Boyut/değişiklik zamanı arka planda
+     * ContentResolver'dan okunup kayda işlenir; çağıran iş parçacığı beklemez.
+     */
+    public void addFile(Uri uri, String fileName, int paragraphCount) {
+        String key = uri.toString();
+        long now = System.currentTimeMillis();
+        io.execute(() -> {
+            synchronized (this) {
+                RecentFile old = entries.remove(key);
+                RecentFile f = old != null
+                        ? old.merge(fileName, now, -1L, -1L, paragraphCount, null, null)
+                        : new RecentFile(key, fileName, now, -1L, -1L, paragraphCount, null, null);
+                entries.put(key, f);
+                trim();
+                append(toJson(f));
+            }
+            queryFileInfo(uri);
+        });
+    }
 
-        // Maksimum boyutu koru
-        while (list.size() > MAX_RECENT) list.remove(list.size() - 1);
+    public void updateSignature(Uri uri, String signatureStatus, String contentDigest) {
+        String key = uri.toString();
+        io.execute(() -> update(key, -1L, -1L, -1, signatureStatus, contentDigest));
+    }
 
-        saveList(list);
+    public void removeFile(String uriString) {
+        io.execute(() -> {
+            synchronized (this) {
+                if (entries.remove(uriString) == null) return;
+                append(op("del", uriString));
+            }
+        });
     }
 
-    public List<RecentFile> getRecentFiles() {
-        List<RecentFile> result = new ArrayList<>();
-        String json = prefs.getString(KEY_RECENT, "[]");
+    public void clearAll() {
+        io.execute(() -> {
+            synchronized (this) {
+                entries.clear();
+                append(op("clear", null));
+            }
+        });
+    }
+
+    /** Bekleyen satırları hemen diske yazar (ör. onStop). */
+    public void flush() {
+        io.execute(this::writePending);
+    }
+
+    /** Yalnızca io iş parçacığında çağrılır. */
+    private void update(String key, long size, long modified, int paragraphs, String status, String digest) {
+        synchronized (this) {
+            RecentFile old = entries.get(key);
+            if (old == null) return;
+            // get/put sıralamayı değiştirmez; açılma sırası korunur
+            RecentFile f = old.merge(null, -1L, size, modified, paragraphs, status, digest);
+            entries.put(key, f);
+            append(toJson(f));
+        }
+    }
+
+    private void trim() {
+        Iterator<String> it = entries.keySet().iterator();
+        while (entries.size() > MAX_ENTRIES && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private void queryFileInfo(Uri uri) {
+        long size = -1L, modified = -1L;
+        if ("file".equals(uri.getScheme())) {
+            File f = new File(uri.getPath());
+            size = f.length();
+            modified = f.lastModified();
+        } else {
+            try (Cursor c = context.getContentResolver().query(uri, null, null, null, null)) {
+                if (c != null && c.moveToFirst()) {
+                    int si = c.getColumnIndex(OpenableColumns.SIZE);
+                    int mi = c.getColumnIndex(DocumentsContract.Document.COLUMN_LAST_MODIFIED);
+                    if (si >= 0) size = c.getLong(si);
+                    if (mi >= 0) modified = c.getLong(mi);
+                }
+            } catch (Exception ignored) {}
+        }
+        if (size >= 0 || modified >= 0) update(uri.toString(), size, modified, -1, null, null);
+    }
+
+    // ── Kalıcılık ────────────────────────────────────────────────────────────
+
+    /** Günlüğe bir satır ekler; yazma FLUSH_DELAY_MS içinde toplanarak yapılır. */
+    private void append(String line) {
+        if (line == null) return;
+        pending.add(line);
+        if (!flushScheduled) {
+            flushScheduled = true;
+            io.schedule(this::writePending, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void writePending() {
+        List<String> batch;
+        boolean compact;
+        synchronized (this) {
+            flushScheduled = false;
+            if (pending.isEmpty()) return;
+            batch = new ArrayList<>(pending);
+            pending.clear();
+            logLines += batch.size();
+            compact = logLines > COMPACT_MIN_LINES && logLines > entries.size() * 3;
+        }
+        if (compact) {
+            compact();
+            return;
+        }
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(logFile, true), StandardCharsets.UTF_8))) {
+            for (String line : batch) {
+                w.write(line);
+                w.write('\n');
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Son dosyalar yazılamadı", e);
+        }
+    }
+
+    /** Canlı kayıtlardan yeni günlük yazar ve eskisinin yerine koyar. */
+    private void compact() {
+        List<RecentFile> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(entries.values());
+            pending.clear();
+        }
+        File tmp = new File(logFile.getPath() + ".tmp");
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+            for (RecentFile f : snapshot) {
+                w.write(toJson(f));
+                w.write('\n');
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Son dosyalar sıkıştırılamadı", e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(logFile)) {
+            tmp.delete();
+            return;
+        }
+        synchronized (this) {
+            logLines = snapshot.size();
+        }
+    }
+
+    private void load() {
+        try {
+            int lines = 0;
+            LinkedHashMap<String, RecentFile> map = new LinkedHashMap<>();
+            if (logFile.exists()) {
+                try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                        new FileInputStream(logFile), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        lines++;
+                        try {
+                            replay(map, new JSONObject(line));
+                        } catch (Exception ignored) {
+                            // Yarım kalmış son satır
+                        }
+                    }
+                }
+            }
+            boolean migrated = migrateFromPrefs(map);
+            synchronized (this) {
+                entries.putAll(map);
+                trim();
+                logLines = lines;
+            }
+            if (migrated) compact();
+        } catch (Exception e) {
+            Log.w(TAG, "Son dosyalar okunamadı", e);
+        } finally {
+            loaded.countDown();
+        }
+    }
+
+    private static void replay(LinkedHashMap<String, RecentFile> map, JSONObject obj) throws Exception {
+        String op = obj.optString("op", "put");
+        if ("clear".equals(op)) {
+            map.clear();
+        } else if ("del".equals(op)) {
+            map.remove(obj.getString("uri"));
+        } else {
+            RecentFile f = fromJson(obj);
+            RecentFile old = map.get(f.uriString);
+            // Yalnızca açılma zamanı değiştiyse sona taşı; meta veri güncellemesi sırayı bozmaz
+            if (old == null || old.openedAt != f.openedAt) map.remove(f.uriString);
+            map.put(f.uriString, f);
+        }
+    }
+
+    /** Eski sürümün SharedPreferences'taki JSON dizisini içe aktarır. */
+    private boolean migrateFromPrefs(LinkedHashMap<String, RecentFile> map) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String json = prefs.getString(KEY_RECENT, null);
+        if (json == null) return false;
         try {
             JSONArray arr = new JSONArray(json);
+            // Eski liste en yeniden eskiye sıralı
+            List<RecentFile> old = new ArrayList<>();
             for (int i = 0; i < arr.length(); i++) {
                 JSONObject obj = arr.getJSONObject(i);
-                result.add(new RecentFile(
-                        obj.getString("uri"),
-                        obj.getString("name"),
-                        obj.getLong("time")
-                ));
+                old.add(new RecentFile(obj.getString("uri"), obj.getString("name"), obj.getLong("time")));
+            }
+            for (ListIterator<RecentFile> it = old.listIterator(old.size()); it.hasPrevious(); ) {
+                RecentFile f = it.previous();
+                if (!map.containsKey(f.uriString)) map.put(f.uriString, f);
             }
         } catch (Exception e) { /* ignore */ }
-        return result;
+        prefs.edit().remove(KEY_RECENT).apply();
+        return true;
     }
 
-    public void removeFile(String uriString) {
-        List<RecentFile> list = getRecentFiles();
-        list.removeIf(f -> f.uriString.equals(uriString));
-        saveList(list);
+    private void awaitLoaded() {
+        try {
+            loaded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
-    public void clearAll() {
-        prefs.edit().remove(KEY_RECENT).apply();
+    private static String toJson(RecentFile f) {
+        try {
+            JSONObject obj = new JSONObject();
+            obj.put("uri", f.uriString);
+            obj.put("name", f.fileName);
+            obj.put("time", f.openedAt);
+            if (f.size >= 0) obj.put("size", f.size);
+            if (f.lastModified >= 0) obj.put("modified", f.lastModified);
+            if (f.paragraphCount >= 0) obj.put("paragraphs", f.paragraphCount);
+            if (f.signatureStatus != null) obj.put("signature", f.signatureStatus);
+            if (f.contentDigest != null) obj.put("digest", f.contentDigest);
+            return obj.toString();
+        } catch (Exception e) {
+            return null;
+        }
     }
 
-    private void saveList(List<RecentFile> list) {
+    private static RecentFile fromJson(JSONObject obj) throws Exception {
+        return new RecentFile(obj.getString("uri"), obj.getString("name"), obj.getLong("time"),
+                obj.optLong("size", -1L), obj.optLong("modified", -1L), obj.optInt("paragraphs", -1),
+                obj.has("signature") ? obj.getString("signature") : null,
+                obj.has("digest") ? obj.getString("digest") : null);
+    }
+
+    private static String op(String op, String uri) {
         try {
-            JSONArray arr = new JSONArray();
-            for (RecentFile f : list) {
-                JSONObject obj = new JSONObject();
-                obj.put("uri", f.uriString);
-                obj.put("name", f.fileName);
-                obj.put("time", f.openedAt);
-                arr.put(obj);
-            }
-            prefs.edit().putString(KEY_RECENT, arr.toString()).apply();
-        } catch (Exception e) { /* ignore */ }
+            JSONObject obj = new JSONObject();
+            obj.put("op", op);
+            if (uri != null) obj.put("uri", uri);
+            return obj.toString();
+        } catch (Exception e) {
+            return null;
+        }
     }
 }
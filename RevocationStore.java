@@ -0,0 +1,354 @@
+package com.udfviewer.app;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
+import java.security.cert.X509CRLEntry;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.security.auth.x500.X500Principal;
+
+/**
+ * Yerel iptal listesi (CRL) deposu. files/crl altındaki CRL dosyaları bir kez
+ * ayrıştırılır; iptal edilmiş seri numaraları düzenleyici bazında HashMap'e
+ * alınır, böylece sorgu O(1)'dir. Ağ erişimi gerekmez.
+ *
+ * Ayrıştırılmış içerik files/crl_index.bin içinde saklanır; bir CRL dosyası
+ * (ad, boyut, değişiklik zamanı) değişmediği sürece yeniden ayrıştırılmaz.
+ * Dizin en fazla REFRESH_INTERVAL_MS'de bir kontrol edilir.
+ *
+ * CRL yalnızca imzası düzenleyicinin anahtarıyla doğrulandıktan sonra
+ * kullanılır. Düzenleyici bir güven çapası değilse (ör. ara sertifika imzayla
+ * geliyorsa) CRL bekletilir ve düzenleyicinin zinciri bir çapaya bağlandığında
+ * doğrulanır. İmzası bir anahtarla tutmayan CRL o anahtar için bir daha
+ * okunmaz; dosya değişince yeniden denenir.
+ */
+public class RevocationStore {
+
+    private static final String TAG = "RevocationStore";
+    private static final String CRL_DIR = "crl";
+    private static final String INDEX_FILE = "crl_index.bin";
+    private static final int INDEX_MAGIC = 0x55524C33; // "URL3"
+    private static final long REFRESH_INTERVAL_MS = 60_000;
+
+    public enum State { GOOD, REVOKED, UNKNOWN }
+
+    public static final class Status {
+        public final State state;
+        public final long revokedAt;   // REVOKED ise iptal zamanı
+        public final boolean stale;    // CRL nextUpdate geçmiş
+
+        Status(State state, long revokedAt, boolean stale) {
+            this.state = state;
+            this.revokedAt = revokedAt;
+            this.stale = stale;
+        }
+    }
+
+    /** Tek bir CRL dosyasından çıkarılan, diske indekslenen kayıt. */
+    private static final class CrlEntry {
+        final String fileName;
+        final long fileLength;
+        final long fileModified;
+        final byte[] issuer;
+        final long nextUpdate;
+        final Map<BigInteger, Long> revoked;
+        boolean verified;
+        // İmzayı doğrulamayan düzenleyici anahtarları (kodlanmış); yalnızca bellekte
+        final Set<ByteBuffer> rejectedKeys = new HashSet<>();
+
+        CrlEntry(String fileName, long fileLength, long fileModified, byte[] issuer,
+                 long nextUpdate, Map<BigInteger, Long> revoked, boolean verified) {
+            this.fileName = fileName;
+            this.fileLength = fileLength;
+            this.fileModified = fileModified;
+            this.issuer = issuer;
+            this.nextUpdate = nextUpdate;
+            this.revoked = revoked;
+            this.verified = verified;
+        }
+    }
+
+    /** Aynı düzenleyicinin (varsa birden çok) CRL'lerinin birleşimi. */
+    private static final class IssuerIndex {
+        final Map<BigInteger, Long> revoked = new HashMap<>();
+        long nextUpdate = Long.MAX_VALUE;
+    }
+
+    private static RevocationStore instance;
+
+    public static synchronized RevocationStore getInstance(Context context) {
+        if (instance == null) instance = new RevocationStore(context.getApplicationContext());
+        return instance;
+    }
+
+    private final Context context;
+    private final File crlDir;
+    private final File indexFile;
+
+    private List<CrlEntry> entries = new ArrayList<>();
+    private volatile Map<X500Principal, IssuerIndex> byIssuer = new HashMap<>();
+    private volatile int generation;
+    private long lastCheck;
+    private String dirSignature;
+
+    private RevocationStore(Context context) {
+        this.context = context;
+        this.crlDir = new File(context.getFilesDir(), CRL_DIR);
+        this.indexFile = new File(context.getFilesDir(), INDEX_FILE);
+    }
+
+    /**
+     * @param issuerCert zinciri bir güven çapasına kadar doğrulanmış düzenleyici;
+     *                   bekleyen (henüz imzası doğrulanmamış) CRL'ler bu anahtarla
+     *                   doğrulanır. Zinciri doğrulanmamış sertifika verilmemeli. null olabilir.
+     */
+    public Status check(X509Certificate cert, X509Certificate issuerCert) {
+        if (issuerCert != null) verifyPending(issuerCert);
+        return check(cert.getIssuerX500Principal(), cert.getSerialNumber());
+    }
+
+    public Status check(X500Principal issuer, BigInteger serial) {
+        refreshIfChanged();
+        IssuerIndex idx = byIssuer.get(issuer);
+        if (idx == null) return new Status(State.UNKNOWN, 0L, false);
+        boolean stale = System.currentTimeMillis() > idx.nextUpdate;
+        Long at = idx.revoked.get(serial);
+        return at != null ? new Status(State.REVOKED, at, stale) : new Status(State.GOOD, 0L, stale);
+    }
+
+    /** CRL'ler her değiştiğinde artar; üst katmandaki zincir önbellekleri buna bakar. */
+    public int getGeneration() {
+        refreshIfChanged();
+        return generation;
+    }
+
+    /** Dışarıdan gelen bir CRL'i files/crl altına kopyalar ve indeksi yeniler. */
+    public void importCrl(InputStream in, String fileName) throws Exception {
+        crlDir.mkdirs();
+        String safe = fileName.replaceAll("[^a-zA-Z0-9._-]", "_");
+        try (OutputStream out = new FileOutputStream(new File(crlDir, safe))) {
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) out.write(buf, 0, n);
+        }
+        synchronized (this) { lastCheck = 0; }
+        refreshIfChanged();
+    }
+
+    private synchronized void refreshIfChanged() {
+        long now = System.currentTimeMillis();
+        if (dirSignature != null && now - lastCheck < REFRESH_INTERVAL_MS) return;
+        lastCheck = now;
+
+        File[] files = crlDir.listFiles();
+        StringBuilder sig = new StringBuilder();
+        if (files != null) {
+            java.util.Arrays.sort(files);
+            for (File f : files) {
+                sig.append(f.getName()).append(':').append(f.length()).append(':')
+                   .append(f.lastModified()).append(';');
+            }
+        }
+        String newSignature = sig.toString();
+        if (newSignature.equals(dirSignature)) return;
+
+        if (dirSignature == null) entries = readIndex();
+        Map<String, CrlEntry> previous = new HashMap<>();
+        for (CrlEntry e : entries) previous.put(e.fileName, e);
+
+        List<CrlEntry> updated = new ArrayList<>();
+        boolean changed = false;
+        if (files != null) {
+            for (File f : files) {
+                CrlEntry old = previous.get(f.getName());
+                if (old != null && old.fileLength == f.length() && old.fileModified == f.lastModified()) {
+                    updated.add(old);
+                    continue;
+                }
+                changed = true;
+                CrlEntry parsed = parseCrl(f);
+                if (parsed != null) updated.add(parsed);
+            }
+        }
+        if (updated.size() != entries.size()) changed = true;
+
+        entries = updated;
+        dirSignature = newSignature;
+        byIssuer = buildIndex(updated);
+        generation++;
+        if (changed) writeIndex(updated);
+    }
+
+    /**
+     * Bu düzenleyiciye ait bekleyen CRL'leri düzenleyicinin anahtarıyla doğrular.
+     * Bir anahtarla tutmayan CRL reddedilenlere eklenir; aynı anahtar için
+     * dosya değişene (yani yeniden ayrıştırılana) kadar bir daha okunmaz.
+     */
+    private void verifyPending(X509Certificate issuerCert) {
+        X500Principal subject = issuerCert.getSubjectX500Principal();
+        ByteBuffer key = ByteBuffer.wrap(issuerCert.getPublicKey().getEncoded());
+        List<CrlEntry> pending = null;
+        synchronized (this) {
+            for (CrlEntry e : entries) {
+                if (!e.verified && !e.rejectedKeys.contains(key) && subject.equals(new X500Principal(e.issuer))) {
+                    if (pending == null) pending = new ArrayList<>();
+                    pending.add(e);
+                }
+            }
+        }
+        if (pending == null) return;
+
+        boolean changed = false;
+        for (CrlEntry e : pending) {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(new File(crlDir, e.fileName)))) {
+                X509CRL crl = (X509CRL) CertificateFactory.getInstance("X.509").generateCRL(in);
+                crl.verify(issuerCert.getPublicKey());
+                synchronized (this) { e.verified = true; }
+                changed = true;
+            } catch (Exception ex) {
+                Log.w(TAG, "CRL imzası doğrulanamadı: " + e.fileName);
+                synchronized (this) { e.rejectedKeys.add(key); }
+            }
+        }
+        if (changed) {
+            synchronized (this) {
+                byIssuer = buildIndex(entries);
+                generation++;
+                writeIndex(entries);
+            }
+        }
+    }
+
+    private CrlEntry parseCrl(File f) {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(f))) {
+            X509CRL crl = (X509CRL) CertificateFactory.getInstance("X.509").generateCRL(in);
+
+            // Düzenleyici bir güven çapasıysa imza hemen doğrulanır, değilse CRL bekletilir
+            boolean verified = false;
+            CertificateTrustStore trustStore = CertificateTrustStore.getInstance(context);
+            for (X509Certificate issuer : trustStore.findBySubject(crl.getIssuerX500Principal())) {
+                if (!trustStore.isAnchor(issuer)) continue;
+                try {
+                    crl.verify(issuer.getPublicKey());
+                    verified = true;
+                    break;
+                } catch (Exception ignored) {}
+            }
+
+            Map<BigInteger, Long> revoked = new HashMap<>();
+            Set<? extends X509CRLEntry> list = crl.getRevokedCertificates();
+            if (list != null) {
+                for (X509CRLEntry e : list) {
+                    Date d = e.getRevocationDate();
+                    revoked.put(e.getSerialNumber(), d != null ? d.getTime() : 0L);
+                }
+            }
+            long nextUpdate = crl.getNextUpdate() != null ? crl.getNextUpdate().getTime() : Long.MAX_VALUE;
+            return new CrlEntry(f.getName(), f.length(), f.lastModified(),
+                    crl.getIssuerX500Principal().getEncoded(), nextUpdate, revoked, verified);
+        } catch (Exception e) {
+            Log.w(TAG, "CRL okunamadı: " + f.getName(), e);
+            return null;
+        }
+    }
+
+    private static Map<X500Principal, IssuerIndex> buildIndex(List<CrlEntry> list) {
+        Map<X500Principal, IssuerIndex> map = new HashMap<>();
+        for (CrlEntry e : list) {
+            if (!e.verified) continue;
+            X500Principal issuer = new X500Principal(e.issuer);
+            IssuerIndex idx = map.get(issuer);
+            if (idx == null) {
+                idx = new IssuerIndex();
+                map.put(issuer, idx);
+            }
+            idx.revoked.putAll(e.revoked);
+            idx.nextUpdate = Math.min(idx.nextUpdate, e.nextUpdate);
+        }
+        return map;
+    }
+
+    // ── Disk indeksi ──────────────────────────────────────────────────────────
+
+    private List<CrlEntry> readIndex() {
+        List<CrlEntry> list = new ArrayList<>();
+        if (!indexFile.exists()) return list;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != INDEX_MAGIC) return list;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                long length = in.readLong();
+                long modified = in.readLong();
+                byte[] issuer = new byte[in.readInt()];
+                in.readFully(issuer);
+                long nextUpdate = in.readLong();
+                boolean verified = in.readBoolean();
+                int n = in.readInt();
+                Map<BigInteger, Long> revoked = new HashMap<>(n * 4 / 3 + 1);
+                for (int j = 0; j < n; j++) {
+                    byte[] serial = new byte[in.readUnsignedByte()];
+                    in.readFully(serial);
+                    revoked.put(new BigInteger(serial), in.readLong());
+                }
+                list.add(new CrlEntry(name, length, modified, issuer, nextUpdate, revoked, verified));
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "CRL indeksi okunamadı, yeniden oluşturulacak", e);
+            list.clear();
+        }
+        return list;
+    }
+
+    private void writeIndex(List<CrlEntry> list) {
+        File tmp = new File(indexFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(list.size());
+            for (CrlEntry e : list) {
+                out.writeUTF(e.fileName);
+                out.writeLong(e.fileLength);
+                out.writeLong(e.fileModified);
+                out.writeInt(e.issuer.length);
+                out.write(e.issuer);
+                out.writeLong(e.nextUpdate);
+                out.writeBoolean(e.verified);
+                out.writeInt(e.revoked.size());
+                for (Map.Entry<BigInteger, Long> r : e.revoked.entrySet()) {
+                    byte[] serial = r.getKey().toByteArray();
+                    out.writeByte(serial.length);
+                    out.write(serial);
+                    out.writeLong(r.getValue());
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "CRL indeksi yazılamadı", e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(indexFile)) tmp.delete();
+    }
+}
@@ -0,0 +1,170 @@
+package com.udfviewer.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Doğrulanmış SignatureResult'ları SharedPreferences içinde saklar.
+ * Anahtar: SHA-256(content.xml özeti ‖ sign.sgn ‖ doğrulayıcı sürümü).
+ * Aynı belge yeniden açıldığında CMS/sertifika ayrıştırması atlanır.
+ *
+ * Kayıtlar TTL sonunda düşer; kayıt sayısı MAX_ENTRIES'ı aşarsa en eski
+ * kullanılan kayıtlar silinir. Bellekte erişim sıralı bir görünüm tutulur,
+ * böylece isabetler diske dokunmadan döner.
+ */
+public class SignatureCache {
+
+    private static final String PREFS_NAME = "udf_signature_cache";
+    private static final int MAX_ENTRIES = 200;
+    private static final long TTL_MS = 30L * 24 * 60 * 60 * 1000;
+
+    private static SignatureCache instance;
+
+    public static synchronized SignatureCache getInstance(Context context) {
+        if (instance == null) instance = new SignatureCache(context.getApplicationContext());
+        return instance;
+    }
+
+    private static final class Entry {
+        final SignatureVerifier.SignatureResult result;
+        final long storedAt;
+
+        Entry(SignatureVerifier.SignatureResult result, long storedAt) {
+            this.result = result;
+            this.storedAt = storedAt;
+        }
+    }
+
+    private final SharedPreferences prefs;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean loaded;
+
+    private SignatureCache(Context context) {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public synchronized SignatureVerifier.SignatureResult get(byte[] key) {
+        ensureLoaded();
+        String k = toHex(key);
+        Entry e = entries.get(k);
+        if (e == null) return null;
+        if (System.currentTimeMillis() - e.storedAt > TTL_MS) {
+            entries.remove(k);
+            prefs.edit().remove(k).apply();
+            return null;
+        }
+        return e.result;
+    }
+
+    public synchronized void put(byte[] key, SignatureVerifier.SignatureResult result) {
+        ensureLoaded();
+        String k = toHex(key);
+        long now = System.currentTimeMillis();
+        entries.put(k, new Entry(result, now));
+
+        SharedPreferences.Editor editor = prefs.edit();
+        try {
+            editor.putString(k, toJson(result, now).toString());
+        } catch (Exception e) { /* ignore */ }
+
+        // Erişim sırasına göre en eski kayıtlar baştadır
+        while (entries.size() > MAX_ENTRIES) {
+            String eldest = entries.keySet().iterator().next();
+            entries.remove(eldest);
+            editor.remove(eldest);
+        }
+        editor.apply();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        prefs.edit().clear().apply();
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        loaded = true;
+        long now = System.currentTimeMillis();
+        List<String> expired = new ArrayList<>();
+        List<Map.Entry<String, Entry>> valid = new ArrayList<>();
+        for (Map.Entry<String, ?> e : prefs.getAll().entrySet()) {
+            try {
+                JSONObject obj = new JSONObject((String) e.getValue());
+                long storedAt = obj.getLong("storedAt");
+                if (now - storedAt > TTL_MS) { expired.add(e.getKey()); continue; }
+                valid.add(new java.util.AbstractMap.SimpleEntry<>(e.getKey(),
+                        new Entry(fromJson(obj), storedAt)));
+            } catch (Exception ex) {
+                expired.add(e.getKey());
+            }
+        }
+        // En eski kayıt en başta olacak şekilde yükle
+        valid.sort((a, b) -> Long.compare(a.getValue().storedAt, b.getValue().storedAt));
+        for (Map.Entry<String, Entry> e : valid) entries.put(e.getKey(), e.getValue());
+        if (!expired.isEmpty()) {
+            SharedPreferences.Editor editor = prefs.edit();
+            for (String k : expired) editor.remove(k);
+            editor.apply();
+        }
+    }
+
+    private static JSONObject toJson(SignatureVerifier.SignatureResult r, long storedAt) throws Exception {
+        JSONObject obj = new JSONObject();
+        obj.put("storedAt", storedAt);
+        obj.put("status", r.status.name());
+        if (r.signerName != null) obj.put("signerName", r.signerName);
+        if (r.signerTitle != null) obj.put("signerTitle", r.signerTitle);
+        if (r.signedAt != null) obj.put("signedAt", r.signedAt);
+        if (r.certificateInfo != null) obj.put("certificateInfo", r.certificateInfo);
+        if (r.errorMessage != null) obj.put("errorMessage", r.errorMessage);
+        if (r.rawSignatureType != null) obj.put("rawSignatureType", r.rawSignatureType);
+        obj.put("certNotBefore", r.certNotBefore);
+        obj.put("certNotAfter", r.certNotAfter);
+        if (r.certSerial != null) obj.put("certSerial", r.certSerial);
+        if (r.certIssuer != null) obj.put("certIssuer", r.certIssuer);
+        obj.put("chainStatus", r.chainStatus.name());
+        if (r.chainMessage != null) obj.put("chainMessage", r.chainMessage);
+        obj.put("signingTime", r.signingTime);
+        return obj;
+    }
+
+    private static SignatureVerifier.SignatureResult fromJson(JSONObject obj) throws Exception {
+        return new SignatureVerifier.SignatureResult(
+                SignatureVerifier.SignatureStatus.valueOf(obj.getString("status")),
+                optString(obj, "signerName"),
+                optString(obj, "signerTitle"),
+                optString(obj, "signedAt"),
+                optString(obj, "certificateInfo"),
+                optString(obj, "errorMessage"),
+                optString(obj, "rawSignatureType"),
+                obj.optLong("certNotBefore", 0L),
+                obj.optLong("certNotAfter", 0L),
+                optString(obj, "certSerial"),
+                optString(obj, "certIssuer"),
+                CertificateChainValidator.ChainStatus.valueOf(
+                        obj.optString("chainStatus", CertificateChainValidator.ChainStatus.NOT_CHECKED.name())),
+                optString(obj, "chainMessage"),
+                obj.optLong("signingTime", 0L));
+    }
+
+    private static String optString(JSONObject obj, String key) {
+        return obj.has(key) ? obj.optString(key) : null;
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] digits = "0123456789abcdef".toCharArray();
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            out[2 * i] = digits[(bytes[i] >> 4) & 0xF];
+            out[2 * i + 1] = digits[bytes[i] & 0xF];
+        }
+        return new String(out);
+    }
+}
@@ -6,15 +6,21 @@ import android.util.Base64;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
+import javax.security.auth.x500.X500Principal;
+
 /**
  * UDF dosyasındaki sign.sgn dijital imzasını doğrular.
  *
@@ -33,6 +39,7 @@ public class SignatureVerifier {
 
     public enum SignatureStatus {
         VALID,           // İmza geçerli, içerik değişmemiş
+        UNTRUSTED,       // İmza değeri doğru, ancak imzacıya güvenilen köke zincir kurulamadı
         INVALID,         // İmza geçersiz veya içerik bozulmuş
         UNKNOWN_FORMAT,  // İmza formatı tanınamadı
         NO_SIGNATURE,    // sign.sgn bulunamadı
@@ -47,10 +54,55 @@ public class SignatureVerifier {
         public final String certificateInfo;
         public final String errorMessage;
         public final String rawSignatureType;
+        // Sertifika geçerlilik aralığı (epoch ms, 0 = bilinmiyor). "Şu an geçerli mi"
+        // sorusu önbellekten dönen sonuçta da bu alanlardan ucuzca yeniden hesaplanır.
+        public final long certNotBefore;
+        public final long certNotAfter;
+        // Önbellek isabetinde iptal durumunun yeniden ayrıştırmasız sorgulanması için
+        public final String certSerial;   // hex
+        public final String certIssuer;   // RFC 2253
+        public final CertificateChainValidator.ChainStatus chainStatus;
+        public final String chainMessage;
+        // Zincirin doğrulandığı an (imza zamanı, epoch ms, 0 = bilinmiyor; o zaman "şimdi")
+        public final long signingTime;
+        // content.xml SHA-256 (hex); önbelleğe yazılmaz, her doğrulamada eklenir
+        public final String contentDigest;
 
         public SignatureResult(SignatureStatus status, String signerName, String signerTitle,
                                String signedAt, String certificateInfo,
                                String errorMessage, String rawSignatureType) {
+            this(status, signerName, signerTitle, signedAt, certificateInfo,
+                    errorMessage, rawSignatureType, 0L, 0L);
+        }
+
+        public SignatureResult(SignatureStatus status, String signerName, String signerTitle,
+                               String signedAt, String certificateInfo,
+                               String errorMessage, String rawSignatureType,
+                               long certNotBefore, long certNotAfter) {
+            this(status, signerName, signerTitle, signedAt, certificateInfo,
+                    errorMessage, rawSignatureType, certNotBefore, certNotAfter, null, null,
+                    CertificateChainValidator.ChainStatus.NOT_CHECKED, null, 0L);
+        }
+
+        public SignatureResult(SignatureStatus status, String signerName, String signerTitle,
+                               String signedAt, String certificateInfo,
+                               String errorMessage, String rawSignatureType,
+                               long certNotBefore, long certNotAfter,
+                               String certSerial, String certIssuer,
+                               CertificateChainValidator.ChainStatus chainStatus, String chainMessage,
+                               long signingTime) {
+            this(status, signerName, signerTitle, signedAt, certificateInfo, errorMessage, rawSignatureType,
+                    certNotBefore, certNotAfter, certSerial, certIssuer, chainStatus, chainMessage,
+                    signingTime, null);
+        }
+
+        private SignatureResult(SignatureStatus status, String signerName, String signerTitle,
+                                String signedAt, String certificateInfo,
+                                String errorMessage, String rawSignatureType,
+                                long certNotBefore, long certNotAfter,
+                                String certSerial, String certIssuer,
+                                CertificateChainValidator.ChainStatus chainStatus, String chainMessage,
+                                long signingTime, String contentDigest) {
             this.status = status;
             this.signerName = signerName;
             this.signerTitle = signerTitle;
@@ -58,11 +110,60 @@ public class SignatureVerifier {
             this.certificateInfo = certificateInfo;
             this.errorMessage = errorMessage;
             this.rawSignatureType = rawSignatureType;
+            this.certNotBefore = certNotBefore;
+            this.certNotAfter = certNotAfter;
+            this.certSerial = certSerial;
+            this.certIssuer = certIssuer;
+            this.chainStatus = chainStatus;
+            this.chainMessage = chainMessage;
+            this.signingTime = signingTime;
+            this.contentDigest = contentDigest;
+        }
+
+        /** Aynı sonucun güven zinciri durumu değiştirilmiş kopyası. */
+        SignatureResult withChain(SignatureStatus newStatus, CertificateChainValidator.ChainStatus newChain,
+                                  String newChainMessage, String newError) {
+            return new SignatureResult(newStatus, signerName, signerTitle, signedAt, certificateInfo,
+                    newError, rawSignatureType, certNotBefore, certNotAfter, certSerial, certIssuer,
+                    newChain, newChainMessage, signingTime, contentDigest);
+        }
+
+        SignatureResult withContentDigest(String digest) {
+            return new SignatureResult(status, signerName, signerTitle, signedAt, certificateInfo,
+                    errorMessage, rawSignatureType, certNotBefore, certNotAfter, certSerial, certIssuer,
+                    chainStatus, chainMessage, signingTime, digest);
+        }
+
+        public String getChainLabel() {
+            switch (chainStatus) {
+                case TRUSTED:   return "Güvenilir";
+                case UNTRUSTED: return "Doğrulanamadı";
+                case REVOKED:   return "İptal edilmiş";
+                case EXPIRED:   return "Süresi geçmiş";
+                default:        return null;
+            }
+        }
+
+        public boolean hasCertificateValidity() {
+            return certNotBefore != 0L && certNotAfter != 0L;
+        }
+
+        public boolean isCertificateValidAt(long timeMillis) {
+            return hasCertificateValidity() && timeMillis >= certNotBefore && timeMillis <= certNotAfter;
+        }
+
+        /** Sertifikanın verilen andaki durumu; geçerlilik bilinmiyorsa null. */
+        public String getCertificateValidityLabel(long timeMillis) {
+            if (!hasCertificateValidity()) return null;
+            if (timeMillis < certNotBefore) return "Henüz geçerli değil";
+            if (timeMillis > certNotAfter) return "Süresi dolmuş";
+            return "Geçerli";
         }
 
         public String getStatusLabel() {
             switch (status) {
                 case VALID:          return "✓ İmza Geçerli";
+                case UNTRUSTED:      return "⚠ İmzacı Doğrulanamadı";
                 case INVALID:        return "✗ İmza Geçersiz";
                 case UNKNOWN_FORMAT: return "? Format Tanınamadı";
                 case NO_SIGNATURE:   return "İmza Yok";
@@ -79,49 +180,102 @@ public class SignatureVerifier {
         }
     }
 
+    static final String[] DIGEST_ALGORITHMS = {"SHA-256", "SHA-1", "MD5"};
+    private static final int STREAM_BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_SIGNATURE_BYTES = 4 * 1024 * 1024;
+
+    /** Doğrulama mantığı değiştiğinde artırılır; eski önbellek kayıtları geçersizleşir. */
+    static final int VERIFIER_VERSION = 4;
+
     private final Context context;
+    private final SignatureCache cache;
+    private final CertificateChainValidator chainValidator;
+    private final RevocationStore revocationStore;
 
     public SignatureVerifier(Context context) {
         this.context = context;
+        this.cache = SignatureCache.getInstance(context);
+        this.chainValidator = CertificateChainValidator.getInstance(context);
+        this.revocationStore = RevocationStore.getInstance(context);
     }
 
     public SignatureResult verify(Uri udfUri) {
+        long started = PerfMetrics.start();
         try {
+            return verifyTimed(udfUri);
+        } finally {
+            PerfMetrics.stop("verify", started);
+        }
+    }
+
+    private SignatureResult verifyTimed(Uri udfUri) {
+        try {
+            long t = PerfMetrics.start();
             InputStream is = context.getContentResolver().openInputStream(udfUri);
             if (is == null) return error("Dosya açılamadı");
 
-            byte[] contentXmlBytes = null;
+            ContentDigests contentDigests = null;
             byte[] signBytes = null;
 
-            ZipInputStream zis = new ZipInputStream(is);
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                byte[] data = readFully(zis);
-                if ("content.xml".equals(entry.getName())) contentXmlBytes = data;
-                else if ("sign.sgn".equals(entry.getName())) signBytes = data;
+            // Tek geçiş: content.xml tüm özet algoritmalarından aynı anda akıtılır,
+            // sign.sgn (küçük) belleğe alınır, diğer girdiler tamponlanmadan atlanır.
+            try (ZipInputStream zis = new ZipInputStream(is)) {
+                ZipEntry entry;
+                while ((entry = zis.getNextEntry()) != null) {
+                    if ("content.xml".equals(entry.getName())) {
+                        contentDigests = ContentDigests.compute(zis);
+                    } else if ("sign.sgn".equals(entry.getName())) {
+                        signBytes = readBounded(zis, MAX_SIGNATURE_BYTES);
+                    }
+                    if (contentDigests != null && signBytes != null) break;
+                }
             }
-            zis.close();
+            PerfMetrics.stop("verify.read", t);
 
             if (signBytes == null) {
                 return new SignatureResult(SignatureStatus.NO_SIGNATURE,
                         null, null, null, null, "Dosyada dijital imza bulunamadı", null);
             }
 
-            // İmza tipini tespit et
+            // Aynı content.xml + sign.sgn daha önce doğrulandıysa CMS/sertifika
+            // ayrıştırmasına hiç girmeden önbellekten dön
+            byte[] cacheKey = cacheKey(contentDigests, signBytes);
+            String digestHex = contentDigests != null ? toHex(contentDigests.get("SHA-256")) : null;
+            SignatureResult cached = cache.get(cacheKey);
+            if (cached != null) {
+                PerfMetrics.count("verify.cacheHit");
+                return recheckRevocation(cached).withContentDigest(digestHex);
+            }
+            PerfMetrics.count("verify.cacheMiss");
+
+            SignatureResult result = verifySignature(signBytes, contentDigests,
+                    () -> openEntry(udfUri, "content.xml"));
+            if (result.status != SignatureStatus.ERROR) cache.put(cacheKey, result);
+            return result.withContentDigest(digestHex);
+
+        } catch (Exception e) {
+            return error("Doğrulama hatası: " + e.getMessage());
+        }
+    }
+
+    private SignatureResult verifySignature(byte[] signBytes, ContentDigests contentDigests,
+                                            ContentSource content) {
+        try {
+            // İmza tipini tespit et; XML yolu baytlarla çalışır, belge String'e çevrilmez
+            if (looksLikeXml(signBytes)) {
+                return verifyXmlDsig(signBytes, contentDigests, content);
+            }
             String signText = new String(signBytes, StandardCharsets.UTF_8).trim();
 
             if (signText.startsWith("MII") || signText.startsWith("-----BEGIN")) {
                 // PEM veya Base64 CMS/PKCS#7
-                return verifyCms(signText, contentXmlBytes);
-            } else if (signText.startsWith("<?xml") || signText.contains("<Signature")) {
-                // XML-DSig
-                return verifyXmlDsig(signText, contentXmlBytes);
+                return verifyCms(signText, contentDigests, content);
             } else if (signText.matches("[0-9a-fA-F]{32,}")) {
                 // Ham hex hash (basit MD5/SHA)
-                return verifyHashOnly(signText, contentXmlBytes);
+                return verifyHashOnly(signText, contentDigests);
             } else {
                 // Bilinmeyen format — ham bilgileri çıkarmayı dene
-                return parseUnknownFormat(signText, contentXmlBytes);
+                return parseUnknownFormat(signText);
             }
 
         } catch (Exception e) {
@@ -129,9 +283,149 @@ public class SignatureVerifier {
         }
     }
 
+    /** content.xml'i yeniden okumak için (kanonikleştirme gerektiren XML-DSig referansları). */
+    interface ContentSource {
+        InputStream open() throws Exception;
+    }
+
+    /** Arşivde verilen girdiye konumlanmış akış; girdi yoksa null. Kapatılınca arşiv de kapanır. */
+    private InputStream openEntry(Uri udfUri, String name) throws Exception {
+        InputStream is = context.getContentResolver().openInputStream(udfUri);
+        if (is == null) return null;
+        ZipInputStream zis = new ZipInputStream(is);
+        ZipEntry entry;
+        while ((entry = zis.getNextEntry()) != null) {
+            if (name.equals(entry.getName())) return zis;
+        }
+        zis.close();
+        return null;
+    }
+
+    /** BOM ve baştaki boşluklar atlandıktan sonra '<' ile başlıyor mu? */
+    private static boolean looksLikeXml(byte[] bytes) {
+        int i = 0;
+        if (bytes.length >= 3 && (bytes[0] & 0xFF) == 0xEF && (bytes[1] & 0xFF) == 0xBB && (bytes[2] & 0xFF) == 0xBF) i = 3;
+        while (i < bytes.length && (bytes[i] == ' ' || bytes[i] == '\t' || bytes[i] == '\r' || bytes[i] == '\n')) i++;
+        return i < bytes.length && bytes[i] == '<';
+    }
+
+    /**
+     * Önbellekten dönen sonuçta CRL'ler o zamandan beri güncellenmiş olabilir.
+     * Saklanan seri numarası/düzenleyiciyle O(1) sorgu yapılır; CMS yeniden ayrıştırılmaz.
+     * CertificateChainValidator gibi yalnızca imza zamanında ya da öncesinde
+     * yapılmış iptal sayılır; iptalden önce atılmış imza geçerli kalır.
+     */
+    private SignatureResult recheckRevocation(SignatureResult r) {
+        if (r.certSerial == null || r.certIssuer == null
+                || r.chainStatus == CertificateChainValidator.ChainStatus.REVOKED) return r;
+        try {
+            RevocationStore.Status rev = revocationStore.check(
+                    new X500Principal(r.certIssuer), new BigInteger(r.certSerial, 16));
+            long time = r.signingTime != 0L ? r.signingTime : System.currentTimeMillis();
+            if (rev.state == RevocationStore.State.REVOKED && rev.revokedAt <= time) {
+                String msg = "Sertifika " + new SimpleDateFormat("dd.MM.yyyy", Locale.getDefault())
+                        .format(new Date(rev.revokedAt)) + " tarihinde iptal edilmiş";
+                return r.withChain(SignatureStatus.INVALID, CertificateChainValidator.ChainStatus.REVOKED, msg, msg);
+            }
+        } catch (Exception ignored) {}
+        return r;
+    }
+
+    /**
+     * Zincir sonucunu imza sonucuna işler. İptal edilmiş sertifika imzayı
+     * geçersiz kılar; güvenilen köke ulaşmayan ya da imza anında geçerli
+     * olmayan zincirde imza değeri doğru olsa da sonuç UNTRUSTED olur.
+     */
+    private SignatureResult applyChain(SignatureResult r, X509Certificate cert,
+                                       List<byte[]> extraCerts, Date signingTime) {
+        if (cert == null) return r;
+        CertificateChainValidator.Result chain = chainValidator.validate(cert, extraCerts, signingTime);
+        SignatureStatus status = r.status;
+        String error = r.errorMessage;
+        if (status == SignatureStatus.VALID && chain.status != CertificateChainValidator.ChainStatus.TRUSTED) {
+            status = chain.status == CertificateChainValidator.ChainStatus.REVOKED
+                    ? SignatureStatus.INVALID : SignatureStatus.UNTRUSTED;
+            error = chain.message;
+        }
+        return new SignatureResult(status, r.signerName, r.signerTitle, r.signedAt, r.certificateInfo,
+                error, r.rawSignatureType, r.certNotBefore, r.certNotAfter,
+                cert.getSerialNumber().toString(16),
+                cert.getIssuerX500Principal().getName(X500Principal.RFC2253),
+                chain.status, chain.message, signingTime != null ? signingTime.getTime() : 0L);
+    }
+
+    /** SHA-256(content.xml özeti ‖ sign.sgn ‖ doğrulayıcı sürümü) */
+    private static byte[] cacheKey(ContentDigests contentDigests, byte[] signBytes) throws Exception {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        byte[] content = contentDigests != null ? contentDigests.get("SHA-256") : null;
+        md.update((byte) (content != null ? 1 : 0));
+        if (content != null) md.update(content);
+        md.update(signBytes);
+        md.update((byte) VERIFIER_VERSION);
+        return md.digest();
+    }
+
+    /**
+     * content.xml'in aday algoritmalarla hesaplanmış özetleri.
+     * İçerik tek sefer okunur; her tampon tüm MessageDigest'lere beslenir.
+     */
+    static final class ContentDigests {
+        private final String[] algorithms;
+        private final byte[][] values;
+
+        private ContentDigests(String[] algorithms, byte[][] values) {
+            this.algorithms = algorithms;
+            this.values = values;
+        }
+
+        static ContentDigests compute(InputStream in) throws Exception {
+            MessageDigest[] digests = new MessageDigest[DIGEST_ALGORITHMS.length];
+            for (int i = 0; i < digests.length; i++) {
+                digests[i] = MessageDigest.getInstance(DIGEST_ALGORITHMS[i]);
+            }
+            byte[] buf = new byte[STREAM_BUFFER_SIZE];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                for (MessageDigest md : digests) md.update(buf, 0, n);
+            }
+            byte[][] values = new byte[digests.length][];
+            for (int i = 0; i < digests.length; i++) values[i] = digests[i].digest();
+            return new ContentDigests(DIGEST_ALGORITHMS, values);
+        }
+
+        /** Algoritma adına göre özet; hesaplanmamışsa null. */
+        byte[] get(String algorithm) {
+            for (int i = 0; i < algorithms.length; i++) {
+                if (algorithms[i].equalsIgnoreCase(algorithm)) return values[i];
+            }
+            return null;
+        }
+
+        /** Verilen özet herhangi bir aday algoritmanın sonucuyla eşleşiyor mu? */
+        boolean matchesAny(byte[] expected) {
+            if (expected == null) return false;
+            for (byte[] v : values) {
+                if (MessageDigest.isEqual(v, expected)) return true;
+            }
+            return false;
+        }
+    }
+
+    /** content.xml'in verilen algoritmayla özeti, içerik yeniden akıtılarak; girdi yoksa null. */
+    private static byte[] digestContent(String algorithm, ContentSource content) throws Exception {
+        MessageDigest md = MessageDigest.getInstance(algorithm);
+        try (InputStream in = content.open()) {
+            if (in == null) return null;
+            byte[] buf = new byte[STREAM_BUFFER_SIZE];
+            int n;
+            while ((n = in.read(buf)) > 0) md.update(buf, 0, n);
+        }
+        return md.digest();
+    }
+
     // ── CMS / PKCS#7 ──────────────────────────────────────────────────────────
 
-    private SignatureResult verifyCms(String pem, byte[] contentBytes) {
+    private SignatureResult verifyCms(String pem, ContentDigests contentDigests, ContentSource content) {
         try {
             // PEM başlıklarını temizle
             String b64 = pem
@@ -143,24 +437,57 @@ public class SignatureVerifier {
 
             byte[] derBytes = Base64.decode(b64, Base64.DEFAULT);
 
-            // DER içindeki sertifikayı bul ve parse et
-            X509Certificate cert = extractCertFromCms(derBytes);
+            // SignedData yapısını ayrıştır; imzacı sertifikası SignerInfo'dan bulunur
+            CmsSignedData cms = CmsSignedData.parse(derBytes);
+            X509Certificate cert = cms.getSignerCertificate();
 
-            String signerName = cert != null ? extractCN(cert.getSubjectDN().getName()) : "Bilinmiyor";
-            String signerTitle = cert != null ? extractOU(cert.getSubjectDN().getName()) : "";
-            String signedAt = cert != null ?
+            String subject = cert != null ? cert.getSubjectX500Principal().getName(X500Principal.RFC2253) : null;
+            String signerName = cert != null ? extractCN(subject) : "Bilinmiyor";
+            String signerTitle = cert != null ? extractOU(subject) : "";
+            String signedAt = cms.getSigningTime() != null ?
                     new SimpleDateFormat("dd.MM.yyyy HH:mm", Locale.getDefault())
-                            .format(cert.getNotBefore()) : "";
+                            .format(cms.getSigningTime()) : "";
             String certInfo = cert != null ?
                     "Seri No: " + cert.getSerialNumber().toString(16).toUpperCase() +
                     "\nGeçerlilik: " + new SimpleDateFormat("dd.MM.yyyy", Locale.getDefault()).format(cert.getNotBefore()) +
                     " – " + new SimpleDateFormat("dd.MM.yyyy", Locale.getDefault()).format(cert.getNotAfter()) : "";
 
-            // Hash kontrolü (content.xml SHA-256)
-            boolean hashMatch = verifyContentHash(derBytes, contentBytes);
+            if (cert == null) {
+                return new SignatureResult(SignatureStatus.INVALID, signerName, signerTitle, signedAt,
+                        certInfo, "İmzacı sertifikası bulunamadı", "CMS/PKCS#7");
+            }
+            long notBefore = cert.getNotBefore().getTime();
+            long notAfter = cert.getNotAfter().getTime();
+
+            // content.xml özeti, SignerInfo'daki algoritmayla; ilk geçişte
+            // hesaplanmayan algoritmalarda (SHA-384/512) içerik yeniden akıtılır
+            String digestAlgorithm = cms.getDigestAlgorithm();
+            byte[] contentDigest = contentDigests != null ? contentDigests.get(digestAlgorithm) : null;
+            if (contentDigest == null && contentDigests != null) {
+                try {
+                    contentDigest = digestContent(digestAlgorithm, content);
+                } catch (NoSuchAlgorithmException e) {
+                    contentDigest = null;
+                }
+            }
+            if (contentDigest == null) {
+                return new SignatureResult(SignatureStatus.INVALID, signerName, signerTitle, signedAt,
+                        certInfo, contentDigests == null ? "content.xml bulunamadı"
+                        : "Desteklenmeyen özet algoritması: " + cms.getDigestAlgorithm(), "CMS/PKCS#7",
+                        notBefore, notAfter);
+            }
+
+            String failure = null;
+            if (cms.hasSignedAttributes()) {
+                if (!cms.messageDigestMatches(contentDigest)) failure = "İçerik özeti eşleşmiyor";
+                else if (!cms.verifySignature()) failure = "İmza değeri doğrulanamadı";
+            } else if (!cms.verifyDetachedDigest(contentDigest)) {
+                failure = "İmza değeri doğrulanamadı";
+            }
 
-            SignatureStatus status = hashMatch ? SignatureStatus.VALID : SignatureStatus.INVALID;
-            return new SignatureResult(status, signerName, signerTitle, signedAt, certInfo, null, "CMS/PKCS#7");
+            SignatureStatus status = failure == null ? SignatureStatus.VALID : SignatureStatus.INVALID;
+            return applyChain(new SignatureResult(status, signerName, signerTitle, signedAt, certInfo,
+                    failure, "CMS/PKCS#7", notBefore, notAfter), cert, cms.getCertificates(), cms.getSigningTime());
 
         } catch (Exception e) {
             return error("CMS ayrıştırma hatası: " + e.getMessage());
@@ -169,67 +496,115 @@ public class SignatureVerifier {
 
     // ── XML-DSig ──────────────────────────────────────────────────────────────
 
-    private SignatureResult verifyXmlDsig(String xml, byte[] contentBytes) {
+    /**
+     * sign.sgn tek geçişte ayrıştırılır (bkz. XmlDsigSignature). content.xml'e
+     * işaret eden referanslarda bildirilen dönüşümler uygulanır: dönüşüm yoksa
+     * ilk geçişte hesaplanan özet kullanılır, kanonikleştirme varsa content.xml
+     * ikinci kez akıtılarak kanonik baytlar doğrudan özete yazılır.
+     */
+    private SignatureResult verifyXmlDsig(byte[] signBytes, ContentDigests contentDigests, ContentSource content) {
         try {
-            // XML içinden signer bilgilerini regex ile çıkar
-            String signerName = extractXmlValue(xml, "X509SubjectName", "CN");
-            if (signerName == null) signerName = extractXmlTag(xml, "SignedBy");
-            if (signerName == null) signerName = "Bilinmiyor";
+            XmlDsigSignature sig = XmlDsigSignature.parse(signBytes);
 
-            String signingTime = extractXmlTag(xml, "SigningTime");
-            if (signingTime == null) signingTime = extractXmlTag(xml, "xades:SigningTime");
-
-            // DigestValue ile content hash kontrolü
-            String digestValue = extractXmlTag(xml, "DigestValue");
-            boolean hashMatch = false;
-            if (digestValue != null && contentBytes != null) {
-                byte[] expectedHash = Base64.decode(digestValue.trim(), Base64.DEFAULT);
-                byte[] actualHash = sha256(contentBytes);
-                hashMatch = MessageDigest.isEqual(expectedHash, actualHash);
-                if (!hashMatch) {
-                    // SHA-1 ile de dene
-                    actualHash = sha1(contentBytes);
-                    hashMatch = MessageDigest.isEqual(expectedHash, actualHash);
-                }
+            X509Certificate signerCert = sig.getSignerCertificate();
+            X509Certificate shownCert = signerCert != null ? signerCert : sig.getFirstCertificate();
+
+            // İmzacı bilgisi yalnızca sertifikadan; X509SubjectName/SignedBy imza kapsamında değildir
+            String subject = shownCert != null ? shownCert.getSubjectX500Principal().getName(X500Principal.RFC2253) : null;
+            String signerName = subject != null ? extractCN(subject) : null;
+            if (signerName == null) signerName = "Bilinmiyor";
+            String signerTitle = subject != null ? extractOU(subject) : null;
+            String signingTime = sig.getSigningTimeText();
+
+            String certInfo = null;
+            long notBefore = 0L, notAfter = 0L;
+            if (shownCert != null) {
+                certInfo = "Seri No: " + shownCert.getSerialNumber().toString(16).toUpperCase() +
+                           "\nGeçerlilik: " +
+                           new SimpleDateFormat("dd.MM.yyyy", Locale.getDefault()).format(shownCert.getNotBefore()) +
+                           " – " +
+                           new SimpleDateFormat("dd.MM.yyyy", Locale.getDefault()).format(shownCert.getNotAfter());
+                notBefore = shownCert.getNotBefore().getTime();
+                notAfter = shownCert.getNotAfter().getTime();
             }
 
-            String certInfo = extractXmlTag(xml, "X509Certificate");
-            if (certInfo != null) {
-                try {
-                    byte[] certBytes = Base64.decode(certInfo.replaceAll("\\s+", ""), Base64.DEFAULT);
-                    X509Certificate cert = (X509Certificate) CertificateFactory.getInstance("X.509")
-                            .generateCertificate(new ByteArrayInputStream(certBytes));
-                    certInfo = "Seri No: " + cert.getSerialNumber().toString(16).toUpperCase() +
-                               "\nGeçerlilik: " +
-                               new SimpleDateFormat("dd.MM.yyyy", Locale.getDefault()).format(cert.getNotBefore()) +
-                               " – " +
-                               new SimpleDateFormat("dd.MM.yyyy", Locale.getDefault()).format(cert.getNotAfter());
-                } catch (Exception ignored) {}
+            if (!sig.hasSignedInfo() || sig.getReferences().isEmpty()) {
+                return new SignatureResult(SignatureStatus.UNKNOWN_FORMAT, signerName, signerTitle, signingTime,
+                        certInfo, null, "XML-DSig", notBefore, notAfter);
             }
 
-            SignatureStatus status = digestValue == null ? SignatureStatus.UNKNOWN_FORMAT
-                    : hashMatch ? SignatureStatus.VALID : SignatureStatus.INVALID;
+            String failure = null;
+            boolean coversContent = false;
+            for (XmlDsigSignature.Reference ref : sig.getReferences()) {
+                failure = checkReference(ref, contentDigests, content);
+                if (failure != null) break;
+                coversContent |= ref.isContentXml();
+            }
+            // Yalnızca kendi özelliklerini imzalayan imza belge içeriği hakkında bir şey söylemez
+            if (failure == null && !coversContent) failure = "content.xml imza kapsamında değil";
+            if (failure == null) {
+                if (sig.getSignatureValue() == null) failure = "SignatureValue bulunamadı";
+                else if (XmlDsigSignature.signatureAlgorithm(sig.getSignatureMethod()) == null)
+                    failure = "Desteklenmeyen imza algoritması: " + sig.getSignatureMethod();
+                else if (signerCert == null) failure = sig.getCertificates().isEmpty()
+                        ? "İmzacı sertifikası bulunamadı" : "İmza değeri doğrulanamadı";
+            }
 
-            return new SignatureResult(status, signerName, null, signingTime, certInfo, null, "XML-DSig");
+            SignatureStatus status = failure == null ? SignatureStatus.VALID : SignatureStatus.INVALID;
+            return applyChain(new SignatureResult(status, signerName, signerTitle, signingTime, certInfo,
+                    failure, "XML-DSig", notBefore, notAfter), signerCert, sig.getCertificates(), sig.getSigningTime());
 
         } catch (Exception e) {
             return error("XML-DSig hatası: " + e.getMessage());
         }
     }
 
+    /** Referansı doğrular; başarısızsa kullanıcıya gösterilecek nedeni döndürür. */
+    private String checkReference(XmlDsigSignature.Reference ref, ContentDigests contentDigests,
+                                  ContentSource content) throws Exception {
+        String unsupported = ref.unsupportedTransform();
+        if (unsupported != null) return "Desteklenmeyen dönüşüm: " + unsupported;
+        if (ref.digestValue == null) return "DigestValue bulunamadı";
+
+        if (ref.isSameDocument()) {
+            if (ref.getDigestAlgorithm() == null) return "Desteklenmeyen özet algoritması: " + ref.digestMethod;
+            if (!ref.targetFound) return "Referans bulunamadı: " + ref.uri;
+            return ref.digestMatches() ? null : "Referans özeti eşleşmiyor: " + ref.uri;
+        }
+
+        // Belge dışı referans yalnızca arşivdeki content.xml olabilir; boş,
+        // dış (http:) ya da başka girdilere işaret eden URI'ler desteklenmez
+        if (!ref.isContentXml()) return "Desteklenmeyen referans: " + (ref.uri != null ? ref.uri : "(URI yok)");
+        if (contentDigests == null) return "content.xml bulunamadı";
+        if (ref.digestMethod == null) {
+            // DigestMethod belirtmeyen eski imzalar: aday algoritmaların herhangi biri
+            return contentDigests.matchesAny(ref.digestValue) ? null : "İçerik özeti eşleşmiyor";
+        }
+        String alg = ref.getDigestAlgorithm();
+        if (alg == null) return "Desteklenmeyen özet algoritması: " + ref.digestMethod;
+
+        byte[] actual;
+        if (ref.c14n == null) {
+            actual = contentDigests.get(alg);
+            if (actual == null) actual = digestContent(alg, content);
+        } else {
+            MessageDigest md = MessageDigest.getInstance(alg);
+            try (InputStream in = content.open()) {
+                if (in == null) return "content.xml bulunamadı";
+                XmlCanonicalizer.canonicalizeDocument(in, ref.c14n, ref.inclusivePrefixes,
+                        new XmlDsigSignature.DigestOut(md));
+            }
+            actual = md.digest();
+        }
+        if (actual == null) return "content.xml bulunamadı";
+        return MessageDigest.isEqual(actual, ref.digestValue) ? null : "İçerik özeti eşleşmiyor";
+    }
+
     // ── Ham Hash ──────────────────────────────────────────────────────────────
 
-    private SignatureResult verifyHashOnly(String hashHex, byte[] contentBytes) {
+    private SignatureResult verifyHashOnly(String hashHex, ContentDigests contentDigests) {
         try {
-            boolean valid = false;
-            if (contentBytes != null) {
-                String sha256 = bytesToHex(sha256(contentBytes));
-                String sha1   = bytesToHex(sha1(contentBytes));
-                String md5    = bytesToHex(md5(contentBytes));
-                valid = hashHex.equalsIgnoreCase(sha256)
-                     || hashHex.equalsIgnoreCase(sha1)
-                     || hashHex.equalsIgnoreCase(md5);
-            }
+            boolean valid = contentDigests != null && contentDigests.matchesAny(hexToBytes(hashHex));
             SignatureStatus status = valid ? SignatureStatus.VALID : SignatureStatus.INVALID;
             return new SignatureResult(status, null, null, null,
                     "Hash: " + hashHex.substring(0, Math.min(16, hashHex.length())) + "...",
@@ -239,7 +614,7 @@ public class SignatureVerifier {
         }
     }
 
-    private SignatureResult parseUnknownFormat(String raw, byte[] contentBytes) {
+    private SignatureResult parseUnknownFormat(String raw) {
         // Bilinen alanları arama yap
         String name = extractLineValue(raw, "Name:", "Ad:", "Signer:", "İmzalayan:");
         String date = extractLineValue(raw, "Date:", "Tarih:", "Time:", "Zaman:");
@@ -249,42 +624,6 @@ public class SignatureVerifier {
 
     // ── Yardımcı metodlar ─────────────────────────────────────────────────────
 
-    private X509Certificate extractCertFromCms(byte[] der) {
-        // DER içinde 0x30 0x82 ile başlayan sertifika bloklarını bul
-        try {
-            for (int i = 0; i < der.length - 4; i++) {
-                if (der[i] == 0x30 && der[i+1] == (byte)0x82) {
-                    int len = ((der[i+2] & 0xFF) << 8) | (der[i+3] & 0xFF);
-                    if (i + 4 + len <= der.length) {
-                        try {
-                            byte[] certCandidate = new byte[len + 4];
-                            System.arraycopy(der, i, certCandidate, 0, certCandidate.length);
-                            X509Certificate cert = (X509Certificate) CertificateFactory
-                                    .getInstance("X.509")
-                                    .generateCertificate(new ByteArrayInputStream(certCandidate));
-                            // Geçerli bir sertifika ise döndür
-                            if (cert.getSubjectDN() != null) return cert;
-                        } catch (Exception ignored) {}
-                    }
-                }
-            }
-        } catch (Exception ignored) {}
-        return null;
-    }
-
-    private boolean verifyContentHash(byte[] cmsBytes, byte[] contentBytes) {
-        if (contentBytes == null) return false;
-        try {
-            byte[] actualSha256 = sha256(contentBytes);
-            byte[] actualSha1   = sha1(contentBytes);
-            String hexSha256 = bytesToHex(actualSha256);
-            String hexSha1   = bytesToHex(actualSha1);
-            String cmsHex = bytesToHex(cmsBytes).toLowerCase();
-            return cmsHex.contains(hexSha256.toLowerCase())
-                || cmsHex.contains(hexSha1.toLowerCase());
-        } catch (Exception e) { return false; }
-    }
-
     private String extractCN(String dn) {
         return extractDnComponent(dn, "CN");
     }
@@ -304,22 +643,6 @@ public class SignatureVerifier {
         return null;
     }
 
-    private String extractXmlTag(String xml, String tag) {
-        int start = xml.indexOf("<" + tag + ">");
-        if (start == -1) start = xml.indexOf("<" + tag + " ");
-        if (start == -1) return null;
-        start = xml.indexOf(">", start) + 1;
-        int end = xml.indexOf("</" + tag + ">", start);
-        if (end == -1) return null;
-        return xml.substring(start, end).trim();
-    }
-
-    private String extractXmlValue(String xml, String tag, String key) {
-        String tagContent = extractXmlTag(xml, tag);
-        if (tagContent == null) return null;
-        return extractDnComponent(tagContent, key);
-    }
-
     private String extractLineValue(String text, String... keys) {
         for (String line : text.split("\n")) {
             for (String key : keys) {
@@ -329,30 +652,34 @@ public class SignatureVerifier {
         return null;
     }
 
-    private byte[] readFully(java.io.InputStream is) throws Exception {
+    private byte[] readBounded(InputStream is, int limit) throws Exception {
         java.io.ByteArrayOutputStream bos = new java.io.ByteArrayOutputStream();
         byte[] buf = new byte[4096];
         int n;
-        while ((n = is.read(buf)) > 0) bos.write(buf, 0, n);
+        while ((n = is.read(buf)) > 0) {
+            if (bos.size() + n > limit) throw new Exception("sign.sgn beklenenden büyük");
+            bos.write(buf, 0, n);
+        }
         return bos.toByteArray();
     }
 
-    private byte[] sha256(byte[] data) throws Exception {
-        return MessageDigest.getInstance("SHA-256").digest(data);
-    }
-
-    private byte[] sha1(byte[] data) throws Exception {
-        return MessageDigest.getInstance("SHA-1").digest(data);
-    }
-
-    private byte[] md5(byte[] data) throws Exception {
-        return MessageDigest.getInstance("MD5").digest(data);
+    private static String toHex(byte[] bytes) {
+        if (bytes == null) return null;
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        return sb.toString();
     }
 
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) sb.append(String.format("%02x", b));
-        return sb.toString();
+    private static byte[] hexToBytes(String hex) {
+        if ((hex.length() & 1) != 0) return null;
+        byte[] out = new byte[hex.length() / 2];
+        for (int i = 0; i < out.length; i++) {
+            int hi = Character.digit(hex.charAt(2 * i), 16);
+            int lo = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (hi < 0 || lo < 0) return null;
+            out[i] = (byte) ((hi << 4) | lo);
+        }
+        return out;
     }
 
     private SignatureResult error(String msg) {
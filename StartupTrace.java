@@ -0,0 +1,166 @@
+package com.udfviewer.app;
+
+import android.content.Context;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Açılış ölçümü. Her aşama hem systrace/Perfetto bölümü olarak işaretlenir
+ * (android.os.Trace) hem de süresi ölçülür. Belge ilk kez çizildiğinde
+ * (veya belge yoksa ilk karede) süreç başlangıcından itibaren geçen süreyle
+ * birlikte files/startup_trace.log'a bir satır eklenir; son MAX_RUNS
+ * çalıştırma saklanır, böylece gerilemeler görülebilir.
+ *
+ * Bölümler aynı iş parçacığında begin/end çiftleri olarak kullanılmalıdır.
+ */
+public final class StartupTrace {
+
+    private static final String TAG = "StartupTrace";
+    private static final String LOG_FILE = "startup_trace.log";
+    private static final int MAX_RUNS = 100;
+
+    private static final Map<String, Long> starts = new LinkedHashMap<>();
+    private static final Map<String, Long> durations = new LinkedHashMap<>();
+    private static boolean processCold = true;
+    private static boolean cold;
+    private static long activityStart;
+    private static long firstFrameAt = -1;
+    private static boolean recorded = true;
+
+    private StartupTrace() {}
+
+    /** Activity.onCreate'in en başında çağrılır; yeni bir ölçüm başlatır. */
+    public static synchronized void activityCreated() {
+        starts.clear();
+        durations.clear();
+        cold = processCold;
+        processCold = false;
+        activityStart = SystemClock.uptimeMillis();
+        firstFrameAt = -1;
+        recorded = false;
+    }
+
+    public static void begin(String section) {
+        Trace.beginSection(section);
+        synchronized (StartupTrace.class) {
+            starts.put(section, SystemClock.uptimeMillis());
+        }
+    }
+
+    public static void end(String section) {
+        Trace.endSection();
+        synchronized (StartupTrace.class) {
+            Long start = starts.remove(section);
+            if (start != null && !recorded) durations.put(section, SystemClock.uptimeMillis() - start);
+        }
+    }
+
+    /** İlk kare çizildiğinde kaydeder; belge yüklenmiyorsa ölçüm burada biter. */
+    public static void watchFirstFrame(Context context, View view, boolean documentPending) {
+        onNextDraw(view, () -> {
+            synchronized (StartupTrace.class) {
+                if (firstFrameAt < 0) firstFrameAt = SystemClock.uptimeMillis();
+            }
+            if (!documentPending) record(context, false);
+        });
+    }
+
+    /** Belge görünüme verildikten sonra çağrılır; ilk çizimde ölçüm kaydedilir. */
+    public static void watchDocumentVisible(Context context, View view) {
+        synchronized (StartupTrace.class) {
+            if (recorded) return;
+        }
+        onNextDraw(view, () -> record(context, true));
+    }
+
+    /** Kaydedilmiş çalıştırmalar, en yenisi sonda. */
+    public static List<String> readRuns(Context context) {
+        List<String> runs = new ArrayList<>();
+        File f = new File(context.getFilesDir(), LOG_FILE);
+        if (!f.exists()) return runs;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(f), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) runs.add(line);
+        } catch (Exception ignored) {}
+        return runs;
+    }
+
+    private static void onNextDraw(View view, Runnable action) {
+        ViewTreeObserver vto = view.getViewTreeObserver();
+        vto.addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+            private boolean fired;
+
+            @Override
+            public void onDraw() {
+                if (fired) return;
+                fired = true;
+                // Çizim sırasında dinleyici kaldırılamaz; sonraki döngüde kaldır
+                view.post(() -> {
+                    if (view.getViewTreeObserver().isAlive()) view.getViewTreeObserver().removeOnDrawListener(this);
+                });
+                action.run();
+            }
+        });
+    }
+
+    private static void record(Context context, boolean documentVisible) {
+        String line;
+        synchronized (StartupTrace.class) {
+            if (recorded) return;
+            recorded = true;
+            long now = SystemClock.uptimeMillis();
+            long processStart = Process.getStartUptimeMillis();
+
+            StringBuilder sb = new StringBuilder();
+            sb.append(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US).format(new Date()));
+            sb.append(cold ? " cold" : " warm");
+            if (cold && processStart > 0) sb.append(" processToActivity=").append(activityStart - processStart);
+            for (Map.Entry<String, Long> e : durations.entrySet()) {
+                sb.append(' ').append(e.getKey()).append('=').append(e.getValue());
+            }
+            if (firstFrameAt >= 0) sb.append(" firstFrame=").append(firstFrameAt - activityStart);
+            if (documentVisible) sb.append(" documentVisible=").append(now - activityStart);
+            if (cold && processStart > 0) sb.append(" total=").append(now - processStart);
+            line = sb.toString();
+        }
+        Log.i(TAG, line);
+        Context app = context.getApplicationContext();
+        new Thread(() -> append(app, line)).start();
+    }
+
+    private static synchronized void append(Context context, String line) {
+        List<String> runs = readRuns(context);
+        runs.add(line);
+        int from = Math.max(0, runs.size() - MAX_RUNS);
+        File f = new File(context.getFilesDir(), LOG_FILE);
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(f), StandardCharsets.UTF_8)) {
+            for (int i = from; i < runs.size(); i++) {
+                w.write(runs.get(i));
+                w.write('\n');
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Açılış ölçümü yazılamadı", e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.udfviewer.app;
+
+/**
+ * Belgedeki vurgu ya da not. Konumlar tam metindeki (UdfDocument.getText)
+ * [start, end) aralığıdır; paragraf ve span yapısından bağımsız olduğundan
+ * belge yeniden açıldığında da aynı metni gösterir. Değişmezdir; düzenleme
+ * yeni nesneyle yapılır.
+ */
+public final class UdfAnnotation {
+
+    /** Varsayılan vurgu rengi (yarı saydam sarı, ARGB). */
+    public static final int DEFAULT_COLOR = 0x80FFEB3B;
+    /** Notlu vurgunun rengi (yarı saydam turuncu). */
+    public static final int NOTE_COLOR = 0x80FFB74D;
+
+    private final long id;
+    private final int start;
+    private final int end;
+    private final int color;
+    private final String note;
+    private final long created;
+
+    public UdfAnnotation(long id, int start, int end, int color, String note, long created) {
+        if (start < 0 || end <= start) throw new IllegalArgumentException("Geçersiz aralık: " + start + "-" + end);
+        this.id = id;
+        this.start = start;
+        this.end = end;
+        this.color = color;
+        this.note = note != null && !note.trim().isEmpty() ? note : null;
+        this.created = created;
+    }
+
+    public long getId() { return id; }
+    public int getStart() { return start; }
+    public int getEnd() { return end; }
+    public int getColor() { return color; }
+    public String getNote() { return note; }
+    public boolean hasNote() { return note != null; }
+    public long getCreated() { return created; }
+
+    public boolean overlaps(int from, int to) {
+        return start < to && end > from;
+    }
+
+    /**
+     * Rengin beyaz zemin üzerindeki opak karşılığı. PDF 1.4 çiziminde
+     * saydamlık durumu (ExtGState) gerekmesin diye vurgu bununla boyanır.
+     */
+    public int opaqueColor() {
+        int alpha = (color >>> 24) & 0xFF;
+        int r = blend((color >> 16) & 0xFF, alpha);
+        int g = blend((color >> 8) & 0xFF, alpha);
+        int b = blend(color & 0xFF, alpha);
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    private static int blend(int channel, int alpha) {
+        return (channel * alpha + 255 * (255 - alpha)) / 255;
+    }
+}
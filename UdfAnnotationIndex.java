@@ -0,0 +1,182 @@
+package com.udfviewer.app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Belgenin vurgu ve notları için aralık ağacı. Başlangıca göre sıralı bir
+ * dizi, ortadaki elemanın kök olduğu örtük dengeli ağaç gibi dolaşılır;
+ * her düğüm alt ağacındaki en büyük bitişi (maxEnd) tutar. Bir aralıkla
+ * kesişen notlar O(log n + k)'da bulunur: bitişi aralığın başına varmayan
+ * alt ağaçlar ve başlangıcı aralığın sonunu geçen sağ dallar hiç gezilmez.
+ * Ekranda görünen paragrafların çizimi binlerce notta da yalnızca kendi
+ * notlarını görür.
+ *
+ * Değişmezdir: ekleme ve silme yeni dizin döner (O(n)); okuyucular
+ * eşzamanlama olmadan eski ya da yeni anlık görüntüyü görür.
+ */
+public final class UdfAnnotationIndex {
+
+    public static final UdfAnnotationIndex EMPTY = new UdfAnnotationIndex(new UdfAnnotation[0]);
+
+    private static final Comparator<UdfAnnotation> ORDER = (a, b) -> {
+        if (a.getStart() != b.getStart()) return Integer.compare(a.getStart(), b.getStart());
+        if (a.getEnd() != b.getEnd()) return Integer.compare(a.getEnd(), b.getEnd());
+        return Long.compare(a.getId(), b.getId());
+    };
+
+    private final UdfAnnotation[] items;   // ORDER'a göre sıralı
+    private final int[] maxEnd;            // maxEnd[mid]: [lo, hi] alt ağacındaki en büyük bitiş
+    private final long maxId;
+
+    private UdfAnnotationIndex(UdfAnnotation[] sorted) {
+        this.items = sorted;
+        this.maxEnd = new int[sorted.length];
+        long id = 0;
+        for (UdfAnnotation a : sorted) id = Math.max(id, a.getId());
+        this.maxId = id;
+        build(0, sorted.length - 1);
+    }
+
+    public static UdfAnnotationIndex of(Collection<UdfAnnotation> annotations) {
+        if (annotations.isEmpty()) return EMPTY;
+        UdfAnnotation[] sorted = annotations.toArray(new UdfAnnotation[0]);
+        Arrays.sort(sorted, ORDER);
+        return new UdfAnnotationIndex(sorted);
+    }
+
+    private int build(int lo, int hi) {
+        if (lo > hi) return Integer.MIN_VALUE;
+        int mid = (lo + hi) >>> 1;
+        int max = Math.max(items[mid].getEnd(), Math.max(build(lo, mid - 1), build(mid + 1, hi)));
+        maxEnd[mid] = max;
+        return max;
+    }
+
+    public int size() {
+        return items.length;
+    }
+
+    public boolean isEmpty() {
+        return items.length == 0;
+    }
+
+    /** Yeni not için kullanılmamış numara. */
+    public long nextId() {
+        return maxId + 1;
+    }
+
+    /** Başlangıca göre sıralı tüm notlar. */
+    public List<UdfAnnotation> all() {
+        return Collections.unmodifiableList(Arrays.asList(items));
+    }
+
+    public UdfAnnotationIndex with(UdfAnnotation annotation) {
+        int at = Arrays.binarySearch(items, annotation, ORDER);
+        if (at >= 0) return this;
+        at = -at - 1;
+        UdfAnnotation[] next = new UdfAnnotation[items.length + 1];
+        System.arraycopy(items, 0, next, 0, at);
+        next[at] = annotation;
+        System.arraycopy(items, at, next, at + 1, items.length - at);
+        return new UdfAnnotationIndex(next);
+    }
+
+    public UdfAnnotationIndex without(Collection<UdfAnnotation> removed) {
+        if (removed.isEmpty()) return this;
+        List<UdfAnnotation> kept = new ArrayList<>(items.length);
+        for (UdfAnnotation a : items) {
+            boolean drop = false;
+            for (UdfAnnotation r : removed) {
+                if (r.getId() == a.getId()) {
+                    drop = true;
+                    break;
+                }
+            }
+            if (!drop) kept.add(a);
+        }
+        if (kept.size() == items.length) return this;
+        return kept.isEmpty() ? EMPTY : new UdfAnnotationIndex(kept.toArray(new UdfAnnotation[0]));
+    }
+
+    /** [start, end) ile kesişen notlar, başlangıç sırasıyla out'a eklenir. */
+    public void query(int start, int end, List<UdfAnnotation> out) {
+        if (start < end) query(0, items.length - 1, start, end, out);
+    }
+
+    public List<UdfAnnotation> query(int start, int end) {
+        List<UdfAnnotation> out = new ArrayList<>();
+        query(start, end, out);
+        return out;
+    }
+
+    private void query(int lo, int hi, int start, int end, List<UdfAnnotation> out) {
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            // Alt ağaçta aralığın başını geçen bitiş yok
+            if (maxEnd[mid] <= start) return;
+            query(lo, mid - 1, start, end, out);
+            UdfAnnotation a = items[mid];
+            // Sağdakiler daha geç başlar; bu başlamadan aralık bitiyorsa onlar da dışarıda
+            if (a.getStart() >= end) return;
+            if (a.getEnd() > start) out.add(a);
+            lo = mid + 1;
+        }
+    }
+
+    // ── Paragraf konumları ───────────────────────────────────────────────────
+
+    /** Paragraf metnindeki [from, to) parçası ve onu kaplayan not. */
+    public interface RangeSink {
+        void range(int from, int to, UdfAnnotation annotation);
+    }
+
+    /**
+     * Paragraf metninin [localStart, localEnd) bölümüne düşen not parçaları.
+     * Paragraf metni span metinlerinin art arda eklenmesidir; her span tam
+     * metinde kendi aralığını gösterir (aralıklar bitişik olmayabilir).
+     * Sorgu span başına yapılır, sonuç paragraf konumlarına çevrilir.
+     * Görünüm paragrafın tamamı, PDF çizimi satır için kullanır.
+     */
+    public void forParagraph(UdfParagraph paragraph, int localStart, int localEnd, RangeSink sink) {
+        if (items.length == 0 || localStart >= localEnd) return;
+        List<UdfAnnotation> hits = new ArrayList<>();
+        int local = 0;
+        for (UdfSpan span : paragraph.getSpans()) {
+            int length = span.getResolvedLength();
+            int from = Math.max(localStart, local);
+            int to = Math.min(localEnd, local + length);
+            if (from < to) {
+                int shift = span.getStartOffset() - local;
+                hits.clear();
+                query(from + shift, to + shift, hits);
+                for (UdfAnnotation a : hits) {
+                    sink.range(Math.max(from, a.getStart() - shift), Math.min(to, a.getEnd() - shift), a);
+                }
+            }
+            local += length;
+            if (local >= localEnd) break;
+        }
+    }
+
+    /**
+     * Paragraf metnindeki konumun tam metindeki karşılığı. Span sınırındaki
+     * konum sonraki span'ın başına düşer; paragraf sonu son span'ın bitişidir.
+     */
+    public static int toTextOffset(UdfParagraph paragraph, int localOffset) {
+        int local = 0;
+        int last = 0;
+        for (UdfSpan span : paragraph.getSpans()) {
+            int length = span.getResolvedLength();
+            if (length == 0) continue;
+            if (localOffset < local + length) return span.getStartOffset() + Math.max(0, localOffset - local);
+            local += length;
+            last = span.getStartOffset() + length;
+        }
+        return last;
+    }
+}
@@ -0,0 +1,288 @@
+package com.udfviewer.app;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * UDF (ZIP) arşivine rastgele erişim. ZipInputStream'in aksine arşivi baştan
+ * sona açmaz: sondaki merkezi dizin okunur, istenen girdiye doğrudan
+ * konumlanılıp yalnızca o girdi açılır. Görseller ve ekler gibi büyük
+ * girdiler ancak gerektiğinde okunur.
+ *
+ * Konumlanamayan kaynaklarda (ör. boru döndüren sağlayıcılar) arşiv önce
+ * sıkıştırılmış hâliyle önbelleğe kopyalanır; kopya her açılışa özeldir ve
+ * close() ile silinir.
+ */
+public class UdfArchive implements Closeable {
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int CEN_SIGNATURE = 0x02014b50;
+    private static final int LOC_SIGNATURE = 0x04034b50;
+    private static final int EOCD_MIN = 22;
+    private static final int MAX_COMMENT = 0xFFFF;
+    private static final String COPY_DIR = "archive_copies";
+
+    public static final class Entry {
+        public final String name;
+        public final int method;
+        public final long compressedSize;
+        public final long size;
+        final long localHeaderOffset;
+
+        Entry(String name, int method, long compressedSize, long size, long localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+    }
+
+    private final FileChannel channel;
+    private final Closeable owner;
+    private final Map<String, Entry> entries;
+
+    private UdfArchive(FileChannel channel, Closeable owner) throws IOException {
+        this.channel = channel;
+        this.owner = owner;
+        this.entries = readCentralDirectory();
+    }
+
+    public static UdfArchive open(Context context, Uri uri) throws IOException {
+        if ("file".equals(uri.getScheme())) {
+            RandomAccessFile raf = new RandomAccessFile(new File(uri.getPath()), "r");
+            return new UdfArchive(raf.getChannel(), raf);
+        }
+        ParcelFileDescriptor pfd = context.getContentResolver().openFileDescriptor(uri, "r");
+        if (pfd == null) throw new IOException("Dosya açılamadı");
+        if (pfd.getStatSize() >= 0) {
+            FileInputStream in = new FileInputStream(pfd.getFileDescriptor());
+            return new UdfArchive(in.getChannel(), () -> {
+                in.close();
+                pfd.close();
+            });
+        }
+        pfd.close();
+
+        // Konumlanamayan kaynak: sıkıştırılmış arşivi olduğu gibi kopyala. Aynı
+        // Uri eşzamanlı açılabileceğinden her açılış kendi adını alır; yarım
+        // kopya .tmp olarak kalır, yalnızca tamamlanınca .udf adını alır
+        File dir = new File(context.getCacheDir(), COPY_DIR);
+        if (!dir.exists() && !dir.mkdirs()) throw new IOException("Önbellek klasörü oluşturulamadı");
+        File tmp = File.createTempFile("arsiv_", ".tmp", dir);
+        File copy = new File(dir, tmp.getName().substring(0, tmp.getName().length() - 4) + ".udf");
+        try (InputStream in = context.getContentResolver().openInputStream(uri);
+             OutputStream out = new FileOutputStream(tmp)) {
+            if (in == null) throw new IOException("Dosya açılamadı");
+            byte[] buf = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buf)) > 0) out.write(buf, 0, n);
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        if (!tmp.renameTo(copy)) {
+            tmp.delete();
+            throw new IOException("Arşiv kopyası oluşturulamadı");
+        }
+        RandomAccessFile raf;
+        try {
+            raf = new RandomAccessFile(copy, "r");
+        } catch (IOException e) {
+            copy.delete();
+            throw e;
+        }
+        Closeable owner = () -> {
+            try {
+                raf.close();
+            } finally {
+                copy.delete();
+            }
+        };
+        try {
+            return new UdfArchive(raf.getChannel(), owner);
+        } catch (IOException e) {
+            owner.close();
+            throw e;
+        }
+    }
+
+    public Map<String, Entry> getEntries() {
+        return Collections.unmodifiableMap(entries);
+    }
+
+    public Entry getEntry(String name) {
+        return entries.get(name);
+    }
+
+    /** Girdinin açılmış içeriği; girdi yoksa null. Akış kapatılmalıdır. */
+    public InputStream openEntry(String name) throws IOException {
+        Entry e = entries.get(name);
+        if (e == null) return null;
+
+        ByteBuffer loc = readAt(e.localHeaderOffset, 30);
+        if (loc.getInt(0) != LOC_SIGNATURE) throw new IOException("Bozuk yerel başlık: " + name);
+        int nameLen = loc.getShort(26) & 0xFFFF;
+        int extraLen = loc.getShort(28) & 0xFFFF;
+        long dataStart = e.localHeaderOffset + 30 + nameLen + extraLen;
+
+        InputStream raw = new ChannelInputStream(channel, dataStart, e.compressedSize);
+        switch (e.method) {
+            case 0:
+                return raw;
+            case 8:
+                Inflater inflater = new Inflater(true);
+                return new InflaterInputStream(raw, inflater, 8192) {
+                    @Override
+                    public void close() throws IOException {
+                        super.close();
+                        inflater.end();
+                    }
+                };
+            default:
+                raw.close();
+                throw new IOException("Desteklenmeyen sıkıştırma yöntemi: " + e.method);
+        }
+    }
+
+    /** Girdiyi açarak dosyaya yazar (ör. eklerin başka uygulamada açılması için). */
+    public void extract(String name, File target) throws IOException {
+        try (InputStream in = openEntry(name)) {
+            if (in == null) throw new IOException("Arşivde bulunamadı: " + name);
+            try (OutputStream out = new FileOutputStream(target)) {
+                byte[] buf = new byte[64 * 1024];
+                int n;
+                while ((n = in.read(buf)) > 0) out.write(buf, 0, n);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        owner.close();
+    }
+
+    // ── Merkezi dizin ────────────────────────────────────────────────────────
+
+    private Map<String, Entry> readCentralDirectory() throws IOException {
+        long size = channel.size();
+        if (size < EOCD_MIN) throw new IOException("Geçersiz UDF dosyası");
+
+        int tailLen = (int) Math.min(size, EOCD_MIN + MAX_COMMENT);
+        ByteBuffer tail = readAt(size - tailLen, tailLen);
+        int eocd = -1;
+        for (int i = tailLen - EOCD_MIN; i >= 0; i--) {
+            if (tail.getInt(i) == EOCD_SIGNATURE) { eocd = i; break; }
+        }
+        if (eocd < 0) throw new IOException("Geçersiz UDF dosyası: merkezi dizin bulunamadı");
+
+        int count = tail.getShort(eocd + 10) & 0xFFFF;
+        long cdSize = tail.getInt(eocd + 12) & 0xFFFFFFFFL;
+        long cdOffset = tail.getInt(eocd + 16) & 0xFFFFFFFFL;
+        if (cdOffset == 0xFFFFFFFFL || count == 0xFFFF) throw new IOException("ZIP64 arşivler desteklenmiyor");
+        if (cdOffset + cdSize > size) throw new IOException("Geçersiz UDF dosyası: merkezi dizin taşıyor");
+
+        ByteBuffer cd = readAt(cdOffset, (int) cdSize);
+        Map<String, Entry> map = new HashMap<>(count * 2);
+        int p = 0;
+        for (int i = 0; i < count; i++) {
+            if (p + 46 > cd.limit() || cd.getInt(p) != CEN_SIGNATURE) {
+                throw new IOException("Geçersiz UDF dosyası: bozuk merkezi dizin");
+            }
+            int flags = cd.getShort(p + 8) & 0xFFFF;
+            int method = cd.getShort(p + 10) & 0xFFFF;
+            long csize = cd.getInt(p + 20) & 0xFFFFFFFFL;
+            long usize = cd.getInt(p + 24) & 0xFFFFFFFFL;
+            int nameLen = cd.getShort(p + 28) & 0xFFFF;
+            int extraLen = cd.getShort(p + 30) & 0xFFFF;
+            int commentLen = cd.getShort(p + 32) & 0xFFFF;
+            long offset = cd.getInt(p + 42) & 0xFFFFFFFFL;
+
+            byte[] nameBytes = new byte[nameLen];
+            cd.position(p + 46);
+            cd.get(nameBytes);
+            // Bit 11: UTF-8 ad; değilse çoğu araç yine de UTF-8 yazar
+            String name = new String(nameBytes, (flags & 0x800) != 0 || isUtf8(nameBytes)
+                    ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+            map.put(name, new Entry(name, method, csize, usize, offset));
+            p += 46 + nameLen + extraLen + commentLen;
+        }
+        return map;
+    }
+
+    private static boolean isUtf8(byte[] b) {
+        try {
+            StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(b));
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private ByteBuffer readAt(long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, position + buf.position());
+            if (n < 0) throw new IOException("Beklenmeyen dosya sonu");
+        }
+        buf.flip();
+        return buf;
+    }
+
+    /** Kanalın [start, start+length) aralığını konumsal okumalarla akıtır. */
+    private static final class ChannelInputStream extends InputStream {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+        private long position;
+        private long remaining;
+
+        ChannelInputStream(FileChannel channel, long start, long length) {
+            this.channel = channel;
+            this.position = start;
+            this.remaining = length;
+            buffer.limit(0);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (!buffer.hasRemaining()) {
+                if (remaining <= 0) return -1;
+                buffer.clear();
+                if (remaining < buffer.capacity()) buffer.limit((int) remaining);
+                int n = channel.read(buffer, position);
+                if (n <= 0) return -1;
+                position += n;
+                remaining -= n;
+                buffer.flip();
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
@@ -1,31 +1,169 @@
 package com.udfviewer.app;
 
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class UdfDocument {
-    private String fullText = "";
+    private static final String TAG = "UdfDocument";
+
+    private UdfTextStore text = UdfTextStore.EMPTY;
     private List<UdfParagraph> paragraphs = new ArrayList<>();
     private Map<String, UdfStyle> styles = new HashMap<>();
     private String defaultStyleName = "hvl-default";
+    private String source;  // arşivin Uri'si; gömülü görseller buradan okunur
+    private UdfStyleTable styleTable;
+    private int outOfRangeSpanCount;  // metin dışını gösterip kırpılan span sayısı
+    private volatile UdfAnnotationIndex annotations = UdfAnnotationIndex.EMPTY;
+
+    // Bellek baskısında metin diske taşınır (bkz. spill). busy/pins/closed bu
+    // nesnenin kilidiyle korunur; disk G/Ç'si kilit dışında yapılır ki
+    // retain/release ana iş parçacığını bekletmesin
+    private boolean busy;      // spill sürüyor
+    private boolean closed;    // discardSpill çağrıldı; dosya son release'te silinir
+    private int pins;
 
-    public String getFullText() { return fullText; }
-    public void setFullText(String fullText) { this.fullText = fullText; }
+    /**
+     * Tam metin, parçalı (UdfTextStore). Konumla erişim, arama ve dizinleme
+     * bunu kullanır; diske taşınmışsa parçalar gerektikçe okunur.
+     */
+    public UdfTextStore getText() { return text; }
+    public void setText(UdfTextStore text) { this.text = text != null ? text : UdfTextStore.EMPTY; }
 
+    /** Tüm metni tek String'e kopyalar (ör. panoya kopyalama); büyük belgede pahalı. */
+    public String getFullText() { return text.toString(); }
+    public void setFullText(String fullText) { setText(UdfTextStore.of(fullText)); }
+
+    /** Paragraflar; span metinleri gerektikçe getText()'ten okunur. */
     public List<UdfParagraph> getParagraphs() { return paragraphs; }
     public void setParagraphs(List<UdfParagraph> paragraphs) { this.paragraphs = paragraphs; }
 
     public Map<String, UdfStyle> getStyles() { return styles; }
     public void setStyles(Map<String, UdfStyle> styles) { this.styles = styles; }
 
+    /** Span biçimlerinin yinelenmesiz tablosu; ayrıştırıcı kurmadıysa varsayılandan. */
+    public synchronized UdfStyleTable getStyleTable() {
+        if (styleTable == null) styleTable = UdfStyleTable.defaults(getDefaultStyle());
+        return styleTable;
+    }
+    public synchronized void setStyleTable(UdfStyleTable styleTable) { this.styleTable = styleTable; }
+
     public String getDefaultStyleName() { return defaultStyleName; }
     public void setDefaultStyleName(String defaultStyleName) { this.defaultStyleName = defaultStyleName; }
 
+    public String getSource() { return source; }
+    public void setSource(String source) { this.source = source; }
+
+    public int getOutOfRangeSpanCount() { return outOfRangeSpanCount; }
+    public void setOutOfRangeSpanCount(int outOfRangeSpanCount) { this.outOfRangeSpanCount = outOfRangeSpanCount; }
+
     public int getParagraphCount() { return paragraphs.size(); }
 
+    /** Vurgu ve notlar; AnnotationStore yükler ve günceller. */
+    public UdfAnnotationIndex getAnnotations() { return annotations; }
+    public void setAnnotations(UdfAnnotationIndex annotations) {
+        this.annotations = annotations != null ? annotations : UdfAnnotationIndex.EMPTY;
+    }
+
+    /**
+     * Tam metindeki konumu içeren (ya da ondan önceki en yakın) paragrafın
+     * sırası. Paragraflar metin sırasında olduğundan ilk span konumlarında
+     * ikili arama yapılır; span'sız paragraflar atlanır.
+     */
+    public int paragraphAtOffset(int offset) {
+        List<UdfParagraph> list = getParagraphs();
+        int lo = 0, hi = list.size() - 1, found = 0;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int probe = mid;
+            while (probe <= hi && list.get(probe).getSpans().isEmpty()) probe++;
+            if (probe > hi) {
+                hi = mid - 1;
+                continue;
+            }
+            if (list.get(probe).getSpans().get(0).getStartOffset() <= offset) {
+                found = probe;
+                lo = probe + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
     public UdfStyle getDefaultStyle() {
         return styles.get(defaultStyleName);
     }
+
+    // ── Bellek baskısı ───────────────────────────────────────────────────────
+
+    /**
+     * Dışa aktarma ve yazdırma süresince belgenin diske bırakılmasını ve
+     * kapanınca disk dosyasının silinmesini engeller.
+     */
+    public synchronized void retain() { pins++; }
+
+    public void release() {
+        synchronized (this) {
+            if (pins > 0) pins--;
+            if (pins > 0 || busy || !closed) return;
+        }
+        text.discard();
+    }
+
+    /**
+     * Tam metni dir altında bellek eşlemeli dosyaya taşır; ayrıştırıcı zaten
+     * taşıdıysa yalnızca parça önbelleğini boşaltır. Paragraf ve span'ler
+     * metni kopyalamadığından (yalnızca konum ve biçim) başka bırakılacak
+     * bir şey yoktur; sonraki okumalar gerektikçe diskten yapılır. Dosya
+     * belge kapanana kadar saklanır, sonraki bırakmalar yeniden yazmaz.
+     * Arka plan iş parçacığında çağrılır.
+     *
+     * @return yaklaşık geri kazanılan bayt; bırakılamadıysa 0
+     */
+    public long spill(File dir) {
+        synchronized (this) {
+            if (busy || closed || pins > 0 || text.isEmpty()) return 0;
+            busy = true;
+        }
+        long freed = 0;
+        try {
+            freed = text.moveToDisk(dir);
+        } catch (IOException e) {
+            Log.w(TAG, "Belge diske yazılamadı", e);
+        }
+
+        boolean discard;
+        synchronized (this) {
+            busy = false;
+            discard = closed && pins == 0;
+        }
+        if (discard) text.discard();
+        return freed;
+    }
+
+    /**
+     * Belge kapatılırken metnin disk dosyasını siler. Dışa aktarma ya da
+     * yazdırma belgeyi hâlâ sabitliyorsa (ya da bırakma sürüyorsa) silme
+     * son release()'e ertelenir.
+     */
+    public void discardSpill() {
+        synchronized (this) {
+            closed = true;
+            if (pins > 0 || busy) return;
+        }
+        text.discard();
+    }
+
+    /** Önceki süreçlerden kalmış (ör. bırakılmışken süreç öldürüldüyse) dosyaları siler. */
+    public static void deleteSpills(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        for (File f : files) f.delete();
+    }
 }
@@ -0,0 +1,377 @@
+package com.udfviewer.app;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * İki belge sürümünü paragraf düzeyinde karşılaştırır.
+ *
+ * Her paragraf 64 bitlik bir özete indirgenir (çözümlenmiş metin, hizalama,
+ * span biçimleri ve stil tablosundan çözülen yazı tipi, boyut, renk); özet
+ * dizileri Myers'ın doğrusal bellekli algoritmasıyla (orta yılan, böl ve
+ * yönet) karşılaştırılır. Özeti eşleşen çiftler alan alan doğrulanır,
+ * çakışma aynı sayılmaz. Karakter düzeyinde fark
+ * yalnızca değişmiş paragraf çiftlerinde hesaplanır. Özetleme ve karakter
+ * farkları çekirdek sayısı kadar iş parçacığına dağıtılır.
+ *
+ * Sonuç satırları belge sırasındadır ve doğrudan satır içi gösterilebilir.
+ */
+public class UdfDocumentDiff {
+
+    public enum RowType { SAME, ADDED, REMOVED, CHANGED }
+    public enum Op { EQUAL, INSERT, DELETE }
+
+    // Bundan azı için iş parçacığı açmak özetlemenin kendisinden pahalı
+    private static final int PARALLEL_MIN_PARAGRAPHS = 2000;
+    // Karakter farkı bu boyutun üstünde yapılmaz; paragraf tümden değişmiş sayılır
+    private static final int MAX_CHAR_DIFF_LENGTH = 20_000;
+
+    public static final class Segment {
+        public final Op op;
+        public final String text;
+
+        Segment(Op op, String text) {
+            this.op = op;
+            this.text = text;
+        }
+    }
+
+    public static final class Row {
+        public final RowType type;
+        public final int oldIndex;   // yoksa -1
+        public final int newIndex;   // yoksa -1
+        // Yalnızca CHANGED için; metin aynıysa tek EQUAL parça (biçim değişmiş)
+        List<Segment> segments;
+
+        Row(RowType type, int oldIndex, int newIndex) {
+            this.type = type;
+            this.oldIndex = oldIndex;
+            this.newIndex = newIndex;
+        }
+
+        public List<Segment> getSegments() { return segments; }
+    }
+
+    public static final class Result {
+        public final List<Row> rows;
+        public final int added;
+        public final int removed;
+        public final int changed;
+        public final long elapsedMillis;
+
+        Result(List<Row> rows, int added, int removed, int changed, long elapsedMillis) {
+            this.rows = rows;
+            this.added = added;
+            this.removed = removed;
+            this.changed = changed;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public boolean isIdentical() { return added == 0 && removed == 0 && changed == 0; }
+
+        public String getSummary() {
+            if (isIdentical()) return "Belgeler aynı";
+            return changed + " değişen, " + added + " eklenen, " + removed + " silinen paragraf";
+        }
+    }
+
+    public static Result compare(UdfDocument oldDoc, UdfDocument newDoc) throws Exception {
+        long t = PerfMetrics.start();
+        long started = System.currentTimeMillis();
+        oldDoc.retain();
+        newDoc.retain();
+        int workers = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = workers > 1 ? Executors.newFixedThreadPool(workers) : null;
+        try {
+            List<UdfParagraph> a = oldDoc.getParagraphs();
+            List<UdfParagraph> b = newDoc.getParagraphs();
+            // Stil sıraları belgeye özgü; iki tablo ayrı ayrı çözülür
+            UdfStyleTable ta = oldDoc.getStyleTable();
+            UdfStyleTable tb = newDoc.getStyleTable();
+            long[] ha = new long[a.size()];
+            long[] hb = new long[b.size()];
+            hashAll(pool, workers, a, ta, ha, b, tb, hb);
+
+            boolean[] removed = new boolean[ha.length];
+            boolean[] added = new boolean[hb.length];
+            new Myers() {
+                @Override
+                boolean equal(int i, int j) { return ha[i] == hb[j]; }
+            }.run(ha.length, hb.length, removed, added);
+
+            List<Row> rows = buildRows(removed, added);
+            int nAdded = 0, nRemoved = 0, nChanged = 0;
+            List<Row> changed = new ArrayList<>();
+            for (int k = 0; k < rows.size(); k++) {
+                Row row = rows.get(k);
+                if (row.type == RowType.SAME && !same(a.get(row.oldIndex), ta, b.get(row.newIndex), tb)) {
+                    row = new Row(RowType.CHANGED, row.oldIndex, row.newIndex);
+                    rows.set(k, row);
+                }
+                if (row.type == RowType.ADDED) nAdded++;
+                else if (row.type == RowType.REMOVED) nRemoved++;
+                else if (row.type == RowType.CHANGED) { nChanged++; changed.add(row); }
+            }
+            diffChanged(pool, changed, a, b);
+
+            PerfMetrics.stop("diff", t);
+            return new Result(rows, nAdded, nRemoved, nChanged, System.currentTimeMillis() - started);
+        } finally {
+            if (pool != null) pool.shutdownNow();
+            oldDoc.release();
+            newDoc.release();
+        }
+    }
+
+    // ── Özetleme ─────────────────────────────────────────────────────────────
+
+    private static void hashAll(ExecutorService pool, int workers,
+                                List<UdfParagraph> a, UdfStyleTable ta, long[] ha,
+                                List<UdfParagraph> b, UdfStyleTable tb, long[] hb) throws Exception {
+        int total = ha.length + hb.length;
+        if (pool == null || total < PARALLEL_MIN_PARAGRAPHS) {
+            for (int i = 0; i < ha.length; i++) ha[i] = hash(a.get(i), ta);
+            for (int i = 0; i < hb.length; i++) hb[i] = hash(b.get(i), tb);
+            return;
+        }
+        // İki belge tek bir sanal dizi gibi eşit dilimlere bölünür
+        int chunk = (total + workers - 1) / workers;
+        List<Future<?>> futures = new ArrayList<>(workers);
+        for (int start = 0; start < total; start += chunk) {
+            final int from = start;
+            final int to = Math.min(total, start + chunk);
+            futures.add(pool.submit(() -> {
+                for (int i = from; i < to; i++) {
+                    if (i < ha.length) ha[i] = hash(a.get(i), ta);
+                    else hb[i - ha.length] = hash(b.get(i - ha.length), tb);
+                }
+            }));
+        }
+        for (Future<?> f : futures) f.get();
+    }
+
+    /** FNV-1a (64 bit) metin, hizalama, span biçimleri ve çözülmüş stiller üzerinde. */
+    static long hash(UdfParagraph p, UdfStyleTable table) {
+        long h = 0xcbf29ce484222325L;
+        String text = p.getResolvedText();
+        for (int i = 0, n = text.length(); i < n; i++) {
+            h = (h ^ text.charAt(i)) * 0x100000001b3L;
+        }
+        h = (h ^ p.getAlignment()) * 0x100000001b3L;
+        for (UdfSpan span : p.getSpans()) {
+            h = (h ^ flags(span)) * 0x100000001b3L;
+            h = (h ^ span.getResolvedLength()) * 0x100000001b3L;
+            UdfStyleTable.Entry style = table.get(span);
+            h = (h ^ style.family.hashCode()) * 0x100000001b3L;
+            h = (h ^ Float.floatToIntBits(style.size)) * 0x100000001b3L;
+            h = (h ^ style.color) * 0x100000001b3L;
+            h = (h ^ styleFlags(style)) * 0x100000001b3L;
+        }
+        for (UdfMedia m : p.getMedia()) {
+            h = (h ^ m.key().hashCode()) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /** hash() ile aynı alanlar üzerinde tam eşitlik; özet çakışmasını eler. */
+    static boolean same(UdfParagraph p, UdfStyleTable pt, UdfParagraph q, UdfStyleTable qt) {
+        if (p.getAlignment() != q.getAlignment()) return false;
+        List<UdfSpan> ps = p.getSpans();
+        List<UdfSpan> qs = q.getSpans();
+        if (ps.size() != qs.size() || p.getMedia().size() != q.getMedia().size()) return false;
+        for (int i = 0; i < ps.size(); i++) {
+            UdfSpan x = ps.get(i);
+            UdfSpan y = qs.get(i);
+            if (flags(x) != flags(y) || x.getResolvedLength() != y.getResolvedLength()) return false;
+            UdfStyleTable.Entry sx = pt.get(x);
+            UdfStyleTable.Entry sy = qt.get(y);
+            if (!sx.family.equals(sy.family) || Float.compare(sx.size, sy.size) != 0
+                    || sx.color != sy.color || styleFlags(sx) != styleFlags(sy)) return false;
+        }
+        for (int i = 0; i < p.getMedia().size(); i++) {
+            if (!p.getMedia().get(i).key().equals(q.getMedia().get(i).key())) return false;
+        }
+        return p.getResolvedText().equals(q.getResolvedText());
+    }
+
+    private static int flags(UdfSpan span) {
+        return (span.isBold() ? 1 : 0) | (span.isItalic() ? 2 : 0)
+                | (span.isUnderline() ? 4 : 0) | (span.isSpace() ? 8 : 0);
+    }
+
+    private static int styleFlags(UdfStyleTable.Entry style) {
+        return (style.bold ? 1 : 0) | (style.italic ? 2 : 0) | (style.underline ? 4 : 0);
+    }
+
+    // ── Satırlar ─────────────────────────────────────────────────────────────
+
+    /**
+     * Düzenleme betiğini satırlara çevirir. Aynı aralıktaki silinen ve
+     * eklenen paragraflar sırayla eşlenip CHANGED olur; artanlar
+     * REMOVED/ADDED kalır.
+     */
+    private static List<Row> buildRows(boolean[] removed, boolean[] added) {
+        List<Row> rows = new ArrayList<>(Math.max(removed.length, added.length));
+        int i = 0, j = 0;
+        while (i < removed.length || j < added.length) {
+            if (i < removed.length && j < added.length && !removed[i] && !added[j]) {
+                rows.add(new Row(RowType.SAME, i++, j++));
+                continue;
+            }
+            int di = i, dj = j;
+            while (di < removed.length && removed[di]) di++;
+            while (dj < added.length && added[dj]) dj++;
+            int pairs = Math.min(di - i, dj - j);
+            for (int k = 0; k < pairs; k++) rows.add(new Row(RowType.CHANGED, i + k, j + k));
+            for (int k = i + pairs; k < di; k++) rows.add(new Row(RowType.REMOVED, k, -1));
+            for (int k = j + pairs; k < dj; k++) rows.add(new Row(RowType.ADDED, -1, k));
+            i = di;
+            j = dj;
+        }
+        return rows;
+    }
+
+    private static void diffChanged(ExecutorService pool, List<Row> changed,
+                                    List<UdfParagraph> a, List<UdfParagraph> b) throws Exception {
+        if (pool == null || changed.size() < 8) {
+            for (Row row : changed) {
+                row.segments = diffText(a.get(row.oldIndex).getResolvedText(), b.get(row.newIndex).getResolvedText());
+            }
+            return;
+        }
+        List<Future<?>> futures = new ArrayList<>(changed.size());
+        for (Row row : changed) {
+            futures.add(pool.submit(() -> {
+                row.segments = diffText(a.get(row.oldIndex).getResolvedText(), b.get(row.newIndex).getResolvedText());
+            }));
+        }
+        for (Future<?> f : futures) f.get();
+    }
+
+    /** Karakter düzeyinde fark; ardışık aynı işlemli parçalar birleştirilir. */
+    static List<Segment> diffText(String x, String y) {
+        List<Segment> out = new ArrayList<>();
+        if (x.equals(y)) {
+            out.add(new Segment(Op.EQUAL, x));
+            return out;
+        }
+        if (x.length() > MAX_CHAR_DIFF_LENGTH || y.length() > MAX_CHAR_DIFF_LENGTH) {
+            if (!x.isEmpty()) out.add(new Segment(Op.DELETE, x));
+            if (!y.isEmpty()) out.add(new Segment(Op.INSERT, y));
+            return out;
+        }
+        boolean[] deleted = new boolean[x.length()];
+        boolean[] inserted = new boolean[y.length()];
+        new Myers() {
+            @Override
+            boolean equal(int i, int j) { return x.charAt(i) == y.charAt(j); }
+        }.run(x.length(), y.length(), deleted, inserted);
+
+        StringBuilder run = new StringBuilder();
+        Op current = null;
+        int i = 0, j = 0;
+        while (i < x.length() || j < y.length()) {
+            Op op;
+            char c;
+            if (i < x.length() && deleted[i]) { op = Op.DELETE; c = x.charAt(i++); }
+            else if (j < y.length() && inserted[j]) { op = Op.INSERT; c = y.charAt(j++); }
+            else { op = Op.EQUAL; c = x.charAt(i++); j++; }
+            if (op != current && run.length() > 0) {
+                out.add(new Segment(current, run.toString()));
+                run.setLength(0);
+            }
+            current = op;
+            run.append(c);
+        }
+        if (run.length() > 0) out.add(new Segment(current, run.toString()));
+        return out;
+    }
+
+    // ── Myers ────────────────────────────────────────────────────────────────
+
+    /**
+     * Myers O((N+M)D) fark algoritmasının doğrusal bellekli biçimi. Eşit
+     * olmayan öğeler removed/added dizilerinde işaretlenir.
+     */
+    abstract static class Myers {
+        private int[] vf;
+        private int[] vb;
+
+        abstract boolean equal(int i, int j);
+
+        void run(int n, int m, boolean[] removed, boolean[] added) {
+            int size = 2 * ((n + m + 1) / 2) + 3;
+            vf = new int[size];
+            vb = new int[size];
+            compare(0, n, 0, m, removed, added);
+        }
+
+        private void compare(int aLo, int aHi, int bLo, int bHi, boolean[] removed, boolean[] added) {
+            while (aLo < aHi && bLo < bHi && equal(aLo, bLo)) { aLo++; bLo++; }
+            while (aLo < aHi && bLo < bHi && equal(aHi - 1, bHi - 1)) { aHi--; bHi--; }
+            if (aLo == aHi) {
+                for (int j = bLo; j < bHi; j++) added[j] = true;
+                return;
+            }
+            if (bLo == bHi) {
+                for (int i = aLo; i < aHi; i++) removed[i] = true;
+                return;
+            }
+            long split = middle(aLo, aHi, bLo, bHi);
+            int x = (int) (split >>> 32);
+            int y = (int) split;
+            if ((x == aLo && y == bLo) || (x == aHi && y == bHi)) {
+                // Olmaması gerekir; yine de sonsuz özyinelemeye düşmeyelim
+                for (int i = aLo; i < aHi; i++) removed[i] = true;
+                for (int j = bLo; j < bHi; j++) added[j] = true;
+                return;
+            }
+            compare(aLo, x, bLo, y, removed, added);
+            compare(x, aHi, y, bHi, removed, added);
+        }
+
+        /**
+         * İleri ve geri aramaların buluştuğu noktayı (x << 32 | y) döner.
+         * vf[k] ileri aramada k köşegenindeki en uzak x, vb[k] geri aramada
+         * sondan geriye ölçülen en uzak x'tir.
+         */
+        private long middle(int aLo, int aHi, int bLo, int bHi) {
+            int n = aHi - aLo;
+            int m = bHi - bLo;
+            int delta = n - m;
+            boolean odd = (delta & 1) != 0;
+            int max = (n + m + 1) / 2;
+            int off = max + 1;
+            vf[off + 1] = 0;
+            vb[off + 1] = 0;
+            for (int d = 0; d <= max; d++) {
+                for (int k = -d; k <= d; k += 2) {
+                    int x = (k == -d || (k != d && vf[off + k - 1] < vf[off + k + 1]))
+                            ? vf[off + k + 1] : vf[off + k - 1] + 1;
+                    int y = x - k;
+                    while (x < n && y < m && equal(aLo + x, bLo + y)) { x++; y++; }
+                    vf[off + k] = x;
+                    int c = delta - k;
+                    if (odd && c >= -(d - 1) && c <= d - 1 && x + vb[off + c] >= n) {
+                        return ((long) (aLo + x) << 32) | (bLo + y);
+                    }
+                }
+                for (int k = -d; k <= d; k += 2) {
+                    int x = (k == -d || (k != d && vb[off + k - 1] < vb[off + k + 1]))
+                            ? vb[off + k + 1] : vb[off + k - 1] + 1;
+                    int y = x - k;
+                    while (x < n && y < m && equal(aHi - 1 - x, bHi - 1 - y)) { x++; y++; }
+                    vb[off + k] = x;
+                    int c = delta - k;
+                    if (!odd && c >= -d && c <= d && x + vf[off + c] >= n) {
+                        return ((long) (aHi - x) << 32) | (bHi - y);
+                    }
+                }
+            }
+            return ((long) aLo << 32) | bLo;
+        }
+    }
+}
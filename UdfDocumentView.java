@@ -4,19 +4,31 @@ import android.content.Context;
 import android.graphics.Typeface;
 import android.text.SpannableStringBuilder;
 import android.text.Spanned;
-import android.text.style.StyleSpan;
-import android.text.style.UnderlineSpan;
+import android.text.TextPaint;
+import android.text.style.BackgroundColorSpan;
+import android.text.style.CharacterStyle;
+import android.text.style.MetricAffectingSpan;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.util.TypedValue;
+import android.view.ActionMode;
 import android.view.Gravity;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.MotionEvent;
 import android.view.ScaleGestureDetector;
 import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.ScrollView;
 import android.widget.TextView;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * UDF belgesini A4 sayfa görünümünde render eder.
@@ -28,6 +40,16 @@ public class UdfDocumentView extends ScrollView {
     private static final float MIN_ZOOM = 0.5f;
     private static final float MAX_ZOOM = 3.0f;
     private static final float ZOOM_STEP = 0.25f;
+    // Bellek tahmini için: TextView + seçilebilir metin Editor'ü ve Layout nesneleri
+    private static final int TEXT_VIEW_OVERHEAD_BYTES = 3 * 1024;
+    private static final int SPAN_OVERHEAD_BYTES = 48;
+    // Yeniden oluşturmada kalan paragraflar kare başına bu süre içinde kurulur
+    private static final long FILL_BUDGET_MS = 8;
+    // Seçim menüsüne eklenen vurgu/not öğeleri
+    private static final int MENU_HIGHLIGHT = 1;
+    private static final int MENU_ADD_NOTE = 2;
+    private static final int MENU_REMOVE = 3;
+    private static final int MENU_SHOW_NOTES = 4;
 
     private float currentZoom = 1.0f;
     private LinearLayout pageContainer;
@@ -35,6 +57,31 @@ public class UdfDocumentView extends ScrollView {
     private UdfDocument currentDocument;
     private ScaleGestureDetector scaleGestureDetector;
     private OnZoomChangedListener onZoomChangedListener;
+    private int placeholderCount;
+    private int mediaViewCount;
+    private final Set<MediaImageView> loadedImages = new LinkedHashSet<>();
+    private OnAttachmentClickListener onAttachmentClickListener;
+    private OnAnnotationListener onAnnotationListener;
+
+    // Paragraf başına biçimlendirilmiş metin; DocumentViewModel'de yaşar
+    private CharSequence[] textCache;
+
+    // Belgenin biçim tablosu sırasına göre paylaşılan span nesneleri
+    private TableStyleSpan[] styleSpans;
+    private int[] styleSpanUse;
+    private int styleSpanStamp;
+
+    // Kaydırma çapası: ekranın üstündeki paragraf ve içindeki oran. Yerleşim
+    // değiştiğinde (tahmini yükseklikler gerçeğe dönünce, zoom) korunur.
+    private int anchorIndex;
+    private float anchorFraction;
+    private boolean adjustingScroll;
+
+    // Tahmini yükseklikli yer tutucuların arka arkaya doldurulması
+    private int estimatedCount;
+    private int fillDown;
+    private int fillUp;
+    private final Runnable fillStep = this::fillEstimated;
 
     public interface OnZoomChangedListener {
         void onZoomChanged(float zoom);
@@ -44,6 +91,30 @@ public class UdfDocumentView extends ScrollView {
         this.onZoomChangedListener = l;
     }
 
+    public interface OnAttachmentClickListener {
+        void onAttachmentClick(UdfDocument document, UdfMedia attachment);
+    }
+
+    public void setOnAttachmentClickListener(OnAttachmentClickListener l) {
+        this.onAttachmentClickListener = l;
+    }
+
+    /**
+     * Seçim menüsünden gelen vurgu/not istekleri. Konumlar tam metindeki
+     * [start, end) aralığıdır; kaydı dinleyici yapar, ardından
+     * refreshAnnotations ile görünümü günceller.
+     */
+    public interface OnAnnotationListener {
+        void onHighlight(UdfDocument document, int start, int end);
+        void onAddNote(UdfDocument document, int start, int end);
+        void onRemoveAnnotations(UdfDocument document, List<UdfAnnotation> annotations);
+        void onShowNotes(UdfDocument document, List<UdfAnnotation> notes);
+    }
+
+    public void setOnAnnotationListener(OnAnnotationListener l) {
+        this.onAnnotationListener = l;
+    }
+
     public UdfDocumentView(Context context) {
         super(context);
         init();
@@ -112,24 +183,153 @@ public class UdfDocumentView extends ScrollView {
     }
 
     public void setDocument(UdfDocument document) {
+        setDocument(document, null);
+    }
+
+    /**
+     * @param textCache paragraf sayısı uzunluğunda; boş girdiler ilk
+     *                  çizimde doldurulur, sonraki çizimler yeniden kullanır
+     */
+    public void setDocument(UdfDocument document, CharSequence[] textCache) {
         this.currentDocument = document;
+        this.textCache = textCache;
+        resetStyleSpans();
+        this.anchorIndex = -1;   // kullanıcı kaydırana kadar sayfanın başı
+        this.anchorFraction = 0f;
         renderDocument();
     }
 
+    /**
+     * Yeniden oluşturulan Activity'de belgeyi geri kurar. Yalnızca kayıtlı
+     * paragrafın çevresi (yaklaşık iki ekran) hemen oluşturulur; diğer
+     * paragraflar tahmini yükseklikli yer tutucularla başlar ve sonraki
+     * karelerde çapadan dışa doğru tamamlanır. Çapa korunduğundan tahminler
+     * düzeldikçe görünen içerik kaymaz.
+     */
+    public void restoreDocument(UdfDocument document, CharSequence[] textCache, float zoom,
+                                int anchorParagraph, float anchorFraction) {
+        this.currentDocument = document;
+        this.textCache = textCache;
+        resetStyleSpans();
+        this.currentZoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom));
+        clearViews();
+        if (document == null) return;
+        long t = PerfMetrics.start();
+
+        UdfStyle defaultStyle = document.getDefaultStyle();
+        List<UdfParagraph> paragraphs = document.getParagraphs();
+        int n = paragraphs.size();
+        if (n == 0) return;
+        this.anchorIndex = Math.max(0, Math.min(anchorParagraph, n - 1));
+        this.anchorFraction = anchorFraction;
+
+        int width = mediaTargetWidth();
+        float textPx = textSizePx(defaultStyle);
+        int screen = getResources().getDisplayMetrics().heightPixels;
+        int from = Math.max(0, anchorIndex - 5);
+        int to = anchorIndex;
+        for (int filled = 0; to < n && filled < 2 * screen; to++) {
+            filled += estimateHeight(paragraphs.get(to), textPx, width);
+        }
+
+        for (int i = 0; i < n; i++) {
+            UdfParagraph paragraph = paragraphs.get(i);
+            if (i >= from && i < to) {
+                contentLayout.addView(createParagraphView(i, paragraph, defaultStyle));
+            } else {
+                addEstimatedPlaceholder(paragraph, textPx, width);
+            }
+        }
+        fillDown = to;
+        fillUp = from - 1;
+        PerfMetrics.stop("render.restore", t);
+        if (estimatedCount > 0) post(fillStep);
+    }
+
     private void renderDocument() {
-        contentLayout.removeAllViews();
+        clearViews();
         if (currentDocument == null) return;
+        long t = PerfMetrics.start();
 
         UdfStyle defaultStyle = currentDocument.getDefaultStyle();
         List<UdfParagraph> paragraphs = currentDocument.getParagraphs();
 
-        for (UdfParagraph paragraph : paragraphs) {
-            TextView tv = createParagraphView(paragraph, defaultStyle);
-            contentLayout.addView(tv);
+        for (int i = 0; i < paragraphs.size(); i++) {
+            contentLayout.addView(createParagraphView(i, paragraphs.get(i), defaultStyle));
         }
+        PerfMetrics.stop("render", t);
+    }
+
+    private void clearViews() {
+        removeCallbacks(fillStep);
+        releaseAllImages();
+        contentLayout.removeAllViews();
+        placeholderCount = 0;
+        estimatedCount = 0;
+        mediaViewCount = 0;
     }
 
-    private TextView createParagraphView(UdfParagraph paragraph, UdfStyle defaultStyle) {
+    /**
+     * Paragraf başına tek çocuk görünüm: düz metin için TextView, görsel ya da
+     * ek içeren paragraf için bunları alt alta dizen dikey bir LinearLayout.
+     */
+    private View createParagraphView(int index, UdfParagraph paragraph, UdfStyle defaultStyle) {
+        TextView text = createTextView(index, paragraph, defaultStyle);
+        if (!paragraph.hasMedia()) return text;
+
+        LinearLayout box = new LinearLayout(getContext());
+        box.setOrientation(LinearLayout.VERTICAL);
+        if (!paragraph.isEmpty()) box.addView(text);
+        for (UdfMedia media : paragraph.getMedia()) {
+            box.addView(media.isImage() ? createImageView(media) : createAttachmentView(media));
+        }
+        LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(
+                LinearLayout.LayoutParams.MATCH_PARENT,
+                LinearLayout.LayoutParams.WRAP_CONTENT
+        );
+        params.bottomMargin = dp(6);
+        box.setLayoutParams(params);
+        return box;
+    }
+
+    /**
+     * Görsel için sabit yükseklikli bir çerçeve; bitmap paragraf ekrana
+     * girince yüklenir. Yükseklik belgede bildirilen en-boy oranından
+     * hesaplandığı için görsel gelince yerleşim kaymaz.
+     */
+    private View createImageView(UdfMedia media) {
+        MediaImageView iv = new MediaImageView(getContext(), media);
+        iv.setScaleType(ImageView.ScaleType.FIT_CENTER);
+        iv.setBackgroundColor(0xFFF5F5F5);
+        iv.setContentDescription(media.getDisplayName());
+
+        int width = mediaTargetWidth();
+        int height = media.getWidth() > 0 && media.getHeight() > 0
+                ? Math.round(width * (float) media.getHeight() / media.getWidth())
+                : dp(200);
+        LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(
+                LinearLayout.LayoutParams.MATCH_PARENT, height);
+        params.topMargin = dp(4);
+        params.bottomMargin = dp(4);
+        iv.setLayoutParams(params);
+        mediaViewCount++;
+        return iv;
+    }
+
+    private View createAttachmentView(UdfMedia media) {
+        TextView tv = new TextView(getContext());
+        tv.setText("\uD83D\uDCCE " + media.getDisplayName());
+        tv.setTextColor(0xFF1565C0);
+        tv.setPadding(0, dp(4), 0, dp(4));
+        tv.setOnClickListener(v -> {
+            if (onAttachmentClickListener != null) {
+                onAttachmentClickListener.onAttachmentClick(currentDocument, media);
+            }
+        });
+        return tv;
+    }
+
+    private TextView createTextView(int index, UdfParagraph paragraph, UdfStyle defaultStyle) {
         TextView tv = new TextView(getContext());
 
         // Hizalama
@@ -143,6 +343,9 @@ public class UdfDocumentView extends ScrollView {
         // Yazı tipi ve boyut
         float baseSize = defaultStyle != null ? defaultStyle.getSize() : BASE_TEXT_SIZE_SP;
         tv.setTextSize(TypedValue.COMPLEX_UNIT_SP, baseSize * currentZoom);
+        UdfStyleTable.Entry base = currentDocument.getStyleTable().getDefault();
+        tv.setTypeface(UdfTypefaces.get(base));
+        tv.setTextColor(base.color);
 
         // Metin kopyalanabilir olsun
         tv.setTextIsSelectable(true);
@@ -159,41 +362,537 @@ public class UdfDocumentView extends ScrollView {
             return tv;
         }
 
-        // SpannableString ile biçimlendirme uygula
+        // Biçimlendirilmiş metin önbellekteyse yeniden kurma (tema değişimi, döndürme)
+        CharSequence formatted = textCache != null && index < textCache.length ? textCache[index] : null;
+        if (formatted == null) {
+            formatted = formatParagraph(paragraph);
+            if (textCache != null && index < textCache.length) textCache[index] = formatted;
+        }
+        tv.setText(formatted);
+        tv.setCustomSelectionActionModeCallback(new SelectionCallback(tv, paragraph));
+
+        LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(
+                LinearLayout.LayoutParams.MATCH_PARENT,
+                LinearLayout.LayoutParams.WRAP_CONTENT
+        );
+        params.bottomMargin = dp(6);
+        tv.setLayoutParams(params);
+
+        return tv;
+    }
+
+    /**
+     * Span'ların biçimleriyle paragraf metni. Biçimler belgenin UdfStyleTable
+     * girdilerine karşılık gelen paylaşılan span nesneleridir; varsayılan
+     * biçimdeki metin (TextView'in kendi ayarı) span almaz, aynı biçimdeki
+     * ardışık span'lar tek aralıkta birleşir.
+     */
+    private CharSequence formatParagraph(UdfParagraph paragraph) {
+        UdfStyleTable table = currentDocument.getStyleTable();
+        UdfStyleTable.Entry base = table.getDefault();
         SpannableStringBuilder ssb = new SpannableStringBuilder();
+        styleSpanStamp++;
 
-        List<UdfSpan> spans = paragraph.getSpans();
-        for (UdfSpan span : spans) {
+        UdfStyleTable.Entry run = null;
+        int runStart = 0;
+        for (UdfSpan span : paragraph.getSpans()) {
             String text = span.getResolvedText();
             if (text == null || text.isEmpty()) continue;
 
-            int start = ssb.length();
+            UdfStyleTable.Entry entry = table.get(span);
+            if (entry != run) {
+                applyRun(ssb, run, base, runStart, ssb.length());
+                run = entry;
+                runStart = ssb.length();
+            }
             ssb.append(text);
-            int end = ssb.length();
-
-            if (span.isBold() && span.isItalic()) {
-                ssb.setSpan(new StyleSpan(Typeface.BOLD_ITALIC), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-            } else if (span.isBold()) {
-                ssb.setSpan(new StyleSpan(Typeface.BOLD), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-            } else if (span.isItalic()) {
-                ssb.setSpan(new StyleSpan(Typeface.ITALIC), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+        applyRun(ssb, run, base, runStart, ssb.length());
+
+        // Vurgular biçimlerin üstüne; yalnızca bu paragrafa düşenler sorgulanır
+        UdfAnnotationIndex annotations = currentDocument.getAnnotations();
+        if (!annotations.isEmpty()) {
+            annotations.forParagraph(paragraph, 0, ssb.length(), (from, to, annotation) ->
+                    ssb.setSpan(new BackgroundColorSpan(annotation.getColor()), from, to,
+                            Spanned.SPAN_EXCLUSIVE_EXCLUSIVE));
+        }
+        return ssb;
+    }
+
+    /**
+     * Tam metindeki [start, end) aralığına düşen paragrafların metnini
+     * vurgularla yeniden kurar. Yer tutucular atlanır; önbellekleri
+     * silindiğinden oluşturulduklarında güncel vurguyu alırlar.
+     */
+    public void refreshAnnotations(int start, int end) {
+        if (currentDocument == null || end <= start) return;
+        List<UdfParagraph> paragraphs = currentDocument.getParagraphs();
+        int from = currentDocument.paragraphAtOffset(start);
+        int to = Math.min(currentDocument.paragraphAtOffset(end - 1), paragraphs.size() - 1);
+        for (int i = from; i <= to; i++) {
+            if (textCache != null && i < textCache.length) textCache[i] = null;
+            UdfParagraph paragraph = paragraphs.get(i);
+            if (paragraph.isEmpty() || paragraph.getSpans().isEmpty() || i >= contentLayout.getChildCount()) continue;
+            View child = contentLayout.getChildAt(i);
+            // Görselli paragrafta metin kutunun ilk çocuğudur
+            if (child instanceof LinearLayout) child = ((LinearLayout) child).getChildAt(0);
+            if (!(child instanceof TextView)) continue;
+            CharSequence formatted = formatParagraph(paragraph);
+            if (textCache != null && i < textCache.length) textCache[i] = formatted;
+            ((TextView) child).setText(formatted);
+        }
+    }
+
+    /**
+     * Paragrafın seçim menüsüne vurgu ve not öğelerini ekler; kopyalama
+     * gibi sistem öğeleri yerinde kalır. Seçim paragraf metnindedir, tam
+     * metne UdfAnnotationIndex.toTextOffset ile çevrilir.
+     */
+    private final class SelectionCallback implements ActionMode.Callback {
+        private final TextView view;
+        private final UdfParagraph paragraph;
+
+        SelectionCallback(TextView view, UdfParagraph paragraph) {
+            this.view = view;
+            this.paragraph = paragraph;
+        }
+
+        @Override
+        public boolean onCreateActionMode(ActionMode mode, Menu menu) {
+            if (onAnnotationListener == null) return true;
+            menu.add(Menu.NONE, MENU_HIGHLIGHT, Menu.NONE, "Vurgula");
+            menu.add(Menu.NONE, MENU_ADD_NOTE, Menu.NONE, "Not ekle");
+            menu.add(Menu.NONE, MENU_REMOVE, Menu.NONE, "Vurguyu kaldır");
+            menu.add(Menu.NONE, MENU_SHOW_NOTES, Menu.NONE, "Notu göster");
+            return true;
+        }
+
+        @Override
+        public boolean onPrepareActionMode(ActionMode mode, Menu menu) {
+            if (onAnnotationListener == null) return false;
+            List<UdfAnnotation> hits = selectedAnnotations();
+            boolean hasNote = false;
+            for (UdfAnnotation a : hits) hasNote |= a.hasNote();
+            menu.findItem(MENU_REMOVE).setVisible(!hits.isEmpty());
+            menu.findItem(MENU_SHOW_NOTES).setVisible(hasNote);
+            return true;
+        }
+
+        @Override
+        public boolean onActionItemClicked(ActionMode mode, MenuItem item) {
+            if (onAnnotationListener == null || currentDocument == null) return false;
+            int[] range = selectedRange();
+            if (range == null) return false;
+            switch (item.getItemId()) {
+                case MENU_HIGHLIGHT:
+                    onAnnotationListener.onHighlight(currentDocument, range[0], range[1]);
+                    break;
+                case MENU_ADD_NOTE:
+                    onAnnotationListener.onAddNote(currentDocument, range[0], range[1]);
+                    break;
+                case MENU_REMOVE:
+                    onAnnotationListener.onRemoveAnnotations(currentDocument, selectedAnnotations());
+                    break;
+                case MENU_SHOW_NOTES: {
+                    List<UdfAnnotation> notes = new ArrayList<>();
+                    for (UdfAnnotation a : selectedAnnotations()) if (a.hasNote()) notes.add(a);
+                    onAnnotationListener.onShowNotes(currentDocument, notes);
+                    break;
+                }
+                default:
+                    return false;
             }
+            mode.finish();
+            return true;
+        }
+
+        @Override
+        public void onDestroyActionMode(ActionMode mode) {
+        }
+
+        /** Seçimin tam metindeki [start, end) aralığı; seçim yoksa null. */
+        private int[] selectedRange() {
+            int a = view.getSelectionStart();
+            int b = view.getSelectionEnd();
+            int local = Math.min(a, b);
+            int localEnd = Math.max(a, b);
+            if (local < 0 || local >= localEnd) return null;
+            return new int[]{
+                    UdfAnnotationIndex.toTextOffset(paragraph, local),
+                    UdfAnnotationIndex.toTextOffset(paragraph, localEnd - 1) + 1
+            };
+        }
+
+        private List<UdfAnnotation> selectedAnnotations() {
+            int[] range = selectedRange();
+            if (range == null || currentDocument == null) return new ArrayList<>();
+            return currentDocument.getAnnotations().query(range[0], range[1]);
+        }
+    }
+
+    private void applyRun(SpannableStringBuilder ssb, UdfStyleTable.Entry entry, UdfStyleTable.Entry base,
+                          int start, int end) {
+        if (entry == null || entry == base || start >= end) return;
+        TableStyleSpan span = styleSpans[entry.index];
+        if (span == null) {
+            span = new TableStyleSpan(entry, base);
+            styleSpans[entry.index] = span;
+        }
+        // Aynı nesne bir Spannable'a iki kez eklenemez; paragrafta tekrar
+        // eden biçim için hafif bir sarmalayıcı kullanılır
+        Object what = span;
+        if (styleSpanUse[entry.index] == styleSpanStamp) {
+            what = CharacterStyle.wrap(span);
+        } else {
+            styleSpanUse[entry.index] = styleSpanStamp;
+        }
+        ssb.setSpan(what, start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+    }
+
+    private void resetStyleSpans() {
+        int size = currentDocument != null ? currentDocument.getStyleTable().size() : 0;
+        styleSpans = new TableStyleSpan[size];
+        styleSpanUse = new int[size];
+    }
+
+    /**
+     * Tablodaki bir biçimin değişmez span'ı. Boyut varsayılan biçime göre
+     * oran olarak uygulanır; böylece önbellekteki metin zoom değişiminde de
+     * geçerli kalır.
+     */
+    private static final class TableStyleSpan extends MetricAffectingSpan {
+        private final Typeface typeface;
+        private final float sizeRatio;
+        private final int color;
+        private final boolean underline;
+
+        TableStyleSpan(UdfStyleTable.Entry entry, UdfStyleTable.Entry base) {
+            this.typeface = UdfTypefaces.get(entry);
+            this.sizeRatio = base.size > 0 ? entry.size / base.size : 1f;
+            this.color = entry.color;
+            this.underline = entry.underline;
+        }
+
+        @Override
+        public void updateMeasureState(TextPaint paint) {
+            paint.setTypeface(typeface);
+            if (sizeRatio != 1f) paint.setTextSize(paint.getTextSize() * sizeRatio);
+        }
+
+        @Override
+        public void updateDrawState(TextPaint paint) {
+            updateMeasureState(paint);
+            paint.setColor(color);
+            if (underline) paint.setUnderlineText(true);
+        }
+    }
 
-            if (span.isUnderline()) {
-                ssb.setSpan(new UnderlineSpan(), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+    // ── Bellek baskısı ───────────────────────────────────────────────────────
+
+    /**
+     * Paragraf TextView'lerini aynı yükseklikte boş yer tutucularla değiştirir;
+     * kaydırma konumu ve toplam yükseklik değişmez. offscreenOnly ise ekranın
+     * bir ekran yukarısı ile iki ekran aşağısı arasındakiler korunur.
+     *
+     * @return yaklaşık geri kazanılan bayt
+     */
+    public long dehydrate(boolean offscreenOnly) {
+        if (currentDocument == null) return 0;
+        removeCallbacks(fillStep);
+        int[] window = visibleWindow();
+        long freed = 0;
+        for (int i = 0; i < contentLayout.getChildCount(); i++) {
+            View child = contentLayout.getChildAt(i);
+            if (child instanceof Placeholder) continue;
+            if (offscreenOnly && child.getBottom() > window[0] && child.getTop() < window[1]) continue;
+            freed += estimateBytes(child);
+            if (child instanceof ViewGroup) releaseImages((ViewGroup) child);
+            if (textCache != null && i < textCache.length) {
+                if (textCache[i] != null) freed += 2L * textCache[i].length();
+                textCache[i] = null;
             }
+
+            LinearLayout.LayoutParams old = (LinearLayout.LayoutParams) child.getLayoutParams();
+            LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(
+                    LinearLayout.LayoutParams.MATCH_PARENT, child.getHeight());
+            params.bottomMargin = old != null ? old.bottomMargin : 0;
+            Placeholder placeholder = new Placeholder(getContext(), child.getHeight(), currentZoom, false);
+            contentLayout.removeViewAt(i);
+            contentLayout.addView(placeholder, i, params);
+            placeholderCount++;
         }
+        return freed;
+    }
 
-        tv.setText(ssb);
+    /** Görünür pencereye düşen yer tutucuları yeniden paragraf görünümüne çevirir. */
+    public void rehydrateVisible() {
+        if (placeholderCount == 0 || currentDocument == null) return;
 
+        UdfStyle defaultStyle = currentDocument.getDefaultStyle();
+        List<UdfParagraph> paragraphs = currentDocument.getParagraphs();
+        int[] window = visibleWindow();
+        int count = Math.min(contentLayout.getChildCount(), paragraphs.size());
+        for (int i = firstChildBelow(window[0]); i < count; i++) {
+            View child = contentLayout.getChildAt(i);
+            if (child.getTop() >= window[1]) break;
+            if (!(child instanceof Placeholder)) continue;
+            replacePlaceholder(i, (Placeholder) child, paragraphs.get(i), defaultStyle);
+        }
+    }
+
+    private void replacePlaceholder(int index, Placeholder placeholder, UdfParagraph paragraph,
+                                    UdfStyle defaultStyle) {
+        contentLayout.removeViewAt(index);
+        contentLayout.addView(createParagraphView(index, paragraph, defaultStyle), index);
+        placeholderCount--;
+        if (placeholder.estimated) estimatedCount--;
+    }
+
+    /** Tahmini yer tutucuları çapadan başlayarak aşağı, sonra yukarı doğru kurar. */
+    private void fillEstimated() {
+        if (estimatedCount == 0 || currentDocument == null) return;
+        long deadline = SystemClock.uptimeMillis() + FILL_BUDGET_MS;
+        UdfStyle defaultStyle = currentDocument.getDefaultStyle();
+        List<UdfParagraph> paragraphs = currentDocument.getParagraphs();
+        int n = Math.min(contentLayout.getChildCount(), paragraphs.size());
+
+        while (estimatedCount > 0 && SystemClock.uptimeMillis() < deadline) {
+            int i;
+            if (fillDown < n) i = fillDown++;
+            else if (fillUp >= 0) i = fillUp--;
+            else break;
+            View child = contentLayout.getChildAt(i);
+            if (child instanceof Placeholder && ((Placeholder) child).estimated) {
+                replacePlaceholder(i, (Placeholder) child, paragraphs.get(i), defaultStyle);
+            }
+        }
+        if (estimatedCount > 0 && (fillDown < n || fillUp >= 0)) post(fillStep);
+    }
+
+    private void addEstimatedPlaceholder(UdfParagraph paragraph, float textPx, int width) {
+        int height = estimateHeight(paragraph, textPx, width);
         LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(
-                LinearLayout.LayoutParams.MATCH_PARENT,
-                LinearLayout.LayoutParams.WRAP_CONTENT
-        );
+                LinearLayout.LayoutParams.MATCH_PARENT, height);
         params.bottomMargin = dp(6);
-        tv.setLayoutParams(params);
+        contentLayout.addView(new Placeholder(getContext(), height, currentZoom, true), params);
+        placeholderCount++;
+        estimatedCount++;
+    }
 
-        return tv;
+    /** Karakter sayısı ve ortalama glif genişliğinden kaba paragraf yüksekliği. */
+    private int estimateHeight(UdfParagraph paragraph, float textPx, int width) {
+        int lineHeight = Math.round(textPx * 1.17f);
+        int perLine = Math.max(1, (int) (width / (textPx * 0.5f)));
+        int chars = paragraph.getResolvedLength();
+        int height = Math.max(1, (chars + perLine - 1) / perLine) * lineHeight;
+        for (UdfMedia media : paragraph.getMedia()) {
+            height += media.isImage() && media.getWidth() > 0 && media.getHeight() > 0
+                    ? Math.round(width * (float) media.getHeight() / media.getWidth()) + dp(8)
+                    : media.isImage() ? dp(208) : lineHeight + dp(8);
+        }
+        return height;
+    }
+
+    private float textSizePx(UdfStyle defaultStyle) {
+        float baseSize = defaultStyle != null ? defaultStyle.getSize() : BASE_TEXT_SIZE_SP;
+        return baseSize * currentZoom * getResources().getDisplayMetrics().scaledDensity;
+    }
+
+    // ── Kaydırma çapası ──────────────────────────────────────────────────────
+
+    /** Ekranın üstündeki paragrafın sırası (döndürmede kaldığı yerden devam için). */
+    public int getAnchorParagraph() {
+        captureAnchor();
+        return Math.max(anchorIndex, 0);
+    }
+
+    /** Çapa paragrafının ekran üstünde kalan kısmının yüksekliğine oranı. */
+    public float getAnchorFraction() {
+        captureAnchor();
+        return anchorFraction;
+    }
+
+    /** Paragrafı ekranın üstüne getirir (ör. arama sonucundan açılış). */
+    public void scrollToParagraph(int index) {
+        if (currentDocument == null || contentLayout.getChildCount() == 0) return;
+        anchorIndex = Math.max(0, Math.min(index, contentLayout.getChildCount() - 1));
+        anchorFraction = 0f;
+        // Yerleşim henüz bitmemiş olabilir; onLayout da çapayı uygular
+        requestLayout();
+        post(this::restoreAnchor);
+    }
+
+    private void captureAnchor() {
+        int count = contentLayout.getChildCount();
+        if (count == 0) return;
+        int y = getScrollY() - (pageContainer.getTop() + contentLayout.getTop());
+        int i = Math.min(firstChildBelow(y), count - 1);
+        View child = contentLayout.getChildAt(i);
+        anchorIndex = i;
+        anchorFraction = child.getHeight() > 0 ? (y - child.getTop()) / (float) child.getHeight() : 0f;
+    }
+
+    private void restoreAnchor() {
+        if (anchorIndex < 0 || anchorIndex >= contentLayout.getChildCount()) return;
+        View anchor = contentLayout.getChildAt(anchorIndex);
+        int target = pageContainer.getTop() + contentLayout.getTop() + anchor.getTop()
+                + Math.round(anchorFraction * anchor.getHeight());
+        if (target == getScrollY()) return;
+        adjustingScroll = true;
+        scrollTo(0, target);
+        adjustingScroll = false;
+    }
+
+    // ── Gömülü görseller ─────────────────────────────────────────────────────
+
+    /**
+     * Görünür pencereye giren görselleri yükler, pencereden iki ekrandan fazla
+     * uzaklaşanların bitmap'ini bırakır (bitmap LRU'da kalır, geri dönüşte
+     * çoğunlukla yeniden çözülmez).
+     */
+    private void updateMedia() {
+        if (currentDocument == null || currentDocument.getSource() == null) return;
+        UdfImageLoader loader = UdfImageLoader.getInstance(getContext());
+        int[] window = visibleWindow();
+        int height = Math.max(getHeight(), 1);
+
+        Iterator<MediaImageView> it = loadedImages.iterator();
+        while (it.hasNext()) {
+            MediaImageView iv = it.next();
+            if (!(iv.getParent() instanceof View)) {
+                it.remove();
+                continue;
+            }
+            int top = ((View) iv.getParent()).getTop() + iv.getTop();
+            if (top + iv.getHeight() < window[0] - 2 * height || top > window[1] + 2 * height) {
+                loader.cancel(iv);
+                it.remove();
+            }
+        }
+
+        for (int i = firstChildBelow(window[0]); i < contentLayout.getChildCount(); i++) {
+            View child = contentLayout.getChildAt(i);
+            if (child.getTop() >= window[1]) break;
+            if (!(child instanceof ViewGroup)) continue;
+            ViewGroup row = (ViewGroup) child;
+            for (int j = 0; j < row.getChildCount(); j++) {
+                View v = row.getChildAt(j);
+                if (!(v instanceof MediaImageView) || loadedImages.contains(v)) continue;
+                MediaImageView iv = (MediaImageView) v;
+                int width = iv.getWidth() > 0 ? iv.getWidth() : mediaTargetWidth();
+                loader.load(currentDocument.getSource(), iv.media, width, iv);
+                loadedImages.add(iv);
+            }
+        }
+    }
+
+    private void releaseImages(ViewGroup row) {
+        UdfImageLoader loader = UdfImageLoader.getInstance(getContext());
+        for (int j = 0; j < row.getChildCount(); j++) {
+            View v = row.getChildAt(j);
+            if (!(v instanceof MediaImageView)) continue;
+            loader.cancel((MediaImageView) v);
+            loadedImages.remove(v);
+            mediaViewCount--;
+        }
+    }
+
+    private void releaseAllImages() {
+        if (loadedImages.isEmpty()) return;
+        UdfImageLoader loader = UdfImageLoader.getInstance(getContext());
+        for (MediaImageView iv : new ArrayList<>(loadedImages)) loader.cancel(iv);
+        loadedImages.clear();
+    }
+
+    /** Sayfa içindeki kullanılabilir genişlik (yerleşimden önce ekran genişliğinden). */
+    private int mediaTargetWidth() {
+        if (contentLayout.getWidth() > 0) return contentLayout.getWidth();
+        int screen = getResources().getDisplayMetrics().widthPixels;
+        return Math.max(screen - dp(2 * 16 + 2 * 56), dp(100));
+    }
+
+    /** Alt kenarı y'nin altında kalan ilk çocuk; çocuklar dikey sıralı olduğundan ikili arama. */
+    private int firstChildBelow(int y) {
+        int lo = 0, hi = contentLayout.getChildCount();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (contentLayout.getChildAt(mid).getBottom() <= y) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+        if (currentDocument != null) restoreAnchor();
+        // Yerleşimden önce konumlar bilinmez; ilk yükleme burada tetiklenir
+        if (mediaViewCount > 0) updateMedia();
+    }
+
+    public boolean hasDehydratedViews() {
+        return placeholderCount > 0;
+    }
+
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+        if (!adjustingScroll) captureAnchor();
+        if (placeholderCount > 0) rehydrateVisible();
+        if (mediaViewCount > 0) updateMedia();
+    }
+
+    /** contentLayout koordinatlarında [üst, alt] tutma penceresi. */
+    private int[] visibleWindow() {
+        int offset = pageContainer.getTop() + contentLayout.getTop();
+        int top = getScrollY() - offset;
+        int height = Math.max(getHeight(), 1);
+        return new int[] { top - height, top + 2 * height };
+    }
+
+    private static long estimateBytes(View view) {
+        if (view instanceof ViewGroup) {
+            // Bitmap'ler paylaşılan LRU'ya ait; burada yalnızca görünümler sayılır
+            ViewGroup group = (ViewGroup) view;
+            long bytes = TEXT_VIEW_OVERHEAD_BYTES;
+            for (int i = 0; i < group.getChildCount(); i++) bytes += estimateBytes(group.getChildAt(i));
+            return bytes;
+        }
+        if (!(view instanceof TextView)) return TEXT_VIEW_OVERHEAD_BYTES / 2;
+        CharSequence text = ((TextView) view).getText();
+        long bytes = TEXT_VIEW_OVERHEAD_BYTES;
+        if (text != null) {
+            bytes += 2L * text.length();
+            if (text instanceof Spanned) {
+                bytes += (long) SPAN_OVERHEAD_BYTES
+                        * ((Spanned) text).getSpans(0, text.length(), Object.class).length;
+            }
+        }
+        return bytes;
+    }
+
+    /** Bırakılmış paragrafın yerini tutan boş görünüm. */
+    private static final class Placeholder extends View {
+        final int baseHeight;
+        final float baseZoom;
+        final boolean estimated;   // yükseklik ölçülmedi, metinden tahmin edildi
+
+        Placeholder(Context context, int baseHeight, float baseZoom, boolean estimated) {
+            super(context);
+            this.baseHeight = baseHeight;
+            this.baseZoom = baseZoom;
+            this.estimated = estimated;
+        }
+    }
+
+    /** Gömülü görsel çerçevesi. */
+    private static final class MediaImageView extends ImageView {
+        final UdfMedia media;
+
+        MediaImageView(Context context, UdfMedia media) {
+            super(context);
+            this.media = media;
+        }
     }
 
     public void zoomIn() {
@@ -219,6 +918,7 @@ public class UdfDocumentView extends ScrollView {
         if (currentDocument == null) return;
         // Tüm TextView'lerin boyutunu güncelle
         updateTextSizes(contentLayout);
+        if (placeholderCount > 0) post(this::rehydrateVisible);
     }
 
     private void updateTextSizes(LinearLayout layout) {
@@ -229,6 +929,13 @@ public class UdfDocumentView extends ScrollView {
             View child = layout.getChildAt(i);
             if (child instanceof TextView) {
                 ((TextView) child).setTextSize(TypedValue.COMPLEX_UNIT_SP, baseSize * currentZoom);
+            } else if (child instanceof LinearLayout) {
+                updateTextSizes((LinearLayout) child);
+            } else if (child instanceof Placeholder) {
+                // Yükseklik yaklaşık ölçeklenir; görünür olunca gerçek değer gelir
+                Placeholder p = (Placeholder) child;
+                child.getLayoutParams().height = Math.round(p.baseHeight * currentZoom / p.baseZoom);
+                child.requestLayout();
             }
         }
     }
@@ -0,0 +1,205 @@
+package com.udfviewer.app;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Base64;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Gömülü görselleri arşivden istek üzerine, hedef genişliğe göre küçültülmüş
+ * olarak çözer. Çözülmüş bitmap'ler bayt bütçeli ortak bir LRU'da tutulur.
+ * Arşive UdfArchive ile rastgele erişilir; yalnızca istenen girdi açılır.
+ *
+ * load/cancel ana iş parçacığından çağrılmalıdır.
+ */
+public class UdfImageLoader {
+
+    private static final String TAG = "UdfImageLoader";
+    private static final int MAX_CACHE_BYTES = 48 * 1024 * 1024;
+
+    private static UdfImageLoader instance;
+
+    public static synchronized UdfImageLoader getInstance(Context context) {
+        if (instance == null) instance = new UdfImageLoader(context.getApplicationContext());
+        return instance;
+    }
+
+    private final Context context;
+    private final LruCache<String, Bitmap> cache;
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<ImageView, Future<?>> inFlight = new WeakHashMap<>();
+
+    // Aynı anda tek belge gösterildiğinden bir arşiv açık tutulur. Çözmeler
+    // arşivi sayaçla tutar; belge değişince ya da kapanınca arşiv ancak son
+    // çözme bittiğinde kapatılır.
+    private OpenArchive current;
+
+    private static final class OpenArchive {
+        final String source;
+        final UdfArchive archive;
+        int users;
+        boolean retired;
+
+        OpenArchive(String source, UdfArchive archive) {
+            this.source = source;
+            this.archive = archive;
+        }
+    }
+
+    private UdfImageLoader(Context context) {
+        this.context = context;
+        int budget = (int) Math.min(Runtime.getRuntime().maxMemory() / 8, MAX_CACHE_BYTES);
+        this.cache = new LruCache<String, Bitmap>(budget) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * Görseli view'a yükler. Önbellekte varsa hemen atanır; yoksa arka planda
+     * çözülür. Aynı view için önceki istek iptal edilir.
+     */
+    public void load(String source, UdfMedia media, int targetWidth, ImageView view) {
+        cancel(view);
+        String key = source + "#" + media.key() + "@" + targetWidth;
+        view.setTag(key);
+
+        Bitmap cached = cache.get(key);
+        if (cached != null) {
+            view.setImageBitmap(cached);
+            return;
+        }
+
+        Future<?> task = executor.submit(() -> {
+            long t = PerfMetrics.start();
+            Bitmap bitmap = null;
+            try {
+                bitmap = decode(source, media, targetWidth);
+            } catch (Exception e) {
+                Log.w(TAG, "Görsel çözülemedi: " + media.getDisplayName(), e);
+            }
+            PerfMetrics.stop("image.decode", t);
+            if (bitmap != null) {
+                cache.put(key, bitmap);
+                PerfMetrics.bytes("image.cache", cache.size());
+            }
+            final Bitmap result = bitmap;
+            handler.post(() -> {
+                if (!key.equals(view.getTag())) return;
+                inFlight.remove(view);
+                if (result != null) {
+                    view.setImageBitmap(result);
+                } else {
+                    view.setContentDescription("Görsel açılamadı: " + media.getDisplayName());
+                }
+            });
+        });
+        inFlight.put(view, task);
+    }
+
+    /** Bekleyen yüklemeyi iptal eder ve view'daki bitmap'i bırakır. */
+    public void cancel(ImageView view) {
+        Future<?> task = inFlight.remove(view);
+        if (task != null) task.cancel(false);
+        view.setTag(null);
+        view.setImageDrawable(null);
+    }
+
+    /** Bellek baskısında çağrılır; all ise önbellek tamamen boşaltılır. */
+    public void trimMemory(boolean all) {
+        if (all) cache.evictAll();
+        else cache.trimToSize(cache.maxSize() / 2);
+    }
+
+    /** Belge kapatıldığında arşivi kapatır; süren çözme varsa o bitince. */
+    public synchronized void close(String source) {
+        if (source != null && current != null && source.equals(current.source)) retire();
+    }
+
+    // ── Çözme ────────────────────────────────────────────────────────────────
+
+    private Bitmap decode(String source, UdfMedia media, int targetWidth) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+
+        if (media.getEntryName() != null) {
+            OpenArchive ref = acquire(source);
+            try {
+                try (InputStream in = openEntry(ref, media.getEntryName())) {
+                    BitmapFactory.decodeStream(in, null, bounds);
+                }
+                BitmapFactory.Options opts = decodeOptions(bounds, targetWidth);
+                try (InputStream in = openEntry(ref, media.getEntryName())) {
+                    return BitmapFactory.decodeStream(in, null, opts);
+                }
+            } finally {
+                release(ref);
+            }
+        }
+
+        byte[] data = Base64.decode(media.getInlineData(), Base64.DEFAULT);
+        BitmapFactory.decodeByteArray(data, 0, data.length, bounds);
+        return BitmapFactory.decodeByteArray(data, 0, data.length, decodeOptions(bounds, targetWidth));
+    }
+
+    private static BitmapFactory.Options decodeOptions(BitmapFactory.Options bounds, int targetWidth) {
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) throw new IllegalArgumentException("Tanınmayan görsel biçimi");
+        BitmapFactory.Options opts = new BitmapFactory.Options();
+        // Hedef genişliğin altına inmeyen en büyük ikinin kuvveti
+        int sample = 1;
+        while (bounds.outWidth / (sample * 2) >= targetWidth) sample *= 2;
+        opts.inSampleSize = sample;
+        // Taranmış ekler çoğunlukla JPEG; saydamlık yoksa yarı bellek
+        if ("image/jpeg".equals(bounds.outMimeType)) opts.inPreferredConfig = Bitmap.Config.RGB_565;
+        return opts;
+    }
+
+    /** Kaynağın arşivini açık tutar (gerekirse açar); release ile bırakılmalı. */
+    private synchronized OpenArchive acquire(String source) throws IOException {
+        if (current == null || !source.equals(current.source)) {
+            retire();
+            current = new OpenArchive(source, UdfArchive.open(context, Uri.parse(source)));
+        }
+        current.users++;
+        return current;
+    }
+
+    private synchronized void release(OpenArchive ref) {
+        if (--ref.users == 0 && ref.retired) closeQuietly(ref.archive);
+    }
+
+    /** Geçerli arşivi bırakır; kullanan çözme yoksa hemen kapatır. */
+    private void retire() {
+        if (current == null) return;
+        current.retired = true;
+        if (current.users == 0) closeQuietly(current.archive);
+        current = null;
+    }
+
+    private static InputStream openEntry(OpenArchive ref, String name) throws IOException {
+        InputStream in = ref.archive.openEntry(name);
+        if (in == null) throw new IOException("Arşivde bulunamadı: " + name);
+        return in;
+    }
+
+    private static void closeQuietly(UdfArchive archive) {
+        try { archive.close(); } catch (IOException ignored) {}
+    }
+}
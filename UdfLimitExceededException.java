@@ -0,0 +1,28 @@
+package com.udfviewer.app;
+
+import java.io.IOException;
+
+/**
+ * Ayrıştırma bütçesi aşıldı (bkz. UdfParseLimits). Akış okunurken de
+ * fırlatılabildiği için IOException'dır; açma iş parçacığından ayrıştırıcıya
+ * olduğu gibi taşınır.
+ */
+public class UdfLimitExceededException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final String limit;
+    private final long value;
+    private final long max;
+
+    public UdfLimitExceededException(String limit, String description, long value, long max) {
+        super("Belge sınırı aşıldı: " + description + " (" + value + " > " + max + ")");
+        this.limit = limit;
+        this.value = value;
+        this.max = max;
+    }
+
+    /** Aşılan bütçenin adı (ör. "paragraphs"); ölçümlerde kullanılır. */
+    public String getLimit() { return limit; }
+    public long getValue() { return value; }
+    public long getMax() { return max; }
+}
@@ -0,0 +1,53 @@
+package com.udfviewer.app;
+
+/**
+ * Paragraf içindeki gömülü görsel ya da ek. İçerik ayrıştırmada okunmaz;
+ * yalnızca arşivdeki girdi adı (veya satır içi base64 verisi) tutulur ve
+ * paragraf ekrana girince yüklenir.
+ */
+public class UdfMedia {
+
+    public enum Type { IMAGE, ATTACHMENT }
+
+    private final Type type;
+    private String entryName;      // arşivdeki girdi adı
+    private String inlineData;     // imageData="..." gibi satır içi base64
+    private String displayName;
+    private int width;             // belgede bildirilen boyut (pt); 0 = bilinmiyor
+    private int height;
+
+    public UdfMedia(Type type) {
+        this.type = type;
+    }
+
+    public Type getType() { return type; }
+    public boolean isImage() { return type == Type.IMAGE; }
+
+    public String getEntryName() { return entryName; }
+    public void setEntryName(String entryName) { this.entryName = entryName; }
+
+    public String getInlineData() { return inlineData; }
+    public void setInlineData(String inlineData) { this.inlineData = inlineData; }
+
+    public String getDisplayName() {
+        if (displayName != null) return displayName;
+        if (entryName != null) return entryName.substring(entryName.lastIndexOf('/') + 1);
+        return type == Type.IMAGE ? "görsel" : "ek";
+    }
+    public void setDisplayName(String displayName) { this.displayName = displayName; }
+
+    public int getWidth() { return width; }
+    public void setWidth(int width) { this.width = width; }
+
+    public int getHeight() { return height; }
+    public void setHeight(int height) { this.height = height; }
+
+    public boolean hasSource() {
+        return entryName != null || inlineData != null;
+    }
+
+    /** Önbellek anahtarı; aynı belge içinde benzersizdir. */
+    public String key() {
+        return entryName != null ? entryName : "inline:" + System.identityHashCode(this);
+    }
+}
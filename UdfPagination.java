@@ -0,0 +1,150 @@
+package com.udfviewer.app;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Belgenin sayfalara bölünmüş satır düzeni. Satırlar metin kopyası tutmaz;
+ * paragraf numarası ve paragraf metni içindeki [start, end) aralığıdır.
+ * Böylece 600 sayfalık bir belgenin düzeni birkaç yüz KB'ta kalır ve
+ * yazdırmada yalnızca istenen sayfalar çizilebilir.
+ *
+ * Ölçüm Measurer ile yapıldığından sınıf Android'e bağlı değildir.
+ */
+public class UdfPagination {
+
+    /** Metin genişliği ölçer; setStyle paragrafın ilk span'ıyla çağrılır. */
+    public interface Measurer {
+        void setStyle(UdfSpan span);
+        float measure(String text, int start, int end);
+    }
+
+    /** Sayfalama sürerken iptal denetimi (ör. yazdırma iptali). */
+    public interface Cancellation {
+        boolean isCancelled();
+    }
+
+    public static final class Line {
+        public final int paragraph;
+        public final int start;
+        public final int end;
+        public final float baseline;
+
+        Line(int paragraph, int start, int end, float baseline) {
+            this.paragraph = paragraph;
+            this.start = start;
+            this.end = end;
+            this.baseline = baseline;
+        }
+    }
+
+    private final float pageWidth;
+    private final float pageHeight;
+    private final float margin;
+    private final float textSize;
+    private final float lineHeightFactor;
+    private final List<List<Line>> pages = new ArrayList<>();
+
+    private UdfPagination(float pageWidth, float pageHeight, float margin,
+                          float textSize, float lineHeightFactor) {
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        this.margin = margin;
+        this.textSize = textSize;
+        this.lineHeightFactor = lineHeightFactor;
+    }
+
+    public float getPageWidth() { return pageWidth; }
+    public float getPageHeight() { return pageHeight; }
+    public float getMargin() { return margin; }
+    public float getTextSize() { return textSize; }
+
+    public int getPageCount() { return pages.size(); }
+
+    public List<Line> getPage(int index) {
+        return Collections.unmodifiableList(pages.get(index));
+    }
+
+    public boolean matches(float pageWidth, float pageHeight, float margin, float textSize) {
+        return this.pageWidth == pageWidth && this.pageHeight == pageHeight
+                && this.margin == margin && this.textSize == textSize;
+    }
+
+    /**
+     * Paragrafları kelime sınırlarından sarar ve sayfalara yerleştirir.
+     * İptal edilirse null döner.
+     */
+    public static UdfPagination paginate(UdfDocument document, float pageWidth, float pageHeight,
+                                         float margin, float textSize, float lineHeightFactor,
+                                         Measurer measurer, Cancellation cancellation) {
+        long t = PerfMetrics.start();
+        UdfPagination result = new UdfPagination(pageWidth, pageHeight, margin, textSize, lineHeightFactor);
+        float lineHeight = textSize * lineHeightFactor;
+        float contentWidth = pageWidth - 2f * margin;
+        float bottom = pageHeight - margin;
+        float top = margin + textSize;
+
+        List<Line> page = new ArrayList<>();
+        result.pages.add(page);
+        float y = top;
+
+        List<UdfParagraph> paragraphs = document.getParagraphs();
+        for (int p = 0; p < paragraphs.size(); p++) {
+            if (cancellation != null && (p & 63) == 0 && cancellation.isCancelled()) return null;
+            UdfParagraph paragraph = paragraphs.get(p);
+
+            // Yeni sayfaya geç
+            if (y > bottom) {
+                page = new ArrayList<>();
+                result.pages.add(page);
+                y = top;
+            }
+
+            String text = paragraph.getResolvedText();
+            if (paragraph.isEmpty() || paragraph.getSpans().isEmpty() || text == null || text.isEmpty()) {
+                y += lineHeight * 0.5f;
+                continue;
+            }
+
+            // Paragraf bazlı basit yaklaşım: ilk span'ın stili
+            measurer.setStyle(paragraph.getSpans().get(0));
+
+            // Kelime sarma: satır, boşluklarla ayrılmış kelimelerin ardışık aralığı
+            int length = text.length();
+            int lineStart = 0;
+            int lineEnd = -1;
+            int pos = 0;
+            while (pos <= length) {
+                int space = text.indexOf(' ', pos);
+                if (space < 0) space = length;
+                if (lineEnd < 0) {
+                    lineStart = pos;
+                    lineEnd = space;
+                } else if (measurer.measure(text, lineStart, space) > contentWidth) {
+                    page.add(new Line(p, lineStart, lineEnd, y));
+                    y += lineHeight;
+                    lineStart = pos;
+                    lineEnd = space;
+                    if (y > bottom) {
+                        page = new ArrayList<>();
+                        result.pages.add(page);
+                        y = top;
+                    }
+                } else {
+                    lineEnd = space;
+                }
+                pos = space + 1;
+            }
+            if (lineEnd > lineStart) {
+                page.add(new Line(p, lineStart, lineEnd, y));
+                y += lineHeight;
+            }
+
+            // Paragraf sonu boşluk
+            y += lineHeight * 0.2f;
+        }
+        PerfMetrics.stop("paginate", t);
+        return result;
+    }
+}
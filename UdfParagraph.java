@@ -7,7 +7,7 @@ public class UdfParagraph {
     // Alignment: 0=sol, 1=orta, 2=sağ, 3=justify
     private int alignment = 0;
     private List<UdfSpan> spans = new ArrayList<>();
-    private String resolvedText = "";
+    private List<UdfMedia> media = new ArrayList<>();
 
     public int getAlignment() { return alignment; }
     public void setAlignment(int alignment) { this.alignment = alignment; }
@@ -15,19 +15,51 @@ public class UdfParagraph {
     public List<UdfSpan> getSpans() { return spans; }
     public void addSpan(UdfSpan span) { spans.add(span); }
 
-    public String getResolvedText() { return resolvedText; }
+    public List<UdfMedia> getMedia() { return media; }
+    public void addMedia(UdfMedia item) { media.add(item); }
+    public boolean hasMedia() { return !media.isEmpty(); }
 
-    public void resolveText(String fullText) {
-        StringBuilder sb = new StringBuilder();
+    /**
+     * Span metinlerinin art arda eklenmesi. Metin paragrafta tutulmaz; her
+     * çağrıda belgenin tam metninden (UdfTextStore, diske taşınmış olabilir)
+     * kopyalanır. Aynı paragrafın satırlarını işleyen döngüler sonucu
+     * yerel değişkende tutmalı.
+     */
+    public String getResolvedText() {
+        if (spans.size() == 1) return spans.get(0).getResolvedText();
+        int total = getResolvedLength();
+        if (total == 0) return "";
+        StringBuilder sb = new StringBuilder(total);
+        for (UdfSpan span : spans) span.appendTo(sb);
+        return sb.toString();
+    }
+
+    /** getResolvedText().length(); metni kopyalamaz. */
+    public int getResolvedLength() {
+        int total = 0;
+        for (UdfSpan span : spans) total += span.getResolvedLength();
+        return total;
+    }
+
+    /**
+     * Span'leri tam metne bağlar (kopyalamadan); metin dışını gösteren span
+     * sayısını döner. Belge yaşadıkça fullText de yaşar.
+     */
+    public int resolveText(CharSequence fullText) {
+        int outOfRange = 0;
+        int textLength = fullText != null ? fullText.length() : 0;
         for (UdfSpan span : spans) {
-            String spanText = span.extractText(fullText);
-            span.setResolvedText(spanText);
-            sb.append(spanText);
+            if (span.isOutOfRange(textLength)) outOfRange++;
+            span.setSource(fullText);
         }
-        resolvedText = sb.toString();
+        return outOfRange;
     }
 
+    /** Metin yalnızca boşluksa (String.trim ölçütü) ya da hiç yoksa. */
     public boolean isEmpty() {
-        return resolvedText.trim().isEmpty();
+        for (UdfSpan span : spans) {
+            if (!span.isBlank()) return false;
+        }
+        return true;
     }
 }
@@ -0,0 +1,64 @@
+package com.udfviewer.app;
+
+/**
+ * Ayrıştırma bütçeleri. content.xml akıtılırken uygulanır; bütçe aşılınca
+ * ayrıştırma belgenin sonu beklenmeden UdfLimitExceededException ile
+ * durdurulur. Bozuk ya da kötü niyetli bir dosya (ör. yüksek oranlı ZIP
+ * bombası, milyonlarca boş span) böylece belleği tüketemez.
+ *
+ * Varsayılanlar gerçek UYAP belgelerinin çok üstündedir.
+ */
+public class UdfParseLimits {
+
+    public static final UdfParseLimits DEFAULT = new UdfParseLimits();
+
+    /**
+     * Metnin diske taşındığı ayrıştırıcılar için (UdfStreamParser.setTextSpill).
+     * Birleştirilmiş dava dosyalarının yüzlerce MB'lık metni ancak böyle
+     * açılabilir; metin bellekte tutulmadığından açılmış boyut 1 GB'a kadar
+     * izinlidir. Paragraf ve span sayısı sınırları varsayılanda kalır:
+     * nesneler yine bellekte durur ve UdfDocumentView her paragrafa bir
+     * görünüm kurar, daha fazlasını çizemez.
+     */
+    public static final UdfParseLimits TEXT_SPILL = new UdfParseLimits()
+            .setMaxDecompressedBytes(1024L * 1024 * 1024);
+
+    // Oran denetimi bu kadar açılmadan başlamaz; küçük girdilerde oran anlamsız
+    static final long RATIO_CHECK_MIN_BYTES = 1024 * 1024;
+
+    private long maxDecompressedBytes = 64L * 1024 * 1024;
+    private int maxCompressionRatio = 100;
+    private int maxParagraphs = 200_000;
+    private int maxSpansPerParagraph = 10_000;
+    private int maxTotalSpans = 1_000_000;
+
+    public long getMaxDecompressedBytes() { return maxDecompressedBytes; }
+    public UdfParseLimits setMaxDecompressedBytes(long maxDecompressedBytes) {
+        this.maxDecompressedBytes = maxDecompressedBytes;
+        return this;
+    }
+
+    public int getMaxCompressionRatio() { return maxCompressionRatio; }
+    public UdfParseLimits setMaxCompressionRatio(int maxCompressionRatio) {
+        this.maxCompressionRatio = maxCompressionRatio;
+        return this;
+    }
+
+    public int getMaxParagraphs() { return maxParagraphs; }
+    public UdfParseLimits setMaxParagraphs(int maxParagraphs) {
+        this.maxParagraphs = maxParagraphs;
+        return this;
+    }
+
+    public int getMaxSpansPerParagraph() { return maxSpansPerParagraph; }
+    public UdfParseLimits setMaxSpansPerParagraph(int maxSpansPerParagraph) {
+        this.maxSpansPerParagraph = maxSpansPerParagraph;
+        return this;
+    }
+
+    public int getMaxTotalSpans() { return maxTotalSpans; }
+    public UdfParseLimits setMaxTotalSpans(int maxTotalSpans) {
+        this.maxTotalSpans = maxTotalSpans;
+        return this;
+    }
+}
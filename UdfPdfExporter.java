@@ -5,21 +5,37 @@ import android.content.Intent;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.Typeface;
 import android.graphics.pdf.PdfDocument;
 import android.net.Uri;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.os.ParcelFileDescriptor;
+import android.print.PageRange;
 import android.print.PrintAttributes;
+import android.print.PrintDocumentAdapter;
+import android.print.PrintDocumentInfo;
 import android.print.pdf.PrintedPdfDocument;
 
 import androidx.core.content.FileProvider;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * UdfDocument'i standart Android PdfDocument API'siyle PDF'e dönüştürür.
  * A4 sayfa boyutu, Times New Roman, bold/italic/underline, hizalama desteği.
+ * Sayfalama (UdfPagination) çizimden ayrıdır; yazdırma adaptörü aynı düzenle
+ * yalnızca istenen sayfaları çizer.
+ *
+ * Küçük boyutlu dışa aktarma (compact) PdfDocument yerine UdfPdfWriter'ın
+ * sıkı kipini kullanır: içerik akışları sıkıştırılır, yazı tipi gömülmez.
+ * Paylaşım ve e-posta için dosya birkaç kat küçülür; görünüm cihaz yazı
+ * tipi yerine PDF'in standart Times/Courier ailesiyle çizilir. Standart
+ * yazı tiplerinin kodlayamadığı karakter içeren belgeler metin '?' olmasın
+ * diye PdfDocument yoluyla yazılır.
  */
 public class UdfPdfExporter {
 
@@ -36,132 +52,288 @@ public class UdfPdfExporter {
 
     private final Context context;
 
+    // Son sayfalama; belge kapanınca bırakılsın diye zayıf başvuru
+    private WeakReference<UdfDocument> cachedDocument;
+    private UdfPagination cachedLayout;
+
     public UdfPdfExporter(Context context) {
         this.context = context.getApplicationContext();
     }
 
     public void export(UdfDocument document, String baseFileName, ExportCallback callback) {
+        export(document, baseFileName, false, callback);
+    }
+
+    public void export(UdfDocument document, String baseFileName, boolean compact, ExportCallback callback) {
+        // Dışa aktarma sürerken bellek baskısı belgeyi diske bırakmasın
+        document.retain();
         new Thread(() -> {
             try {
-                File pdfFile = doExport(document, baseFileName);
+                long t = PerfMetrics.start();
+                File pdfFile = compact ? doCompactExport(document, baseFileName) : doExport(document, baseFileName);
+                String metric = compact ? "export.pdfCompact" : "export.pdf";
+                PerfMetrics.stop(metric, t);
+                PerfMetrics.bytes(metric, pdfFile.length());
                 callback.onSuccess(pdfFile);
             } catch (Exception e) {
                 callback.onError("PDF oluşturulamadı: " + e.getMessage());
+            } finally {
+                document.release();
             }
         }).start();
     }
 
     private File doExport(UdfDocument document, String baseFileName) throws Exception {
         PdfDocument pdf = new PdfDocument();
-
-        float textSize = 12f;
-        UdfStyle defaultStyle = document.getDefaultStyle();
-        if (defaultStyle != null) textSize = defaultStyle.getSize();
-
+        UdfPagination layout = paginate(document, PAGE_WIDTH, PAGE_HEIGHT, null);
         Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
         paint.setColor(Color.BLACK);
 
-        float lineHeight = textSize * LINE_HEIGHT_FACTOR;
-        float contentWidth = PAGE_WIDTH - 2f * MARGIN;
-        float x = MARGIN;
-        float y = MARGIN + textSize;
-
-        PdfDocument.PageInfo pageInfo = new PdfDocument.PageInfo.Builder(PAGE_WIDTH, PAGE_HEIGHT, 1).create();
-        PdfDocument.Page page = pdf.startPage(pageInfo);
-        Canvas canvas = page.getCanvas();
-        int pageNumber = 1;
+        for (int i = 0; i < layout.getPageCount(); i++) {
+            PdfDocument.PageInfo pageInfo = new PdfDocument.PageInfo.Builder(PAGE_WIDTH, PAGE_HEIGHT, i + 1).create();
+            PdfDocument.Page page = pdf.startPage(pageInfo);
+            drawPage(page.getCanvas(), paint, document, layout, i);
+            pdf.finishPage(page);
+        }
 
-        List<UdfParagraph> paragraphs = document.getParagraphs();
+        // Dosyayı kaydet
+        File pdfFile = outputFile(baseFileName);
+        FileOutputStream fos = new FileOutputStream(pdfFile);
+        pdf.writeTo(fos);
+        fos.close();
+        pdf.close();
 
-        for (UdfParagraph paragraph : paragraphs) {
-            // Yeni sayfaya geç
-            if (y > PAGE_HEIGHT - MARGIN) {
-                pdf.finishPage(page);
-                pageNumber++;
-                PdfDocument.PageInfo nextPageInfo = new PdfDocument.PageInfo.Builder(PAGE_WIDTH, PAGE_HEIGHT, pageNumber).create();
-                page = pdf.startPage(nextPageInfo);
-                canvas = page.getCanvas();
-                y = MARGIN + textSize;
-            }
+        return pdfFile;
+    }
 
-            if (paragraph.isEmpty()) {
-                y += lineHeight * 0.5f;
-                continue;
-            }
+    private File doCompactExport(UdfDocument document, String baseFileName) throws Exception {
+        if (UdfPdfWriter.countUnencodable(document) > 0) {
+            PerfMetrics.count("export.pdfCompact.fallback");
+            return doExport(document, baseFileName);
+        }
+        File pdfFile = outputFile(baseFileName);
+        try (FileOutputStream fos = new FileOutputStream(pdfFile)) {
+            UdfPdfWriter.write(document, fos, null, true);
+        }
+        return pdfFile;
+    }
 
-            List<UdfSpan> spans = paragraph.getSpans();
-            if (spans.isEmpty()) {
-                y += lineHeight * 0.5f;
-                continue;
-            }
+    private File outputFile(String baseFileName) {
+        File outputDir = new File(context.getCacheDir(), "pdf_exports");
+        outputDir.mkdirs();
+        String safeFileName = baseFileName.replace(".udf", "").replaceAll("[^a-zA-Z0-9._-]", "_");
+        return new File(outputDir, safeFileName + ".pdf");
+    }
 
-            // Tüm paragraf metnini ölç ve kelime sar
-            String paraText = paragraph.getResolvedText();
-            if (paraText == null || paraText.isEmpty()) {
-                y += lineHeight * 0.5f;
-                continue;
-            }
+    // ── Sayfalama ────────────────────────────────────────────────────────────
 
-            // İlk span'ın stilini al (paragraf bazlı basit yaklaşım)
-            UdfSpan firstSpan = spans.get(0);
-            applyStyle(paint, firstSpan, textSize);
+    private static float textSizeOf(UdfDocument document) {
+        UdfStyle defaultStyle = document.getDefaultStyle();
+        return defaultStyle != null ? defaultStyle.getSize() : 12f;
+    }
 
-            // Hizalama
-            Paint.Align align = Paint.Align.LEFT;
-            switch (paragraph.getAlignment()) {
-                case 1: align = Paint.Align.CENTER; break;
-                case 2: align = Paint.Align.RIGHT;  break;
+    /**
+     * Son sayfalama belge ve sayfa boyutu değişmedikçe yeniden kullanılır;
+     * dışa aktarma ve yazdırma aynı düzeni paylaşır. İptal edilirse null.
+     */
+    private UdfPagination paginate(UdfDocument document, float pageWidth, float pageHeight,
+                                   UdfPagination.Cancellation cancellation) {
+        float textSize = textSizeOf(document);
+        synchronized (this) {
+            if (cachedDocument != null && cachedDocument.get() == document && cachedLayout != null
+                    && cachedLayout.matches(pageWidth, pageHeight, MARGIN, textSize)) {
+                return cachedLayout;
             }
-            paint.setTextAlign(align);
-
-            // Kelime sarma
-            String[] words = paraText.split(" ");
-            StringBuilder line = new StringBuilder();
-            for (int i = 0; i < words.length; i++) {
-                String test = line.length() == 0 ? words[i] : line + " " + words[i];
-                if (paint.measureText(test) > contentWidth && line.length() > 0) {
-                    drawLine(canvas, paint, line.toString(), x, y, align, contentWidth);
-                    y += lineHeight;
-                    line = new StringBuilder(words[i]);
-
-                    if (y > PAGE_HEIGHT - MARGIN) {
-                        pdf.finishPage(page);
-                        pageNumber++;
-                        PdfDocument.PageInfo npi = new PdfDocument.PageInfo.Builder(PAGE_WIDTH, PAGE_HEIGHT, pageNumber).create();
-                        page = pdf.startPage(npi);
-                        canvas = page.getCanvas();
-                        y = MARGIN + textSize;
-                    }
-                } else {
-                    line = new StringBuilder(test);
+        }
+        UdfPagination layout = UdfPagination.paginate(document, pageWidth, pageHeight, MARGIN,
+                textSize, LINE_HEIGHT_FACTOR, new PaintMeasurer(document.getStyleTable(), textSize), cancellation);
+        if (layout == null) return null;
+        synchronized (this) {
+            cachedDocument = new WeakReference<>(document);
+            cachedLayout = layout;
+        }
+        return layout;
+    }
+
+    private void drawPage(Canvas canvas, Paint paint, UdfDocument document, UdfPagination layout, int index) {
+        List<UdfParagraph> paragraphs = document.getParagraphs();
+        UdfStyleTable table = document.getStyleTable();
+        float x = layout.getMargin();
+        float contentWidth = layout.getPageWidth() - 2f * layout.getMargin();
+        int styled = -1;
+        Paint.Align align = Paint.Align.LEFT;
+        UdfAnnotationIndex annotations = document.getAnnotations();
+        Paint fill = annotations.isEmpty() ? null : new Paint();
+        String paragraphText = null;
+        for (UdfPagination.Line line : layout.getPage(index)) {
+            UdfParagraph paragraph = paragraphs.get(line.paragraph);
+            if (line.paragraph != styled) {
+                // İlk span'ın stilini al (paragraf bazlı basit yaklaşım)
+                applyStyle(paint, table, paragraph.getSpans().get(0), layout.getTextSize());
+                align = Paint.Align.LEFT;
+                switch (paragraph.getAlignment()) {
+                    case 1: align = Paint.Align.CENTER; break;
+                    case 2: align = Paint.Align.RIGHT;  break;
                 }
+                paint.setTextAlign(align);
+                // Metin tam metinden kopyalanır; paragrafın satırları için bir kez
+                paragraphText = paragraph.getResolvedText();
+                styled = line.paragraph;
             }
-            if (line.length() > 0) {
-                drawLine(canvas, paint, line.toString(), x, y, align, contentWidth);
-                y += lineHeight;
+            String text = paragraphText.substring(line.start, line.end);
+            if (fill != null) {
+                drawHighlights(canvas, paint, fill, annotations, paragraph, line, text, x, align, contentWidth);
             }
+            drawLine(canvas, paint, text, x, line.baseline, align, contentWidth);
+        }
+        paint.setTextAlign(Paint.Align.LEFT);
+    }
 
-            // Paragraf sonu boşluk
-            y += lineHeight * 0.2f;
+    /**
+     * Satıra düşen vurguları metnin altına boyar. Notun kendisi bu yolda
+     * yazılmaz (PdfDocument açıklama nesnesi desteklemez); yalnızca renk kalır.
+     */
+    private static void drawHighlights(Canvas canvas, Paint paint, Paint fill, UdfAnnotationIndex annotations,
+                                       UdfParagraph paragraph, UdfPagination.Line line, String text,
+                                       float x, Paint.Align align, float contentWidth) {
+        float width = paint.measureText(text);
+        float startX = align == Paint.Align.CENTER ? x + (contentWidth - width) / 2f :
+                       align == Paint.Align.RIGHT  ? x + contentWidth - width : x;
+        float top = line.baseline + paint.ascent();
+        float bottom = line.baseline + paint.descent();
+        annotations.forParagraph(paragraph, line.start, line.end, (from, to, annotation) -> {
+            float left = startX + paint.measureText(text, 0, from - line.start);
+            float right = startX + paint.measureText(text, 0, to - line.start);
+            fill.setColor(annotation.opaqueColor());
+            canvas.drawRect(left, top, right, bottom, fill);
+        });
+    }
 
-            // Stili sıfırla
-            paint.setTextAlign(Paint.Align.LEFT);
+    private static final class PaintMeasurer implements UdfPagination.Measurer {
+        private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        private final UdfStyleTable table;
+        private final float textSize;
+
+        PaintMeasurer(UdfStyleTable table, float textSize) {
+            this.table = table;
+            this.textSize = textSize;
         }
 
-        pdf.finishPage(page);
+        @Override
+        public void setStyle(UdfSpan span) {
+            applyStyle(paint, table, span, textSize);
+        }
 
-        // Dosyayı kaydet
-        File outputDir = new File(context.getCacheDir(), "pdf_exports");
-        outputDir.mkdirs();
-        String safeFileName = baseFileName.replace(".udf", "").replaceAll("[^a-zA-Z0-9._-]", "_");
-        File pdfFile = new File(outputDir, safeFileName + ".pdf");
+        @Override
+        public float measure(String text, int start, int end) {
+            return paint.measureText(text, start, end);
+        }
+    }
 
-        FileOutputStream fos = new FileOutputStream(pdfFile);
-        pdf.writeTo(fos);
-        fos.close();
-        pdf.close();
+    // ── Yazdırma ─────────────────────────────────────────────────────────────
 
-        return pdfFile;
+    /**
+     * Android yazdırma çerçevesi için adaptör. onLayout sayfa sayısını
+     * (önbellekteki) sayfalamadan verir; onWrite yalnızca istenen sayfa
+     * aralıklarını çizer. Her iki iş de arka planda yürür ve iptal
+     * sinyaline uyar.
+     */
+    public PrintDocumentAdapter createPrintAdapter(UdfDocument document, String jobName) {
+        return new PrintAdapter(document, jobName);
+    }
+
+    private final class PrintAdapter extends PrintDocumentAdapter {
+        private final UdfDocument document;
+        private final String jobName;
+        private volatile UdfPagination layout;
+        private volatile PrintAttributes attributes;
+
+        PrintAdapter(UdfDocument document, String jobName) {
+            this.document = document;
+            this.jobName = jobName;
+        }
+
+        @Override
+        public void onStart() {
+            document.retain();
+        }
+
+        @Override
+        public void onFinish() {
+            document.release();
+        }
+
+        @Override
+        public void onLayout(PrintAttributes oldAttributes, PrintAttributes newAttributes,
+                             CancellationSignal cancellationSignal, LayoutResultCallback callback,
+                             Bundle extras) {
+            if (cancellationSignal.isCanceled()) {
+                callback.onLayoutCancelled();
+                return;
+            }
+            PrintAttributes.MediaSize media = newAttributes.getMediaSize();
+            float width = media != null ? media.getWidthMils() * 72f / 1000f : PAGE_WIDTH;
+            float height = media != null ? media.getHeightMils() * 72f / 1000f : PAGE_HEIGHT;
+            new Thread(() -> {
+                UdfPagination previous = layout;
+                UdfPagination next = paginate(document, width, height, cancellationSignal::isCanceled);
+                if (next == null) {
+                    callback.onLayoutCancelled();
+                    return;
+                }
+                attributes = newAttributes;
+                layout = next;
+                PrintDocumentInfo info = new PrintDocumentInfo.Builder(jobName)
+                        .setContentType(PrintDocumentInfo.CONTENT_TYPE_DOCUMENT)
+                        .setPageCount(next.getPageCount())
+                        .build();
+                callback.onLayoutFinished(info, next != previous);
+            }, "udf-print-layout").start();
+        }
+
+        @Override
+        public void onWrite(PageRange[] pages, ParcelFileDescriptor destination,
+                            CancellationSignal cancellationSignal, WriteResultCallback callback) {
+            UdfPagination current = layout;
+            if (current == null) {
+                callback.onWriteFailed("Sayfa düzeni hazır değil");
+                return;
+            }
+            new Thread(() -> {
+                long t = PerfMetrics.start();
+                PrintedPdfDocument pdf = new PrintedPdfDocument(context, attributes);
+                try {
+                    Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+                    paint.setColor(Color.BLACK);
+                    List<PageRange> written = new ArrayList<>();
+                    int count = current.getPageCount();
+                    for (PageRange range : pages) {
+                        // ALL_PAGES [0, Integer.MAX_VALUE] aralığıdır; kırpma yeterli
+                        int from = Math.max(0, range.getStart());
+                        int to = Math.min(count - 1, range.getEnd());
+                        for (int i = from; i <= to; i++) {
+                            if (cancellationSignal.isCanceled()) {
+                                callback.onWriteCancelled();
+                                return;
+                            }
+                            PdfDocument.Page page = pdf.startPage(i);
+                            drawPage(page.getCanvas(), paint, document, current, i);
+                            pdf.finishPage(page);
+                        }
+                        if (from <= to) written.add(new PageRange(from, to));
+                    }
+                    try (FileOutputStream out = new FileOutputStream(destination.getFileDescriptor())) {
+                        pdf.writeTo(out);
+                    }
+                    PerfMetrics.stop("print.write", t);
+                    callback.onWriteFinished(written.toArray(new PageRange[0]));
+                } catch (Exception e) {
+                    callback.onWriteFailed("Yazdırılamadı: " + e.getMessage());
+                } finally {
+                    pdf.close();
+                }
+            }, "udf-print-write").start();
+        }
     }
 
     private void drawLine(Canvas canvas, Paint paint, String text,
@@ -186,18 +358,17 @@ public class UdfPdfExporter {
         }
     }
 
-    private void applyStyle(Paint paint, UdfSpan span, float baseSize) {
-        paint.setTextSize(baseSize);
-        paint.setUnderlineText(span.isUnderline());
-
-        int style;
-        if (span.isBold() && span.isItalic()) style = Typeface.BOLD_ITALIC;
-        else if (span.isBold())               style = Typeface.BOLD;
-        else if (span.isItalic())             style = Typeface.ITALIC;
-        else                                  style = Typeface.NORMAL;
-
-        Typeface tf = Typeface.create("serif", style);
-        paint.setTypeface(tf);
+    /**
+     * Span'ın tablo biçimini boyaya uygular. Boyut sayfalamanın taban
+     * boyutuna göre orantılanır; yazı tipi görünümle ortak önbellekten gelir.
+     */
+    private static void applyStyle(Paint paint, UdfStyleTable table, UdfSpan span, float baseSize) {
+        UdfStyleTable.Entry entry = table.get(span);
+        UdfStyleTable.Entry base = table.getDefault();
+        paint.setTextSize(base.size > 0 ? baseSize * entry.size / base.size : baseSize);
+        paint.setUnderlineText(entry.underline);
+        paint.setColor(entry.color);
+        paint.setTypeface(UdfTypefaces.get(entry));
     }
 
     /** PDF'i FileProvider üzerinden paylaşma Intent'i oluşturur */
@@ -0,0 +1,559 @@
+package com.udfviewer.app;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Android'e bağlı olmayan PDF yazıcı. UdfPdfExporter'la aynı sayfa düzenini
+ * (UdfPagination, A4, 72pt kenar, paragraf başına ilk span'ın biçimi) PDF
+ * 1.4 olarak doğrudan akışa yazar; her sayfa çizildiği anda diske gider,
+ * bellekte yalnızca nesne konumları tutulur.
+ *
+ * Yazı tipi gömülmez: PDF'in standart 14 yazı tipinden Times (serif ve
+ * sans-serif biçimler için) ve Courier (monospace) kullanılır. Metin
+ * Windows-1254 olarak kodlanır; WinAnsiEncoding'de olmayan Türkçe harfler
+ * (Ğ ğ İ ı Ş ş) /Differences ile 1254'teki konumlarına eşlenir. 1254'te
+ * karşılığı olmayan karakterler (ör. Yunanca, emoji) '?' yazılır; çağıran
+ * countUnencodable ile önceden bakıp başka yola düşer ya da kaybı bildirir. Genişlik
+ * tablosu yalnızca satır sarma ve hizalama içindir; görüntüleyici kendi
+ * metriklerini kullanır.
+ *
+ * Sıkı (compact) kipte sayfa içerikleri Flate ile sıkıştırılır ve içeriği
+ * aynı olan sayfalar (ör. boş sayfalar) tek içerik akışını paylaşır. Yazı
+ * tipi ve kaynak sözlüğü her iki kipte de tüm sayfalarda tek nesnedir;
+ * yazı tipi gömülmediğinden alt küme gömmeye gerek yoktur.
+ *
+ * Belgenin vurguları metnin altına dikdörtgen olarak boyanır; notlar
+ * sağ kenar boşluğunda /Text açıklaması olarak görüntüleyicide açılır.
+ */
+public class UdfPdfWriter {
+
+    // A4 @ 72dpi; UdfPdfExporter ile aynı
+    private static final int PAGE_WIDTH  = 595;
+    private static final int PAGE_HEIGHT = 842;
+    private static final int MARGIN      = 72;
+    private static final float LINE_HEIGHT_FACTOR = 1.6f;
+
+    private static final Charset ENCODING = Charset.forName("windows-1254");
+    private static final String DIFFERENCES =
+            "[208 /Gbreve 221 /Idotaccent 222 /Scedilla 240 /gbreve 253 /dotlessi 254 /scedilla]";
+
+    private static final String[] FONT_NAMES = {
+            "Times-Roman", "Times-Bold", "Times-Italic", "Times-BoldItalic",
+            "Courier", "Courier-Bold", "Courier-Oblique", "Courier-BoldOblique"
+    };
+
+    // Standart Times metrikleri (1/1000 em), ASCII 32..126; WinAnsi'de 39 quotesingle, 96 grave
+    private static final int[][] TIMES_ASCII = {
+            { 250, 333, 408, 500, 500, 833, 778, 180, 333, 333, 500, 564, 250, 333, 250, 278,
+              500, 500, 500, 500, 500, 500, 500, 500, 500, 500, 278, 278, 564, 564, 564, 444,
+              921, 722, 667, 667, 722, 611, 556, 722, 722, 333, 389, 722, 611, 889, 722, 722,
+              556, 722, 667, 556, 611, 722, 722, 944, 722, 722, 611, 333, 278, 333, 469, 500,
+              333, 444, 500, 444, 500, 444, 333, 500, 500, 278, 278, 500, 278, 778, 500, 500,
+              500, 500, 333, 389, 278, 500, 500, 722, 500, 500, 444, 480, 200, 480, 541 },
+            { 250, 333, 555, 500, 500, 1000, 833, 278, 333, 333, 500, 570, 250, 333, 250, 278,
+              500, 500, 500, 500, 500, 500, 500, 500, 500, 500, 333, 333, 570, 570, 570, 500,
+              930, 722, 667, 722, 722, 667, 611, 778, 778, 389, 500, 778, 667, 944, 722, 778,
+              611, 778, 722, 556, 667, 722, 722, 1000, 722, 722, 667, 333, 278, 333, 581, 500,
+              333, 500, 556, 444, 556, 444, 333, 500, 556, 278, 333, 556, 278, 833, 556, 500,
+              556, 556, 444, 389, 333, 556, 500, 722, 500, 500, 444, 394, 220, 394, 520 },
+            { 250, 333, 420, 500, 500, 833, 778, 214, 333, 333, 500, 675, 250, 333, 250, 278,
+              500, 500, 500, 500, 500, 500, 500, 500, 500, 500, 333, 333, 675, 675, 675, 500,
+              920, 611, 611, 667, 722, 611, 611, 722, 722, 333, 444, 667, 556, 833, 667, 722,
+              611, 722, 611, 500, 556, 722, 611, 833, 611, 556, 556, 389, 278, 389, 422, 500,
+              333, 500, 500, 444, 500, 444, 278, 500, 500, 278, 278, 444, 278, 722, 500, 500,
+              500, 500, 389, 389, 278, 500, 444, 667, 444, 444, 389, 400, 275, 400, 541 },
+            { 250, 389, 555, 500, 500, 833, 778, 278, 333, 333, 500, 570, 250, 333, 250, 278,
+              500, 500, 500, 500, 500, 500, 500, 500, 500, 500, 333, 333, 570, 570, 570, 500,
+              832, 667, 667, 667, 722, 667, 667, 722, 778, 389, 500, 667, 611, 889, 722, 722,
+              611, 722, 667, 556, 611, 722, 667, 889, 667, 611, 611, 333, 278, 333, 570, 500,
+              333, 500, 500, 444, 500, 444, 333, 500, 556, 278, 278, 500, 278, 778, 556, 500,
+              500, 500, 389, 389, 278, 556, 444, 667, 500, 444, 389, 348, 220, 348, 570 }
+    };
+
+    /** Karakter → 1254 kodu; kodlanamayan karakterler '?' olur. */
+    private static final byte[] CODES = new byte[65536];
+    /** Yazı tipi → kod → genişlik. */
+    private static final int[][] WIDTHS = new int[FONT_NAMES.length][256];
+
+    static {
+        Arrays.fill(CODES, (byte) '?');
+        byte[] all = new byte[256];
+        for (int i = 0; i < 256; i++) all[i] = (byte) i;
+        String decoded = new String(all, ENCODING);
+        for (int code = 255; code >= 32; code--) {
+            char c = decoded.charAt(code);
+            if (c != '\uFFFD') CODES[c] = (byte) code;
+        }
+        for (int font = 0; font < FONT_NAMES.length; font++) {
+            for (int code = 0; code < 256; code++) {
+                WIDTHS[font][code] = font >= 4 ? 600 : timesWidth(font, decoded.charAt(code));
+            }
+        }
+    }
+
+    private static int timesWidth(int style, char c) {
+        if (c >= 32 && c <= 126) return TIMES_ASCII[style][c - 32];
+        switch (c) {
+            case 'ı': return TIMES_ASCII[style]['i' - 32];
+            case '\u2013': return 500;
+            case '\u2014': case '\u2026': case '\u2030': return 1000;
+            case '\u2018': case '\u2019': case '\u201A': return 333;
+            case '\u201C': case '\u201D': case '\u201E': return 444;
+            case '\u2022': return 350;
+            case '\u00A0': return 250;
+        }
+        // Aksanlı harfler taban harfin genişliğini alır (ç → c, Ş → S)
+        String base = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+        char b = base.charAt(0);
+        if (b >= 32 && b <= 126) return TIMES_ASCII[style][b - 32];
+        return 500;
+    }
+
+    /**
+     * Windows-1254'te karşılığı olmayan, PDF'e '?' olarak yazılacak karakter
+     * sayısı. Denetim karakterleri boşluk olur, sayılmaz.
+     */
+    public static int countUnencodable(UdfDocument document) {
+        int count = 0;
+        for (UdfParagraph paragraph : document.getParagraphs()) {
+            String text = paragraph.getResolvedText();
+            if (text == null) continue;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c >= 32 && c != '?' && CODES[c] == '?') count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Belgeyi PDF olarak yazar; sayfa sayısını döner. Akış kapatılmaz.
+     * İptal edilirse (cancellation) null yerine IOException fırlatır.
+     */
+    public static int write(UdfDocument document, OutputStream os,
+                            UdfPagination.Cancellation cancellation) throws IOException {
+        return write(document, os, cancellation, false);
+    }
+
+    /** compact: içerik akışlarını sıkıştır, aynı sayfaları paylaştır. */
+    public static int write(UdfDocument document, OutputStream os,
+                            UdfPagination.Cancellation cancellation, boolean compact) throws IOException {
+        UdfPdfWriter writer = new UdfPdfWriter(document, os, compact);
+        try {
+            return writer.write(cancellation);
+        } finally {
+            if (writer.deflater != null) writer.deflater.end();
+        }
+    }
+
+    private final UdfDocument document;
+    private final UdfStyleTable table;
+    private final UdfAnnotationIndex annotations;
+    private final PdfOutput out;
+    private long[] offsets = new long[64];
+    private int nextId = 1;
+    private final boolean[] usedFonts = new boolean[FONT_NAMES.length];
+
+    // Sıkı kip: yeniden kullanılan sıkıştırıcı ve içerik özeti → nesne numarası
+    private final Deflater deflater;
+    private final MessageDigest digest;
+    private final Map<String, Integer> sharedContents;
+    private byte[] packed;
+
+    private UdfPdfWriter(UdfDocument document, OutputStream os, boolean compact) {
+        this.document = document;
+        this.table = document.getStyleTable();
+        this.annotations = document.getAnnotations();
+        this.out = new PdfOutput(new BufferedOutputStream(os, 64 * 1024));
+        this.deflater = compact ? new Deflater(Deflater.BEST_SPEED) : null;
+        this.digest = compact ? sha1() : null;
+        this.sharedContents = compact ? new HashMap<>() : null;
+    }
+
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private int write(UdfPagination.Cancellation cancellation) throws IOException {
+        long t = PerfMetrics.start();
+        UdfStyle defaultStyle = document.getDefaultStyle();
+        float textSize = defaultStyle != null ? defaultStyle.getSize() : 12f;
+        UdfPagination layout = UdfPagination.paginate(document, PAGE_WIDTH, PAGE_HEIGHT, MARGIN,
+                textSize, LINE_HEIGHT_FACTOR, new WidthMeasurer(), cancellation);
+        if (layout == null) throw new IOException("PDF oluşturma iptal edildi");
+
+        int catalogId = nextId++;
+        int pagesId = nextId++;
+        int resourcesId = nextId++;
+        int encodingId = nextId++;
+
+        out.ascii("%PDF-1.4\n%âãÏÓ\n");
+
+        int[] pageIds = new int[layout.getPageCount()];
+        ByteArrayOutputStream content = new ByteArrayOutputStream(16 * 1024);
+        Map<UdfAnnotation, Float> notes = new LinkedHashMap<>();
+        for (int i = 0; i < layout.getPageCount(); i++) {
+            if (cancellation != null && cancellation.isCancelled()) {
+                throw new IOException("PDF oluşturma iptal edildi");
+            }
+            content.reset();
+            notes.clear();
+            drawPage(new PdfOutput(content), layout, i, notes);
+            int contentId = writeContent(content);
+            String annots = notes.isEmpty() ? "" : writeNotes(notes, layout);
+
+            pageIds[i] = nextId++;
+            beginObject(pageIds[i]);
+            out.ascii("<< /Type /Page /Parent " + pagesId + " 0 R /MediaBox [0 0 "
+                    + PAGE_WIDTH + " " + PAGE_HEIGHT + "] /Resources " + resourcesId
+                    + " 0 R /Contents " + contentId + " 0 R" + annots + " >>\nendobj\n");
+        }
+
+        // Kaynaklar: yalnızca kullanılan yazı tipleri
+        StringBuilder fonts = new StringBuilder();
+        for (int f = 0; f < FONT_NAMES.length; f++) {
+            if (!usedFonts[f]) continue;
+            int fontId = nextId++;
+            beginObject(fontId);
+            out.ascii("<< /Type /Font /Subtype /Type1 /BaseFont /" + FONT_NAMES[f]
+                    + " /Encoding " + encodingId + " 0 R >>\nendobj\n");
+            fonts.append(" /F").append(f).append(' ').append(fontId).append(" 0 R");
+        }
+        beginObject(encodingId);
+        out.ascii("<< /Type /Encoding /BaseEncoding /WinAnsiEncoding /Differences "
+                + DIFFERENCES + " >>\nendobj\n");
+        beginObject(resourcesId);
+        out.ascii("<< /ProcSet [/PDF /Text] /Font <<" + fonts + " >> >>\nendobj\n");
+
+        beginObject(pagesId);
+        StringBuilder kids = new StringBuilder();
+        for (int id : pageIds) kids.append(id).append(" 0 R ");
+        out.ascii("<< /Type /Pages /Kids [" + kids + "] /Count " + pageIds.length + " >>\nendobj\n");
+        beginObject(catalogId);
+        out.ascii("<< /Type /Catalog /Pages " + pagesId + " 0 R >>\nendobj\n");
+
+        long xref = out.count;
+        out.ascii("xref\n0 " + nextId + "\n0000000000 65535 f \n");
+        for (int id = 1; id < nextId; id++) {
+            String offset = Long.toString(offsets[id]);
+            out.ascii("0000000000".substring(offset.length()) + offset + " 00000 n \n");
+        }
+        out.ascii("trailer\n<< /Size " + nextId + " /Root " + catalogId + " 0 R >>\nstartxref\n"
+                + xref + "\n%%EOF\n");
+        out.flush();
+        PerfMetrics.stop("export.pdfWriter", t);
+        return pageIds.length;
+    }
+
+    /** Sayfa içeriğini akış nesnesi olarak yazar; sıkı kipte aynısı varsa onu döner. */
+    private int writeContent(ByteArrayOutputStream content) throws IOException {
+        if (deflater == null) {
+            int contentId = nextId++;
+            beginObject(contentId);
+            out.ascii("<< /Length " + content.size() + " >>\nstream\n");
+            content.writeTo(out);
+            out.ascii("\nendstream\nendobj\n");
+            return contentId;
+        }
+
+        byte[] raw = content.toByteArray();
+        String key = new String(digest.digest(raw), StandardCharsets.ISO_8859_1);
+        Integer shared = sharedContents.get(key);
+        if (shared != null) {
+            PerfMetrics.count("export.pdfWriter.sharedPages");
+            return shared;
+        }
+
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        if (packed == null || packed.length < raw.length + 64) packed = new byte[raw.length + raw.length / 8 + 64];
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == packed.length) packed = Arrays.copyOf(packed, packed.length * 2);
+            length += deflater.deflate(packed, length, packed.length - length);
+        }
+
+        int contentId = nextId++;
+        beginObject(contentId);
+        out.ascii("<< /Length " + length + " /Filter /FlateDecode >>\nstream\n");
+        out.write(packed, 0, length);
+        out.ascii("\nendstream\nendobj\n");
+        sharedContents.put(key, contentId);
+        return contentId;
+    }
+
+    /**
+     * Sayfadaki notları sağ kenar boşluğunda, notun sayfadaki ilk satırı
+     * hizasında /Text açıklaması olarak yazar; sayfa sözlüğünün /Annots
+     * girdisini döner. Metin UTF-16BE (BOM'lu) onaltılık dizgidir.
+     */
+    private String writeNotes(Map<UdfAnnotation, Float> notes, UdfPagination layout) throws IOException {
+        float left = layout.getPageWidth() - layout.getMargin() + 16f;
+        StringBuilder ids = new StringBuilder(" /Annots [");
+        for (Map.Entry<UdfAnnotation, Float> note : notes.entrySet()) {
+            UdfAnnotation annotation = note.getKey();
+            float top = note.getValue();
+            int id = nextId++;
+            beginObject(id);
+            out.ascii("<< /Type /Annot /Subtype /Text /Name /Comment /F 4 /Rect [" + number(left) + " "
+                    + number(top - 20f) + " " + number(left + 20f) + " " + number(top) + "] /C ["
+                    + rgb(annotation.opaqueColor()) + "] /Contents <" + utf16Hex(annotation.getNote())
+                    + "> >>\nendobj\n");
+            ids.append(id).append(" 0 R ");
+        }
+        return ids.append(']').toString();
+    }
+
+    private static String utf16Hex(String text) {
+        StringBuilder sb = new StringBuilder(4 + text.length() * 4).append("FEFF");
+        for (int i = 0; i < text.length(); i++) {
+            String hex = Integer.toHexString(text.charAt(i) | 0x10000);
+            sb.append(hex, 1, 5);
+        }
+        return sb.toString();
+    }
+
+    private void beginObject(int id) throws IOException {
+        if (id >= offsets.length) offsets = Arrays.copyOf(offsets, Math.max(id + 1, offsets.length * 2));
+        offsets[id] = out.count;
+        out.ascii(id + " 0 obj\n");
+    }
+
+    // ── Çizim ────────────────────────────────────────────────────────────────
+
+    private void drawPage(PdfOutput page, UdfPagination layout, int index,
+                          Map<UdfAnnotation, Float> notes) throws IOException {
+        if (!annotations.isEmpty()) drawHighlights(page, layout, index, notes);
+        List<UdfParagraph> paragraphs = document.getParagraphs();
+        float contentWidth = layout.getPageWidth() - 2f * layout.getMargin();
+        List<float[]> underlines = new ArrayList<>();
+        int styled = -1;
+        int font = -1;
+        float size = 0f;
+        int color = 0;
+        int align = 0;
+        // Satır başı yüzdelik birimde; Td bir öncekine göre taşır, drift olmaz
+        int lineX = 0;
+        int lineY = 0;
+        UdfStyleTable.Entry entry = null;
+        String text = null;
+
+        page.ascii("BT\n");
+        for (UdfPagination.Line line : layout.getPage(index)) {
+            UdfParagraph paragraph = paragraphs.get(line.paragraph);
+            if (line.paragraph != styled) {
+                // İlk span'ın stilini al (UdfPdfExporter ile aynı yaklaşım)
+                entry = table.get(paragraph.getSpans().get(0));
+                int f = fontIndex(entry);
+                float s = scaledSize(entry, layout.getTextSize());
+                if (f != font || s != size) {
+                    page.ascii("/F" + f + " " + number(s) + " Tf\n");
+                    font = f;
+                    size = s;
+                    usedFonts[f] = true;
+                }
+                if (styled < 0 || entry.color != color) {
+                    page.ascii(rgb(entry.color) + " rg\n");
+                    color = entry.color;
+                }
+                align = paragraph.getAlignment();
+                // Sayfadaki satırları ardışık; paragraf metni bir kez okunur
+                text = paragraph.getResolvedText();
+                styled = line.paragraph;
+            }
+            float width = width(font, size, text, line.start, line.end);
+            float x = layout.getMargin();
+            if (align == 1) x += (contentWidth - width) / 2f;
+            else if (align == 2) x += contentWidth - width;
+            float y = layout.getPageHeight() - line.baseline;
+            int px = Math.round(x * 100f);
+            int py = Math.round(y * 100f);
+            // Göreli konum: sola yaslı satırlarda hep aynı "0 -dy Td", iyi sıkışır
+            page.ascii(hundredths(px - lineX) + " " + hundredths(py - lineY) + " Td\n(");
+            lineX = px;
+            lineY = py;
+            writeString(page, text, line.start, line.end);
+            page.ascii(") Tj\n");
+            if (entry.underline) {
+                underlines.add(new float[]{x, y - size * 0.2f, x + width, entry.color});
+            }
+        }
+        page.ascii("ET\n");
+
+        // Çizgiler metin nesnesinin dışında çizilir
+        if (!underlines.isEmpty()) {
+            page.ascii("0.8 w\n");
+            for (float[] u : underlines) {
+                page.ascii(rgb((int) u[3]) + " RG " + number(u[0]) + " " + number(u[1]) + " m "
+                        + number(u[2]) + " " + number(u[1]) + " l S\n");
+            }
+        }
+    }
+
+    /**
+     * Satırlara düşen vurguları metin nesnesinden önce boyar (metin üstte
+     * kalsın). Notlu vurguların sayfadaki ilk satırının üst kenarı notes'a
+     * eklenir.
+     */
+    private void drawHighlights(PdfOutput page, UdfPagination layout, int index,
+                                Map<UdfAnnotation, Float> notes) throws IOException {
+        List<UdfParagraph> paragraphs = document.getParagraphs();
+        float contentWidth = layout.getPageWidth() - 2f * layout.getMargin();
+        List<float[]> rects = new ArrayList<>();
+        int resolved = -1;
+        String paragraphText = null;
+        for (UdfPagination.Line line : layout.getPage(index)) {
+            UdfParagraph paragraph = paragraphs.get(line.paragraph);
+            UdfStyleTable.Entry entry = table.get(paragraph.getSpans().get(0));
+            int font = fontIndex(entry);
+            float size = scaledSize(entry, layout.getTextSize());
+            if (line.paragraph != resolved) {
+                paragraphText = paragraph.getResolvedText();
+                resolved = line.paragraph;
+            }
+            String text = paragraphText;
+            float lineWidth = width(font, size, text, line.start, line.end);
+            int align = paragraph.getAlignment();
+            float x = layout.getMargin() + (align == 1 ? (contentWidth - lineWidth) / 2f
+                    : align == 2 ? contentWidth - lineWidth : 0f);
+            float y = layout.getPageHeight() - line.baseline;
+            annotations.forParagraph(paragraph, line.start, line.end, (from, to, annotation) -> {
+                // Renk 24 bit; float'a kayıpsız sığar
+                rects.add(new float[]{x + width(font, size, text, line.start, from), y - size * 0.25f,
+                        width(font, size, text, from, to), size * 1.15f, annotation.opaqueColor() & 0xFFFFFF});
+                if (annotation.hasNote() && !notes.containsKey(annotation)) notes.put(annotation, y + size);
+            });
+        }
+        int fill = -1;
+        for (float[] r : rects) {
+            if ((int) r[4] != fill) {
+                fill = (int) r[4];
+                page.ascii(rgb(fill) + " rg ");
+            }
+            page.ascii(number(r[0]) + " " + number(r[1]) + " "
+                    + number(r[2]) + " " + number(r[3]) + " re f\n");
+        }
+    }
+
+    private static int fontIndex(UdfStyleTable.Entry entry) {
+        return ("monospace".equals(entry.family) ? 4 : 0) + (entry.bold ? 1 : 0) + (entry.italic ? 2 : 0);
+    }
+
+    /** UdfPdfExporter.applyStyle gibi: boyut sayfalamanın taban boyutuna orantılı. */
+    private float scaledSize(UdfStyleTable.Entry entry, float baseSize) {
+        UdfStyleTable.Entry base = table.getDefault();
+        return base.size > 0 ? baseSize * entry.size / base.size : baseSize;
+    }
+
+    private static float width(int font, float size, String text, int start, int end) {
+        int[] widths = WIDTHS[font];
+        long units = 0;
+        for (int i = start; i < end; i++) units += widths[code(text.charAt(i))];
+        return units * size / 1000f;
+    }
+
+    private static int code(char c) {
+        return c < 32 ? ' ' : CODES[c] & 0xFF;
+    }
+
+    private static void writeString(PdfOutput page, String text, int start, int end) throws IOException {
+        for (int i = start; i < end; i++) {
+            int b = code(text.charAt(i));
+            if (b == '(' || b == ')' || b == '\\') page.write('\\');
+            page.write(b);
+        }
+    }
+
+    private static String rgb(int color) {
+        return number(((color >> 16) & 0xFF) / 255f) + " " + number(((color >> 8) & 0xFF) / 255f)
+                + " " + number((color & 0xFF) / 255f);
+    }
+
+    /** İki ondalığa yuvarlanmış sayı; String.format sayfa başına yüzlerce çağrıda pahalı. */
+    private static String number(float v) {
+        return hundredths(Math.round(v * 100f));
+    }
+
+    private static String hundredths(int hundredths) {
+        if (hundredths % 100 == 0) return Integer.toString(hundredths / 100);
+        StringBuilder sb = new StringBuilder(12);
+        if (hundredths < 0) {
+            sb.append('-');
+            hundredths = -hundredths;
+        }
+        int fraction = hundredths % 100;
+        sb.append(hundredths / 100).append('.');
+        if (fraction < 10) sb.append('0');
+        sb.append(fraction);
+        return sb.toString();
+    }
+
+    private final class WidthMeasurer implements UdfPagination.Measurer {
+        private int font;
+        private float size;
+
+        @Override
+        public void setStyle(UdfSpan span) {
+            UdfStyleTable.Entry entry = table.get(span);
+            UdfStyle defaultStyle = document.getDefaultStyle();
+            font = fontIndex(entry);
+            size = scaledSize(entry, defaultStyle != null ? defaultStyle.getSize() : 12f);
+        }
+
+        @Override
+        public float measure(String text, int start, int end) {
+            return width(font, size, text, start, end);
+        }
+    }
+
+    /** Yazılan bayt sayısını tutar (xref konumları için). */
+    private static final class PdfOutput extends OutputStream {
+        private final OutputStream out;
+        long count;
+
+        PdfOutput(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        void ascii(String s) throws IOException {
+            write(s.getBytes(StandardCharsets.ISO_8859_1));
+        }
+    }
+}
@@ -7,7 +7,9 @@ public class UdfSpan {
     private boolean italic;
     private boolean underline;
     private boolean space;
-    private String resolvedText = "";
+    private int styleIndex = -1;   // UdfStyleTable sırası; -1 = belgenin varsayılanı
+    // Metin kopyalanmaz; gerektikçe belgenin tam metninden (UdfTextStore) okunur
+    private CharSequence source;
 
     public int getStartOffset() { return startOffset; }
     public void setStartOffset(int startOffset) { this.startOffset = startOffset; }
@@ -27,13 +29,50 @@ public class UdfSpan {
     public boolean isSpace() { return space; }
     public void setSpace(boolean space) { this.space = space; }
 
-    public String getResolvedText() { return resolvedText; }
-    public void setResolvedText(String resolvedText) { this.resolvedText = resolvedText; }
+    public int getStyleIndex() { return styleIndex; }
+    public void setStyleIndex(int styleIndex) { this.styleIndex = styleIndex; }
 
-    public String extractText(String fullText) {
+    /** Span'ın metni; her çağrıda tam metinden kopyalanır, döngülerde tekrarlanmamalı. */
+    public String getResolvedText() { return extractText(source); }
+
+    /** Span'ı tam metne bağlar (bkz. UdfParagraph.resolveText). */
+    void setSource(CharSequence source) { this.source = source; }
+
+    /** Kırpılmış metin uzunluğu; metni kopyalamaz. */
+    public int getResolvedLength() {
+        if (source == null || startOffset < 0 || length <= 0 || startOffset >= source.length()) return 0;
+        return (int) Math.min((long) length, source.length() - startOffset);
+    }
+
+    /** Aralıkta String.trim'in atmayacağı karakter yoksa. */
+    boolean isBlank() {
+        for (int i = startOffset, end = startOffset + getResolvedLength(); i < end; i++) {
+            if (source.charAt(i) > ' ') return false;
+        }
+        return true;
+    }
+
+    /** Kırpılmış aralığı dst'ye ekler; String ara kopyası yapmaz. */
+    void appendTo(StringBuilder dst) {
+        int n = getResolvedLength();
+        if (n > 0) dst.append(source, startOffset, startOffset + n);
+    }
+
+    /**
+     * Span metnin dışını gösteriyor mu (negatif konum/uzunluk ya da metin
+     * sonunu aşan aralık). Böyle span'ler extractText'te kırpılır ve
+     * ayrıştırıcı tarafından sayılıp bildirilir.
+     */
+    public boolean isOutOfRange(int textLength) {
+        if (startOffset < 0 || length < 0) return true;
+        return (long) startOffset + length > textLength;
+    }
+
+    /** fullText String ya da parçalı UdfTextStore olabilir; span aralığı kopyalanır. */
+    public String extractText(CharSequence fullText) {
         if (fullText == null || startOffset < 0 || length <= 0) return "";
-        int end = Math.min(startOffset + length, fullText.length());
+        int end = (int) Math.min((long) startOffset + length, fullText.length());
         if (startOffset >= fullText.length()) return "";
-        return fullText.substring(startOffset, end);
+        return fullText.subSequence(startOffset, end).toString();
     }
 }
@@ -0,0 +1,744 @@
+package com.udfviewer.app;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * UDF ayrıştırmasının platformdan bağımsız çekirdeği: ZIP akışında
+ * content.xml'i bulur, bütçe sınırları içinde açar ve UdfDocument kurar.
+ * Android'e bağlı değildir (XmlPullParser için JVM'de kxml2 yeterlidir);
+ * uygulamadaki UdfParser ve sunucu tarafı toplu dönüştürücü aynı kodu
+ * kullanır. Örnek durum tutmaz, iş parçacıkları arasında paylaşılabilir.
+ *
+ * content.xml şeması:
+ *   <template>
+ *     <content><![CDATA[düz metin]]></content>
+ *     <properties> sayfa ayarları </properties>
+ *     <elements resolver="...">
+ *       <paragraph Alignment="...">
+ *         <content bold="true" startOffset="N" length="M" />
+ *         <image src="resim1.png" width="W" height="H" />   (ya da imageData="base64")
+ *         <attachment src="ek1.pdf" name="..." />
+ *         ...
+ *       </paragraph>
+ *     </elements>
+ *     <styles>
+ *       <style name="..." family="..." size="..." bold="..." italic="..." />
+ *     </styles>
+ *   </template>
+ */
+public class UdfStreamParser {
+
+    // Bunun altındaki content.xml için ikinci iş parçacığının maliyeti kazançtan büyük
+    private static final long PIPELINE_MIN_BYTES = 256 * 1024;
+
+    private final UdfParseLimits limits;
+    private volatile boolean pipelined = true;
+    private volatile File textSpillDir;
+    private volatile long textSpillChars = Long.MAX_VALUE;
+    private volatile int textCacheChunks = 16;
+
+    public UdfStreamParser() {
+        this(UdfParseLimits.DEFAULT);
+    }
+
+    public UdfStreamParser(UdfParseLimits limits) {
+        this.limits = limits;
+    }
+
+    /**
+     * Büyük belgelerde açma ve ayrıştırmanın iki iş parçacığında yürümesi.
+     * Tüm çekirdekleri zaten dolu tutan toplu işlerde kapatılır.
+     */
+    public UdfStreamParser setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+        return this;
+    }
+
+    /**
+     * thresholdChars karakteri aşan ana metin dir altında bellek eşlemeli
+     * geçici dosyaya yazılır; bellekte cacheChunks parçalık önbellek kalır.
+     * dir null ise metin her zaman bellekte (parçalı) tutulur. Dosya belge
+     * kapatılırken UdfDocument.discardSpill ile silinir.
+     */
+    public UdfStreamParser setTextSpill(File dir, long thresholdChars, int cacheChunks) {
+        this.textSpillDir = dir;
+        this.textSpillChars = thresholdChars;
+        this.textCacheChunks = cacheChunks;
+        return this;
+    }
+
+    /**
+     * Paragrafları belge kurmadan, metinleri çözümlenir çözümlenmez alan
+     * ziyaretçi. Çağrılar ayrıştıran iş parçacığında ve belge sırasıyla
+     * yapılır; ziyaretçi dönene kadar okuma ilerlemez, yavaş tüketici akışı
+     * kendiliğinden yavaşlatır. false dönmek ayrıştırmayı durdurur, akış
+     * kapatılır. Ziyaretçiye verilen paragraf ayrıştırıcıda tutulmaz.
+     *
+     * Span biçimleri <styles> belgenin sonunda geldiğinden bu yolda
+     * çözümlenmez: getStyleIndex -1'dir, bold/italic/underline öznitelikleri
+     * doludur.
+     */
+    public interface ParagraphVisitor {
+        boolean visit(int index, UdfParagraph paragraph) throws Exception;
+    }
+
+    /**
+     * UDF (ZIP) akışını ayrıştırır. Akış okunup kapatılır. Belgenin kaynağı
+     * (setSource) çağıranca atanır.
+     */
+    public UdfDocument parse(InputStream inputStream) throws Exception {
+        DocumentSink sink = new DocumentSink();
+        boolean parsed = false;
+        try {
+            read(inputStream, sink);
+            parsed = true;
+        } finally {
+            if (!parsed) sink.discardText();
+        }
+        UdfDocument document = sink.document;
+
+        if (PerfMetrics.isEnabled()) {
+            int spans = 0;
+            for (UdfParagraph p : document.getParagraphs()) spans += p.getSpans().size();
+            PerfMetrics.document(sink.compressedBytes, sink.xmlBytes, document.getText().length(),
+                    document.getParagraphCount(), spans);
+        }
+        return document;
+    }
+
+    /**
+     * UDF akışındaki paragrafları sırayla ziyaretçiye verir; UdfDocument
+     * kurulmaz. Bellekte ana metin ve o anki paragraf tutulur (<content>
+     * şemadaki gibi <elements>'ten önce geliyorsa; sonra geliyorsa
+     * paragraflar metin gelene kadar bekletilir). Ziyaretçinin gördüğü
+     * paragraf sayısını döner. Akış her durumda kapatılır.
+     */
+    public int parse(InputStream inputStream, ParagraphVisitor visitor) throws Exception {
+        VisitorSink sink = new VisitorSink(visitor);
+        try {
+            read(inputStream, sink);
+        } finally {
+            // Dosya adı silinir; ziyaretçinin tuttuğu paragraflar eşleme üzerinden okunmaya devam eder
+            sink.discardText();
+        }
+        return sink.visited;
+    }
+
+    /** Önizleme için ilk maxParagraphs paragraf; dosyanın geri kalanı okunmaz. */
+    public List<UdfParagraph> preview(InputStream inputStream, final int maxParagraphs) throws Exception {
+        final List<UdfParagraph> paragraphs = new ArrayList<>();
+        if (maxParagraphs <= 0) {
+            inputStream.close();
+            return paragraphs;
+        }
+        parse(inputStream, (index, paragraph) -> {
+            paragraphs.add(paragraph);
+            return paragraphs.size() < maxParagraphs;
+        });
+        return paragraphs;
+    }
+
+    private void read(InputStream inputStream, Sink sink) throws Exception {
+        // ZIP içinden content.xml'i bul; metin bellekte tek String olarak
+        // biriktirilmez, ayrıştırıcıya Reader ile akıtılır
+        CountingInputStream compressed = new CountingInputStream(inputStream);
+        ZipInputStream zis = new ZipInputStream(compressed);
+        ZipEntry entry;
+        while ((entry = zis.getNextEntry()) != null) {
+            if ("content.xml".equals(entry.getName())) break;
+        }
+        if (entry == null) {
+            zis.close();
+            throw new Exception("Geçersiz UDF dosyası: content.xml bulunamadı");
+        }
+        // Başlıkta boyut yazıyorsa bütçe aşımı okumadan anlaşılır
+        if (entry.getSize() > limits.getMaxDecompressedBytes()) {
+            zis.close();
+            throw limitExceeded("decompressed", "açılmış content.xml boyutu",
+                    entry.getSize(), limits.getMaxDecompressedBytes());
+        }
+        InputStream content = new BoundedInputStream(zis, compressed, compressed.count);
+
+        // Büyük belgelerde açma ve ayrıştırma iki çekirdekte eşzamanlı yürür
+        boolean pipeline = pipelined && Runtime.getRuntime().availableProcessors() > 1
+                && (entry.getSize() < 0 || entry.getSize() >= PIPELINE_MIN_BYTES);
+        if (pipeline) {
+            PipelinedReader reader = new PipelinedReader(content);
+            try {
+                parseContentXml(reader, sink);
+            } finally {
+                reader.close();
+            }
+            sink.xmlBytes = reader.getBytesRead();
+        } else {
+            long t = PerfMetrics.start();
+            CountingInputStream counting = new CountingInputStream(content);
+            try (Reader reader = new InputStreamReader(counting, StandardCharsets.UTF_8)) {
+                parseContentXml(reader, sink);
+            }
+            sink.xmlBytes = counting.count;
+            PerfMetrics.stop("inflate+parse", t);
+        }
+        sink.compressedBytes = entry.getCompressedSize();
+    }
+
+    /**
+     * Ayrıştırılan paragrafların gittiği yer. Paragraf, ana metin bilindiği
+     * anda çözümlenip accept'e verilir; metin henüz gelmediyse bekletilir.
+     */
+    private abstract static class Sink {
+        long compressedBytes;
+        long xmlBytes;
+        UdfTextStore fullText;
+        int outOfRange;
+        private final ArrayDeque<UdfParagraph> pending = new ArrayDeque<>();
+
+        /** false ayrıştırmayı durdurur. */
+        abstract boolean accept(UdfParagraph paragraph) throws Exception;
+
+        /** Span biçimleri tabloya bildirilsin mi (belge sonunda çözümlenir). */
+        abstract boolean declaresStyles();
+
+        /** Belge sonuna kadar okunduğunda; durdurulan ayrıştırmada çağrılmaz. */
+        void finish(Map<String, UdfStyle> styles, String defaultStyleName,
+                    UdfStyleTable.Builder styleBuilder) {}
+
+        final boolean paragraph(UdfParagraph paragraph) throws Exception {
+            if (fullText == null) {
+                pending.add(paragraph);
+                return true;
+            }
+            outOfRange += paragraph.resolveText(fullText);
+            return accept(paragraph);
+        }
+
+        final boolean text(UdfTextStore text) throws Exception {
+            if (fullText != null && fullText != text) fullText.discard();
+            fullText = text;
+            while (!pending.isEmpty()) {
+                if (!paragraph(pending.poll())) return false;
+            }
+            return true;
+        }
+
+        final void discardText() {
+            if (fullText != null) fullText.discard();
+        }
+
+        /** Metni hiç olmayan belgede bekleyen paragraflar çözümlenmeden verilir. */
+        final boolean flush() throws Exception {
+            while (!pending.isEmpty()) {
+                if (!accept(pending.poll())) return false;
+            }
+            return true;
+        }
+    }
+
+    private static final class DocumentSink extends Sink {
+        final UdfDocument document = new UdfDocument();
+        private final List<UdfParagraph> paragraphs = new ArrayList<>();
+
+        @Override
+        boolean accept(UdfParagraph paragraph) {
+            paragraphs.add(paragraph);
+            return true;
+        }
+
+        @Override
+        boolean declaresStyles() {
+            return true;
+        }
+
+        @Override
+        void finish(Map<String, UdfStyle> styles, String defaultStyleName,
+                    UdfStyleTable.Builder styleBuilder) {
+            long t = PerfMetrics.start();
+            if (fullText != null) {
+                document.setText(fullText);
+                document.setOutOfRangeSpanCount(outOfRange);
+                if (outOfRange > 0) PerfMetrics.count("parse.outOfRangeSpans", outOfRange);
+            }
+            document.setParagraphs(paragraphs);
+            document.setStyles(styles);
+            document.setDefaultStyleName(defaultStyleName);
+
+            // <styles> okunduğuna göre span biçimleri çözümlenebilir
+            int[] remap = new int[styleBuilder.declaredCount()];
+            document.setStyleTable(styleBuilder.resolve(styles, defaultStyleName, remap));
+            for (UdfParagraph para : paragraphs) {
+                for (UdfSpan span : para.getSpans()) span.setStyleIndex(remap[span.getStyleIndex()]);
+            }
+            PerfMetrics.stop("resolve", t);
+        }
+    }
+
+    private static final class VisitorSink extends Sink {
+        private final ParagraphVisitor visitor;
+        int visited;
+
+        VisitorSink(ParagraphVisitor visitor) {
+            this.visitor = visitor;
+        }
+
+        @Override
+        boolean accept(UdfParagraph paragraph) throws Exception {
+            return visitor.visit(visited++, paragraph);
+        }
+
+        @Override
+        boolean declaresStyles() {
+            return false;
+        }
+    }
+
+    private void parseContentXml(Reader xml, Sink sink) throws Exception {
+        long t = PerfMetrics.start();
+        XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
+        factory.setNamespaceAware(false);
+        XmlPullParser parser = factory.newPullParser();
+        TextDivertingReader diverting = new TextDivertingReader(xml,
+                new UdfTextStore.Builder(textSpillDir, textSpillChars, textCacheChunks));
+        parser.setInput(diverting);
+        try {
+            parseContentXml(parser, diverting, sink);
+        } finally {
+            // Yarıda kalan ya da sink'e verilmemiş metnin geçici dosyası
+            diverting.abort();
+        }
+        PerfMetrics.stop("parse", t);
+    }
+
+    private void parseContentXml(XmlPullParser parser, TextDivertingReader diverting, Sink sink) throws Exception {
+        int totalSpans = 0;
+        int paragraphCount = 0;
+        boolean declaresStyles = sink.declaresStyles();
+        UdfStyleTable.Builder styleBuilder = new UdfStyleTable.Builder();
+        Map<String, UdfStyle> styles = new HashMap<>();
+        String defaultStyleResolver = "hvl-default";
+
+        String currentTag = null;
+        UdfParagraph currentParagraph = null;
+        boolean inElements = false;
+        boolean inStyles = false;
+
+        int eventType = parser.getEventType();
+        while (eventType != XmlPullParser.END_DOCUMENT) {
+            switch (eventType) {
+                case XmlPullParser.START_TAG:
+                    currentTag = parser.getName();
+
+                    if ("content".equals(currentTag) && !inElements) {
+                        // Ana metin içeriği - bir sonraki TEXT event'te CDATA gelecek
+                    } else if ("elements".equals(currentTag)) {
+                        inElements = true;
+                        defaultStyleResolver = getAttr(parser, "resolver", "hvl-default");
+                    } else if ("styles".equals(currentTag)) {
+                        inStyles = true;
+                    } else if (inElements && "paragraph".equals(currentTag)) {
+                        if (paragraphCount >= limits.getMaxParagraphs()) {
+                            throw limitExceeded("paragraphs", "paragraf sayısı",
+                                    paragraphCount + 1, limits.getMaxParagraphs());
+                        }
+                        currentParagraph = new UdfParagraph();
+                        // 0 sol, 1 orta, 2 sağ, 3 iki yana; tanınmayan değer sola yaslanır
+                        int align = parseInt(getAttr(parser, "Alignment", "0"));
+                        currentParagraph.setAlignment(align >= 0 && align <= 3 ? align : 0);
+                    } else if (inElements && currentParagraph != null && "content".equals(currentTag)) {
+                        checkSpanBudget(currentParagraph, ++totalSpans);
+                        UdfSpan span = new UdfSpan();
+                        span.setStartOffset(parseInt(getAttr(parser, "startOffset", "0")));
+                        span.setLength(parseInt(getAttr(parser, "length", "0")));
+                        span.setBold("true".equals(getAttr(parser, "bold", "false")));
+                        span.setItalic("true".equals(getAttr(parser, "italic", "false")));
+                        span.setUnderline("true".equals(getAttr(parser, "underline", "false")));
+                        if (declaresStyles) {
+                            span.setStyleIndex(declareStyle(styleBuilder, parser, span.isUnderline()));
+                        }
+                        currentParagraph.addSpan(span);
+                    } else if (inElements && currentParagraph != null && "space".equals(currentTag)) {
+                        checkSpanBudget(currentParagraph, ++totalSpans);
+                        UdfSpan span = new UdfSpan();
+                        span.setStartOffset(parseInt(getAttr(parser, "startOffset", "0")));
+                        span.setLength(parseInt(getAttr(parser, "length", "0")));
+                        span.setBold("true".equals(getAttr(parser, "bold", "false")));
+                        span.setSpace(true);
+                        if (declaresStyles) {
+                            span.setStyleIndex(declareStyle(styleBuilder, parser, false));
+                        }
+                        currentParagraph.addSpan(span);
+                    } else if (inElements && ("image".equals(currentTag) || "attachment".equals(currentTag))) {
+                        UdfMedia media = parseMedia(parser, currentTag);
+                        if (media.hasSource()) {
+                            if (currentParagraph != null) {
+                                currentParagraph.addMedia(media);
+                            } else {
+                                // Paragraf dışındaki görsel kendi paragrafında gösterilir
+                                if (paragraphCount >= limits.getMaxParagraphs()) {
+                                    throw limitExceeded("paragraphs", "paragraf sayısı",
+                                            paragraphCount + 1, limits.getMaxParagraphs());
+                                }
+                                UdfParagraph holder = new UdfParagraph();
+                                holder.addMedia(media);
+                                paragraphCount++;
+                                if (!sink.paragraph(holder)) return;
+                            }
+                        }
+                    } else if (inStyles && "style".equals(currentTag)) {
+                        UdfStyle style = new UdfStyle();
+                        style.setName(getAttr(parser, "name", "default"));
+                        style.setFamily(getAttr(parser, "family", "serif"));
+                        style.setSize(parseFloat(getAttr(parser, "size", "12")));
+                        style.setBold("true".equals(getAttr(parser, "bold", "false")));
+                        style.setItalic("true".equals(getAttr(parser, "italic", "false")));
+                        String foreground = getAttr(parser, "foreground", null);
+                        if (foreground != null) {
+                            try { style.setForeground((int) Long.parseLong(foreground.trim())); }
+                            catch (NumberFormatException ignored) {}
+                        }
+                        styles.put(style.getName(), style);
+                    }
+                    break;
+
+                case XmlPullParser.TEXT:
+                case XmlPullParser.CDSECT:
+                    if (!inElements && !inStyles && "content".equals(currentTag)) {
+                        // Ana metin ayrıştırıcıdan geldiyse (CDATA değil): bkz. TextDivertingReader
+                        if (!sink.text(UdfTextStore.of(parser.getText()))) return;
+                    }
+                    break;
+
+                case XmlPullParser.END_TAG:
+                    String endTag = parser.getName();
+                    if ("elements".equals(endTag)) {
+                        inElements = false;
+                    } else if ("styles".equals(endTag)) {
+                        inStyles = false;
+                    } else if (!inElements && !inStyles && "content".equals(endTag)) {
+                        // Metin gelene kadar bekletilen paragraflar şimdi çözümlenebilir
+                        UdfTextStore captured = diverting.takeText();
+                        if (captured != null && !sink.text(captured)) return;
+                    } else if (inElements && "paragraph".equals(endTag) && currentParagraph != null) {
+                        UdfParagraph done = currentParagraph;
+                        currentParagraph = null;
+                        paragraphCount++;
+                        if (!sink.paragraph(done)) return;
+                    }
+                    currentTag = null;
+                    break;
+            }
+            eventType = parser.next();
+        }
+        if (!sink.flush()) return;
+        sink.finish(styles, defaultStyleResolver, styleBuilder);
+    }
+
+    private void checkSpanBudget(UdfParagraph paragraph, int totalSpans) throws UdfLimitExceededException {
+        if (paragraph.getSpans().size() >= limits.getMaxSpansPerParagraph()) {
+            throw limitExceeded("spansPerParagraph", "paragraftaki span sayısı",
+                    paragraph.getSpans().size() + 1, limits.getMaxSpansPerParagraph());
+        }
+        if (totalSpans > limits.getMaxTotalSpans()) {
+            throw limitExceeded("totalSpans", "toplam span sayısı", totalSpans, limits.getMaxTotalSpans());
+        }
+    }
+
+    private static UdfLimitExceededException limitExceeded(String limit, String description, long value, long max) {
+        PerfMetrics.count("parse.limit." + limit);
+        return new UdfLimitExceededException(limit, description, value, max);
+    }
+
+    /**
+     * content.xml akışını bütçeye bağlar: açılan bayt sayısı ve açılan /
+     * okunan sıkıştırılmış bayt oranı her okumada denetlenir. Sıkıştırılmış
+     * sayaç ZipInputStream'in altındaki ham akıştadır; girdinin başındaki
+     * değer çıkarılarak yalnızca bu girdi hesaba katılır. Okuyan iş parçacığı
+     * kesilmişse (sunucuda süresi dolan istek) ayrıştırma
+     * InterruptedIOException ile durur.
+     */
+    private final class BoundedInputStream extends FilterInputStream {
+        private final CountingInputStream compressed;
+        private final long compressedStart;
+        private long count;
+
+        BoundedInputStream(InputStream in, CountingInputStream compressed, long compressedStart) {
+            super(in);
+            this.compressed = compressed;
+            this.compressedStart = compressedStart;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) check(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) check(n);
+            return n;
+        }
+
+        private void check(int n) throws IOException {
+            if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Ayrıştırma kesildi");
+            count += n;
+            if (count > limits.getMaxDecompressedBytes()) {
+                throw limitExceeded("decompressed", "açılmış content.xml boyutu",
+                        count, limits.getMaxDecompressedBytes());
+            }
+            if (count >= UdfParseLimits.RATIO_CHECK_MIN_BYTES) {
+                long packed = Math.max(1, compressed.count - compressedStart);
+                if (count / packed > limits.getMaxCompressionRatio()) {
+                    throw limitExceeded("ratio", "sıkıştırma oranı",
+                            count / packed, limits.getMaxCompressionRatio());
+                }
+            }
+        }
+    }
+
+    /** Sıralı modda açılan bayt sayısı için. */
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+
+    /**
+     * Ana metni (şemadaki ilk <content>, <content><![CDATA[...]]></content>)
+     * XML ayrıştırıcısına vermeden UdfTextStore'a aktarır; ayrıştırıcı boş
+     * bir <content></content> görür. Böylece yüzlerce MB'lık metin hiçbir
+     * aşamada tek String olmaz. Bitişik CDATA bölümleri (metinde "]]>"
+     * geçince yazıcıların böldüğü) birleştirilir, satır sonları XML'deki gibi
+     * \n'e çevrilir. İlk <content> bu biçimde değilse akış olduğu gibi geçer
+     * ve metin ayrıştırıcının TEXT olayından alınır.
+     */
+    private static final class TextDivertingReader extends Reader {
+        private static final String OPEN_TAG = "<content>";
+        private static final String CDATA = "<![CDATA[";
+        private static final int SEARCH = 0;   // ilk <content> aranıyor
+        private static final int OPENED = 1;   // <content> geçti, CDATA bekleniyor
+        private static final int TEXT = 2;     // metin aktarılıyor
+        private static final int AFTER = 3;    // ]]> geçti, bitişik CDATA olabilir
+        private static final int PASS = 4;     // geri kalan olduğu gibi geçer
+
+        private final Reader in;
+        private final UdfTextStore.Builder builder;
+        private UdfTextStore text;
+        private final char[] buf = new char[16 * 1024];
+        private int pos;
+        private int limit;
+        private int state = SEARCH;
+        private int matched;      // OPEN_TAG ya da CDATA'dan eşleşen karakter sayısı
+        private int brackets;     // metinde bekletilen ']' sayısı
+        private boolean lastCr;
+        private String pending = "";  // eşleşmeyen ön ek; ayrıştırıcıya geri verilir
+        private int pendingPos;
+
+        TextDivertingReader(Reader in, UdfTextStore.Builder builder) {
+            this.in = in;
+            this.builder = builder;
+        }
+
+        /** Aktarılan metin; sahipliği çağırana geçer. Metin yoksa ya da bitmediyse null. */
+        UdfTextStore takeText() {
+            UdfTextStore t = text;
+            text = null;
+            return t;
+        }
+
+        void abort() {
+            builder.abort();
+            if (text != null) {
+                text.discard();
+                text = null;
+            }
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            int n = 0;
+            while (n < len) {
+                if (pendingPos < pending.length()) {
+                    int k = Math.min(len - n, pending.length() - pendingPos);
+                    pending.getChars(pendingPos, pendingPos + k, cbuf, off + n);
+                    pendingPos += k;
+                    n += k;
+                    continue;
+                }
+                if (pos == limit) {
+                    if (n > 0) break;
+                    int r = in.read(buf, 0, buf.length);
+                    if (r < 0) {
+                        endOfInput();
+                        if (pendingPos < pending.length()) continue;
+                        break;
+                    }
+                    pos = 0;
+                    limit = r;
+                }
+                if (state == PASS) {
+                    int k = Math.min(len - n, limit - pos);
+                    System.arraycopy(buf, pos, cbuf, off + n, k);
+                    pos += k;
+                    n += k;
+                } else if (state == TEXT) {
+                    divert();
+                } else {
+                    char c = buf[pos++];
+                    if (state == SEARCH) {
+                        cbuf[off + n++] = c;
+                        if (c == OPEN_TAG.charAt(matched)) {
+                            if (++matched == OPEN_TAG.length()) {
+                                state = OPENED;
+                                matched = 0;
+                            }
+                        } else if (matched == OPEN_TAG.length() - 1) {
+                            // İlk <content> öznitelikli: ana metin değil (ya da şema farklı)
+                            state = PASS;
+                        } else {
+                            matched = c == '<' ? 1 : 0;
+                        }
+                    } else if (c == CDATA.charAt(matched)) {
+                        if (++matched == CDATA.length()) {
+                            state = TEXT;
+                            matched = 0;
+                        }
+                    } else {
+                        // OPENED: CDATA gelmedi; AFTER: metin bitti. Tutulan ön ek geri verilir
+                        if (state == AFTER) finishText();
+                        pending = CDATA.substring(0, matched) + c;
+                        pendingPos = 0;
+                        state = PASS;
+                    }
+                }
+            }
+            return n == 0 ? -1 : n;
+        }
+
+        /** Tampondaki metni ]]> görene kadar aktarır. */
+        private void divert() throws IOException {
+            while (pos < limit) {
+                char c = buf[pos];
+                if (brackets == 0 && !lastCr && c != ']' && c != '\r') {
+                    int start = pos;
+                    while (pos < limit && (c = buf[pos]) != ']' && c != '\r') pos++;
+                    builder.append(buf, start, pos - start);
+                    continue;
+                }
+                pos++;
+                if (c == ']') {
+                    lastCr = false;
+                    if (++brackets > 2) {
+                        builder.append(']');
+                        brackets = 2;
+                    }
+                    continue;
+                }
+                if (c == '>' && brackets == 2) {
+                    brackets = 0;
+                    state = AFTER;
+                    return;
+                }
+                for (; brackets > 0; brackets--) builder.append(']');
+                if (c == '\r') {
+                    builder.append('\n');
+                    lastCr = true;
+                } else if (c == '\n' && lastCr) {
+                    lastCr = false;
+                } else {
+                    lastCr = false;
+                    builder.append(c);
+                }
+            }
+        }
+
+        private void finishText() throws IOException {
+            lastCr = false;
+            text = builder.build();
+        }
+
+        private void endOfInput() throws IOException {
+            if (state == AFTER) {
+                finishText();
+            } else if (state == OPENED && matched > 0) {
+                pending = CDATA.substring(0, matched);
+                pendingPos = 0;
+            }
+            // TEXT'te biterse CDATA kapanmamıştır; ayrıştırıcı eksik belge hatası verir
+            state = PASS;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private UdfMedia parseMedia(XmlPullParser parser, String tag) {
+        UdfMedia media = new UdfMedia("image".equals(tag) ? UdfMedia.Type.IMAGE : UdfMedia.Type.ATTACHMENT);
+        String src = getAttr(parser, "src", null);
+        if (src == null) src = getAttr(parser, "path", null);
+        if (src == null) src = getAttr(parser, "imageSource", null);
+        media.setEntryName(src);
+        media.setInlineData(getAttr(parser, "imageData", null));
+        media.setDisplayName(getAttr(parser, "name", null));
+        media.setWidth(parseInt(getAttr(parser, "width", "0")));
+        media.setHeight(parseInt(getAttr(parser, "height", "0")));
+        return media;
+    }
+
+    /** Span'ın kendi biçim özniteliklerini tabloya bildirir; geçici sıra numarası döner. */
+    private int declareStyle(UdfStyleTable.Builder builder, XmlPullParser parser, boolean underline) {
+        return builder.declare(getAttr(parser, "resolver", null), getAttr(parser, "family", null),
+                getAttr(parser, "size", null), getAttr(parser, "bold", null), getAttr(parser, "italic", null),
+                underline, getAttr(parser, "foreground", null));
+    }
+
+    private String getAttr(XmlPullParser parser, String name, String defaultVal) {
+        String val = parser.getAttributeValue(null, name);
+        return val != null ? val : defaultVal;
+    }
+
+    private int parseInt(String s) {
+        try { return Integer.parseInt(s); } catch (Exception e) { return 0; }
+    }
+
+    private float parseFloat(String s) {
+        try { return Float.parseFloat(s); } catch (Exception e) { return 12f; }
+    }
+}
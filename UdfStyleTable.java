@@ -0,0 +1,194 @@
+package com.udfviewer.app;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Belgenin çözümlenmiş biçimlerinin küçük, yinelenmesiz tablosu. Her span
+ * biçimini (aile, boyut, kalın, italik, altı çizili, renk) burada bir sıra
+ * numarasıyla gösterir (UdfSpan.getStyleIndex). Binlerce span çoğunlukla
+ * birkaç farklı biçim kullandığından görünüm ve dışa aktarma span başına
+ * biçim nesnesi oluşturmaz; sıra numarasına göre önbelleğe alınmış yazı
+ * tipi ve boya ayarlarını kullanır.
+ *
+ * Çözümleme <styles> bölümü okunduktan sonra yapılır (şemada <elements>'ten
+ * sonra gelir): ayrıştırma sırasında span'ların bildirdiği öznitelikler
+ * Builder'da yinelenmesiz toplanır, resolve() bunları adlandırılmış stillerle
+ * birleştirip son tabloyu kurar.
+ */
+public class UdfStyleTable {
+
+    private static final float DEFAULT_SIZE = 12f;
+    private static final int DEFAULT_COLOR = 0xFF000000;
+
+    /** Değişmez, çözümlenmiş biçim. family genel aile adıdır (serif, sans-serif, monospace). */
+    public static final class Entry {
+        public final int index;
+        public final String family;
+        public final float size;
+        public final boolean bold;
+        public final boolean italic;
+        public final boolean underline;
+        public final int color;
+
+        Entry(int index, String family, float size, boolean bold, boolean italic, boolean underline, int color) {
+            this.index = index;
+            this.family = family;
+            this.size = size;
+            this.bold = bold;
+            this.italic = italic;
+            this.underline = underline;
+            this.color = color;
+        }
+
+        String key() {
+            return family + '|' + size + '|' + bold + '|' + italic + '|' + underline + '|' + color;
+        }
+    }
+
+    private final List<Entry> entries;
+    private final Entry fallback;
+
+    private UdfStyleTable(List<Entry> entries, Entry fallback) {
+        this.entries = entries;
+        this.fallback = fallback;
+    }
+
+    /** Tanımsız sıra numarası (ör. -1) belgenin varsayılan biçimini verir. */
+    public Entry get(int index) {
+        return index >= 0 && index < entries.size() ? entries.get(index) : fallback;
+    }
+
+    public Entry get(UdfSpan span) {
+        return get(span.getStyleIndex());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Entry getDefault() {
+        return fallback;
+    }
+
+    /** Bilinen font adlarını platformun genel ailelerine eşler. */
+    static String genericFamily(String family) {
+        if (family == null) return "serif";
+        String f = family.toLowerCase(java.util.Locale.ROOT);
+        if (f.contains("courier") || f.contains("mono") || f.contains("consolas")) return "monospace";
+        if (f.contains("arial") || f.contains("helvetica") || f.contains("calibri") || f.contains("tahoma")
+                || f.contains("verdana") || f.contains("segoe") || f.contains("sans")) return "sans-serif";
+        return "serif";
+    }
+
+    /** Eski belgeler ve stil bilgisi olmayan belgeler için yalnızca varsayılan biçim. */
+    public static UdfStyleTable defaults(UdfStyle defaultStyle) {
+        Builder b = new Builder();
+        Map<String, UdfStyle> styles = new HashMap<>();
+        if (defaultStyle != null) styles.put(defaultStyle.getName(), defaultStyle);
+        return b.resolve(styles, defaultStyle != null ? defaultStyle.getName() : null, null);
+    }
+
+    // ── Kurulum ──────────────────────────────────────────────────────────────
+
+    /**
+     * Ayrıştırma sırasında span bildirimlerini toplar. declare() aynı
+     * öznitelik bileşimi için aynı geçici numarayı döner; resolve() bu
+     * numaraları son tablo sıralarına çevirir.
+     */
+    public static final class Builder {
+        private final Map<String, Integer> declaredIndex = new HashMap<>();
+        private final List<String[]> declared = new ArrayList<>();
+
+        /**
+         * Span'ın kendi öznitelikleri; belirtilmeyenler null. resolver
+         * adlandırılmış stil, yoksa belgenin varsayılanı.
+         */
+        public int declare(String resolver, String family, String size, String bold,
+                           String italic, boolean underline, String foreground) {
+            String[] d = {resolver, family, size, bold, italic, underline ? "1" : "0", foreground};
+            String key = String.join("\u0000", nullSafe(d));
+            Integer existing = declaredIndex.get(key);
+            if (existing != null) return existing;
+            int index = declared.size();
+            declared.add(d);
+            declaredIndex.put(key, index);
+            return index;
+        }
+
+        private static String[] nullSafe(String[] d) {
+            String[] out = new String[d.length];
+            for (int i = 0; i < d.length; i++) out[i] = d[i] != null ? d[i] : "\u0001";
+            return out;
+        }
+
+        /**
+         * Bildirimleri adlandırılmış stillerle birleştirir. Öncelik: span
+         * özniteliği, span'ın resolver stili, belgenin varsayılan stili.
+         * remap (boş değilse) geçici numara → tablo sırası eşlemesiyle doldurulur.
+         */
+        public UdfStyleTable resolve(Map<String, UdfStyle> styles, String defaultName, int[] remap) {
+            UdfStyle base = defaultName != null ? styles.get(defaultName) : null;
+            List<Entry> entries = new ArrayList<>();
+            Map<String, Entry> interned = new HashMap<>();
+            Entry fallback = intern(entries, interned,
+                    genericFamily(base != null ? base.getFamily() : null),
+                    base != null ? base.getSize() : DEFAULT_SIZE,
+                    base != null && base.isBold(), base != null && base.isItalic(), false,
+                    base != null ? base.getForeground() : DEFAULT_COLOR);
+
+            for (int i = 0; i < declared.size(); i++) {
+                String[] d = declared.get(i);
+                UdfStyle named = d[0] != null ? styles.get(d[0]) : null;
+                UdfStyle style = named != null ? named : base;
+                String family = d[1] != null ? d[1] : style != null ? style.getFamily() : null;
+                float size = parseSize(d[2], style != null ? style.getSize() : DEFAULT_SIZE);
+                boolean bold = d[3] != null ? "true".equals(d[3]) : style != null && style.isBold();
+                boolean italic = d[4] != null ? "true".equals(d[4]) : style != null && style.isItalic();
+                boolean underline = "1".equals(d[5]);
+                int color = parseColor(d[6], style != null ? style.getForeground() : DEFAULT_COLOR);
+                Entry e = intern(entries, interned, genericFamily(family), size, bold, italic, underline, color);
+                if (remap != null && i < remap.length) remap[i] = e.index;
+            }
+            return new UdfStyleTable(entries, fallback);
+        }
+
+        public int declaredCount() {
+            return declared.size();
+        }
+
+        private static Entry intern(List<Entry> entries, Map<String, Entry> interned, String family,
+                                    float size, boolean bold, boolean italic, boolean underline, int color) {
+            Entry probe = new Entry(entries.size(), family, size, bold, italic, underline, color);
+            Entry existing = interned.get(probe.key());
+            if (existing != null) return existing;
+            entries.add(probe);
+            interned.put(probe.key(), probe);
+            return probe;
+        }
+
+        private static float parseSize(String s, float fallback) {
+            if (s == null) return fallback;
+            try {
+                float v = Float.parseFloat(s);
+                return v > 0 && v < 200 ? v : fallback;
+            } catch (NumberFormatException e) {
+                return fallback;
+            }
+        }
+
+        /** UDF renkleri işaretli ARGB tamsayısı olarak yazar (ör. -16777216 = siyah). */
+        private static int parseColor(String s, int fallback) {
+            if (s == null) return fallback;
+            try {
+                int c = (int) Long.parseLong(s.trim());
+                // Saydam yazılmış renkler (alfa 0) opak sayılır
+                return (c & 0xFF000000) == 0 ? c | 0xFF000000 : c;
+            } catch (NumberFormatException e) {
+                return fallback;
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.udfviewer.app;
+
+import android.content.Context;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * UdfDocument'i düz metin (TXT) veya HTML olarak dışa aktarır.
+ * Paragraf/span modelini dolaşıp doğrudan Writer'a yazar; tüm belge
+ * hiçbir zaman tek bir String'de toplanmaz.
+ *
+ * Çıktı deterministiktir: UTF-8, "\n" satır sonu, zaman damgası yok.
+ * Aynı girdi her zaman bayt bayt aynı dosyayı üretir.
+ */
+public class UdfTextExporter {
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    public enum Format {
+        TEXT("txt", "text/plain"),
+        HTML("html", "text/html");
+
+        public final String extension;
+        public final String mimeType;
+
+        Format(String extension, String mimeType) {
+            this.extension = extension;
+            this.mimeType = mimeType;
+        }
+    }
+
+    public interface ExportCallback {
+        void onSuccess(File file);
+        void onError(String message);
+    }
+
+    private final Context context;
+
+    public UdfTextExporter(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    public void export(UdfDocument document, String baseFileName, Format format, ExportCallback callback) {
+        // Dışa aktarma sürerken bellek baskısı belgeyi diske bırakmasın
+        document.retain();
+        new Thread(() -> {
+            try {
+                long t = PerfMetrics.start();
+                File file = doExport(document, baseFileName, format);
+                String metric = "export." + format.name().toLowerCase(java.util.Locale.ROOT);
+                PerfMetrics.stop(metric, t);
+                PerfMetrics.bytes(metric, file.length());
+                callback.onSuccess(file);
+            } catch (Exception e) {
+                callback.onError("Dışa aktarılamadı: " + e.getMessage());
+            } finally {
+                document.release();
+            }
+        }).start();
+    }
+
+    private File doExport(UdfDocument document, String baseFileName, Format format) throws Exception {
+        File outputDir = new File(context.getCacheDir(), "text_exports");
+        outputDir.mkdirs();
+        String safeFileName = baseFileName.replace(".udf", "").replaceAll("[^a-zA-Z0-9._-]", "_");
+        File file = new File(outputDir, safeFileName + "." + format.extension);
+
+        try (OutputStream os = new FileOutputStream(file)) {
+            write(document, format, safeFileName, os);
+        }
+        return file;
+    }
+
+    /**
+     * Belgeyi verilen formatta UTF-8 olarak akışa yazar. Akışı kapatmaz.
+     * İş parçacığı kesilirse InterruptedIOException ile yarıda bırakır.
+     */
+    public static void write(UdfDocument document, Format format, String title, OutputStream os) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        if (format == Format.HTML) writeHtml(document, title, out);
+        else writeText(document, out);
+        out.flush();
+    }
+
+    // ── Düz metin ─────────────────────────────────────────────────────────────
+
+    /** Her paragraf bir satır; paragraf metni zaten "\n" ile bitiyorsa tekrar eklenmez. */
+    public static void writeText(UdfDocument document, Writer out) throws IOException {
+        int index = 0;
+        for (UdfParagraph paragraph : document.getParagraphs()) {
+            checkInterrupted(index++);
+            char last = '\n';
+            for (UdfSpan span : paragraph.getSpans()) {
+                String text = span.getResolvedText();
+                if (text == null || text.isEmpty()) continue;
+                out.write(text);
+                last = text.charAt(text.length() - 1);
+            }
+            if (last != '\n' || paragraph.getSpans().isEmpty()) out.write('\n');
+        }
+    }
+
+    // ── HTML ──────────────────────────────────────────────────────────────────
+
+    public static void writeHtml(UdfDocument document, String title, Writer out) throws IOException {
+        out.write("<!DOCTYPE html>\n<html lang=\"tr\">\n<head>\n<meta charset=\"utf-8\">\n<title>");
+        String t = title != null ? title : "";
+        escapeHtml(out, t, 0, t.length(), false);
+        out.write("</title>\n<style>\n");
+        out.write("body{font-family:serif;max-width:46em;margin:2em auto;}\n");
+        out.write("p{margin:0 0 .4em 0;white-space:pre-wrap;}\n");
+        out.write(".a0{text-align:left}.a1{text-align:center}.a2{text-align:right}.a3{text-align:justify}\n");
+        out.write("</style>\n</head>\n<body>\n");
+
+        int index = 0;
+        for (UdfParagraph paragraph : document.getParagraphs()) {
+            checkInterrupted(index++);
+            int align = paragraph.getAlignment();
+            if (align < 0 || align > 3) align = 0;
+            out.write("<p class=\"a");
+            out.write('0' + align);
+            out.write("\">");
+
+            boolean wroteText = false;
+            List<UdfSpan> spans = paragraph.getSpans();
+            int last = spans.size() - 1;
+            while (last >= 0 && isEmpty(spans.get(last))) last--;
+            for (int i = 0; i <= last; i++) {
+                UdfSpan span = spans.get(i);
+                String text = span.getResolvedText();
+                if (text == null || text.isEmpty()) continue;
+                // Yalnızca paragrafı bitiren satır sonu <p> ile ifade ediliyor;
+                // span sonundakiler dahil diğerleri <br> olur (TXT ile aynı satırlar)
+                int end = text.length();
+                if (i == last && text.charAt(end - 1) == '\n') {
+                    end--;
+                    if (end > 0 && text.charAt(end - 1) == '\r') end--;
+                }
+                if (end == 0) continue;
+
+                if (span.isBold())      out.write("<b>");
+                if (span.isItalic())    out.write("<i>");
+                if (span.isUnderline()) out.write("<u>");
+                escapeHtml(out, text, 0, end, true);
+                if (span.isUnderline()) out.write("</u>");
+                if (span.isItalic())    out.write("</i>");
+                if (span.isBold())      out.write("</b>");
+                wroteText = true;
+            }
+            if (!wroteText) out.write("<br>");
+            out.write("</p>\n");
+        }
+
+        out.write("</body>\n</html>\n");
+    }
+
+    /** Her 64 paragrafta bir bakılır; kesme bayrağı temizlenmez. */
+    private static void checkInterrupted(int index) throws InterruptedIOException {
+        if ((index & 63) == 0 && Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Dışa aktarma kesildi");
+        }
+    }
+
+    private static boolean isEmpty(UdfSpan span) {
+        return span.getResolvedLength() == 0;
+    }
+
+    /**
+     * Özel karakterleri kaçışlar. Güvenli karakter dizileri tek write çağrısıyla
+     * toplu yazılır; karakter başına write yapılmaz.
+     */
+    private static void escapeHtml(Writer out, String s, int start, int end, boolean breakLines) throws IOException {
+        int runStart = start;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            String rep;
+            switch (c) {
+                case '&':  rep = "&amp;";  break;
+                case '<':  rep = "&lt;";   break;
+                case '>':  rep = "&gt;";   break;
+                case '"':  rep = "&quot;"; break;
+                case '\r': rep = "";       break;
+                case '\n': rep = breakLines ? "<br>" : " "; break;
+                default:   continue;
+            }
+            if (i > runStart) out.write(s, runStart, i - runStart);
+            out.write(rep);
+            runStart = i + 1;
+        }
+        if (end > runStart) out.write(s, runStart, end - runStart);
+    }
+}
@@ -0,0 +1,417 @@
+package com.udfviewer.app;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Belgenin tam metni, sabit boyutlu parçalar (chunk) halinde. Birleştirilmiş
+ * dava dosyalarında metin yüzlerce MB olabilir; tek String tek parça dev bir
+ * char dizisi ister ve 32 bit / az bellekli cihazlarda ayrılamaz. Parçalar
+ * ayrı ayrı ayrılır, ayrıca metin diske (UTF-16 geçici dosya, bellek
+ * eşlemeli) taşınabilir: o zaman bellekte yalnızca son kullanılan birkaç
+ * parçanın LRU önbelleği durur.
+ *
+ * CharSequence olarak konumla erişilir; subSequence metni String olarak
+ * kopyalar (span çözümleme, arama, dizinleme bunu kullanır). toString tüm
+ * metni kopyalar, büyük belgede kaçınılmalıdır.
+ *
+ * Okuma iş parçacıkları arasında güvenlidir; moveToDisk/discard belge
+ * düzeyinde (UdfDocument) eşzamanlanır.
+ */
+public final class UdfTextStore implements CharSequence {
+
+    /** Parça boyutu (karakter); 128 KB'lık char dizisi. */
+    static final int CHUNK_CHARS = 64 * 1024;
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_MASK = CHUNK_CHARS - 1;
+
+    // Bir eşlemedeki parça sayısı (1024 × 128 KB = 128 MB); MappedByteBuffer 2 GB ile sınırlı
+    private static final int REGION_CHUNKS = 1024;
+    private static final int DEFAULT_CACHE_CHUNKS = 16;
+
+    public static final UdfTextStore EMPTY = new UdfTextStore(new char[0][], 0);
+
+    private final int length;
+    private volatile char[][] chunks;          // bellekteyken; diskteyken null
+    private volatile MappedByteBuffer[] regions;
+    private volatile File file;
+    private final int cacheChunks;
+    private final Map<Integer, char[]> cache;
+
+    // Son erişilen parça; ardışık charAt çağrıları önbellek aramasını atlar
+    private volatile Slot last;
+    // contentHash bir kez hesaplanır (String.hashCode gibi; 0 = hesaplanmadı)
+    private volatile int hash;
+
+    private static final class Slot {
+        final int index;
+        final char[] data;
+
+        Slot(int index, char[] data) {
+            this.index = index;
+            this.data = data;
+        }
+    }
+
+    private UdfTextStore(char[][] chunks, int length) {
+        this.chunks = chunks;
+        this.length = length;
+        this.cacheChunks = DEFAULT_CACHE_CHUNKS;
+        this.cache = newCache(cacheChunks);
+    }
+
+    private UdfTextStore(File file, MappedByteBuffer[] regions, int length, int cacheChunks) {
+        this.file = file;
+        this.regions = regions;
+        this.length = length;
+        this.cacheChunks = cacheChunks;
+        this.cache = newCache(cacheChunks);
+    }
+
+    private static Map<Integer, char[]> newCache(final int max) {
+        return new LinkedHashMap<Integer, char[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, char[]> eldest) {
+                return size() > max;
+            }
+        };
+    }
+
+    public static UdfTextStore of(CharSequence text) {
+        if (text == null || text.length() == 0) return EMPTY;
+        Builder b = new Builder();
+        b.append(text);
+        try {
+            return b.build();
+        } catch (IOException e) {
+            // Diske taşma kapalıyken build G/Ç yapmaz
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ── CharSequence ─────────────────────────────────────────────────────────
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        int c = index >>> CHUNK_SHIFT;
+        Slot s = last;
+        if (s == null || s.index != c) {
+            s = new Slot(c, chunk(c));
+            last = s;
+        }
+        return s.data[index & CHUNK_MASK];
+    }
+
+    /** Aralığı String olarak kopyalar. */
+    @Override
+    public String subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+        }
+        char[] out = new char[end - start];
+        getChars(start, end, out, 0);
+        return new String(out);
+    }
+
+    /** String.getChars gibi; parça sınırlarını toplu kopyayla geçer. */
+    public void getChars(int start, int end, char[] dst, int dstBegin) {
+        int pos = start;
+        while (pos < end) {
+            int c = pos >>> CHUNK_SHIFT;
+            int offset = pos & CHUNK_MASK;
+            int n = Math.min(end - pos, CHUNK_CHARS - offset);
+            System.arraycopy(chunk(c), offset, dst, dstBegin + (pos - start), n);
+            pos += n;
+        }
+    }
+
+    /** Tüm metni tek String'e kopyalar; yalnızca küçük belgelerde ya da panoya kopyalarken. */
+    @Override
+    public String toString() {
+        return subSequence(0, length);
+    }
+
+    /** String.hashCode ile aynı değer; metni tek String'e çevirmeden. */
+    public int contentHash() {
+        int h = hash;
+        if (h != 0 || length == 0) return h;
+        for (int pos = 0; pos < length; ) {
+            char[] data = chunk(pos >>> CHUNK_SHIFT);
+            int n = Math.min(length - pos, CHUNK_CHARS);
+            for (int i = 0; i < n; i++) h = 31 * h + data[i];
+            pos += n;
+        }
+        hash = h;
+        return h;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    // ── Parçalar ─────────────────────────────────────────────────────────────
+
+    private char[] chunk(int index) {
+        char[][] resident = chunks;
+        if (resident != null) return resident[index];
+        synchronized (cache) {
+            char[] data = cache.get(index);
+            if (data == null) {
+                data = load(index);
+                cache.put(index, data);
+            }
+            return data;
+        }
+    }
+
+    private char[] load(int index) {
+        int start = index * CHUNK_CHARS;
+        char[] data = new char[Math.min(CHUNK_CHARS, length - start)];
+        ByteBuffer region = regions[index / REGION_CHUNKS].duplicate();
+        region.position((index % REGION_CHUNKS) * CHUNK_CHARS * 2);
+        region.asCharBuffer().get(data);
+        PerfMetrics.count("textStore.chunkLoad");
+        return data;
+    }
+
+    public boolean isOnDisk() {
+        return chunks == null;
+    }
+
+    /** Bellekte tutulan karakter sayısı (diskteyken önbellekteki parçalar). */
+    public long residentChars() {
+        char[][] resident = chunks;
+        if (resident != null) return length;
+        synchronized (cache) {
+            long chars = 0;
+            for (char[] data : cache.values()) chars += data.length;
+            return chars;
+        }
+    }
+
+    /**
+     * Bellekteki parçaları dir altında bir dosyaya yazıp bellek eşlemesine
+     * geçer; zaten diskteyse yalnızca önbelleği boşaltır.
+     *
+     * @return bırakılan yaklaşık bayt
+     */
+    public synchronized long moveToDisk(File dir) throws IOException {
+        long freed = residentChars() * 2;
+        if (chunks == null) {
+            synchronized (cache) {
+                cache.clear();
+            }
+            last = null;
+            return freed;
+        }
+        if (length == 0) return 0;
+        if (!dir.exists() && !dir.mkdirs()) throw new IOException("Dizin oluşturulamadı: " + dir);
+        File f = File.createTempFile("metin_", ".utf16", dir);
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer bytes = ByteBuffer.allocate(CHUNK_CHARS * 2);
+            CharBuffer chars = bytes.asCharBuffer();
+            for (char[] data : chunks) {
+                bytes.clear();
+                chars.clear();
+                chars.put(data);
+                bytes.limit(data.length * 2);
+                while (bytes.hasRemaining()) channel.write(bytes);
+            }
+            regions = map(channel, length);
+        } catch (IOException e) {
+            f.delete();
+            throw e;
+        }
+        file = f;
+        chunks = null;
+        last = null;
+        return freed;
+    }
+
+    private static MappedByteBuffer[] map(FileChannel channel, int length) throws IOException {
+        long bytes = (long) length * 2;
+        long regionBytes = (long) REGION_CHUNKS * CHUNK_CHARS * 2;
+        MappedByteBuffer[] regions = new MappedByteBuffer[(int) ((bytes + regionBytes - 1) / regionBytes)];
+        for (int i = 0; i < regions.length; i++) {
+            long start = i * regionBytes;
+            regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(regionBytes, bytes - start));
+        }
+        return regions;
+    }
+
+    /**
+     * Disk dosyasını siler (belge kapatılırken). Eşleme dosya silinse de
+     * geçerli kaldığından hâlâ tutan okuyucular etkilenmez.
+     */
+    public synchronized void discard() {
+        if (file != null) {
+            file.delete();
+            file = null;
+        }
+    }
+
+    // ── Kurulum ──────────────────────────────────────────────────────────────
+
+    /**
+     * Metni parça parça biriktirir. Diske taşma açıksa (spill) metin eşiği
+     * geçtiği anda o ana kadarki parçalar dosyaya yazılır ve sonraki dolan
+     * parçalar doğrudan dosyaya gider; bellekte en çok bir parça kalır.
+     */
+    public static final class Builder {
+        private final File spillDir;
+        private final long spillThreshold;
+        private final int cacheChunks;
+        private final List<char[]> full = new ArrayList<>();
+        private char[] current = new char[1024];
+        private int used;
+        private long length;
+
+        private File file;
+        private RandomAccessFile raf;
+        private ByteBuffer bytes;
+
+        public Builder() {
+            this(null, Long.MAX_VALUE, DEFAULT_CACHE_CHUNKS);
+        }
+
+        /**
+         * @param spillDir       geçici dosya dizini; null ise hep bellekte
+         * @param spillThreshold bu kadar karakteri aşan metin diske taşınır
+         * @param cacheChunks    diskteyken bellekte tutulacak parça sayısı
+         */
+        public Builder(File spillDir, long spillThreshold, int cacheChunks) {
+            this.spillDir = spillDir;
+            this.spillThreshold = spillThreshold;
+            this.cacheChunks = Math.max(1, cacheChunks);
+        }
+
+        public long length() {
+            return length;
+        }
+
+        public Builder append(char c) throws IOException {
+            if (used == current.length) grow();
+            current[used++] = c;
+            length++;
+            return this;
+        }
+
+        public Builder append(char[] src, int offset, int count) throws IOException {
+            while (count > 0) {
+                if (used == current.length) grow();
+                int n = Math.min(count, current.length - used);
+                System.arraycopy(src, offset, current, used, n);
+                used += n;
+                offset += n;
+                count -= n;
+                length += n;
+            }
+            return this;
+        }
+
+        public Builder append(CharSequence text) {
+            try {
+                for (int i = 0, n = text.length(); i < n; i++) append(text.charAt(i));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return this;
+        }
+
+        /** Küçük metinler için tampon parça boyutuna kadar ikiye katlanır. */
+        private void grow() throws IOException {
+            if (current.length < CHUNK_CHARS) {
+                char[] bigger = new char[Math.min(CHUNK_CHARS, current.length * 2)];
+                System.arraycopy(current, 0, bigger, 0, used);
+                current = bigger;
+                return;
+            }
+            if (length >= Integer.MAX_VALUE) throw new IOException("Metin 2^31 karakteri aşıyor");
+            if (raf == null && spillDir != null && length > spillThreshold) startSpill();
+            if (raf != null) {
+                writeChunk(current, used);
+                used = 0;
+            } else {
+                full.add(current);
+                current = new char[CHUNK_CHARS];
+                used = 0;
+            }
+        }
+
+        private void startSpill() throws IOException {
+            if (!spillDir.exists() && !spillDir.mkdirs()) throw new IOException("Dizin oluşturulamadı: " + spillDir);
+            file = File.createTempFile("metin_", ".utf16", spillDir);
+            raf = new RandomAccessFile(file, "rw");
+            bytes = ByteBuffer.allocate(CHUNK_CHARS * 2);
+            for (char[] data : full) writeChunk(data, data.length);
+            full.clear();
+            PerfMetrics.count("textStore.spill");
+        }
+
+        private void writeChunk(char[] data, int count) throws IOException {
+            bytes.clear();
+            bytes.asCharBuffer().put(data, 0, count);
+            bytes.limit(count * 2);
+            FileChannel channel = raf.getChannel();
+            while (bytes.hasRemaining()) channel.write(bytes);
+        }
+
+        public UdfTextStore build() throws IOException {
+            if (length == 0) {
+                abort();
+                return EMPTY;
+            }
+            if (raf == null) {
+                char[][] chunks = new char[full.size() + 1][];
+                full.toArray(chunks);
+                chunks[chunks.length - 1] = used == current.length ? current : Arrays.copyOf(current, used);
+                return new UdfTextStore(chunks, (int) length);
+            }
+            try {
+                writeChunk(current, used);
+                MappedByteBuffer[] regions = map(raf.getChannel(), (int) length);
+                raf.close();
+                raf = null;
+                // Dosya artık deponun; abort silmesin
+                File owned = file;
+                file = null;
+                return new UdfTextStore(owned, regions, (int) length, cacheChunks);
+            } catch (IOException e) {
+                abort();
+                throw e;
+            }
+        }
+
+        /** Yarıda kalan kurulumun geçici dosyasını siler. */
+        public void abort() {
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException ignored) {
+                }
+                raf = null;
+            }
+            if (file != null) {
+                file.delete();
+                file = null;
+            }
+        }
+    }
+}
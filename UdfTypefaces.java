@@ -0,0 +1,38 @@
+package com.udfviewer.app;
+
+import android.graphics.Typeface;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Görünüm ve PDF dışa aktarmanın paylaştığı yazı tipi önbelleği.
+ * Typeface.create her çağrıda platform tablosunda arama yapar; belgede
+ * yalnızca birkaç aile × stil bileşimi olduğundan her biri bir kez
+ * oluşturulur ve süreç boyunca yeniden kullanılır.
+ */
+public final class UdfTypefaces {
+
+    private static final Map<String, Typeface> cache = new HashMap<>();
+
+    private UdfTypefaces() {}
+
+    public static Typeface get(UdfStyleTable.Entry entry) {
+        return get(entry.family, entry.bold, entry.italic);
+    }
+
+    /** family genel aile adı (serif, sans-serif, monospace). */
+    public static synchronized Typeface get(String family, boolean bold, boolean italic) {
+        int style = bold && italic ? Typeface.BOLD_ITALIC
+                : bold ? Typeface.BOLD
+                : italic ? Typeface.ITALIC
+                : Typeface.NORMAL;
+        String key = family + '#' + style;
+        Typeface typeface = cache.get(key);
+        if (typeface == null) {
+            typeface = Typeface.create(family, style);
+            cache.put(key, typeface);
+        }
+        return typeface;
+    }
+}
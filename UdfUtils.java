@@ -1,10 +1,15 @@
 package com.udfviewer.app;
 
 import android.content.Context;
+import android.content.Intent;
 import android.database.Cursor;
 import android.net.Uri;
 import android.provider.OpenableColumns;
 
+import androidx.core.content.FileProvider;
+
+import java.io.File;
+
 public class UdfUtils {
 
     public static String getFileName(Context context, Uri uri) {
@@ -29,4 +34,20 @@ public class UdfUtils {
         }
         return result;
     }
+
+    /**
+     * Uygulama dosyasını FileProvider üzerinden paylaşma Intent'i. JVM'de de
+     * kullanılan sınıflar (PerfMetrics, UdfTextExporter) Android paylaşım
+     * kodunu burada bırakır; orada kalsa sınıf doğrulaması Android
+     * sınıflarını yüklemeye çalışır.
+     */
+    public static Intent createShareIntent(Context context, File file, String mimeType) {
+        Uri uri = FileProvider.getUriForFile(context, context.getPackageName() + ".provider", file);
+        Intent intent = new Intent(Intent.ACTION_SEND);
+        intent.setType(mimeType);
+        intent.putExtra(Intent.EXTRA_STREAM, uri);
+        intent.putExtra(Intent.EXTRA_SUBJECT, file.getName());
+        intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        return intent;
+    }
 }
@@ -0,0 +1,416 @@
+package com.udfviewer.app;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Akış halinde XML kanonikleştirme: C14N 1.0, C14N 1.1 ve Exclusive C14N
+ * (yorumlu/yorumsuz). DOM ağacı kurulmaz; XmlPullParser olayları geldikçe
+ * kanonik UTF-8 baytlar doğrudan çıkışa (çoğunlukla bir özet akışına) yazılır.
+ *
+ * Bir alt ağaç kanonikleştirilirken tepe öğenin atalarındaki ad alanı
+ * bildirimleri (ve kapsayıcı yöntemlerde xml:* nitelikleri) yapıcıya
+ * verilen ata listesinden alınır.
+ */
+final class XmlCanonicalizer {
+
+    static final String XML_NS = "http://www.w3.org/XML/1998/namespace";
+    static final String DSIG_NS = "http://www.w3.org/2000/09/xmldsig#";
+
+    enum Method {
+        C14N_10("http://www.w3.org/TR/2001/REC-xml-c14n-20010315", false, false),
+        C14N_10_COMMENTS("http://www.w3.org/TR/2001/REC-xml-c14n-20010315#WithComments", false, true),
+        C14N_11("http://www.w3.org/2006/12/xml-c14n11", false, false),
+        C14N_11_COMMENTS("http://www.w3.org/2006/12/xml-c14n11#WithComments", false, true),
+        EXCLUSIVE("http://www.w3.org/2001/10/xml-exc-c14n#", true, false),
+        EXCLUSIVE_COMMENTS("http://www.w3.org/2001/10/xml-exc-c14n#WithComments", true, true);
+
+        final String uri;
+        final boolean exclusive;
+        final boolean withComments;
+
+        Method(String uri, boolean exclusive, boolean withComments) {
+            this.uri = uri;
+            this.exclusive = exclusive;
+            this.withComments = withComments;
+        }
+
+        /** Algoritma URI'sine karşılık gelen yöntem; kanonikleştirme değilse null. */
+        static Method forUri(String uri) {
+            if (uri == null) return null;
+            for (Method m : values()) {
+                if (m.uri.equals(uri)) return m;
+            }
+            return null;
+        }
+
+        boolean isVersion11() {
+            return this == C14N_11 || this == C14N_11_COMMENTS;
+        }
+    }
+
+    /** Bir başlangıç etiketinin kanonikleştirme için gereken anlık görüntüsü. */
+    static final class Element {
+        final String prefix;       // önek yoksa ""
+        final String localName;
+        final String namespace;    // ad alanı yoksa ""
+        final String[] nsPrefixes; // bu öğede bildirilen ad alanları ("" = varsayılan)
+        final String[] nsUris;
+        final String[] attrNamespaces;
+        final String[] attrPrefixes;
+        final String[] attrNames;
+        final String[] attrValues;
+
+        private Element(String prefix, String localName, String namespace,
+                        String[] nsPrefixes, String[] nsUris, String[] attrNamespaces,
+                        String[] attrPrefixes, String[] attrNames, String[] attrValues) {
+            this.prefix = prefix;
+            this.localName = localName;
+            this.namespace = namespace;
+            this.nsPrefixes = nsPrefixes;
+            this.nsUris = nsUris;
+            this.attrNamespaces = attrNamespaces;
+            this.attrPrefixes = attrPrefixes;
+            this.attrNames = attrNames;
+            this.attrValues = attrValues;
+        }
+
+        /** Ad alanı işleme açık bir ayrıştırıcının o anki START_TAG'inden okur. */
+        static Element from(XmlPullParser p) throws XmlPullParserException {
+            int depth = p.getDepth();
+            int nsStart = p.getNamespaceCount(depth - 1);
+            int nsEnd = p.getNamespaceCount(depth);
+            String[] nsPrefixes = new String[nsEnd - nsStart];
+            String[] nsUris = new String[nsEnd - nsStart];
+            for (int i = nsStart; i < nsEnd; i++) {
+                nsPrefixes[i - nsStart] = nz(p.getNamespacePrefix(i));
+                nsUris[i - nsStart] = nz(p.getNamespaceUri(i));
+            }
+            int n = p.getAttributeCount();
+            String[] ns = new String[n], prefixes = new String[n], names = new String[n], values = new String[n];
+            for (int i = 0; i < n; i++) {
+                ns[i] = nz(p.getAttributeNamespace(i));
+                prefixes[i] = nz(p.getAttributePrefix(i));
+                names[i] = p.getAttributeName(i);
+                values[i] = nz(p.getAttributeValue(i));
+            }
+            return new Element(nz(p.getPrefix()), p.getName(), nz(p.getNamespace()),
+                    nsPrefixes, nsUris, ns, prefixes, names, values);
+        }
+
+        String qName() {
+            return prefix.isEmpty() ? localName : prefix + ":" + localName;
+        }
+
+        /** Ad alanısız nitelik değeri; yoksa null. */
+        String getAttribute(String name) {
+            for (int i = 0; i < attrNames.length; i++) {
+                if (attrNamespaces[i].isEmpty() && attrNames[i].equals(name)) return attrValues[i];
+            }
+            return null;
+        }
+
+        boolean is(String ns, String name) {
+            return localName.equals(name) && (namespace.equals(ns) || namespace.isEmpty());
+        }
+    }
+
+    private final Method method;
+    private final Set<String> inclusivePrefixes;
+    private final Writer out;
+    private final boolean skipSignatures;
+
+    private final Map<String, String> apexScope = new HashMap<>();
+    private final Map<String, String> apexXmlAttrs = new TreeMap<>();
+    private final ArrayDeque<Map<String, String>> scopes = new ArrayDeque<>();
+    private final ArrayDeque<Map<String, String>> rendered = new ArrayDeque<>();
+    private final ArrayDeque<String> names = new ArrayDeque<>();
+    private int skipDepth;
+    private boolean rootSeen;
+
+    /**
+     * @param inclusivePrefixes Exclusive C14N'de InclusiveNamespaces PrefixList ("" = #default)
+     * @param ancestors         tepe öğenin ataları (kökten ebeveyne); belge kanonikleştirmede boş
+     * @param skipSignatures    enveloped-signature dönüşümü: ds:Signature alt ağaçlarını atla
+     */
+    XmlCanonicalizer(Method method, Set<String> inclusivePrefixes, OutputStream out,
+                     List<Element> ancestors, boolean skipSignatures) {
+        this.method = method;
+        this.inclusivePrefixes = inclusivePrefixes != null ? inclusivePrefixes : Collections.emptySet();
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 8192);
+        this.skipSignatures = skipSignatures;
+        for (Element a : ancestors) {
+            for (int i = 0; i < a.nsPrefixes.length; i++) apexScope.put(a.nsPrefixes[i], a.nsUris[i]);
+            if (method.exclusive) continue;
+            for (int i = 0; i < a.attrNames.length; i++) {
+                if (!XML_NS.equals(a.attrNamespaces[i])) continue;
+                String name = a.attrNames[i];
+                // C14N 1.1 yalnızca xml:lang ve xml:space'i miras alır
+                if (method.isVersion11() && !"lang".equals(name) && !"space".equals(name)) continue;
+                apexXmlAttrs.put(name, a.attrValues[i]);
+            }
+        }
+    }
+
+    void startElement(Element e) throws IOException {
+        if (skipDepth > 0) { skipDepth++; return; }
+        if (skipSignatures && DSIG_NS.equals(e.namespace) && "Signature".equals(e.localName)) {
+            skipDepth = 1;
+            return;
+        }
+        boolean apex = scopes.isEmpty();
+        Map<String, String> parentScope = apex ? apexScope : scopes.peek();
+        Map<String, String> parentRendered = apex ? Collections.<String, String>emptyMap() : rendered.peek();
+
+        Map<String, String> scope = parentScope;
+        if (e.nsPrefixes.length > 0) {
+            scope = new HashMap<>(parentScope);
+            for (int i = 0; i < e.nsPrefixes.length; i++) scope.put(e.nsPrefixes[i], e.nsUris[i]);
+        }
+
+        // Çıktıya yazılacak ad alanı bildirimleri, öneke göre sıralı ("" ilk)
+        TreeMap<String, String> nsOut = new TreeMap<>();
+        if (method.exclusive) {
+            renderIfNeeded(nsOut, e.prefix, scope, parentRendered);
+            for (int i = 0; i < e.attrNames.length; i++) {
+                String p = e.attrPrefixes[i];
+                if (!p.isEmpty() && !"xml".equals(p)) renderIfNeeded(nsOut, p, scope, parentRendered);
+            }
+            for (String p : inclusivePrefixes) {
+                if (scope.containsKey(p)) renderIfNeeded(nsOut, p, scope, parentRendered);
+            }
+        } else {
+            for (String p : scope.keySet()) renderIfNeeded(nsOut, p, scope, parentRendered);
+        }
+
+        Map<String, String> nowRendered = parentRendered;
+        if (!nsOut.isEmpty()) {
+            nowRendered = new HashMap<>(parentRendered);
+            nowRendered.putAll(nsOut);
+        }
+
+        out.write('<');
+        String qName = e.qName();
+        out.write(qName);
+        for (Map.Entry<String, String> ns : nsOut.entrySet()) {
+            out.write(ns.getKey().isEmpty() ? " xmlns=\"" : " xmlns:" + ns.getKey() + "=\"");
+            writeEscaped(ns.getValue(), true);
+            out.write('"');
+        }
+        writeAttributes(e, apex);
+        out.write('>');
+
+        scopes.push(scope);
+        rendered.push(nowRendered);
+        names.push(qName);
+        rootSeen = true;
+    }
+
+    void endElement() throws IOException {
+        if (skipDepth > 0) { skipDepth--; return; }
+        scopes.pop();
+        rendered.pop();
+        out.write("</");
+        out.write(names.pop());
+        out.write('>');
+    }
+
+    void text(String text) throws IOException {
+        if (skipDepth > 0 || names.isEmpty() || text == null) return;
+        writeEscaped(text, false);
+    }
+
+    void comment(String text) throws IOException {
+        if (!method.withComments || skipDepth > 0) return;
+        writeTopLevel("<!--" + nz(text) + "-->");
+    }
+
+    void processingInstruction(String target, String data) throws IOException {
+        if (skipDepth > 0) return;
+        writeTopLevel(data == null || data.isEmpty() ? "<?" + target + "?>" : "<?" + target + " " + data + "?>");
+    }
+
+    /** Tampondaki baytları alttaki akışa yazar; akışı kapatmaz. */
+    void finish() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Bir XML belgesini tamamen kanonikleştirir. Belge ayrıştırılırken akıtılır;
+     * bellekte yalnızca açık öğelerin yığını tutulur.
+     */
+    static void canonicalizeDocument(InputStream xml, Method method, Set<String> inclusivePrefixes,
+                                     OutputStream out) throws Exception {
+        XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        XmlPullParser parser = factory.newPullParser();
+        parser.setInput(xml, null);
+
+        XmlCanonicalizer c14n = new XmlCanonicalizer(method, inclusivePrefixes, out,
+                Collections.<Element>emptyList(), false);
+        int event = parser.getEventType();
+        while (event != XmlPullParser.END_DOCUMENT) {
+            switch (event) {
+                case XmlPullParser.START_TAG:
+                    c14n.startElement(Element.from(parser));
+                    break;
+                case XmlPullParser.END_TAG:
+                    c14n.endElement();
+                    break;
+                case XmlPullParser.TEXT:
+                case XmlPullParser.CDSECT:
+                case XmlPullParser.ENTITY_REF:
+                case XmlPullParser.IGNORABLE_WHITESPACE:
+                    c14n.text(parser.getText());
+                    break;
+                case XmlPullParser.COMMENT:
+                    c14n.comment(parser.getText());
+                    break;
+                case XmlPullParser.PROCESSING_INSTRUCTION:
+                    c14n.processingInstruction(piTarget(parser.getText()), piData(parser.getText()));
+                    break;
+                default:
+                    break;
+            }
+            event = parser.nextToken();
+        }
+        c14n.finish();
+    }
+
+    static String piTarget(String text) {
+        if (text == null) return "";
+        int sp = indexOfWhitespace(text);
+        return sp < 0 ? text : text.substring(0, sp);
+    }
+
+    static String piData(String text) {
+        if (text == null) return "";
+        int sp = indexOfWhitespace(text);
+        if (sp < 0) return "";
+        int i = sp;
+        while (i < text.length() && isXmlWhitespace(text.charAt(i))) i++;
+        return text.substring(i);
+    }
+
+    // ── İç yardımcılar ───────────────────────────────────────────────────────
+
+    private static void renderIfNeeded(Map<String, String> nsOut, String prefix,
+                                       Map<String, String> scope, Map<String, String> parentRendered) {
+        if ("xml".equals(prefix)) return;
+        String uri = scope.get(prefix);
+        if (uri == null) uri = "";
+        String already = parentRendered.get(prefix);
+        if (uri.isEmpty()) {
+            // Boş varsayılan ad alanı yalnızca üstte dolu bir varsayılan yazıldıysa bildirilir
+            if (prefix.isEmpty() && already != null && !already.isEmpty()) nsOut.put("", "");
+            return;
+        }
+        if (!uri.equals(already)) nsOut.put(prefix, uri);
+    }
+
+    private void writeAttributes(Element e, boolean apex) throws IOException {
+        int n = e.attrNames.length;
+        Map<String, String> inherited = apex && !apexXmlAttrs.isEmpty() ? new LinkedHashMap<>(apexXmlAttrs) : null;
+        if (inherited != null) {
+            for (int i = 0; i < n; i++) {
+                if (XML_NS.equals(e.attrNamespaces[i])) inherited.remove(e.attrNames[i]);
+            }
+        }
+        if (n == 0 && (inherited == null || inherited.isEmpty())) return;
+
+        int total = n + (inherited != null ? inherited.size() : 0);
+        String[][] attrs = new String[total][];
+        for (int i = 0; i < n; i++) {
+            attrs[i] = new String[]{e.attrNamespaces[i], e.attrNames[i],
+                    e.attrPrefixes[i].isEmpty() ? e.attrNames[i] : e.attrPrefixes[i] + ":" + e.attrNames[i],
+                    e.attrValues[i]};
+        }
+        if (inherited != null) {
+            int i = n;
+            for (Map.Entry<String, String> x : inherited.entrySet()) {
+                attrs[i++] = new String[]{XML_NS, x.getKey(), "xml:" + x.getKey(), x.getValue()};
+            }
+        }
+        // Ad alanı URI'si, sonra yerel ada göre; ad alanısız nitelikler başta
+        Arrays.sort(attrs, (a, b) -> {
+            int c = a[0].compareTo(b[0]);
+            return c != 0 ? c : a[1].compareTo(b[1]);
+        });
+        for (String[] a : attrs) {
+            out.write(' ');
+            out.write(a[2]);
+            out.write("=\"");
+            writeEscaped(a[3], true);
+            out.write('"');
+        }
+    }
+
+    /** Belge öğesi dışındaki yorum/PI'lar: kökten önce ardından, kökten sonra önünden satır sonu. */
+    private void writeTopLevel(String node) throws IOException {
+        if (!names.isEmpty()) {
+            out.write(node);
+        } else if (!rootSeen) {
+            out.write(node);
+            out.write('\n');
+        } else {
+            out.write('\n');
+            out.write(node);
+        }
+    }
+
+    private void writeEscaped(String s, boolean attribute) throws IOException {
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            String rep;
+            switch (c) {
+                case '&':  rep = "&amp;"; break;
+                case '<':  rep = "&lt;"; break;
+                case '>':  rep = attribute ? null : "&gt;"; break;
+                case '"':  rep = attribute ? "&quot;" : null; break;
+                case '\t': rep = attribute ? "&#x9;" : null; break;
+                case '\n': rep = attribute ? "&#xA;" : null; break;
+                case '\r': rep = "&#xD;"; break;
+                default:   rep = null;
+            }
+            if (rep == null) continue;
+            if (i > start) out.write(s, start, i - start);
+            out.write(rep);
+            start = i + 1;
+        }
+        if (start < s.length()) out.write(s, start, s.length() - start);
+    }
+
+    private static int indexOfWhitespace(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (isXmlWhitespace(s.charAt(i))) return i;
+        }
+        return -1;
+    }
+
+    private static boolean isXmlWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    private static String nz(String s) {
+        return s != null ? s : "";
+    }
+}
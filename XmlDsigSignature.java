@@ -0,0 +1,526 @@
+package com.udfviewer.app;
+
+import android.util.Base64;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * sign.sgn içindeki XML-DSig / XAdES imzasını tek geçişte ayrıştırır.
+ *
+ * Belge XmlPullParser ile bir kez okunur:
+ *   - SignedInfo olay olarak kaydedilir ve bittiğinde bildirilen
+ *     CanonicalizationMethod ile kanonikleştirilir (küçük bir alt ağaç).
+ *   - Aynı belgeye işaret eden referanslar ("#Id", ör. xades:SignedProperties)
+ *     öğe okunurken kanonikleştirilip doğrudan özet akışına yazılır.
+ *   - SignatureValue ve X509Certificate aynı geçişte toplanır; gömülü
+ *     zaman damgası gibi büyük bloklar yalnızca atlanır.
+ *   - SigningTime yalnızca bir belge içi referansın hedefinde (XAdES
+ *     SignedProperties) okunur ve o referansın özeti eşleşirse kullanılır;
+ *     imza kapsamı dışındaki alanlara güvenilmez.
+ *
+ * Belge dışı referanslar (content.xml) burada hesaplanmaz; dönüşümleri
+ * Reference üzerinden okunup SignatureVerifier tarafından uygulanır.
+ */
+final class XmlDsigSignature {
+
+    private static final String EXC_C14N_NS = "http://www.w3.org/2001/10/xml-exc-c14n#";
+    private static final String ENVELOPED = "http://www.w3.org/2000/09/xmldsig#enveloped-signature";
+
+    /** SignedInfo içindeki bir Reference. */
+    static final class Reference {
+        final String uri;
+        final List<String> transforms = new ArrayList<>();
+        XmlCanonicalizer.Method c14n;            // son kanonikleştirme dönüşümü
+        Set<String> inclusivePrefixes = Collections.emptySet();
+        boolean enveloped;
+        String digestMethod;
+        byte[] digestValue;
+
+        // Belge içi referanslar için tek geçişte hesaplanan özet
+        boolean targetFound;
+        byte[] computedDigest;
+        String signingTime;                      // hedefin içindeki SigningTime
+
+
+        Reference(String uri) {
+            this.uri = uri;
+        }
+
+        /** "#id" biçimindeki, sign.sgn içindeki bir öğeye işaret eden referans. */
+        boolean isSameDocument() {
+            return uri != null && uri.startsWith("#") && uri.length() > 1;
+        }
+
+        /** Arşivdeki content.xml'e işaret eden referans ("content.xml", "./content.xml"). */
+        boolean isContentXml() {
+            if (uri == null) return false;
+            String path = uri.startsWith("./") ? uri.substring(2) : uri.startsWith("/") ? uri.substring(1) : uri;
+            return "content.xml".equals(path);
+        }
+
+        /** Desteklenmeyen ilk dönüşüm; hepsi destekleniyorsa null. */
+        String unsupportedTransform() {
+            for (String t : transforms) {
+                if (XmlCanonicalizer.Method.forUri(t) == null && !ENVELOPED.equals(t)) return t;
+            }
+            return null;
+        }
+
+        String getDigestAlgorithm() {
+            return digestAlgorithm(digestMethod);
+        }
+
+        boolean digestMatches() {
+            return computedDigest != null && digestValue != null
+                    && MessageDigest.isEqual(computedDigest, digestValue);
+        }
+    }
+
+    private String canonicalizationMethod;
+    private Set<String> signedInfoPrefixes = Collections.emptySet();
+    private String signatureMethod;
+    private byte[] canonicalSignedInfo;
+    private byte[] signatureValue;
+    private final List<Reference> references = new ArrayList<>();
+    private final List<byte[]> certificates = new ArrayList<>();
+    private X509Certificate signerCertificate;
+    private boolean signerResolved;
+
+    private XmlDsigSignature() {}
+
+    boolean hasSignedInfo() { return canonicalSignedInfo != null; }
+    List<Reference> getReferences() { return references; }
+    List<byte[]> getCertificates() { return certificates; }
+    byte[] getSignatureValue() { return signatureValue; }
+    String getSignatureMethod() { return signatureMethod; }
+
+    /** Özeti doğrulanmış bir referansın kapsadığı SigningTime; yoksa null. */
+    String getSigningTimeText() {
+        for (Reference ref : references) {
+            if (ref.signingTime != null && ref.isSameDocument() && ref.digestMatches()) return ref.signingTime;
+        }
+        return null;
+    }
+
+    Date getSigningTime() {
+        return parseDateTime(getSigningTimeText());
+    }
+
+    // ── Tek geçişli ayrıştırma ───────────────────────────────────────────────
+
+    /** Aynı belge içi bir referansın o an kanonikleştirilen hedefi. */
+    private static final class Capture {
+        final Reference ref;
+        final XmlCanonicalizer c14n;
+        final MessageDigest md;
+        final int depth;
+
+        Capture(Reference ref, XmlCanonicalizer c14n, MessageDigest md, int depth) {
+            this.ref = ref;
+            this.c14n = c14n;
+            this.md = md;
+            this.depth = depth;
+        }
+    }
+
+    static XmlDsigSignature parse(byte[] xml) throws Exception {
+        XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        XmlPullParser parser = factory.newPullParser();
+        parser.setInput(new ByteArrayInputStream(xml), null);
+
+        XmlDsigSignature sig = new XmlDsigSignature();
+        List<XmlCanonicalizer.Element> stack = new ArrayList<>();
+        List<Object> signedInfoEvents = null;   // kayıt sürerken null değil
+        List<XmlCanonicalizer.Element> signedInfoAncestors = null;
+        int signedInfoDepth = -1;
+        boolean signedInfoDone = false;
+        boolean signatureValueDone = false;
+        Reference currentRef = null;
+        List<Capture> captures = new ArrayList<>();
+        StringBuilder text = null;              // toplanan yaprak metin
+        String collecting = null;
+
+        int event = parser.getEventType();
+        while (event != XmlPullParser.END_DOCUMENT) {
+            switch (event) {
+                case XmlPullParser.START_TAG: {
+                    XmlCanonicalizer.Element e = XmlCanonicalizer.Element.from(parser);
+                    int depth = stack.size();
+
+                    if (!signedInfoDone && signedInfoEvents == null && e.is(XmlCanonicalizer.DSIG_NS, "SignedInfo")) {
+                        signedInfoEvents = new ArrayList<>();
+                        signedInfoAncestors = new ArrayList<>(stack);
+                        signedInfoDepth = depth;
+                    }
+                    if (signedInfoEvents != null) {
+                        signedInfoEvents.add(e);
+                        currentRef = sig.onSignedInfoElement(e, currentRef);
+                    }
+
+                    // Belge içi referans hedefi başlıyor mu?
+                    if (signedInfoDone) {
+                        String id = idOf(e);
+                        if (id != null) {
+                            for (Reference ref : sig.references) {
+                                if (!ref.isSameDocument() || ref.targetFound || !ref.uri.substring(1).equals(id)) continue;
+                                if (ref.unsupportedTransform() != null || ref.getDigestAlgorithm() == null) continue;
+                                ref.targetFound = true;
+                                MessageDigest md = MessageDigest.getInstance(ref.getDigestAlgorithm());
+                                XmlCanonicalizer.Method m = ref.c14n != null ? ref.c14n : XmlCanonicalizer.Method.C14N_10;
+                                captures.add(new Capture(ref, new XmlCanonicalizer(m, ref.inclusivePrefixes,
+                                        new DigestOut(md), new ArrayList<>(stack), ref.enveloped), md, depth));
+                            }
+                        }
+                    }
+                    for (Capture c : captures) c.c14n.startElement(e);
+
+                    collecting = leafField(e, signedInfoDone, signatureValueDone);
+                    text = collecting != null ? new StringBuilder() : null;
+                    stack.add(e);
+                    break;
+                }
+                case XmlPullParser.END_TAG: {
+                    stack.remove(stack.size() - 1);
+                    int depth = stack.size();
+                    for (Capture c : captures) c.c14n.endElement();
+                    for (int i = captures.size() - 1; i >= 0; i--) {
+                        Capture c = captures.get(i);
+                        if (c.depth != depth) continue;
+                        c.c14n.finish();
+                        c.ref.computedDigest = c.md.digest();
+                        captures.remove(i);
+                    }
+
+                    if (collecting != null) {
+                        String value = text.toString().trim();
+                        if ("SignatureValue".equals(collecting)) signatureValueDone = true;
+                        sig.onField(collecting, value, currentRef, captures);
+                        collecting = null;
+                        text = null;
+                    }
+
+                    if (signedInfoEvents != null) {
+                        signedInfoEvents.add(END);
+                        if (depth == signedInfoDepth) {
+                            sig.canonicalizeSignedInfo(signedInfoEvents, signedInfoAncestors);
+                            signedInfoEvents = null;
+                            signedInfoDone = true;
+                            currentRef = null;
+                        }
+                    }
+                    break;
+                }
+                case XmlPullParser.TEXT:
+                case XmlPullParser.CDSECT:
+                case XmlPullParser.ENTITY_REF:
+                case XmlPullParser.IGNORABLE_WHITESPACE: {
+                    if (stack.isEmpty()) break;
+                    String t = parser.getText();
+                    if (t == null) break;
+                    if (text != null) text.append(t);
+                    if (signedInfoEvents != null) signedInfoEvents.add(t);
+                    for (Capture c : captures) c.c14n.text(t);
+                    break;
+                }
+                case XmlPullParser.COMMENT: {
+                    if (stack.isEmpty()) break;
+                    String t = parser.getText();
+                    if (signedInfoEvents != null) signedInfoEvents.add(new Comment(t));
+                    for (Capture c : captures) c.c14n.comment(t);
+                    break;
+                }
+                case XmlPullParser.PROCESSING_INSTRUCTION: {
+                    if (stack.isEmpty()) break;
+                    String t = parser.getText();
+                    if (signedInfoEvents != null) signedInfoEvents.add(new Pi(t));
+                    for (Capture c : captures) {
+                        c.c14n.processingInstruction(XmlCanonicalizer.piTarget(t), XmlCanonicalizer.piData(t));
+                    }
+                    break;
+                }
+                default:
+                    break;
+            }
+            event = parser.nextToken();
+        }
+        return sig;
+    }
+
+    /** SignedInfo altındaki öğelerden algoritma ve referans bilgilerini çıkarır. */
+    private Reference onSignedInfoElement(XmlCanonicalizer.Element e, Reference currentRef) {
+        if (e.is(XmlCanonicalizer.DSIG_NS, "CanonicalizationMethod")) {
+            canonicalizationMethod = e.getAttribute("Algorithm");
+        } else if (e.is(XmlCanonicalizer.DSIG_NS, "SignatureMethod")) {
+            signatureMethod = e.getAttribute("Algorithm");
+        } else if (e.is(XmlCanonicalizer.DSIG_NS, "Reference")) {
+            Reference ref = new Reference(e.getAttribute("URI"));
+            references.add(ref);
+            return ref;
+        } else if (e.is(XmlCanonicalizer.DSIG_NS, "Transform") && currentRef != null) {
+            String alg = e.getAttribute("Algorithm");
+            if (alg != null) {
+                currentRef.transforms.add(alg);
+                XmlCanonicalizer.Method m = XmlCanonicalizer.Method.forUri(alg);
+                if (m != null) currentRef.c14n = m;
+                if (ENVELOPED.equals(alg)) currentRef.enveloped = true;
+            }
+        } else if (EXC_C14N_NS.equals(e.namespace) && "InclusiveNamespaces".equals(e.localName)) {
+            Set<String> prefixes = parsePrefixList(e.getAttribute("PrefixList"));
+            if (currentRef != null) currentRef.inclusivePrefixes = prefixes;
+            else signedInfoPrefixes = prefixes;
+        } else if (e.is(XmlCanonicalizer.DSIG_NS, "DigestMethod") && currentRef != null) {
+            currentRef.digestMethod = e.getAttribute("Algorithm");
+        }
+        return currentRef;
+    }
+
+    /** Metni toplanacak yaprak öğe; değilse null. */
+    private static String leafField(XmlCanonicalizer.Element e, boolean signedInfoDone, boolean signatureValueDone) {
+        switch (e.localName) {
+            case "DigestValue":
+                return !signedInfoDone ? "DigestValue" : null;
+            case "SignatureValue":
+                return signedInfoDone && !signatureValueDone ? "SignatureValue" : null;
+            case "X509Certificate":
+            case "EncapsulatedX509Certificate":
+                return "Certificate";
+            case "SigningTime":
+                return signedInfoDone ? "SigningTime" : null;
+            default:
+                return null;
+        }
+    }
+
+    private void onField(String field, String value, Reference currentRef, List<Capture> captures) {
+        if (value.isEmpty()) return;
+        switch (field) {
+            case "DigestValue":
+                if (currentRef != null) currentRef.digestValue = decodeBase64(value);
+                break;
+            case "SignatureValue":
+                signatureValue = decodeBase64(value);
+                break;
+            case "Certificate": {
+                byte[] der = decodeBase64(value);
+                if (der != null) certificates.add(der);
+                break;
+            }
+            case "SigningTime":
+                // Yalnızca o an kanonikleştirilen (özetlenen) referans hedefinin içindeyse
+                for (Capture c : captures) {
+                    if (c.ref.signingTime == null) c.ref.signingTime = value;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void canonicalizeSignedInfo(List<Object> events, List<XmlCanonicalizer.Element> ancestors) throws Exception {
+        XmlCanonicalizer.Method m = XmlCanonicalizer.Method.forUri(canonicalizationMethod);
+        if (m == null) return; // desteklenmeyen yöntem: imza doğrulanamaz
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(1024);
+        XmlCanonicalizer c14n = new XmlCanonicalizer(m, signedInfoPrefixes, bos, ancestors, false);
+        for (Object ev : events) {
+            if (ev instanceof XmlCanonicalizer.Element) c14n.startElement((XmlCanonicalizer.Element) ev);
+            else if (ev == END) c14n.endElement();
+            else if (ev instanceof String) c14n.text((String) ev);
+            else if (ev instanceof Comment) c14n.comment(((Comment) ev).text);
+            else if (ev instanceof Pi) {
+                String t = ((Pi) ev).text;
+                c14n.processingInstruction(XmlCanonicalizer.piTarget(t), XmlCanonicalizer.piData(t));
+            }
+        }
+        c14n.finish();
+        canonicalSignedInfo = bos.toByteArray();
+    }
+
+    // ── İmza değeri ──────────────────────────────────────────────────────────
+
+    /**
+     * SignatureValue'yu doğrulayan sertifika. Genellikle ilk X509Certificate
+     * imzacıdır; değilse diğerleri denenir. Hiçbiri doğrulamazsa null.
+     */
+    X509Certificate getSignerCertificate() {
+        if (signerResolved) return signerCertificate;
+        signerResolved = true;
+        if (canonicalSignedInfo == null || signatureValue == null) return null;
+        try {
+            CertificateFactory cf = CertificateFactory.getInstance("X.509");
+            for (byte[] der : certificates) {
+                try {
+                    X509Certificate cert = (X509Certificate) cf.generateCertificate(new ByteArrayInputStream(der));
+                    if (verifySignatureValue(cert.getPublicKey())) {
+                        signerCertificate = cert;
+                        break;
+                    }
+                } catch (Exception ignored) {}
+            }
+        } catch (Exception ignored) {}
+        return signerCertificate;
+    }
+
+    /** İlk gömülü sertifika; imza doğrulanamasa bile imzacı bilgisini göstermek için. */
+    X509Certificate getFirstCertificate() {
+        if (certificates.isEmpty()) return null;
+        try {
+            return (X509Certificate) CertificateFactory.getInstance("X.509")
+                    .generateCertificate(new ByteArrayInputStream(certificates.get(0)));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    boolean verifySignatureValue(PublicKey key) throws Exception {
+        String alg = signatureAlgorithm(signatureMethod);
+        if (alg == null || canonicalSignedInfo == null || signatureValue == null) return false;
+        Signature s = Signature.getInstance(alg);
+        s.initVerify(key);
+        s.update(canonicalSignedInfo);
+        byte[] value = signatureValue;
+        // XML-DSig ECDSA/DSA imzaları r||s ham biçimindedir; JCA DER bekler
+        if (alg.endsWith("withECDSA") || alg.endsWith("withDSA")) value = rawToDer(value);
+        return s.verify(value);
+    }
+
+    private static byte[] rawToDer(byte[] raw) {
+        int half = raw.length / 2;
+        byte[] r = new BigInteger(1, java.util.Arrays.copyOfRange(raw, 0, half)).toByteArray();
+        byte[] s = new BigInteger(1, java.util.Arrays.copyOfRange(raw, half, raw.length)).toByteArray();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(r.length + s.length + 8);
+        int len = 2 + r.length + 2 + s.length;
+        bos.write(0x30);
+        if (len > 127) bos.write(0x81);
+        bos.write(len);
+        bos.write(0x02);
+        bos.write(r.length);
+        bos.write(r, 0, r.length);
+        bos.write(0x02);
+        bos.write(s.length);
+        bos.write(s, 0, s.length);
+        return bos.toByteArray();
+    }
+
+    // ── Algoritma eşlemeleri ─────────────────────────────────────────────────
+
+    static String digestAlgorithm(String uri) {
+        if (uri == null) return null;
+        switch (uri) {
+            case "http://www.w3.org/2000/09/xmldsig#sha1":          return "SHA-1";
+            case "http://www.w3.org/2001/04/xmldsig-more#sha224":   return "SHA-224";
+            case "http://www.w3.org/2001/04/xmlenc#sha256":         return "SHA-256";
+            case "http://www.w3.org/2001/04/xmldsig-more#sha384":   return "SHA-384";
+            case "http://www.w3.org/2001/04/xmlenc#sha512":         return "SHA-512";
+            case "http://www.w3.org/2001/04/xmldsig-more#md5":      return "MD5";
+            default:                                                return null;
+        }
+    }
+
+    static String signatureAlgorithm(String uri) {
+        if (uri == null) return null;
+        switch (uri) {
+            case "http://www.w3.org/2000/09/xmldsig#rsa-sha1":            return "SHA1withRSA";
+            case "http://www.w3.org/2001/04/xmldsig-more#rsa-sha256":     return "SHA256withRSA";
+            case "http://www.w3.org/2001/04/xmldsig-more#rsa-sha384":     return "SHA384withRSA";
+            case "http://www.w3.org/2001/04/xmldsig-more#rsa-sha512":     return "SHA512withRSA";
+            case "http://www.w3.org/2001/04/xmldsig-more#ecdsa-sha1":     return "SHA1withECDSA";
+            case "http://www.w3.org/2001/04/xmldsig-more#ecdsa-sha256":   return "SHA256withECDSA";
+            case "http://www.w3.org/2001/04/xmldsig-more#ecdsa-sha384":   return "SHA384withECDSA";
+            case "http://www.w3.org/2001/04/xmldsig-more#ecdsa-sha512":   return "SHA512withECDSA";
+            case "http://www.w3.org/2000/09/xmldsig#dsa-sha1":            return "SHA1withDSA";
+            case "http://www.w3.org/2009/xmldsig11#dsa-sha256":           return "SHA256withDSA";
+            default:                                                      return null;
+        }
+    }
+
+    // ── Yardımcılar ──────────────────────────────────────────────────────────
+
+    private static final Object END = new Object();
+
+    private static final class Comment {
+        final String text;
+        Comment(String text) { this.text = text; }
+    }
+
+    private static final class Pi {
+        final String text;
+        Pi(String text) { this.text = text; }
+    }
+
+    /** Baytları doğrudan MessageDigest'e besleyen akış. */
+    static final class DigestOut extends OutputStream {
+        private final MessageDigest md;
+
+        DigestOut(MessageDigest md) {
+            this.md = md;
+        }
+
+        @Override public void write(int b) { md.update((byte) b); }
+        @Override public void write(byte[] b, int off, int len) { md.update(b, off, len); }
+    }
+
+    private static String idOf(XmlCanonicalizer.Element e) {
+        String id = e.getAttribute("Id");
+        if (id == null) id = e.getAttribute("ID");
+        if (id == null) id = e.getAttribute("id");
+        return id;
+    }
+
+    private static Set<String> parsePrefixList(String list) {
+        if (list == null || list.trim().isEmpty()) return Collections.emptySet();
+        Set<String> set = new HashSet<>();
+        for (String p : list.trim().split("\\s+")) set.add("#default".equals(p) ? "" : p);
+        return set;
+    }
+
+    private static byte[] decodeBase64(String s) {
+        try {
+            return Base64.decode(s, Base64.DEFAULT);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static final Pattern DATE_TIME = Pattern.compile(
+            "(\\d{4})-(\\d{2})-(\\d{2})T(\\d{2}):(\\d{2}):(\\d{2})(?:\\.(\\d+))?(Z|[+-]\\d{2}:\\d{2})?");
+
+    /** xs:dateTime; bölge yoksa UTC kabul edilir. */
+    static Date parseDateTime(String s) {
+        if (s == null) return null;
+        Matcher m = DATE_TIME.matcher(s.trim());
+        if (!m.matches()) return null;
+        String zone = m.group(8);
+        TimeZone tz = zone == null || "Z".equals(zone) ? TimeZone.getTimeZone("UTC") : TimeZone.getTimeZone("GMT" + zone);
+        Calendar cal = Calendar.getInstance(tz);
+        cal.clear();
+        cal.set(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)) - 1, Integer.parseInt(m.group(3)),
+                Integer.parseInt(m.group(4)), Integer.parseInt(m.group(5)), Integer.parseInt(m.group(6)));
+        if (m.group(7) != null) {
+            String frac = (m.group(7) + "00").substring(0, 3);
+            cal.set(Calendar.MILLISECOND, Integer.parseInt(frac));
+        }
+        return cal.getTime();
+    }
+}
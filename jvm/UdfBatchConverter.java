@@ -0,0 +1,545 @@
+package com.udfviewer.app;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Sunucu tarafı toplu UDF dönüştürücü (PDF / TXT / HTML). Uygulamayla aynı
+ * ayrıştırıcıyı (UdfStreamParser) ve dışa aktarıcıları (UdfPdfWriter,
+ * UdfTextExporter) kullanır; Android gerektirmez.
+ *
+ * Dosyalar bir ForkJoinPool'da (iş çalan havuz) paralel işlenir; her
+ * çıktı önce .tmp olarak yazılıp yerine taşınır. Hatalı dosyalar atlanır ve
+ * çıktı dizinindeki failures.tsv'ye yazılır. Çıktı dizinindeki manifest
+ * (.udf-manifest.tsv) girdilerin SHA-256 özetini tutar; yeniden çalıştırmada
+ * değişmemiş girdiler atlanır (boyut ve değişiklik zamanı aynıysa dosya
+ * okunmaz bile). Manifest her dosyadan sonra sonuna eklenerek güncellenir,
+ * çalıştırma sonunda sıkıştırılır; yarıda kesilen çalıştırma tamamlanan
+ * dosyaları yeniden dönüştürmez.
+ *
+ * Farklı kökten gelip aynı çıktıya düşecek girdiler (a/doc.udf, b/doc.udf)
+ * kaynağın tam yolu çıktı dizininde yansıtılarak ayrılır.
+ *
+ * Derleme ve çalıştırma (kxml2 XmlPullParser gerçeklemesi, android.jar
+ * yalnızca derleme için; çalışma anında Android sınıfı yüklenmez):
+ * <pre>
+ *   javac -cp android.jar:kxml2.jar -d out jvm/UdfBatchConverter.java \
+ *       UdfStreamParser.java UdfDocument.java UdfParagraph.java UdfSpan.java UdfStyle.java \
+ *       UdfStyleTable.java UdfMedia.java UdfParseLimits.java UdfLimitExceededException.java \
+ *       UdfTextStore.java UdfAnnotation.java UdfAnnotationIndex.java \
+ *       PipelinedReader.java PerfMetrics.java UdfPagination.java UdfPdfWriter.java UdfTextExporter.java
+ *   java -cp out:kxml2.jar com.udfviewer.app.UdfBatchConverter -o cikti -f pdf,txt gelen/ 'arsiv/**.udf'
+ * </pre>
+ */
+public final class UdfBatchConverter {
+
+    private static final String MANIFEST_NAME = ".udf-manifest.tsv";
+    private static final String FAILURES_NAME = "failures.tsv";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    enum Format {
+        PDF("pdf"), TXT("txt"), HTML("html");
+
+        final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    /** Girdi dosyası ve çıktı dizinine göre yerleşeceği göreli yol. */
+    static final class Input {
+        final Path path;
+        final Path relative;
+
+        Input(Path path, Path relative) {
+            this.path = path;
+            this.relative = relative;
+        }
+    }
+
+    /** Manifest satırı: girdinin son başarılı dönüşümü. */
+    static final class ManifestEntry {
+        final String digest;
+        final long size;
+        final long modified;
+        final Set<Format> formats;
+
+        ManifestEntry(String digest, long size, long modified, Set<Format> formats) {
+            this.digest = digest;
+            this.size = size;
+            this.modified = modified;
+            this.formats = formats;
+        }
+    }
+
+    private final Path outputDir;
+    private final Set<Format> formats;
+    private final boolean force;
+    private final boolean compactPdf;
+    private final UdfStreamParser parser;
+    private final Map<String, ManifestEntry> manifest = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+    private final AtomicLong converted = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong inputBytes = new AtomicLong();
+    private final AtomicLong outputBytes = new AtomicLong();
+    private final AtomicLong unencodable = new AtomicLong();
+    private final Object journalLock = new Object();
+    private BufferedWriter journal;
+
+    UdfBatchConverter(Path outputDir, Set<Format> formats, boolean force, boolean compactPdf) {
+        this.outputDir = outputDir;
+        this.formats = formats;
+        this.force = force;
+        this.compactPdf = compactPdf;
+        // Her çekirdek zaten bir dosyayla meşgul; belge başına ikinci iş parçacığı yalnızca yük
+        this.parser = new UdfStreamParser().setPipelined(false);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path outputDir = Paths.get(".");
+        Set<Format> formats = EnumSet.of(Format.PDF, Format.TXT);
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean force = false;
+        boolean compactPdf = false;
+        List<String> patterns = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            if (("-o".equals(a) || "-f".equals(a) || "-j".equals(a)) && i + 1 >= args.length) {
+                usage("Eksik değer: " + a);
+                return;
+            }
+            if ("-o".equals(a)) {
+                outputDir = Paths.get(args[++i]);
+            } else if ("-f".equals(a)) {
+                formats = EnumSet.noneOf(Format.class);
+                for (String f : args[++i].split(",")) {
+                    try {
+                        formats.add(Format.valueOf(f.trim().toUpperCase(Locale.ROOT)));
+                    } catch (IllegalArgumentException e) {
+                        usage("Bilinmeyen biçim: " + f);
+                        return;
+                    }
+                }
+            } else if ("-j".equals(a)) {
+                try {
+                    threads = Math.max(1, Integer.parseInt(args[++i]));
+                } catch (NumberFormatException e) {
+                    usage("Geçersiz iş parçacığı sayısı: " + args[i]);
+                    return;
+                }
+            } else if ("--force".equals(a)) {
+                force = true;
+            } else if ("--compact".equals(a)) {
+                compactPdf = true;
+            } else if ("-h".equals(a) || "--help".equals(a)) {
+                usage(null);
+                return;
+            } else {
+                patterns.add(a);
+            }
+        }
+        if (patterns.isEmpty() || formats.isEmpty()) {
+            usage("Girdi belirtilmedi");
+            return;
+        }
+
+        List<Input> inputs;
+        try {
+            inputs = collectInputs(patterns);
+        } catch (IllegalArgumentException e) {
+            usage(e.getMessage());
+            return;
+        }
+        Files.createDirectories(outputDir);
+        UdfBatchConverter converter = new UdfBatchConverter(outputDir, formats, force, compactPdf);
+        converter.loadManifest();
+        int failed = converter.run(inputs, threads, System.out);
+        System.exit(failed > 0 ? 1 : 0);
+    }
+
+    private static void usage(String error) {
+        PrintStream err = System.err;
+        if (error != null) err.println(error);
+        err.println("Kullanım: UdfBatchConverter [-o çıktı-dizini] [-f pdf,txt,html] [-j iş-parçacığı] [--force] [--compact]"
+                + " <dosya|dizin|glob>...");
+        err.println("  Dizinler özyinelemeli taranır (*.udf); glob örneği: 'arsiv/**.udf'");
+        err.println("  --compact: PDF içeriklerini sıkıştırır (var olan çıktılar için --force ile)");
+        if (error != null) System.exit(2);
+    }
+
+    // ── Girdiler ─────────────────────────────────────────────────────────────
+
+    /**
+     * Dosya, dizin ve glob'ları girdi listesine açar. Göreli çıktı yolu
+     * girdinin kökü (dizin, glob'un sabit ön eki ya da dosyanın kendi
+     * dizini) ile bulunur. Aynı dosya bir kez işlenir. Aynı çıktıya düşen
+     * girdilerin göreli yolu kaynağın tam yoluyla değiştirilir; yine
+     * çakışırsa (aynı dizinde yalnızca uzantısı farklı) IllegalArgumentException.
+     */
+    static List<Input> collectInputs(List<String> patterns) throws IOException {
+        Map<Path, Input> inputs = new LinkedHashMap<>();
+        for (String pattern : patterns) {
+            int glob = firstGlobChar(pattern);
+            if (glob >= 0) {
+                int slash = pattern.lastIndexOf('/', glob);
+                Path root = Paths.get(slash >= 0 ? pattern.substring(0, slash + 1) : ".");
+                PathMatcher matcher = FileSystems.getDefault().getPathMatcher(
+                        "glob:" + (slash >= 0 ? pattern.substring(slash + 1) : pattern));
+                if (!Files.isDirectory(root)) continue;
+                walk(root, p -> matcher.matches(root.relativize(p)), inputs);
+            } else {
+                Path path = Paths.get(pattern);
+                if (Files.isDirectory(path)) {
+                    walk(path, p -> p.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".udf"), inputs);
+                } else if (Files.isRegularFile(path)) {
+                    Path key = path.toAbsolutePath().normalize();
+                    inputs.putIfAbsent(key, new Input(key, path.getFileName()));
+                } else {
+                    System.err.println("Bulunamadı: " + pattern);
+                }
+            }
+        }
+        return disambiguate(new ArrayList<>(inputs.values()));
+    }
+
+    private static List<Input> disambiguate(List<Input> inputs) {
+        Map<String, List<Input>> byTarget = new LinkedHashMap<>();
+        for (Input input : inputs) {
+            byTarget.computeIfAbsent(targetKey(input.relative), k -> new ArrayList<>()).add(input);
+        }
+        List<Input> result = new ArrayList<>(inputs.size());
+        for (Input input : inputs) {
+            if (byTarget.get(targetKey(input.relative)).size() > 1) {
+                Path root = input.path.getRoot();
+                result.add(new Input(input.path, root != null ? root.relativize(input.path) : input.path));
+            } else {
+                result.add(input);
+            }
+        }
+        Map<String, Input> seen = new LinkedHashMap<>();
+        for (Input input : result) {
+            Input other = seen.putIfAbsent(targetKey(input.relative), input);
+            if (other != null) {
+                throw new IllegalArgumentException("Aynı çıktıya düşen girdiler: "
+                        + other.path + ", " + input.path);
+            }
+        }
+        return result;
+    }
+
+    /** Çıktı yolunun uzantısız hâli; büyük/küçük harf duyarsız dosya sistemleri için küçük harfle. */
+    private static String targetKey(Path relative) {
+        String name = relative.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return relative.resolveSibling(base).normalize().toString().toLowerCase(Locale.ROOT);
+    }
+
+    private interface Filter {
+        boolean accept(Path path);
+    }
+
+    private static void walk(Path root, Filter filter, Map<Path, Input> inputs) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(Files::isRegularFile).filter(filter::accept).sorted().forEach(p -> {
+                Path key = p.toAbsolutePath().normalize();
+                inputs.putIfAbsent(key, new Input(key, root.relativize(p)));
+            });
+        }
+    }
+
+    private static int firstGlobChar(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{') return i;
+        }
+        return -1;
+    }
+
+    // ── Çalıştırma ───────────────────────────────────────────────────────────
+
+    /** Tüm girdileri dönüştürür, özeti yazar; hatalı dosya sayısını döner. */
+    int run(List<Input> inputs, int threads, PrintStream report) throws IOException {
+        long start = System.nanoTime();
+        journal = Files.newBufferedWriter(outputDir.resolve(MANIFEST_NAME), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new ConvertTask(inputs, 0, inputs.size()));
+        } finally {
+            pool.shutdown();
+            synchronized (journalLock) {
+                journal.close();
+            }
+            saveManifest();
+            saveFailures();
+        }
+        double seconds = Math.max(1e-3, (System.nanoTime() - start) / 1e9);
+        report.println(String.format(Locale.ROOT,
+                "Dönüştürülen: %d, değişmemiş (atlandı): %d, hatalı: %d",
+                converted.get(), skipped.get(), failures.size()));
+        report.println(String.format(Locale.ROOT,
+                "Süre: %.2f sn, %d iş parçacığı, %.1f dosya/sn, %.2f MB/sn girdi, %.2f MB çıktı",
+                seconds, threads, converted.get() / seconds,
+                inputBytes.get() / seconds / (1024 * 1024), outputBytes.get() / (1024.0 * 1024)));
+        if (unencodable.get() > 0) {
+            report.println("PDF'te kodlanamayan karakter içeren: " + unencodable.get() + " dosya");
+        }
+        if (!failures.isEmpty()) {
+            report.println("Hatalar: " + outputDir.resolve(FAILURES_NAME));
+        }
+        return failures.size();
+    }
+
+    /** Girdi aralığını ikiye bölerek çalar; boşta kalan iş parçacıkları kalan yarıları alır. */
+    private final class ConvertTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Input> inputs;
+        private final int from;
+        private final int to;
+
+        ConvertTask(List<Input> inputs, int from, int to) {
+            this.inputs = inputs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                convertOne(inputs.get(from));
+            } else if (to > from) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ConvertTask(inputs, from, mid), new ConvertTask(inputs, mid, to));
+            }
+        }
+    }
+
+    private void convertOne(Input input) {
+        String key = input.path.toString();
+        try {
+            long size = Files.size(input.path);
+            long modified = Files.getLastModifiedTime(input.path).toMillis();
+            ManifestEntry previous = force ? null : manifest.get(key);
+            String digest = null;
+            if (previous != null && previous.formats.containsAll(formats) && outputsExist(input)) {
+                if (previous.size == size && previous.modified == modified) {
+                    skipped.incrementAndGet();
+                    return;
+                }
+                // Zaman damgası değişmiş ama içerik aynı olabilir (kopyalama, geri yükleme)
+                digest = digest(input.path);
+                if (digest.equals(previous.digest)) {
+                    record(key, new ManifestEntry(digest, size, modified, previous.formats));
+                    skipped.incrementAndGet();
+                    return;
+                }
+            }
+            if (digest == null) digest = digest(input.path);
+
+            UdfDocument document;
+            try (InputStream in = Files.newInputStream(input.path)) {
+                document = parser.parse(in);
+            }
+            document.setSource(input.path.toUri().toString());
+            for (Format format : formats) {
+                writeOutput(document, input, format);
+            }
+            record(key, new ManifestEntry(digest, size, modified, EnumSet.copyOf(formats)));
+            converted.incrementAndGet();
+            inputBytes.addAndGet(size);
+        } catch (Throwable e) {
+            // Bozuk ya da sınırı aşan dosya tüm işi durdurmaz
+            if (manifest.containsKey(key)) {
+                try {
+                    record(key, null);
+                } catch (IOException ignored) {
+                    // Kayıt kalırsa özet değiştiği için sonraki çalıştırma yine dener
+                }
+            }
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            failures.add(key + "\t" + message.replace('\t', ' ').replace('\n', ' '));
+            System.err.println("Hata: " + key + ": " + message);
+        }
+    }
+
+    private Path outputPath(Input input, Format format) {
+        String name = input.relative.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        Path relative = input.relative.resolveSibling(base + "." + format.extension);
+        return outputDir.resolve(relative);
+    }
+
+    private boolean outputsExist(Input input) {
+        for (Format format : formats) {
+            if (!Files.isRegularFile(outputPath(input, format))) return false;
+        }
+        return true;
+    }
+
+    private void writeOutput(UdfDocument document, Input input, Format format) throws IOException {
+        Path target = outputPath(input, format);
+        Path parent = target.getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (OutputStream os = Files.newOutputStream(tmp)) {
+                switch (format) {
+                    case PDF:
+                        int lost = UdfPdfWriter.countUnencodable(document);
+                        if (lost > 0) {
+                            // Standart yazı tipleri 1254 dışını çizemez; dosya yine yazılır
+                            unencodable.incrementAndGet();
+                            System.err.println("Uyarı: " + input.path + ": " + lost
+                                    + " karakter PDF'te '?' olarak yazıldı");
+                        }
+                        UdfPdfWriter.write(document, os, null, compactPdf);
+                        break;
+                    case TXT:
+                        UdfTextExporter.write(document, UdfTextExporter.Format.TEXT, null, os);
+                        break;
+                    case HTML:
+                        String title = input.relative.getFileName().toString();
+                        UdfTextExporter.write(document, UdfTextExporter.Format.HTML, title, os);
+                        break;
+                }
+            }
+            outputBytes.addAndGet(Files.size(tmp));
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static String digest(Path path) throws Exception {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(path)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) md.update(buffer, 0, n);
+        }
+        byte[] d = md.digest();
+        char[] hex = new char[d.length * 2];
+        for (int i = 0; i < d.length; i++) {
+            hex[2 * i] = HEX[(d[i] >> 4) & 0xF];
+            hex[2 * i + 1] = HEX[d[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    // ── Manifest ─────────────────────────────────────────────────────────────
+
+    /**
+     * Satır: özet, boyut, değişiklik zamanı (ms), biçimler, mutlak yol. Aynı
+     * yolun sonraki satırı öncekini geçersiz kılar; biçimi boş satır kaydı siler.
+     */
+    void loadManifest() throws IOException {
+        Path file = outputDir.resolve(MANIFEST_NAME);
+        if (!Files.isRegularFile(file)) return;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] f = line.split("\t", 5);
+                if (f.length < 5) continue;
+                try {
+                    Set<Format> set = EnumSet.noneOf(Format.class);
+                    for (String name : f[3].split(",")) {
+                        if (!name.isEmpty()) set.add(Format.valueOf(name));
+                    }
+                    ManifestEntry entry = new ManifestEntry(f[0], Long.parseLong(f[1]), Long.parseLong(f[2]), set);
+                    if (set.isEmpty()) {
+                        manifest.remove(f[4]);
+                    } else {
+                        manifest.put(f[4], entry);
+                    }
+                } catch (IllegalArgumentException ignored) {
+                    // Bozuk (ör. yarıda kesilmiş son) satır: o dosya yeniden dönüştürülür
+                }
+            }
+        }
+    }
+
+    /**
+     * Kaydı bellekte günceller ve manifestin sonuna ekler (null: kaydı siler).
+     * Her satır hemen diske gider; çalıştırma yarıda kesilse de tamamlanan
+     * dosyalar bir sonrakinde atlanır.
+     */
+    private void record(String key, ManifestEntry entry) throws IOException {
+        if (entry != null) {
+            manifest.put(key, entry);
+        } else {
+            manifest.remove(key);
+        }
+        ManifestEntry line = entry != null ? entry : new ManifestEntry("-", 0, 0, EnumSet.noneOf(Format.class));
+        synchronized (journalLock) {
+            journal.write(manifestLine(key, line));
+            journal.flush();
+        }
+    }
+
+    /** Sona eklenmiş satırları atıp manifesti geçerli kayıtlarla yeniden yazar. */
+    private void saveManifest() throws IOException {
+        Path file = outputDir.resolve(MANIFEST_NAME);
+        Path tmp = outputDir.resolve(MANIFEST_NAME + ".tmp");
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, ManifestEntry> e : manifest.entrySet()) {
+                w.write(manifestLine(e.getKey(), e.getValue()));
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String manifestLine(String key, ManifestEntry m) {
+        StringBuilder names = new StringBuilder();
+        for (Format f : m.formats) {
+            if (names.length() > 0) names.append(',');
+            names.append(f.name());
+        }
+        return m.digest + "\t" + m.size + "\t" + m.modified + "\t" + names + "\t" + key + "\n";
+    }
+
+    private void saveFailures() throws IOException {
+        Path file = outputDir.resolve(FAILURES_NAME);
+        if (failures.isEmpty()) {
+            Files.deleteIfExists(file);
+            return;
+        }
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (String line : failures) {
+                w.write(line);
+                w.write('\n');
+            }
+        }
+    }
+}
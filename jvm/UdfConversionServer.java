@@ -0,0 +1,536 @@
+package com.udfviewer.app;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Aynı makinedeki sistemler için eşzamanlı UDF → TXT / HTML / PDF dönüşüm
+ * servisi (com.sun.net.httpserver). Gömülebilir: new, start(), stop().
+ *
+ *   POST /convert?format=txt|html|pdf   gövde: UDF dosyası
+ *   GET  /metrics                       gecikme yüzdelikleri, sayaçlar
+ *   GET  /health
+ *
+ * İstekler sanal iş parçacıklarında karşılanır (JDK 21+; JDK 17'de havuzlanmış
+ * sıradan iş parçacıkları). Ayrıştırma ve sayfalama gibi CPU işi çekirdek
+ * sayısı kadar iş parçacıklı sınırlı bir havuzda yürür. Kabul denetimi:
+ * aynı anda en çok workers + queue istek içeride olabilir, fazlası gövdesi
+ * okunmadan 429 alır. İzin, istek süre aşımıyla dönse bile iş parçacığı
+ * havuzdaki işi gerçekten bitirene kadar tutulur; iptal edilen işler yeni
+ * istekler sığmadan kuyruğu doldurmaz. Her isteğin bir son süresi vardır
+ * (X-Deadline-Ms başlığıyla kısaltılabilir); gövdenin alınmasını da kapsar.
+ * Gövde zamanında gelmezse bağlantı kapatılır; dönüşüm aşarsa iş kesilir
+ * (ayrıştırıcı ve dışa aktarıcılar kesmeye bakar) ve 504 döner. Gövde
+ * boyutu sınırlıdır (413); açılmış içerik UdfParseLimits ile sınırlanır (422).
+ * Sonuçlar girdinin SHA-256 özeti + biçimle bayt sınırlı bir LRU önbellekte
+ * tutulur. PDF'te standart yazı tiplerinin kodlayamayıp '?' yazdığı
+ * karakterler X-Unencodable-Chars başlığıyla bildirilir.
+ *
+ * Derleme UdfBatchConverter'daki dosya listesine bu dosyayı ekleyerek yapılır:
+ * <pre>
+ *   java -cp out:kxml2.jar com.udfviewer.app.UdfConversionServer --port 8080
+ *   curl --data-binary @dosya.udf 'http://127.0.0.1:8080/convert?format=txt'
+ * </pre>
+ */
+public final class UdfConversionServer {
+
+    /** Servis ayarları; varsayılanlar tek makine kullanımına göredir. */
+    public static final class Config {
+        String host = "127.0.0.1";
+        int port = 8080;
+        int workers = Runtime.getRuntime().availableProcessors();
+        int queue = 64;
+        long maxBodyBytes = 32L * 1024 * 1024;
+        long deadlineMillis = 30_000;
+        long cacheBytes = 128L * 1024 * 1024;
+        UdfParseLimits limits = UdfParseLimits.DEFAULT;
+
+        public Config setHost(String host) { this.host = host; return this; }
+        public Config setPort(int port) { this.port = port; return this; }
+        public Config setWorkers(int workers) { this.workers = Math.max(1, workers); return this; }
+        public Config setQueue(int queue) { this.queue = Math.max(0, queue); return this; }
+        public Config setMaxBodyBytes(long bytes) { this.maxBodyBytes = bytes; return this; }
+        public Config setDeadlineMillis(long millis) { this.deadlineMillis = millis; return this; }
+        public Config setCacheBytes(long bytes) { this.cacheBytes = bytes; return this; }
+        public Config setLimits(UdfParseLimits limits) { this.limits = limits; return this; }
+    }
+
+    enum Format {
+        TXT("text/plain; charset=utf-8"),
+        HTML("text/html; charset=utf-8"),
+        PDF("application/pdf");
+
+        final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+    }
+
+    /** Dönüşüm çıktısı; unencodable yalnızca PDF'te '?' yazılan karakter sayısı. */
+    private static final class Rendered {
+        final byte[] data;
+        final int unencodable;
+
+        Rendered(byte[] data, int unencodable) {
+            this.data = data;
+            this.unencodable = unencodable;
+        }
+    }
+
+    /** İsteğe HTTP durumuyla dönen hata. */
+    private static final class HttpError extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Config config;
+    private final UdfStreamParser parser;
+    private final Semaphore admission;
+    private final ThreadPoolExecutor cpu;
+    private final ScheduledExecutorService watchdog;
+    private final ResultCache cache;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private ExecutorService requestExecutor;
+    private boolean virtualThreads;
+    private HttpServer server;
+
+    public UdfConversionServer(Config config) {
+        this.config = config;
+        // Havuz zaten tüm çekirdekleri kullanıyor; belge başına ikinci iş parçacığı açılmaz
+        this.parser = new UdfStreamParser(config.limits).setPipelined(false);
+        this.admission = new Semaphore(config.workers + config.queue);
+        AtomicInteger n = new AtomicInteger();
+        this.cpu = new ThreadPoolExecutor(config.workers, config.workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, config.queue)), r -> {
+                    Thread t = new Thread(r, "udf-convert-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "udf-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        this.cache = new ResultCache(config.cacheBytes);
+    }
+
+    public synchronized void start() throws IOException {
+        if (server != null) return;
+        PerfMetrics.setEnabled(true);
+        requestExecutor = newRequestExecutor();
+        server = HttpServer.create(new InetSocketAddress(config.host, config.port), 0);
+        server.setExecutor(requestExecutor);
+        server.createContext("/convert", this::handleConvert);
+        server.createContext("/metrics", this::handleMetrics);
+        server.createContext("/health", exchange -> send(exchange, 200, "text/plain; charset=utf-8",
+                "ok\n".getBytes(StandardCharsets.UTF_8)));
+        server.start();
+    }
+
+    public synchronized void stop() {
+        if (server == null) return;
+        server.stop(1);
+        server = null;
+        requestExecutor.shutdownNow();
+        cpu.shutdownNow();
+        watchdog.shutdownNow();
+    }
+
+    /** Bağlanılan port (--port 0 ile rastgele seçilir). */
+    public synchronized int getPort() {
+        return server != null ? server.getAddress().getPort() : -1;
+    }
+
+    /**
+     * JDK 21+'da istek başına sanal iş parçacığı. Derleme hedefi JDK 17
+     * olduğundan yöntem yansımayla çağrılır; yoksa sıradan iş parçacıkları.
+     */
+    private ExecutorService newRequestExecutor() {
+        try {
+            Object executor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            virtualThreads = true;
+            return (ExecutorService) executor;
+        } catch (ReflectiveOperationException e) {
+            virtualThreads = false;
+            AtomicInteger n = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "udf-http-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    // ── /convert ─────────────────────────────────────────────────────────────
+
+    private void handleConvert(HttpExchange exchange) throws IOException {
+        long t = PerfMetrics.start();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis(exchange));
+        boolean admitted = false;
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                throw new HttpError(405, "Yalnızca POST");
+            }
+            Format format = parseFormat(exchange.getRequestURI().getRawQuery());
+            // Kabul denetimi gövde okunmadan önce: aşırı yükte bellek de korunur
+            if (!admission.tryAcquire()) {
+                rejected.incrementAndGet();
+                PerfMetrics.count("http.rejected");
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                throw new HttpError(429, "Servis meşgul");
+            }
+            admitted = true;
+            inFlight.incrementAndGet();
+
+            byte[] body = readBody(exchange, deadline);
+            String key = digest(body) + "." + format.name();
+            Rendered result = cache.get(key);
+            if (result != null) {
+                PerfMetrics.count("http.cache.hit");
+                exchange.getResponseHeaders().set("X-Cache", "HIT");
+            } else {
+                PerfMetrics.count("http.cache.miss");
+                // İzin işle birlikte havuza geçer; iş bitince bırakılır
+                admitted = false;
+                result = convert(body, format, deadline);
+                cache.put(key, result);
+                exchange.getResponseHeaders().set("X-Cache", "MISS");
+            }
+            if (result.unencodable > 0) {
+                exchange.getResponseHeaders().set("X-Unencodable-Chars", String.valueOf(result.unencodable));
+            }
+            send(exchange, 200, format.contentType, result.data);
+            PerfMetrics.stop("http.convert." + format.name().toLowerCase(Locale.ROOT), t);
+        } catch (HttpError e) {
+            PerfMetrics.count("http." + e.status);
+            send(exchange, e.status, "text/plain; charset=utf-8",
+                    (e.getMessage() + "\n").getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // İstemci bağlantıyı kapattı; yanıt yazılamaz
+            PerfMetrics.count("http.aborted");
+            exchange.close();
+        } catch (RuntimeException e) {
+            PerfMetrics.count("http.500");
+            send(exchange, 500, "text/plain; charset=utf-8",
+                    ("Sunucu hatası: " + e + "\n").getBytes(StandardCharsets.UTF_8));
+        } finally {
+            if (admitted) releaseAdmission();
+        }
+    }
+
+    private void releaseAdmission() {
+        inFlight.decrementAndGet();
+        admission.release();
+    }
+
+    /**
+     * Havuzda çalışan dönüşüm. İptal edilse de run() bir iş parçacığında
+     * çağrılır (kuyruktaysa hemen döner); kabul izni ancak o zaman bırakılır.
+     */
+    private final class RenderTask extends FutureTask<Rendered> {
+        RenderTask(byte[] body, Format format) {
+            super(() -> render(body, format));
+        }
+
+        @Override
+        public void run() {
+            try {
+                super.run();
+            } finally {
+                releaseAdmission();
+            }
+        }
+    }
+
+    /** Kabul iznini devralır: iş havuza girerse onunla, girmezse burada bırakılır. */
+    private Rendered convert(byte[] body, Format format, long deadline) throws HttpError {
+        RenderTask future = new RenderTask(body, format);
+        try {
+            cpu.execute(future);
+        } catch (RejectedExecutionException e) {
+            releaseAdmission();
+            rejected.incrementAndGet();
+            PerfMetrics.count("http.rejected");
+            throw new HttpError(429, "Servis meşgul");
+        }
+        try {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) throw new TimeoutException();
+            return future.get(remaining, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOut.incrementAndGet();
+            throw new HttpError(504, "Süre aşıldı");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new HttpError(503, "Servis kapanıyor");
+        } catch (CancellationException e) {
+            throw new HttpError(504, "Süre aşıldı");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UdfLimitExceededException) throw new HttpError(422, cause.getMessage());
+            String message = cause != null && cause.getMessage() != null ? cause.getMessage() : String.valueOf(cause);
+            throw new HttpError(400, "Dönüştürülemedi: " + message);
+        }
+    }
+
+    /** CPU havuzunda çalışır; iptal (kesme) ayrıştırmada, sayfalamada ve yazımda denetlenir. */
+    private Rendered render(byte[] body, Format format) throws Exception {
+        long t = PerfMetrics.start();
+        UdfDocument document = parser.parse(new ByteArrayInputStream(body));
+        PerfMetrics.stop("http.parse", t);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(4096, body.length * 2));
+        t = PerfMetrics.start();
+        int unencodable = 0;
+        switch (format) {
+            case PDF:
+                unencodable = UdfPdfWriter.countUnencodable(document);
+                if (unencodable > 0) PerfMetrics.count("http.pdf.unencodable");
+                // Yanıt ağdan gider ve önbellekte durur; sıkı kip hem boyutu hem süreyi düşürür
+                UdfPdfWriter.write(document, out, () -> Thread.currentThread().isInterrupted(), true);
+                break;
+            case HTML:
+                UdfTextExporter.write(document, UdfTextExporter.Format.HTML, "UDF", out);
+                break;
+            default:
+                UdfTextExporter.write(document, UdfTextExporter.Format.TEXT, null, out);
+                break;
+        }
+        PerfMetrics.stop("http.render." + format.name().toLowerCase(Locale.ROOT), t);
+        return new Rendered(out.toByteArray(), unencodable);
+    }
+
+    private long deadlineMillis(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("X-Deadline-Ms");
+        if (header != null) {
+            try {
+                long requested = Long.parseLong(header.trim());
+                if (requested > 0) return Math.min(requested, config.deadlineMillis);
+            } catch (NumberFormatException ignored) {
+                // Geçersiz başlık: varsayılan süre
+            }
+        }
+        return config.deadlineMillis;
+    }
+
+    private static Format parseFormat(String query) throws HttpError {
+        String value = "txt";
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0 && "format".equals(pair.substring(0, eq))) {
+                    value = URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+                }
+            }
+        }
+        try {
+            return Format.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new HttpError(400, "Bilinmeyen biçim: " + value);
+        }
+    }
+
+    /**
+     * Gövdeyi sınır içinde okur; Content-Length sınırı aşıyorsa hiç okumaz.
+     * Son süreye kadar bitmezse bekçi okuyan iş parçacığını keser; bloklu
+     * kanal okuması bağlantıyı kapatıp IOException ile döner (yavaş istemci
+     * iş parçacığını ve kabul iznini tutamaz).
+     */
+    private byte[] readBody(HttpExchange exchange, long deadline) throws IOException, HttpError {
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (length != null) {
+            try {
+                if (Long.parseLong(length.trim()) > config.maxBodyBytes) {
+                    throw new HttpError(413, "Dosya çok büyük (en çok " + config.maxBodyBytes + " bayt)");
+                }
+            } catch (NumberFormatException ignored) {
+                // Akarken sayılır
+            }
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream(8192);
+        byte[] buffer = new byte[16 * 1024];
+        Thread reader = Thread.currentThread();
+        AtomicBoolean reading = new AtomicBoolean(true);
+        ScheduledFuture<?> alarm = watchdog.schedule(() -> {
+            if (reading.compareAndSet(true, false)) reader.interrupt();
+        }, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        try (InputStream in = exchange.getRequestBody()) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                if (body.size() + n > config.maxBodyBytes) {
+                    throw new HttpError(413, "Dosya çok büyük (en çok " + config.maxBodyBytes + " bayt)");
+                }
+                body.write(buffer, 0, n);
+            }
+        } finally {
+            alarm.cancel(false);
+            if (!reading.compareAndSet(true, false)) {
+                // Bekçi çalıştı: bayrak sonraki kanal işlemlerini bozmasın
+                Thread.interrupted();
+                timedOut.incrementAndGet();
+                PerfMetrics.count("http.body.timeout");
+            }
+        }
+        if (body.size() == 0) throw new HttpError(400, "Boş gövde");
+        return body.toByteArray();
+    }
+
+    private static String digest(byte[] data) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(data);
+            char[] hex = new char[hash.length * 2];
+            for (int i = 0; i < hash.length; i++) {
+                hex[2 * i] = HEX[(hash[i] >> 4) & 0xF];
+                hex[2 * i + 1] = HEX[hash[i] & 0xF];
+            }
+            return new String(hex);
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ── /metrics ─────────────────────────────────────────────────────────────
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT,
+                "Servis\n  sanal iş parçacığı  %s\n  içerideki istek    %d / %d\n"
+                        + "  CPU havuzu         %d etkin, %d kuyrukta\n  reddedilen (429)   %d\n"
+                        + "  süre aşımı (504)   %d\n  önbellek           %d girdi, %d / %d bayt\n\n",
+                virtualThreads ? "evet" : "hayır (JDK < 21)",
+                inFlight.get(), config.workers + config.queue,
+                cpu.getActiveCount(), cpu.getQueue().size(), rejected.get(), timedOut.get(),
+                cache.size(), cache.bytes(), config.cacheBytes));
+        sb.append(PerfMetrics.snapshot());
+        send(exchange, 200, "text/plain; charset=utf-8", sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", contentType);
+        try {
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // ── Önbellek ─────────────────────────────────────────────────────────────
+
+    /** Toplam bayta göre sınırlı, erişim sıralı LRU. */
+    private static final class ResultCache {
+        private final long capacity;
+        private final LinkedHashMap<String, Rendered> map = new LinkedHashMap<>(64, 0.75f, true);
+        private long bytes;
+
+        ResultCache(long capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized Rendered get(String key) {
+            return map.get(key);
+        }
+
+        synchronized void put(String key, Rendered value) {
+            // Kapasitenin dörtte birinden büyük sonuç önbelleği tek başına boşaltmasın
+            if (value.data.length > capacity / 4) return;
+            Rendered old = map.put(key, value);
+            if (old != null) bytes -= old.data.length;
+            bytes += value.data.length;
+            Iterator<Map.Entry<String, Rendered>> it = map.entrySet().iterator();
+            while (bytes > capacity && it.hasNext()) {
+                bytes -= it.next().getValue().data.length;
+                it.remove();
+            }
+        }
+
+        synchronized int size() {
+            return map.size();
+        }
+
+        synchronized long bytes() {
+            return bytes;
+        }
+    }
+
+    // ── Komut satırı ─────────────────────────────────────────────────────────
+
+    public static void main(String[] args) throws Exception {
+        Config config = new Config();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String a = args[i];
+                String v = i + 1 < args.length ? args[i + 1] : null;
+                if (v == null && a.startsWith("--")) throw new IllegalArgumentException("Eksik değer: " + a);
+                switch (a) {
+                    case "--host": config.setHost(v); break;
+                    case "--port": config.setPort(Integer.parseInt(v)); break;
+                    case "--workers": config.setWorkers(Integer.parseInt(v)); break;
+                    case "--queue": config.setQueue(Integer.parseInt(v)); break;
+                    case "--max-mb": config.setMaxBodyBytes(Long.parseLong(v) * 1024 * 1024); break;
+                    case "--deadline-ms": config.setDeadlineMillis(Long.parseLong(v)); break;
+                    case "--cache-mb": config.setCacheBytes(Long.parseLong(v) * 1024 * 1024); break;
+                    default: throw new IllegalArgumentException("Bilinmeyen seçenek: " + a);
+                }
+                i++;
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Kullanım: UdfConversionServer [--host 127.0.0.1] [--port 8080] [--workers N]"
+                    + " [--queue N] [--max-mb 32] [--deadline-ms 30000] [--cache-mb 128]");
+            System.exit(2);
+            return;
+        }
+        UdfConversionServer service = new UdfConversionServer(config);
+        service.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(service::stop));
+        System.out.println("Dinleniyor: http://" + config.host + ":" + service.getPort()
+                + " (sanal iş parçacığı: " + (service.virtualThreads ? "evet" : "hayır") + ")");
+    }
+}